@@ -0,0 +1,68 @@
+package de.tu_darmstadt.gdi1.bomberman.benchmarks;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Ein Messfall für den BenchmarkRunner. Gemessen wird nur op(), vorher kommt jedes Mal prepare(),
+ * das nicht mitzählt - dort wird etwa ein verbrauchtes Spielfeld neu gebaut.
+ *
+ * Damit der JIT nichts wegoptimiert, gibt op() etwas vom Ergebnis zurück, der Runner sammelt es ein.
+ */
+public abstract class Benchmark {
+
+	private final String name;
+	private final Map<String, String> params = new LinkedHashMap<String, String>();
+
+	/**
+	 * @param name Eindeutiger Name, etwa "tick.level". Nach ihm wird gefiltert.
+	 */
+	protected Benchmark (String name) {
+		this.name = name;
+	}
+
+	public String getName () {
+		return name;
+	}
+
+	/**
+	 * @return Name plus Parameter, etwa "tick.level:Simple.lvl". Eindeutig unter allen Fällen.
+	 */
+	public String getId () {
+		StringBuilder sb = new StringBuilder(name);
+		for (String value : params.values()) {
+			sb.append(':').append(value);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Parameter erscheinen in der Ausgabe und im JSON.
+	 */
+	protected Benchmark param (String key, Object value) {
+		params.put(key, String.valueOf(value));
+		return this;
+	}
+
+	public Map<String, String> getParams () {
+		return params;
+	}
+
+	/**
+	 * Einmal vor allen Iterationen, zählt nicht mit.
+	 */
+	protected void setUp () throws Exception {
+	}
+
+	/**
+	 * Vor jedem op(), zählt nicht mit.
+	 */
+	protected void prepare () throws Exception {
+	}
+
+	/**
+	 * Die gemessene Operation.
+	 * @return Irgendetwas, das vom Ergebnis abhängt.
+	 */
+	protected abstract long op () throws Exception;
+}
@@ -0,0 +1,369 @@
+package de.tu_darmstadt.gdi1.bomberman.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Führt Benchmarks aus, angelehnt an JMH: Aufwärm- und Messiterationen fester Dauer, jeder Fall in
+ * einer eigenen JVM (Fork), damit der JIT-Zustand eines Falls nicht den nächsten verfälscht.
+ * Gemessen wird die mittlere Zeit pro Operation, der Fehler ist das 99.9%-Konfidenzintervall
+ * (Normalverteilung) über alle Messiterationen aller Forks.
+ *
+ * Die Ergebnisse lassen sich mit -rff als JSON im Format von JMH speichern, so dass sich Läufe vor
+ * und nach einer Änderung mit den üblichen JMH-Werkzeugen vergleichen lassen.
+ *
+ * Optionen:
+ *   -f N     Forks pro Fall (Standard 1), 0 misst in dieser JVM
+ *   -wi N    Aufwärmiterationen (Standard 5)
+ *   -i N     Messiterationen (Standard 10)
+ *   -r S     Dauer einer Iteration in Sekunden (Standard 1)
+ *   -rff F   Ergebnisse als JSON in die Datei F schreiben
+ *   -l       Nur die Fälle auflisten
+ *   Muster   Nur Fälle, deren Id auf einen der regulären Ausdrücke passt
+ */
+public class BenchmarkRunner {
+
+	private static final String CHILD = "-child";
+	private static final String RESULT = "RESULT";
+	// Two-sided 99.9% quantile of the normal distribution
+	private static final double Z_999 = 3.2905;
+
+	private final Class<?> mainClass;
+	private final List<Benchmark> benchmarks;
+	private final List<String> options = new ArrayList<String>();
+
+	private int forks = 1;
+	private int warmupIterations = 5;
+	private int iterations = 10;
+	private long iterationNanos = TimeUnit.SECONDS.toNanos(1);
+	private String resultFile = null;
+	private boolean list = false;
+	private String child = null;
+	private final List<Pattern> filters = new ArrayList<Pattern>();
+
+	// Keeps op() results alive
+	private long sink = 0;
+
+	/**
+	 * @param mainClass Die Klasse, deren main() die Forks starten.
+	 * @param benchmarks Alle Fälle.
+	 * @param args Die Kommandozeile.
+	 */
+	public BenchmarkRunner (Class<?> mainClass, List<Benchmark> benchmarks, String[] args) {
+		this.mainClass = mainClass;
+		this.benchmarks = benchmarks;
+		parse(args);
+	}
+
+	private void parse (String[] args) {
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if (arg.equals("-f")) {
+				forks = Integer.parseInt(args[++i]);
+			} else if (arg.equals("-wi")) {
+				warmupIterations = Integer.parseInt(args[++i]);
+			} else if (arg.equals("-i")) {
+				iterations = Integer.parseInt(args[++i]);
+			} else if (arg.equals("-r")) {
+				iterationNanos = (long) (Double.parseDouble(args[++i]) * 1e9);
+			} else if (arg.equals("-rff")) {
+				resultFile = args[++i];
+				continue;
+			} else if (arg.equals("-l")) {
+				list = true;
+				continue;
+			} else if (arg.equals(CHILD)) {
+				child = args[++i];
+				continue;
+			} else {
+				filters.add(Pattern.compile(arg));
+				continue;
+			}
+			// Passed on to the forks
+			options.add(arg);
+			options.add(args[i]);
+		}
+		if (iterations < 1)
+			throw new IllegalArgumentException("At least one measurement iteration is needed: " + iterations);
+	}
+
+	/**
+	 * Führt alle ausgewählten Fälle aus, gibt die Ergebnisse aus und schreibt sie ggf. als JSON.
+	 */
+	public void run () throws Exception {
+		if (child != null) {
+			runChild();
+			return;
+		}
+
+		List<Benchmark> selected = new ArrayList<Benchmark>();
+		for (Benchmark b : benchmarks) {
+			if (matches(b))
+				selected.add(b);
+		}
+		if (list) {
+			for (Benchmark b : selected) {
+				System.out.println(b.getId());
+			}
+			return;
+		}
+
+		List<Result> results = new ArrayList<Result>();
+		for (Benchmark b : selected) {
+			System.err.println("# Benchmark: " + b.getId());
+			Result result = new Result(b);
+			if (forks == 0) {
+				result.forks.add(measure(b));
+			} else {
+				for (int f = 0; f < forks; f++) {
+					System.err.println("# Fork " + (f + 1) + " of " + forks);
+					result.forks.add(fork(b));
+				}
+			}
+			System.err.println(result.line());
+			results.add(result);
+		}
+
+		System.out.println();
+		System.out.println(String.format(Locale.ROOT, "%-40s %5s %5s %14s    %10s  %s",
+				"Benchmark", "Mode", "Cnt", "Score", "Error", "Units"));
+		for (Result result : results) {
+			System.out.println(result.line());
+		}
+
+		if (resultFile != null) {
+			writeJson(results, new File(resultFile));
+			System.out.println("Results written to " + resultFile);
+		}
+	}
+
+	private boolean matches (Benchmark b) {
+		if (filters.isEmpty())
+			return true;
+		for (Pattern filter : filters) {
+			if (filter.matcher(b.getId()).find())
+				return true;
+		}
+		return false;
+	}
+
+	// Measuring ///////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Misst einen Fall in dieser JVM.
+	 * @return Mikrosekunden pro Operation, eine Zahl pro Messiteration.
+	 */
+	private double[] measure (Benchmark b) throws Exception {
+		b.setUp();
+		for (int i = 0; i < warmupIterations; i++) {
+			System.err.println(String.format(Locale.ROOT, "# Warmup Iteration %2d: %.3f us/op", i + 1, iterate(b)));
+		}
+		double[] scores = new double[iterations];
+		for (int i = 0; i < iterations; i++) {
+			scores[i] = iterate(b);
+			System.err.println(String.format(Locale.ROOT, "Iteration %2d: %.3f us/op", i + 1, scores[i]));
+		}
+		return scores;
+	}
+
+	/**
+	 * Ruft op() auf, bis die Iteration um ist - mindestens einmal.
+	 * @return Mittlere Mikrosekunden pro op().
+	 */
+	private double iterate (Benchmark b) throws Exception {
+		long end = System.nanoTime() + iterationNanos;
+		long nanos = 0;
+		long ops = 0;
+		do {
+			b.prepare();
+			long start = System.nanoTime();
+			sink += b.op();
+			nanos += System.nanoTime() - start;
+			ops++;
+		} while (System.nanoTime() < end);
+		return nanos / 1e3 / ops;
+	}
+
+	/**
+	 * Misst einen Fall in einer neuen JVM mit demselben Classpath.
+	 */
+	private double[] fork (Benchmark b) throws Exception {
+		List<String> command = new ArrayList<String>();
+		command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(mainClass.getName());
+		command.addAll(options);
+		command.add(CHILD);
+		command.add(b.getId());
+
+		ProcessBuilder builder = new ProcessBuilder(command);
+		builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+		Process process = builder.start();
+
+		double[] scores = null;
+		BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream(), "UTF-8"));
+		try {
+			for (String line = in.readLine(); line != null; line = in.readLine()) {
+				if (line.startsWith(RESULT + " ")) {
+					String[] parts = line.substring(RESULT.length() + 1).trim().split(" ");
+					scores = new double[parts.length];
+					for (int i = 0; i < parts.length; i++) {
+						scores[i] = Double.parseDouble(parts[i]);
+					}
+				} else {
+					System.out.println(line);
+				}
+			}
+		} finally {
+			in.close();
+		}
+
+		int exit = process.waitFor();
+		if (exit != 0 || scores == null)
+			throw new IOException("Fork for " + b.getId() + " failed with exit code " + exit);
+		return scores;
+	}
+
+	private void runChild () throws Exception {
+		for (Benchmark b : benchmarks) {
+			if (b.getId().equals(child)) {
+				double[] scores = measure(b);
+				StringBuilder sb = new StringBuilder(RESULT);
+				for (double score : scores) {
+					sb.append(' ').append(score);
+				}
+				System.out.println(sb);
+				// Printed so the sink cannot be optimized away
+				System.err.println("# Sink: " + sink);
+				return;
+			}
+		}
+		throw new IllegalArgumentException("No benchmark " + child);
+	}
+
+	// Results /////////////////////////////////////////////////////////////////////////////////////
+
+	private class Result {
+		final Benchmark benchmark;
+		final List<double[]> forks = new ArrayList<double[]>();
+
+		Result (Benchmark benchmark) {
+			this.benchmark = benchmark;
+		}
+
+		int count () {
+			int n = 0;
+			for (double[] scores : forks) {
+				n += scores.length;
+			}
+			return n;
+		}
+
+		double mean () {
+			double sum = 0;
+			for (double[] scores : forks) {
+				for (double score : scores) {
+					sum += score;
+				}
+			}
+			return sum / count();
+		}
+
+		double error () {
+			int n = count();
+			if (n < 2)
+				return Double.NaN;
+			double mean = mean();
+			double squares = 0;
+			for (double[] scores : forks) {
+				for (double score : scores) {
+					squares += (score - mean) * (score - mean);
+				}
+			}
+			return Z_999 * Math.sqrt(squares / (n - 1)) / Math.sqrt(n);
+		}
+
+		String line () {
+			return String.format(Locale.ROOT, "%-40s %5s %5d %14.3f +- %10.3f  %s",
+					benchmark.getId(), "avgt", count(), mean(), error(), "us/op");
+		}
+	}
+
+	private void writeJson (List<Result> results, File file) throws IOException {
+		if (file.getParentFile() != null)
+			file.getParentFile().mkdirs();
+
+		Writer out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		try {
+			out.write("[\n");
+			for (int r = 0; r < results.size(); r++) {
+				Result result = results.get(r);
+				double error = result.error();
+				out.write("    {\n");
+				out.write("        \"benchmark\" : " + quote(result.benchmark.getName()) + ",\n");
+				out.write("        \"mode\" : \"avgt\",\n");
+				out.write("        \"threads\" : 1,\n");
+				out.write("        \"forks\" : " + forks + ",\n");
+				out.write("        \"warmupIterations\" : " + warmupIterations + ",\n");
+				out.write("        \"warmupTime\" : " + quote(seconds()) + ",\n");
+				out.write("        \"measurementIterations\" : " + iterations + ",\n");
+				out.write("        \"measurementTime\" : " + quote(seconds()) + ",\n");
+				if (!result.benchmark.getParams().isEmpty()) {
+					out.write("        \"params\" : {\n");
+					int p = 0;
+					for (Map.Entry<String, String> param : result.benchmark.getParams().entrySet()) {
+						out.write("            " + quote(param.getKey()) + " : " + quote(param.getValue())
+								+ (++p < result.benchmark.getParams().size() ? ",\n" : "\n"));
+					}
+					out.write("        },\n");
+				}
+				out.write("        \"primaryMetric\" : {\n");
+				out.write("            \"score\" : " + number(result.mean()) + ",\n");
+				out.write("            \"scoreError\" : " + number(error) + ",\n");
+				out.write("            \"scoreConfidence\" : [ " + number(result.mean() - error) + ", "
+						+ number(result.mean() + error) + " ],\n");
+				out.write("            \"scoreUnit\" : \"us/op\",\n");
+				out.write("            \"rawData\" : [\n");
+				for (int f = 0; f < result.forks.size(); f++) {
+					double[] scores = result.forks.get(f);
+					StringBuilder sb = new StringBuilder("                [ ");
+					for (int i = 0; i < scores.length; i++) {
+						sb.append(i > 0 ? ", " : "").append(number(scores[i]));
+					}
+					sb.append(f + 1 < result.forks.size() ? " ],\n" : " ]\n");
+					out.write(sb.toString());
+				}
+				out.write("            ]\n");
+				out.write("        }\n");
+				out.write(r + 1 < results.size() ? "    },\n" : "    }\n");
+			}
+			out.write("]\n");
+		} finally {
+			out.close();
+		}
+	}
+
+	private String seconds () {
+		return String.format(Locale.ROOT, "%s s", iterationNanos / 1e9);
+	}
+
+	private static String number (double value) {
+		return Double.isNaN(value) ? "\"NaN\"" : String.valueOf(value);
+	}
+
+	private static String quote (String s) {
+		return "\"" + s.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+	}
+}
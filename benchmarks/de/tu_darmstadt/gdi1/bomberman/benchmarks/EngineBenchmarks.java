@@ -0,0 +1,366 @@
+package de.tu_darmstadt.gdi1.bomberman.benchmarks;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import de.tu_darmstadt.gdi1.bomberman.game.MatchRandom;
+import de.tu_darmstadt.gdi1.bomberman.game.board.BitBoard;
+import de.tu_darmstadt.gdi1.bomberman.game.board.BombermanBoard;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Explosion;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.GameElement;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Player;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Stone;
+import de.tu_darmstadt.gdi1.bomberman.game.levels.BombermanGameData;
+import de.tu_darmstadt.gdi1.bomberman.game.levels.BombermanLevelGenerator;
+import de.tu_darmstadt.gdi1.bomberman.game.levels.BombermanLevelManager;
+import de.tu_darmstadt.gdi1.bomberman.simulation.ChainReactionBenchmark;
+import de.tu_darmstadt.gdi1.bomberman.simulation.HeadlessSimulation;
+import de.tu_darmstadt.gdi1.framework.exceptions.InvalidLevelDataException;
+import de.tu_darmstadt.gdi1.framework.model.GameBoard;
+import de.tu_darmstadt.gdi1.framework.model.StepManager;
+import de.tu_darmstadt.gdi1.framework.utils.FileUtility;
+
+/**
+ * Die Benchmarks der Spiel-Engine. Vor und nach jeder Änderung an der Engine laufen lassen und
+ * die JSON-Dateien vergleichen:
+ *
+ *   ant benchmark
+ *   ant benchmark -Dbenchmark.args="-f 3 tick"
+ *   java -cp ... EngineBenchmarks [Optionen] [Muster...]      (Optionen siehe BenchmarkRunner)
+ *
+ * Alles Zufällige hat feste Seeds, so dass jeder Lauf dieselben Matches und Level misst.
+ */
+public class EngineBenchmarks {
+
+	static final File LEVELS = new File("resource/levels");
+	static final int[] GENERATED_SIZES = {51, 101};
+	static final int[] CARPET_SIZES = {15, 41};
+	// Big enough for a ChunkedBoard
+	static final int CHUNKED_SIZE = 1001;
+
+	public static void main (String[] args) throws Exception {
+		new BenchmarkRunner(EngineBenchmarks.class, all(), args).run();
+	}
+
+	/**
+	 * @return Alle Fälle, in der Reihenfolge, in der sie laufen.
+	 */
+	public static List<Benchmark> all () throws Exception {
+		List<Benchmark> all = new ArrayList<Benchmark>();
+		for (File level : shippedLevels()) {
+			all.add(new Tick(level.getName(), readLevel(level)));
+		}
+		for (int size : GENERATED_SIZES) {
+			all.add(new Tick("generated-" + size, generatedLevel(size)));
+		}
+		for (int size : CARPET_SIZES) {
+			all.add(new ChainReaction(size));
+		}
+		all.add(new MoveCollision());
+		for (String board : new String[] {"Simple.lvl", "generated-101"}) {
+			String level = board.startsWith("generated") ? generatedLevel(101) : readLevel(new File(LEVELS, board));
+			all.add(new BoardClone(board, level));
+			all.add(new BoardHashCode(board, level));
+			all.add(new BoardEquals(board, level));
+			all.add(new SaveStep(board, level));
+			all.add(new CollectStones(board, level));
+		}
+		all.add(new CollectStones("generated-" + CHUNKED_SIZE, generatedLevel(CHUNKED_SIZE)));
+		return all;
+	}
+
+	// Levels //////////////////////////////////////////////////////////////////////////////////////
+
+	static File[] shippedLevels () throws FileNotFoundException {
+		File[] levels = LEVELS.listFiles();
+		if (levels == null)
+			throw new FileNotFoundException("No level directory " + LEVELS.getAbsolutePath() + ", run from the project root.");
+
+		List<File> result = new ArrayList<File>();
+		for (File level : levels) {
+			if (level.getName().endsWith(".lvl"))
+				result.add(level);
+		}
+		File[] sorted = result.toArray(new File[result.size()]);
+		Arrays.sort(sorted);
+		return sorted;
+	}
+
+	static String readLevel (File file) throws Exception {
+		return FileUtility.readFile(file);
+	}
+
+	/**
+	 * @return Ein zufälliger, aber immer derselbe spielbare Level der Kantenlänge size.
+	 */
+	static String generatedLevel (int size) {
+		for (long seed = size; ; seed++) {
+			String level = BombermanLevelGenerator.generateGrid(size, 4, new MatchRandom(seed));
+			try {
+				load(level);
+				return level;
+			} catch (InvalidLevelDataException e) {
+				// Players walled in, try the next seed
+			}
+		}
+	}
+
+	static BombermanGameData load (String level) throws InvalidLevelDataException {
+		return (BombermanGameData) new BombermanLevelManager(false).loadLevel(level);
+	}
+
+	static GameBoard<GameElement> gameBoard (String level) throws InvalidLevelDataException {
+		return gameBoard(load(level));
+	}
+
+	/**
+	 * @return Ein GameBoard des Frameworks mit denselben Elementen wie der Spielstand.
+	 */
+	static GameBoard<GameElement> gameBoard (BombermanGameData data) {
+		int width = data.getBoard().getWidth(), height = data.getBoard().getHeight();
+		GameBoard<GameElement> board = new GameBoard<GameElement>(width, height);
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++) {
+				board.getElements(x, y).addAll(data.getBoard().getElements(x, y));
+			}
+		}
+		return board;
+	}
+
+	// Ticks ///////////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Ein BombermanGame.tick() samt RandomBots. Ist ein Match entschieden, geht es mit dem nächsten
+	 * Seed von vorn los.
+	 */
+	static class Tick extends Benchmark {
+		final String level;
+		Simulation sim;
+		long seed = 0;
+
+		Tick (String name, String level) {
+			super("tick");
+			this.level = level;
+			param("level", name);
+		}
+
+		@Override
+		protected void prepare () throws Exception {
+			if (sim == null || sim.isDecided() || sim.getGame().getTickCount() >= HeadlessSimulation.DEFAULT_MAX_TICKS) {
+				sim = new Simulation(load(level));
+				sim.setSeed(++seed);
+			}
+		}
+
+		@Override
+		protected long op () {
+			sim.step();
+			return sim.getGame().getTickCount();
+		}
+	}
+
+	/**
+	 * Macht einen einzelnen Tick ohne die Buchführung von run() zugänglich.
+	 */
+	static class Simulation extends HeadlessSimulation {
+		Simulation (BombermanGameData data) {
+			super(data);
+		}
+
+		void step () {
+			letBotsAct();
+			game.tick();
+		}
+	}
+
+	// Bombs ///////////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Bomb.explode() auf einem Feld voller Superbomben, siehe ChainReactionBenchmark.
+	 */
+	static class ChainReaction extends Benchmark {
+		final int size;
+		final List<Explosion> explosions = new ArrayList<Explosion>();
+		BombermanGameData data;
+
+		ChainReaction (int size) {
+			super("explode.chain");
+			this.size = size;
+			param("size", size);
+		}
+
+		@Override
+		protected void prepare () {
+			data = ChainReactionBenchmark.buildBombCarpet(size, true);
+		}
+
+		@Override
+		protected long op () {
+			return ChainReactionBenchmark.detonate(data, explosions);
+		}
+	}
+
+	// Movement ////////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Player.move(): ein Schritt nach unten, einer gegen die Wand, einer zurück nach oben.
+	 */
+	static class MoveCollision extends Benchmark {
+		static final Player.direction[] STEPS = {Player.direction.DOWN, Player.direction.LEFT, Player.direction.UP};
+		Player player;
+		long tick = 0;
+
+		MoveCollision () {
+			super("move.collision");
+		}
+
+		@Override
+		protected void setUp () throws Exception {
+			BombermanGameData data = load(readLevel(new File(LEVELS, "Simple.lvl")));
+			data.getContext().setHeadless(true);
+			player = data.getPlayer(1);
+		}
+
+		@Override
+		protected long op () {
+			long moved = 0;
+			for (Player.direction dir : STEPS) {
+				// Far enough apart for any move delay
+				tick += 1000;
+				player.setDirection(dir);
+				if (player.move(tick))
+					moved++;
+			}
+			return moved;
+		}
+	}
+
+	// Board scans /////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * BombermanBoard.collect() aller Steine, der Scan hinter Player.mightyBlow(). Große Level
+	 * laufen dabei auf einem ChunkedBoard.
+	 */
+	static class CollectStones extends Benchmark {
+		final String level;
+		final List<Stone> stones = new ArrayList<Stone>();
+		BombermanBoard board;
+
+		CollectStones (String name, String level) {
+			super("board.collect");
+			this.level = level;
+			param("board", name);
+		}
+
+		@Override
+		protected void setUp () throws Exception {
+			board = load(level).getBoard();
+		}
+
+		@Override
+		protected long op () {
+			stones.clear();
+			return board.collect(BitBoard.STONE, Stone.class, stones).size();
+		}
+	}
+
+	// Framework ///////////////////////////////////////////////////////////////////////////////////
+
+	static class BoardClone extends Benchmark {
+		final String level;
+		GameBoard<GameElement> board;
+
+		BoardClone (String name, String level) {
+			super("board.clone");
+			this.level = level;
+			param("board", name);
+		}
+
+		@Override
+		protected void setUp () throws Exception {
+			board = gameBoard(level);
+		}
+
+		@Override
+		protected long op () {
+			return board.clone().getWidth();
+		}
+	}
+
+	static class BoardHashCode extends Benchmark {
+		final String level;
+		GameBoard<GameElement> board;
+
+		BoardHashCode (String name, String level) {
+			super("board.hashCode");
+			this.level = level;
+			param("board", name);
+		}
+
+		@Override
+		protected void setUp () throws Exception {
+			board = gameBoard(level);
+		}
+
+		@Override
+		protected long op () {
+			return board.hashCode();
+		}
+	}
+
+	/**
+	 * equals() gegen ein zweites Spielfeld mit denselben Elementen, also der teure Fall: alles muss
+	 * verglichen werden. Gegen clone() wäre schon das erste Element verschieden.
+	 */
+	static class BoardEquals extends Benchmark {
+		final String level;
+		GameBoard<GameElement> board;
+		GameBoard<GameElement> copy;
+
+		BoardEquals (String name, String level) {
+			super("board.equals");
+			this.level = level;
+			param("board", name);
+		}
+
+		@Override
+		protected void setUp () throws Exception {
+			BombermanGameData data = load(level);
+			board = gameBoard(data);
+			copy = gameBoard(data);
+		}
+
+		@Override
+		protected long op () {
+			return board.equals(copy) ? 1 : 0;
+		}
+	}
+
+	/**
+	 * StepManager.saveStep(), mit voller Undo-Historie.
+	 */
+	static class SaveStep extends Benchmark {
+		final String level;
+		StepManager<GameElement> steps;
+
+		SaveStep (String name, String level) {
+			super("stepManager.saveStep");
+			this.level = level;
+			param("board", name);
+		}
+
+		@Override
+		protected void setUp () throws Exception {
+			steps = new StepManager<GameElement>(gameBoard(level));
+		}
+
+		@Override
+		protected long op () {
+			steps.saveStep();
+			return steps.undoPossible();
+		}
+	}
+}
@@ -1,7 +1,7 @@
 package de.tu_darmstadt.gdi1.bomberman;
 
+import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -10,6 +10,7 @@ import javax.sound.sampled.UnsupportedAudioFileException;
 
 import de.tu_darmstadt.gdi1.bomberman.framework.AbstractBombermanController;
 import de.tu_darmstadt.gdi1.bomberman.game.BombermanGame;
+import de.tu_darmstadt.gdi1.bomberman.game.IMatchListener;
 import de.tu_darmstadt.gdi1.bomberman.game.elements.GameElement;
 import de.tu_darmstadt.gdi1.bomberman.game.elements.Player;
 import de.tu_darmstadt.gdi1.bomberman.game.levels.BombermanGameData;
@@ -18,6 +19,9 @@ import de.tu_darmstadt.gdi1.bomberman.gui.ControllerEvent;
 import de.tu_darmstadt.gdi1.bomberman.gui.ControllerInputEvent;
 import de.tu_darmstadt.gdi1.bomberman.gui.Gui;
 import de.tu_darmstadt.gdi1.bomberman.gui.UIEvent;
+import de.tu_darmstadt.gdi1.bomberman.replay.Replay;
+import de.tu_darmstadt.gdi1.bomberman.replay.ReplayPlayer;
+import de.tu_darmstadt.gdi1.bomberman.replay.ReplayRecorder;
 import de.tu_darmstadt.gdi1.bomberman.sound.SoundManagerFactory;
 import de.tu_darmstadt.gdi1.framework.exceptions.InvalidLevelDataException;
 import de.tu_darmstadt.gdi1.framework.exceptions.NoNextLevelException;
@@ -26,7 +30,6 @@ import de.tu_darmstadt.gdi1.framework.exceptions.SoundFailedException;
 import de.tu_darmstadt.gdi1.framework.interfaces.IControllerEvent;
 import de.tu_darmstadt.gdi1.framework.interfaces.IGameData;
 import de.tu_darmstadt.gdi1.framework.utils.FrameworkUtils;
-import de.tu_darmstadt.gdi1.framework.utils.Point;
 
 /**
  * Der BombermanController ist unsere Implementierung eines
@@ -41,6 +44,11 @@ public class BombermanController extends AbstractBombermanController {
     protected BombermanGame game;
     protected boolean testMode = false;
     public HashMap<Integer, Player> players;
+    // Where finished matches are saved as replays (null: no recording), the running recording and
+    // the replay shown instead of keyboard input
+    protected File recordDirectory;
+    protected ReplayRecorder recorder;
+    protected ReplayPlayer replayPlayer;
     Logger logger = Logger.getLogger(BombermanController.class.getName());
 
     // INITIALISIERUNG /////////////////////////////////////////////////////////////////////////////
@@ -49,8 +57,7 @@ public class BombermanController extends AbstractBombermanController {
      * passiert in initialise().
      */
     public BombermanController() {
-        super();
-        levelManager = new BombermanLevelManager();
+        this(false, null, null, null);
 
         /*
          * infoProvider = new SameGameLevelInformationProvider();
@@ -60,15 +67,53 @@ public class BombermanController extends AbstractBombermanController {
          */
     }
 
+    /**
+     * Startet das Spiel mit festem Seed: alle Matches werden daraus abgeleitet und lassen sich mit
+     * demselben Seed und denselben Eingaben wiederholen.
+     *
+     * @param seed
+     */
+    public BombermanController(long seed) {
+        this(false, Long.valueOf(seed), null, null);
+    }
+
+    /**
+     * Startet das Spiel mit allen Optionen der Kommandozeile.
+     *
+     * @param seed Seed aller Matches, null für zufällige.
+     * @param recordDirectory Hier wird jedes Match als Replay gespeichert, null für keine Aufnahme.
+     * @param replay Wird statt eines Levels in Echtzeit abgespielt, null für ein normales Spiel.
+     */
+    public BombermanController(Long seed, File recordDirectory, Replay replay) {
+        this(false, seed, recordDirectory, replay);
+    }
+
     /**
      * Startet den Controller im Testmodus, der die Eventqueue und GUI nicht
-     * startet.
+     * startet. Der Worker Thread wird dann gar nicht erst gestartet - sonst
+     * würde er initialize() aufrufen, bevor testMode gesetzt ist.
      *
      * @param testmode
      */
     public BombermanController(boolean testmode) {
+        this(testmode, null, null, null);
+    }
+
+    /**
+     * Der Worker wird erst gestartet, wenn alle Member gesetzt sind - initialize() läuft auf ihm.
+     */
+    private BombermanController(boolean testmode, Long seed, File recordDirectory, Replay replay) {
+        super(false);
         levelManager = new BombermanLevelManager();
+        levelManager.setSeed(seed);
+        this.recordDirectory = recordDirectory;
+        if (replay != null) {
+            replayPlayer = new ReplayPlayer(replay);
+        }
         testMode = testmode;
+        if (!testmode) {
+            startWorker();
+        }
     }
 
     /**
@@ -85,7 +130,12 @@ public class BombermanController extends AbstractBombermanController {
         gui = Gui.getInstance();
         try {
             // Hole den nächsten Level (oder eben den ersten) ...
-            IGameData<GameElement> gd = levelManager.loadNextLevel();
+            IGameData<GameElement> gd;
+            if (replayPlayer != null) {
+                gd = replayPlayer.createGameData();
+            } else {
+                gd = levelManager.loadNextLevel();
+            }
             players = levelManager.getPlayers();
             if (gd == null || !(gd instanceof BombermanGameData)) {
                 throw new InvalidLevelDataException("The game data passed from the level manager where either null or no instance of BombermanGameData.");
@@ -133,34 +183,82 @@ public class BombermanController extends AbstractBombermanController {
             throw new NullPointerException("Cannot initialize null gamedata.");
         }
 		if (game != null) {
+			// Stop ticking while the recording of the last match is closed
+			boolean recording = recorder != null;
+			if (recording) {
+				game.disposeTickTimer();
+				finishRecording();
+			}
 			game.setGameData(gamedata);
 			game.setTickCounter(0);
+			startRecording(gamedata);
+			if (recording) {
+				game.initialiseTickTimer();
+			}
 		}
 	    else {
 	        game = new BombermanGame(gamedata, this);
+            game.getContext().setSoundManager(SoundManagerFactory.getSoundManager());
+            game.getContext().setMatchListener(new IMatchListener() {
+                public void matchWon(HashMap<Integer, Player> players) {
+                    if (gui != null) {
+                        gui.showWinnerScreen(players);
+                    }
+                }
+            });
+            game.setInputSource(replayPlayer);
+            startRecording(gamedata);
             game.initialiseTickTimer();
 		}
     }
 
-    public void setGame(BombermanGame game) {
-        this.game = game;
+    /**
+     * Zeichnet das gerade beginnende Match auf, falls gewünscht. Replays werden nicht noch
+     * einmal aufgezeichnet.
+     */
+    private void startRecording(BombermanGameData gamedata) {
+        if (recordDirectory == null || replayPlayer != null) {
+            return;
+        }
+        try {
+            recorder = new ReplayRecorder(gamedata);
+            game.setInputRecorder(recorder);
+        } catch (InvalidLevelDataException ex) {
+            logger.log(Level.WARNING, "Cannot record this match", ex);
+        }
     }
 
-    public void addDirtyPoints(ArrayList<Point> points) {
-        if (gui != null) {
-            gui.addDirtyPoints(points);
+    /**
+     * Speichert die laufende Aufnahme. Nur aufrufen, wenn gerade kein Tick läuft.
+     */
+    private void finishRecording() {
+        if (recorder == null) {
+            return;
         }
-    }
+        Replay replay = recorder.finish(game.getTickCount());
+        game.setInputRecorder(null);
+        recorder = null;
 
-    public void addDirtyPoint(Point point) {
-        if (gui != null) {
-            gui.addDirtyPoint(point);
+        File file = new File(recordDirectory, "replay-" + System.currentTimeMillis() + ".bmr");
+        try {
+            replay.save(file);
+            logger.log(Level.INFO, "Saved " + replay + " to " + file);
+        } catch (IOException ex) {
+            logger.log(Level.WARNING, "Could not save the replay to " + file, ex);
         }
     }
 
-    public void redrawDirtyPoints() {
+    public void setGame(BombermanGame game) {
+        this.game = game;
+    }
+
+    /**
+     * Zeichnet die Felder neu, die sich im gerade abgeschlossenen Tick geändert haben.
+     * @param cells Bits wie BombermanBoard.getTickDirtyCells().
+     */
+    public void redrawDirtyCells(long[] cells) {
         if (gui != null) {
-            gui.redrawDirty(game.getBoard());
+            gui.redrawDirty(game.getBoard(), cells);
         }
     }
 
@@ -183,6 +281,7 @@ public class BombermanController extends AbstractBombermanController {
             case USER_QUIT:
                 this.stopWorker();
                 game.disposeTickTimer();
+                finishRecording();
                 sendEventToUI(UIEvent.create(UIEvent.type.QUIT_GAME));
                 break;
 			case CHANGE_SKIN:
@@ -228,11 +327,16 @@ public class BombermanController extends AbstractBombermanController {
      * umgeht dabei die Eventqueue des AbstractControllers, da diese im
      * Testszenario Probleme macht. !!! NUR IN TESTS AUFRUFEN, NICHT IM ECHTEN
      * CODE !!!
+     * Eingaben werden sofort angewendet, statt auf den nächsten Tick zu warten -
+     * ohne Tick-Thread kann dabei nichts durcheinander kommen.
      *
      * @param event
      */
     public void testProcessEvent(final IControllerEvent event) {
         processEvent(event);
+        if (game != null) {
+            game.applyInput();
+        }
     }
 
     // UI COMMUNICATION ////////////////////////////////////////////////////////////////////////////
@@ -1,13 +1,35 @@
 package de.tu_darmstadt.gdi1.bomberman;
 
+import java.io.File;
+import java.io.IOException;
+
 import de.tu_darmstadt.gdi1.bomberman.BombermanController;
+import de.tu_darmstadt.gdi1.bomberman.replay.Replay;
 import de.tu_darmstadt.gdi1.bomberman.game.levels.BombermanLevelGenerator;
 
 /**
  * Der Kickstarter des Spiels. Das hier ist die zu startende Klasse.
+ *
+ *   java ...Main [--seed N] [--record Verzeichnis] [--replay Replaydatei]
+ *
+ * Mit Seed laufen alle Matches bei gleichen Eingaben gleich ab. Mit --record wird jedes Match als
+ * Replay gespeichert, --replay spielt ein solches in Echtzeit ab.
  */
 public class Main {
-	public static void main(String[] args) {
-		new BombermanController();
+	public static void main(String[] args) throws IOException {
+		Long seed = null;
+		File recordDirectory = null;
+		Replay replay = null;
+		for (int i = 0; i < args.length - 1; i++) {
+			if (args[i].equals("--seed")) {
+				seed = Long.valueOf(args[++i]);
+			} else if (args[i].equals("--record")) {
+				recordDirectory = new File(args[++i]);
+				recordDirectory.mkdirs();
+			} else if (args[i].equals("--replay")) {
+				replay = Replay.load(new File(args[++i]));
+			}
+		}
+		new BombermanController(seed, recordDirectory, replay);
 	}
 }
@@ -9,4 +9,15 @@ import de.tu_darmstadt.gdi1.framework.controller.AbstractController;
  */
 abstract public class AbstractBombermanController extends AbstractController {
 
+	public AbstractBombermanController () {
+		super();
+	}
+
+	/**
+	 * @param startWorker false, wenn der Event Worker Thread nicht gestartet werden soll.
+	 */
+	protected AbstractBombermanController (boolean startWorker) {
+		super(startWorker);
+	}
+
 }
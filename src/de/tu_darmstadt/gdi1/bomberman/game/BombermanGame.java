@@ -2,8 +2,6 @@ package de.tu_darmstadt.gdi1.bomberman.game;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.logging.Logger;
 
 import de.tu_darmstadt.gdi1.bomberman.BombermanController;
@@ -15,7 +13,6 @@ import de.tu_darmstadt.gdi1.bomberman.game.levels.BombermanGameData;
 import de.tu_darmstadt.gdi1.bomberman.gui.ControllerInputEvent;
 import de.tu_darmstadt.gdi1.bomberman.gui.UIEvent;
 import de.tu_darmstadt.gdi1.framework.interfaces.IBoard;
-import de.tu_darmstadt.gdi1.framework.utils.Point;
 
 /**
  * Das eigentliche Bomberman Spiel. Diese Klasse enthält die Spiellogik. Unsere Implementierung des
@@ -26,24 +23,87 @@ import de.tu_darmstadt.gdi1.framework.utils.Point;
  * muss sie die gameData Instanz fragen.
  */
 public class BombermanGame implements IBombermanGame {
+
+	/**
+	 * So viel Spielzeit holt die Spielschleife höchstens am Stück nach, bei 20 Hz fünf Ticks.
+	 */
+	public static final long MAX_CATCH_UP_MILLIS = 250;
+
 	protected BombermanGameData gameData;
 	protected BombermanController controller;
 
 	Logger logger = Logger.getLogger(BombermanGame.class.getName());
 
-	public static long tickRate = 50;
-	protected Timer tickTimer;
+	protected MatchContext context;
+	protected GameLoop tickLoop;
 	protected long tickCounter = 0;
 	private long timeInSeconds = 0;
+	// Where player input comes from instead of the keyboard, and who gets to see it
+	protected IInputSource inputSource;
+	protected IInputRecorder inputRecorder;
+	// Reused for the explosions of each bomb going off
+	private final ArrayList<Explosion> explosionBuffer = new ArrayList<Explosion>();
 
 	public BombermanGame (BombermanGameData data, BombermanController ctr) {
 		gameData = data;
 		controller = ctr;
+		context = data.getContext();
+		if (ctr == null)
+			context.setHeadless(true);
 
 		//say hello to the gui, show the loaded level:
 		sendEventToUI(UIEvent.type.NEW_GAME);
 	}
 
+	/**
+	 * Erzeugt ein Spiel ohne Controller und GUI. Es wird nichts gezeichnet, kein Sound gespielt und
+	 * nichts auf die Konsole geschrieben - tick() läuft so schnell, wie die CPU es hergibt.
+	 * Gedacht für Simulationen (Bot gegen Bot, Balancing) und Benchmarks.
+	 * @param data
+	 */
+	public BombermanGame (BombermanGameData data) {
+		this(data, null);
+		setHeadless(true);
+	}
+
+	/**
+	 * @return true, wenn das Spiel weder zeichnet noch Sound spielt noch loggt.
+	 */
+	public boolean isHeadless () {
+		return context.isHeadless();
+	}
+
+	/**
+	 * Schaltet den Headless Modus ein oder aus. Gilt auch für später per setGameData gesetzte
+	 * Spielstände, bspw. nach einem Neustart des Levels.
+	 * @param headless
+	 */
+	public void setHeadless (boolean headless) {
+		context.setHeadless(headless);
+	}
+
+	/**
+	 * @return Der Kontext dieses Matches (Tickrate, Sound, Listener), geteilt mit allen
+	 * Spielständen, die dieses Spiel bisher hatte.
+	 */
+	public MatchContext getContext () {
+		return context;
+	}
+
+	/**
+	 * @return Abstand zweier Ticks in Millisekunden, gerundet.
+	 */
+	public long getTickRate () {
+		return context.getTickRate();
+	}
+
+	/**
+	 * @return Abstand zweier Ticks in Nanosekunden.
+	 */
+	public long getTickNanos () {
+		return context.getTickNanos();
+	}
+
 	public long getTimeInSeconds () {
 		return timeInSeconds;
 	}
@@ -55,6 +115,30 @@ public class BombermanGame implements IBombermanGame {
 	public void setGameData (BombermanGameData gameData)
 	{
 		this.gameData = gameData;
+		gameData.setContext(context);
+	}
+
+	/**
+	 * Lässt die Spieler statt von der Tastatur aus der Quelle steuern, null schaltet zurück.
+	 * @param inputSource
+	 */
+	public void setInputSource (IInputSource inputSource) {
+		this.inputSource = inputSource;
+	}
+
+	public IInputSource getInputSource () {
+		return inputSource;
+	}
+
+	/**
+	 * @param inputRecorder Bekommt ab jetzt alle angewendeten Eingaben, null zum Abschalten.
+	 */
+	public void setInputRecorder (IInputRecorder inputRecorder) {
+		this.inputRecorder = inputRecorder;
+	}
+
+	public IInputRecorder getInputRecorder () {
+		return inputRecorder;
 	}
 
 	// Ticking /////////////////////////////////////////////////////////////////////////////////////
@@ -64,27 +148,55 @@ public class BombermanGame implements IBombermanGame {
 	 * dies zeitgesteuert ausgeführt und gestartet werden. Die Testfälle führen die tick() Funktion
 	 * aber schneller aus, um zeitabhängige Tests direkt durcharbeiten zu können.
 	 *
-	 * Im "Echtzeitmodus" per Timer kommt der tick 20x in der Sekunde - 20 Ticks sind also eine Sekunde.
+	 * Im "Echtzeitmodus" ruft die GameLoop den tick mit der Tickrate des MatchContext auf (20 bis
+	 * 1000 Hz). Zeiten im Spiel sind in Millisekunden angegeben und werden per
+	 * MatchContext.toTicks() in Ticks umgerechnet, sie hängen also nicht von der Tickrate ab.
+	 *
+	 * Hat der MatchContext einen TickProfiler, wird jede Phase des Ticks gemessen.
 	 */
 	@Override
 	public void tick ()
 	{
+		TickProfiler profiler = context.getProfiler();
+		if (profiler != null)
+			profiler.begin();
+
+		// Apply what the players pressed since the last tick. It still counts to the previous
+		// tick, just as if it had been handled the moment it came in.
+		applyInput();
+
 		tickCounter++;
+		if (profiler != null)
+			profiler.lap(TickProfiler.Phase.INPUT);
 
 		// Keep on moving players that move due to pressed buttons
 		continueMoving();
+		if (profiler != null)
+			profiler.lap(TickProfiler.Phase.MOVING);
 
 		// Keep on countdowning and exploding bombs
 		continueBombs();
+		if (profiler != null)
+			profiler.lap(TickProfiler.Phase.BOMBS);
 
 		// Keep on showing crazy pyro explosions
 		continueExplosions();
+		if (profiler != null)
+			profiler.lap(TickProfiler.Phase.EXPLOSIONS);
 		
 		//Time goes on
 		gameTime();
+		if (profiler != null)
+			profiler.lap(TickProfiler.Phase.GAME_TIME);
 		
-		// Redraw what became dirty
-		this.controller.redrawDirtyPoints();
+		// Hand the changed cells of this tick over to whoever draws or sends them
+		long[] dirty = gameData.getBoard().endTick();
+		if (!isHeadless())
+			controller.redrawDirtyCells(dirty);
+		if (profiler != null) {
+			profiler.lap(TickProfiler.Phase.REDRAW);
+			profiler.end(context.getTickNanos());
+		}
 	}
 
 	public long getTickCount () {
@@ -97,44 +209,72 @@ public class BombermanGame implements IBombermanGame {
 	}
 
 	/**
-	 * Startet einen Timer, der die tick() Funktion alle tickRate Millisekunden ausführt.
+	 * Stellt die Uhr des Spiels auf einen früheren Tick, nachdem der Spielstand mit einem
+	 * SnapshotRing dorthin zurückgesetzt wurde. Anders als setTickCounter() läuft danach auch die
+	 * Spielzeit (und damit der Sudden Death) wieder genau wie beim ersten Mal.
+	 * @param tick
+	 */
+	public void rewindTo (long tick)
+	{
+		tickCounter = tick;
+		timeInSeconds = context.toMillis(tick) / 1000;
+	}
+
+	/**
+	 * Startet die Spielschleife, die die tick() Funktion im Takt des MatchContext ausführt. Hängt
+	 * sie hinterher, holt sie bis zu MAX_CATCH_UP_MILLIS Spielzeit am Stück nach.
 	 */
 	public void initialiseTickTimer ()
 	{
-		if (tickTimer != null)
+		if (tickLoop != null)
 			return;
 
-		// TickTimer anschmeißen. Hail to the closure: die run() Methode in der anonymen TimerTask
-		// Klasse kennt die tick() Funktion des BombermanGame Objekts.
-		tickTimer = new Timer();
-		tickTimer.scheduleAtFixedRate(new TimerTask(){
-			@Override
-			public void run() {
-				tick();
-			}
-		}, tickRate, tickRate);
+		if (context.getProfiler() == null)
+			context.setProfiler(TickProfiler.fromSystemProperties("game"));
+		tickLoop = new GameLoop(this, context.getTickNanos(),
+				(int) Math.max(GameLoop.DEFAULT_MAX_CATCH_UP_TICKS, context.toTicks(MAX_CATCH_UP_MILLIS)));
+		tickLoop.start();
 	}
 
 	/**
-	 * Stoppt den mit initialiseTickTimer gestarteten Timer wieder.
+	 * Stoppt die mit initialiseTickTimer gestartete Spielschleife wieder.
 	 */
 	public void disposeTickTimer ()
 	{
-		tickTimer.cancel();
-		tickTimer = null;
+		if (tickLoop == null)
+			return;
+
+		tickLoop.stop();
+		logger.info("Tick loop stopped: " + tickLoop);
+		logger.info("Input latency: " + gameData.getInputBuffer());
+		if (context.getProfiler() != null)
+			logger.info(context.getProfiler().toString());
+		tickLoop = null;
 	}
 
 	public void pauseTickTimer ()
 	{
 		System.out.println("Pausing game...");
-		tickTimer.cancel();
+		if (tickLoop != null)
+			tickLoop.pause();
 	}
 
 	public void continueTickTimer ()
 	{
 		System.out.println("Continuing game...");
-		tickTimer = null;
-		initialiseTickTimer();
+		if (tickLoop != null)
+			tickLoop.resume();
+		else
+			initialiseTickTimer();
+	}
+
+	/**
+	 * Gibt die laufende Spielschleife zurück, etwa um deren Verspätungs-Zähler auszulesen.
+	 * @return Die Schleife oder null, falls keine läuft (bspw. in Tests).
+	 */
+	public GameLoop getTickLoop ()
+	{
+		return tickLoop;
 	}
 
 	// Gamedata Getter/Setter //////////////////////////////////////////////////////////////////////
@@ -152,13 +292,8 @@ public class BombermanGame implements IBombermanGame {
 	public void startPlayerMove (int playerIdx, Player.direction dir) {
 		Player pl = gameData.getPlayer(playerIdx);
 		if (pl != null) {
-			Point from = pl.getPoint();
 			pl.setDirection(dir);
-			if (pl.move(tickCounter)) {
-				this.controller.addDirtyPoint(from);
-				this.controller.addDirtyPoint(pl.getPoint());
-				this.controller.redrawDirtyPoints();
-			}
+			pl.move(tickCounter);
 		}
 	}
 
@@ -170,13 +305,10 @@ public class BombermanGame implements IBombermanGame {
 	}
 
 	public void continueMoving () {
-		// Make each player move if he needs to
-		for (Player pl : gameData.getPlayers()) {
-			Point from = pl.getPoint();
-			if (pl.move(tickCounter)) {
-				this.controller.addDirtyPoint(from);
-				this.controller.addDirtyPoint(pl.getPoint());
-			}
+		// Make each living player move if he needs to - the dead are off the board for good
+		List<Player> players = gameData.getAlivePlayers();
+		for (int i = 0; i < players.size(); i++) {
+			players.get(i).move(tickCounter);
 		}
 	}
 
@@ -188,52 +320,50 @@ public class BombermanGame implements IBombermanGame {
 			Bomb b = pl.dropBomb();
 			if (b != null) {
 				gameData.addBomb(b);
-				this.controller.addDirtyPoint(pl.getPoint());
-				this.controller.redrawDirtyPoints();
 			}
 		}
 	}
 
+	/**
+	 * Lässt die Bomben explodieren, deren Zündschnur in diesem Tick abbrennt. Die anderen Bomben
+	 * werden gar nicht angefasst, die Zündschnüre verwaltet ein Zeitrad in der gameData.
+	 */
 	public void continueBombs ()
 	{
-		for (int i = 0; i < gameData.getBombs().size(); i++) {
-
-			Bomb bomb = gameData.getBombs().get(i);
-			if (bomb.getTicksTillExplode() == 0) {
-				// Make the bomb explode and get the resulting explosion fields
-				ArrayList<Explosion> explosions = bomb.explode(tickCounter);
+		// Give the bombs a chance to be redrawn before they explode. Might be used for animations.
+		// Their cell does not change, so it has to be marked by hand.
+		// Index loops here and below: no iterators, a quiet tick allocates nothing.
+		List<Bomb> warnings = gameData.advanceBombWarnings(tickCounter);
+		for (int i = 0; i < warnings.size(); i++) {
+			Bomb bomb = warnings.get(i);
+			if (gameData.hasBomb(bomb))
+				gameData.getBoard().markDirty(bomb.getX(), bomb.getY());
+		}
 
-				// Make sure all the explosion fields are drawn
-				for (Explosion ex : explosions) {
-					this.controller.addDirtyPoint(ex.getPoint());
-				}
+		List<Bomb> fuses = gameData.advanceBombFuses(tickCounter);
+		for (int i = 0; i < fuses.size(); i++) {
+			Bomb bomb = fuses.get(i);
+			// Already gone in a chain reaction
+			if (!gameData.hasBomb(bomb))
+				continue;
 
-				// Make the gameData know about the explosions
-				gameData.addExplosions(explosions);
+			// Make the bomb explode and get the resulting explosion fields
+			explosionBuffer.clear();
+			bomb.explode(tickCounter, explosionBuffer);
 
-				i--;
-			}
-			else {
-				// Tick tack
-				bomb.decreaseBombTicks();
-
-				// Give the bomb a chance to be redrawn before it explodes. Might be used for
-				// animations.
-				if (bomb.isDirty())
-					this.controller.addDirtyPoint(bomb.getPoint());
-			}
+			// Make the gameData know about the explosions
+			gameData.addExplosions(explosionBuffer);
 		}
 	}
 
 	// Explosions //////////////////////////////////////////////////////////////////////////////////
 
 	public void continueExplosions () {
-		for (int i = 0; i < gameData.getExplosions().size(); i++) {
-			Explosion ex = (Explosion) gameData.getExplosions().get(i);
-			if (ex.remove(tickCounter)) {
-				this.controller.addDirtyPoint(ex.getPoint());
-				i--;
-			}
+		List<Explosion> timeouts = gameData.advanceExplosionTimeouts(tickCounter);
+		for (int i = 0; i < timeouts.size(); i++) {
+			Explosion ex = timeouts.get(i);
+			if (gameData.hasExplosion(ex))
+				ex.remove(tickCounter);
 		}
 	}
 
@@ -245,62 +375,80 @@ public class BombermanGame implements IBombermanGame {
 	 * @param type
 	 */
 	private void sendEventToUI(UIEvent.type type) {
+		if (isHeadless())
+			return;
+
 		UIEvent event = new UIEvent(type);
 		event.setBoard(getBoard());
 		controller.sendEventToUI(event);
 	}
 
 	/**
-	 * Verarbeitet ein Input Event.
+	 * Verarbeitet ein Input Event. Eingaben für die Spieler werden nur gesammelt und erst zu
+	 * Beginn des nächsten Ticks angewendet, siehe InputBuffer. Darf daher von jedem Thread
+	 * aufgerufen werden.
 	 * @param event
 	 */
 	public void handleInputEvent(ControllerInputEvent event) throws Exception {
 		if (event.getButton() == ControllerInputEvent.button.NULL)
 			return;
 
-		// Either place a bomb or move around.
-		if (event.getButton() == ControllerInputEvent.button.BOMB) {
-			this.dropBomb(event.getPlayerIndex());
+		if (event.getButton() == ControllerInputEvent.button.MAIN_MENU) {
+			if (event.getState() == ControllerInputEvent.state.PRESSED) {
+				pauseTickTimer();
+				sendEventToUI(UIEvent.type.MAIN_MENU);
+			}
 		}
-		else if (event.getButton() == ControllerInputEvent.button.MAIN_MENU) {
-			pauseTickTimer();
-			sendEventToUI(UIEvent.type.MAIN_MENU);
+		else if (inputSource == null) {
+			gameData.getInputBuffer().offer(event);
 		}
-		else if (event.getButton() == ControllerInputEvent.button.X_BUTTON) {
-			List<GameElement> list = gameData.getPlayer(1).mightyBlow();
-			for (GameElement gE : list) {
-				controller.addDirtyPoint(gE.getPoint());
+	}
+
+	/**
+	 * Wendet die seit dem letzten Tick gesammelten Eingaben an: erst Bomben, dann Bewegung - eine
+	 * Bombe landet also auf dem Feld, auf dem der Spieler beim Drücken stand.
+	 */
+	public void applyInput () {
+		InputBuffer buffer = gameData.getInputBuffer();
+		if (inputSource != null)
+			inputSource.supplyInput(tickCounter, buffer);
+
+		List<InputBuffer.PlayerInput> inputs = buffer.drain();
+		if (inputRecorder != null && !inputs.isEmpty())
+			inputRecorder.recordInput(tickCounter, inputs);
+
+		for (int i = 0; i < inputs.size(); i++) {
+			InputBuffer.PlayerInput in = inputs.get(i);
+			int playerIdx = in.getPlayerIndex();
+			// Dead players are off the board, their input must not bring them back
+			if (gameData.isDead(playerIdx))
+				continue;
+			if (in.isBomb()) {
+				dropBomb(playerIdx);
 			}
-			controller.redrawDirtyPoints();
-		}
-		else {
-			// We know that it has to be a direction - map the direction from the ControllerInputEvent
-			// to the Players directions (die Wege der losen Kopplung sind unergründlich - hässlich)
-			Player.direction dir = Player.direction.NULL;
-			switch (event.getButton()) {
-				case UP: dir = Player.direction.UP; break;
-				case DOWN: dir = Player.direction.DOWN; break;
-				case LEFT: dir = Player.direction.LEFT; break;
-				case RIGHT: dir = Player.direction.RIGHT; break;
+			if (in.isMightyBlow() && gameData.getPlayer(playerIdx) != null) {
+				gameData.getPlayer(playerIdx).mightyBlow();
 			}
 
-			if (event.getState() == ControllerInputEvent.state.PRESSED) {
-				this.startPlayerMove(event.getPlayerIndex(), dir);
+			if (in.getTapped() != Player.direction.NULL) {
+				startPlayerMove(playerIdx, in.getTapped());
+				stopPlayerMove(playerIdx, in.getTapped());
 			}
-			else {
-				this.stopPlayerMove(event.getPlayerIndex(), dir);
+			if (in.getReleased() != Player.direction.NULL) {
+				stopPlayerMove(playerIdx, in.getReleased());
+			}
+			if (in.getDirection() != Player.direction.NULL) {
+				startPlayerMove(playerIdx, in.getDirection());
 			}
 		}
 	}
 
 	public void gameTime (){
-		long mytime = getTickCount() / (1000 / tickRate);
+		long mytime = context.toMillis(getTickCount()) / 1000;
 		if (mytime != timeInSeconds){
 			timeInSeconds = mytime;
 			sendEventToUI(UIEvent.type.UPDATE_TIME);
-			if (timeInSeconds >= 300) {
-				gameData.getDelegate().manageSuddenDeath(this.controller);
-			}
 		}
+		gameData.getDelegate().manageSuddenDeath(getTickCount());
 	}
 }
@@ -0,0 +1,125 @@
+package de.tu_darmstadt.gdi1.bomberman.game;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * Dichte Tabelle für Spielobjekte, die oft dazukommen und wieder verschwinden - liegende Bomben,
+ * Explosionen. Jedes Objekt merkt sich seinen Platz in der Tabelle (siehe Slots), Hinzufügen,
+ * Entfernen und Nachsehen kosten damit konstante Zeit, ohne Hashing und ohne Boxing.
+ *
+ * Beim Entfernen rückt das letzte Objekt in die Lücke. Die Reihenfolge ist also nicht die des
+ * Hinzufügens, hängt aber nur von der Folge der Aufrufe ab und ist damit bei gleichem Match
+ * immer dieselbe. Wer die Reihenfolge des Hinzufügens braucht, muss sie selbst festhalten.
+ *
+ * Als Liste nur lesbar: remove(Object) und Co. gibt es nicht, dafür swapRemove(). Über get(i)
+ * kann man ohne Iterator und damit ohne Garbage iterieren. Nicht threadsicher.
+ */
+public class EntityTable<T> extends AbstractList<T> implements RandomAccess {
+
+	/**
+	 * Wo ein Objekt seinen Platz in einer Tabelle speichert. Ein Objekt, das in mehreren
+	 * Tabellen stehen kann, braucht pro Tabelle ein eigenes Feld.
+	 */
+	public interface Slots<T> {
+		int getSlot (T item);
+
+		void setSlot (T item, int slot);
+	}
+
+	private final Slots<T> slots;
+	private Object[] items;
+	private int size = 0;
+
+	public EntityTable (Slots<T> slots) {
+		this(slots, 16);
+	}
+
+	public EntityTable (Slots<T> slots, int capacity) {
+		this.slots = slots;
+		this.items = new Object[Math.max(1, capacity)];
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public T get (int index) {
+		if (index >= size)
+			throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+		return (T) items[index];
+	}
+
+	@Override
+	public int size () {
+		return size;
+	}
+
+	/**
+	 * @return true, wenn genau dieses Objekt in der Tabelle steht.
+	 */
+	public boolean has (T item) {
+		if (item == null)
+			return false;
+		int slot = slots.getSlot(item);
+		return slot >= 0 && slot < size && items[slot] == item;
+	}
+
+	/**
+	 * @return Der Platz des Objekts, -1 wenn es nicht in der Tabelle steht.
+	 */
+	public int slotOf (T item) {
+		return has(item) ? slots.getSlot(item) : -1;
+	}
+
+	/**
+	 * Hängt ein Objekt hinten an.
+	 * @param item
+	 * @return false, wenn es schon in der Tabelle stand.
+	 */
+	@Override
+	public boolean add (T item) {
+		if (item == null)
+			throw new NullPointerException("An entity table holds no nulls.");
+		if (has(item))
+			return false;
+
+		if (size == items.length)
+			items = Arrays.copyOf(items, size * 2);
+		items[size] = item;
+		slots.setSlot(item, size);
+		size++;
+		return true;
+	}
+
+	/**
+	 * Nimmt ein Objekt heraus, das letzte rückt an seinen Platz.
+	 * @param item
+	 * @return false, wenn es nicht in der Tabelle stand.
+	 */
+	@SuppressWarnings("unchecked")
+	public boolean swapRemove (T item) {
+		if (!has(item))
+			return false;
+
+		int slot = slots.getSlot(item);
+		size--;
+		if (slot != size) {
+			T last = (T) items[size];
+			items[slot] = last;
+			slots.setSlot(last, slot);
+		}
+		items[size] = null;
+		slots.setSlot(item, -1);
+		return true;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void clear () {
+		for (int i = 0; i < size; i++) {
+			slots.setSlot((T) items[i], -1);
+			items[i] = null;
+		}
+		size = 0;
+	}
+}
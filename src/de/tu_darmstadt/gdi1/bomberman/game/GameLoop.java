@@ -0,0 +1,248 @@
+package de.tu_darmstadt.gdi1.bomberman.game;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Die Spielschleife: ruft tick() eines Spiels in festen Zeitschritten auf. Die Zeitbasis ist
+ * System.nanoTime(), die Ticks werden gegen einen absoluten Fahrplan (tick n fällig bei
+ * start + n * tickdauer) ausgeführt - dadurch driftet die Spielzeit nicht, auch wenn einzelne
+ * Ticks zu spät kommen.
+ *
+ * Hängt die Schleife hinterher (GC, langsamer Rechner, riesige Kettenexplosion), werden
+ * verpasste Ticks nachgeholt, aber höchstens maxCatchUpTicks am Stück. Alles darüber wird
+ * verworfen und in den Zählern vermerkt, statt das Spiel im Zeitraffer nachlaufen zu lassen.
+ *
+ * Pausieren und Fortsetzen erzeugen keinen neuen Thread, die Schleife schläft nur.
+ */
+public class GameLoop implements Runnable {
+
+	public static final int DEFAULT_MAX_CATCH_UP_TICKS = 5;
+
+	private final IBombermanGame game;
+	private final long tickNanos;
+	private final int maxCatchUpTicks;
+
+	private Thread thread;
+	private volatile boolean running = false;
+	private volatile boolean paused = false;
+
+	// Guards the pause state, the loop waits on resumed while paused.
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition resumed = lock.newCondition();
+
+	// Statistics. Written by the loop thread only, read by anyone.
+	private volatile long ticksExecuted = 0;
+	private volatile long ticksLate = 0;
+	private volatile long ticksDropped = 0;
+	private volatile long overruns = 0;
+	private volatile long lastLagNanos = 0;
+	private volatile long maxLagNanos = 0;
+
+	/**
+	 * @param game Das Spiel, dessen tick() aufgerufen wird.
+	 * @param tickRateMillis Abstand zweier Ticks in Millisekunden.
+	 */
+	public GameLoop (IBombermanGame game, long tickRateMillis) {
+		this(game, TimeUnit.MILLISECONDS.toNanos(tickRateMillis), DEFAULT_MAX_CATCH_UP_TICKS);
+	}
+
+	/**
+	 * @param game Das Spiel, dessen tick() aufgerufen wird.
+	 * @param tickNanos Abstand zweier Ticks in Nanosekunden.
+	 * @param maxCatchUpTicks Wie viele verpasste Ticks höchstens am Stück nachgeholt werden.
+	 */
+	public GameLoop (IBombermanGame game, long tickNanos, int maxCatchUpTicks) {
+		if (game == null)
+			throw new NullPointerException("Cannot run a loop without a game.");
+		if (tickNanos <= 0)
+			throw new IllegalArgumentException("Tick duration must be positive: " + tickNanos);
+		if (maxCatchUpTicks < 1)
+			throw new IllegalArgumentException("At least one tick per iteration must be allowed: " + maxCatchUpTicks);
+
+		this.game = game;
+		this.tickNanos = tickNanos;
+		this.maxCatchUpTicks = maxCatchUpTicks;
+	}
+
+	// Lifecycle ///////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Startet den Schleifen-Thread. Der erste Tick kommt nach einer Tickdauer.
+	 */
+	public synchronized void start () {
+		if (thread != null)
+			return;
+
+		running = true;
+		thread = new Thread(this, "GameLoop");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Beendet die Schleife. Ein laufender tick() wird noch zu Ende gebracht.
+	 */
+	public synchronized void stop () {
+		if (thread == null)
+			return;
+
+		running = false;
+		resume();
+		LockSupport.unpark(thread);
+		if (thread != Thread.currentThread()) {
+			try {
+				thread.join(TimeUnit.NANOSECONDS.toMillis(tickNanos) * 10 + 100);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		thread = null;
+	}
+
+	public void pause () {
+		lock.lock();
+		try {
+			paused = true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public void resume () {
+		lock.lock();
+		try {
+			paused = false;
+			resumed.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public boolean isPaused () {
+		return paused;
+	}
+
+	public boolean isRunning () {
+		return running;
+	}
+
+	// The loop ////////////////////////////////////////////////////////////////////////////////////
+
+	@Override
+	public void run () {
+		long nextTick = System.nanoTime() + tickNanos;
+
+		while (running) {
+			if (paused) {
+				awaitResume();
+				// Time spent in the pause is not owed to the game - restart the schedule.
+				nextTick = System.nanoTime() + tickNanos;
+				continue;
+			}
+
+			long now = System.nanoTime();
+			if (now < nextTick) {
+				LockSupport.parkNanos(this, nextTick - now);
+				continue;
+			}
+
+			// How many ticks are due by now? Never more than the catch up limit.
+			long lag = now - nextTick;
+			long due = lag / tickNanos + 1;
+			if (due > 1)
+				ticksLate += due - 1;
+			if (due > maxCatchUpTicks) {
+				ticksDropped += due - maxCatchUpTicks;
+				nextTick += (due - maxCatchUpTicks) * tickNanos;
+				due = maxCatchUpTicks;
+			}
+
+			lastLagNanos = lag;
+			if (lag > maxLagNanos)
+				maxLagNanos = lag;
+
+			for (long i = 0; i < due && running && !paused; i++) {
+				long start = System.nanoTime();
+				game.tick();
+				if (System.nanoTime() - start > tickNanos)
+					overruns++;
+				ticksExecuted++;
+				nextTick += tickNanos;
+			}
+		}
+	}
+
+	private void awaitResume () {
+		lock.lock();
+		try {
+			while (paused && running) {
+				resumed.await();
+			}
+		} catch (InterruptedException e) {
+			running = false;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	// Statistics //////////////////////////////////////////////////////////////////////////////////
+
+	public long getTickNanos () {
+		return tickNanos;
+	}
+
+	public int getMaxCatchUpTicks () {
+		return maxCatchUpTicks;
+	}
+
+	/**
+	 * @return Anzahl der tatsächlich ausgeführten Ticks.
+	 */
+	public long getTicksExecuted () {
+		return ticksExecuted;
+	}
+
+	/**
+	 * @return Anzahl der Ticks, die nicht pünktlich kamen und nachgeholt werden mussten.
+	 */
+	public long getTicksLate () {
+		return ticksLate;
+	}
+
+	/**
+	 * @return Anzahl der Ticks, die wegen des Nachhol-Limits verworfen wurden.
+	 */
+	public long getTicksDropped () {
+		return ticksDropped;
+	}
+
+	/**
+	 * @return Anzahl der Ticks, deren tick() selbst länger als eine Tickdauer gebraucht hat.
+	 */
+	public long getOverruns () {
+		return overruns;
+	}
+
+	/**
+	 * @return Verspätung der letzten Iteration gegenüber dem Fahrplan in Nanosekunden.
+	 */
+	public long getLastLagNanos () {
+		return lastLagNanos;
+	}
+
+	/**
+	 * @return Größte bisher gemessene Verspätung in Nanosekunden.
+	 */
+	public long getMaxLagNanos () {
+		return maxLagNanos;
+	}
+
+	@Override
+	public String toString () {
+		return "GameLoop[executed=" + ticksExecuted + ", late=" + ticksLate + ", dropped=" + ticksDropped
+				+ ", overruns=" + overruns + ", maxLag=" + TimeUnit.NANOSECONDS.toMicros(maxLagNanos) + "us]";
+	}
+}
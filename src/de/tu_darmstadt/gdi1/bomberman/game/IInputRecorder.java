@@ -0,0 +1,17 @@
+package de.tu_darmstadt.gdi1.bomberman.game;
+
+import java.util.List;
+
+/**
+ * Bekommt in jedem Tick die Eingaben, die das Spiel gerade anwendet - etwa um ein Replay
+ * aufzuzeichnen.
+ */
+public interface IInputRecorder {
+
+	/**
+	 * Wird auf dem Spiel-Thread aufgerufen, nur für Ticks mit Eingaben.
+	 * @param tick Der Tick, zu dem die Eingaben zählen (siehe BombermanGame.applyInput).
+	 * @param inputs Die Eingaben, sortiert nach Spieler. Nur während des Aufrufs gültig.
+	 */
+	public void recordInput (long tick, List<InputBuffer.PlayerInput> inputs);
+}
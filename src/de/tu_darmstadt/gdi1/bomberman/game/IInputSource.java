@@ -0,0 +1,16 @@
+package de.tu_darmstadt.gdi1.bomberman.game;
+
+/**
+ * Liefert die Eingaben der Spieler statt der Tastatur, etwa beim Abspielen eines Replays.
+ * Solange ein Spiel eine Quelle hat, ignoriert es Tastatureingaben für die Spieler.
+ */
+public interface IInputSource {
+
+	/**
+	 * Wird zu Beginn jedes Ticks auf dem Spiel-Thread aufgerufen, direkt bevor die Eingaben
+	 * angewendet werden.
+	 * @param tick Der Tick, zu dem die Eingaben zählen.
+	 * @param buffer Hierhin kommen die Eingaben.
+	 */
+	public void supplyInput (long tick, InputBuffer buffer);
+}
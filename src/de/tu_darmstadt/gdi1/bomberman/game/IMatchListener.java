@@ -0,0 +1,17 @@
+package de.tu_darmstadt.gdi1.bomberman.game;
+
+import java.util.HashMap;
+
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Player;
+
+/**
+ * Wird vom Spielstand benachrichtigt, wenn ein Match entschieden ist. Der Controller hängt hier
+ * den Gewinnerbildschirm ein, Simulationen brauchen in der Regel keinen Listener.
+ */
+public interface IMatchListener {
+
+	/**
+	 * @param players Alle Spieler des Matches, auch die toten, nach ID.
+	 */
+	abstract public void matchWon (HashMap<Integer, Player> players);
+}
@@ -0,0 +1,303 @@
+package de.tu_darmstadt.gdi1.bomberman.game;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Player;
+import de.tu_darmstadt.gdi1.bomberman.gui.ControllerInputEvent;
+
+/**
+ * Sammelt die Eingaben der Spieler zwischen zwei Ticks. Tastendrücke kommen auf dem Event-Thread
+ * des Controllers an, verändern aber selbst nichts am Spiel: erst zu Beginn des nächsten tick()
+ * holt das Spiel sie ab und wendet sie auf dem Spiel-Thread an. So ändert niemand das Spielfeld
+ * neben dem laufenden Tick, und Eingaben wirken immer an derselben Stelle im Tick.
+ *
+ * Pro Spieler wird nur der Zustand gemerkt, nicht jedes einzelne Event: die zuletzt gedrückte
+ * Richtung, ob eine Bombe gelegt und ob der Mighty Blow ausgelöst werden soll. Eine Richtung, die
+ * zwischen zwei Ticks gedrückt und wieder losgelassen wurde, geht dabei nicht verloren - der
+ * Spieler macht wie bei sofortiger Verarbeitung genau einen Schritt.
+ *
+ * Nebenbei wird gemessen, wie lange ein Tastendruck auf den Tick warten musste, der ihn anwendet.
+ */
+public class InputBuffer {
+
+	/**
+	 * Was ein Spieler seit dem letzten Tick gedrückt hat.
+	 */
+	public static class PlayerInput {
+		private int playerIdx;
+		private boolean pending = false;
+		private Player.direction direction = Player.direction.NULL;
+		private Player.direction released = Player.direction.NULL;
+		private Player.direction tapped = Player.direction.NULL;
+		private boolean bomb = false;
+		private boolean mightyBlow = false;
+
+		// Presses since the last tick, for the latency statistics
+		private int presses = 0;
+		private long pressNanosSum = 0;
+		private long oldestPressNanos = 0;
+
+		PlayerInput (int playerIdx) {
+			this.playerIdx = playerIdx;
+		}
+
+		/**
+		 * Erzeugt die Eingaben eines Spielers für einen Tick, etwa beim Abspielen eines Replays.
+		 */
+		public PlayerInput (int playerIdx, Player.direction direction, Player.direction released,
+				Player.direction tapped, boolean bomb, boolean mightyBlow) {
+			this.playerIdx = playerIdx;
+			this.pending = true;
+			this.direction = direction;
+			this.released = released;
+			this.tapped = tapped;
+			this.bomb = bomb;
+			this.mightyBlow = mightyBlow;
+		}
+
+		public int getPlayerIndex () {
+			return playerIdx;
+		}
+
+		/**
+		 * @return Die zuletzt gedrückte und noch gehaltene Richtung, sonst NULL.
+		 */
+		public Player.direction getDirection () {
+			return direction;
+		}
+
+		/**
+		 * @return Eine schon vor dem letzten Tick gehaltene Richtung, die losgelassen wurde.
+		 */
+		public Player.direction getReleased () {
+			return released;
+		}
+
+		/**
+		 * @return Eine Richtung, die seit dem letzten Tick kurz angetippt wurde, sonst NULL.
+		 */
+		public Player.direction getTapped () {
+			return tapped;
+		}
+
+		public boolean isBomb () {
+			return bomb;
+		}
+
+		public boolean isMightyBlow () {
+			return mightyBlow;
+		}
+
+		void reset () {
+			pending = false;
+			direction = Player.direction.NULL;
+			released = Player.direction.NULL;
+			tapped = Player.direction.NULL;
+			bomb = false;
+			mightyBlow = false;
+			presses = 0;
+			pressNanosSum = 0;
+			oldestPressNanos = 0;
+		}
+	}
+
+	// Written by the event thread, indexed by player
+	private PlayerInput[] collecting = new PlayerInput[5];
+	// Read by the game thread during the tick that applies them
+	private PlayerInput[] applying = new PlayerInput[5];
+	private final ArrayList<PlayerInput> drained = new ArrayList<PlayerInput>();
+
+	// Statistics. Written by the game thread only, read by anyone.
+	private volatile long appliedPresses = 0;
+	private volatile long totalLatencyNanos = 0;
+	private volatile long lastLatencyNanos = 0;
+	private volatile long maxLatencyNanos = 0;
+
+	// Collecting //////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Merkt sich ein Input Event für den nächsten Tick. Darf von jedem Thread aufgerufen werden.
+	 * Buttons, die nicht das Spielfeld betreffen (etwa MAIN_MENU), werden ignoriert.
+	 * @param event
+	 */
+	public void offer (ControllerInputEvent event) {
+		offer(event.getPlayerIndex(), event.getButton(), event.getState(), event.getTimestamp());
+	}
+
+	/**
+	 * @param playerIdx
+	 * @param button
+	 * @param state
+	 * @param pressedNanos System.nanoTime() des Tastendrucks.
+	 */
+	public synchronized void offer (int playerIdx, ControllerInputEvent.button button, ControllerInputEvent.state state, long pressedNanos) {
+		if (playerIdx < 1)
+			return;
+
+		boolean pressed = state == ControllerInputEvent.state.PRESSED;
+		Player.direction dir = toDirection(button);
+		if (dir == Player.direction.NULL && button != ControllerInputEvent.button.BOMB
+				&& button != ControllerInputEvent.button.X_BUTTON)
+			return;
+
+		PlayerInput in = slot(playerIdx);
+		in.pending = true;
+
+		if (dir != Player.direction.NULL) {
+			if (pressed) {
+				in.direction = dir;
+			}
+			// A direction pressed since the last tick still gets its step
+			else if (in.direction == dir) {
+				in.tapped = dir;
+				in.direction = Player.direction.NULL;
+			}
+			else {
+				in.released = dir;
+			}
+		}
+		else if (pressed && button == ControllerInputEvent.button.BOMB) {
+			in.bomb = true;
+		}
+		else if (pressed) {
+			in.mightyBlow = true;
+		}
+
+		if (pressed) {
+			if (in.presses == 0)
+				in.oldestPressNanos = pressedNanos;
+			in.presses++;
+			in.pressNanosSum += pressedNanos;
+		}
+	}
+
+	/**
+	 * Übernimmt die kompletten Eingaben eines Spielers für den nächsten Tick, etwa aus einem
+	 * Replay. Was für den Spieler schon gesammelt war, wird überschrieben.
+	 * @param input
+	 */
+	public synchronized void offer (PlayerInput input) {
+		PlayerInput in = slot(input.playerIdx);
+		in.pending = true;
+		in.direction = input.direction;
+		in.released = input.released;
+		in.tapped = input.tapped;
+		in.bomb = input.bomb;
+		in.mightyBlow = input.mightyBlow;
+	}
+
+	// Applying ////////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Holt die seit dem letzten Aufruf gesammelten Eingaben ab, sortiert nach Spieler. Nur vom
+	 * Spiel-Thread aufrufen, zu Beginn des Ticks, der sie anwendet.
+	 * @return Nur bis zum nächsten Aufruf gültig.
+	 */
+	public List<PlayerInput> drain () {
+		PlayerInput[] taken;
+		synchronized (this) {
+			taken = collecting;
+			collecting = applying;
+			applying = taken;
+			for (PlayerInput in : collecting) {
+				if (in != null)
+					in.reset();
+			}
+		}
+
+		long now = System.nanoTime();
+		drained.clear();
+		for (PlayerInput in : taken) {
+			if (in == null || !in.pending)
+				continue;
+
+			drained.add(in);
+			if (in.presses > 0) {
+				long latency = now - in.oldestPressNanos;
+				appliedPresses += in.presses;
+				totalLatencyNanos += in.presses * now - in.pressNanosSum;
+				lastLatencyNanos = latency;
+				if (latency > maxLatencyNanos)
+					maxLatencyNanos = latency;
+			}
+		}
+		return drained;
+	}
+
+	/**
+	 * Verwirft alle noch nicht angewendeten Eingaben, etwa beim Neustart eines Levels.
+	 */
+	public synchronized void clear () {
+		for (PlayerInput in : collecting) {
+			if (in != null)
+				in.reset();
+		}
+	}
+
+	// Statistics //////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * @return Wie viele Tastendrücke bisher von einem Tick angewendet wurden.
+	 */
+	public long getAppliedPresses () {
+		return appliedPresses;
+	}
+
+	/**
+	 * @return Durchschnittliche Zeit vom Tastendruck bis zum Tick, der ihn anwendet.
+	 */
+	public long getAverageLatencyNanos () {
+		long presses = appliedPresses;
+		return presses == 0 ? 0 : totalLatencyNanos / presses;
+	}
+
+	/**
+	 * @return Die Wartezeit des ältesten Tastendrucks im zuletzt angewendeten Tick.
+	 */
+	public long getLastLatencyNanos () {
+		return lastLatencyNanos;
+	}
+
+	public long getMaxLatencyNanos () {
+		return maxLatencyNanos;
+	}
+
+	public void resetStatistics () {
+		appliedPresses = 0;
+		totalLatencyNanos = 0;
+		lastLatencyNanos = 0;
+		maxLatencyNanos = 0;
+	}
+
+	@Override
+	public String toString () {
+		return "InputBuffer[presses=" + appliedPresses
+				+ ", avgLatency=" + getAverageLatencyNanos() / 1000 + "us"
+				+ ", maxLatency=" + maxLatencyNanos / 1000 + "us]";
+	}
+
+	// Helpers /////////////////////////////////////////////////////////////////////////////////////
+
+	private PlayerInput slot (int playerIdx) {
+		if (playerIdx >= collecting.length) {
+			int capacity = Math.max(playerIdx + 1, collecting.length * 2);
+			collecting = Arrays.copyOf(collecting, capacity);
+			applying = Arrays.copyOf(applying, capacity);
+		}
+		if (collecting[playerIdx] == null)
+			collecting[playerIdx] = new PlayerInput(playerIdx);
+		return collecting[playerIdx];
+	}
+
+	private static Player.direction toDirection (ControllerInputEvent.button button) {
+		switch (button) {
+			case UP: return Player.direction.UP;
+			case DOWN: return Player.direction.DOWN;
+			case LEFT: return Player.direction.LEFT;
+			case RIGHT: return Player.direction.RIGHT;
+			default: return Player.direction.NULL;
+		}
+	}
+}
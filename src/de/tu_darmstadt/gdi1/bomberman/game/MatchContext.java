@@ -0,0 +1,281 @@
+package de.tu_darmstadt.gdi1.bomberman.game;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Player;
+import de.tu_darmstadt.gdi1.bomberman.utils.Logger;
+import de.tu_darmstadt.gdi1.framework.exceptions.SoundFailedException;
+import de.tu_darmstadt.gdi1.framework.sound.SoundManager;
+
+/**
+ * Alles, was ein einzelnes Match über seine Umgebung wissen muss: Tickrate, ob es headless läuft,
+ * wohin Sounds gehen und wer vom Sieg erfährt. Früher war das über statische Felder und Singletons
+ * verteilt (BombermanGame.tickRate, SoundManagerFactory, Gui.getInstance()), wodurch nie zwei
+ * Matches gleichzeitig in einer JVM laufen konnten.
+ *
+ * Die Tickrate darf zwischen 20 und 1000 Hz liegen. Spielregeln, die von Zeit abhängen (Zündschnur,
+ * Laufgeschwindigkeit, Explosionsdauer, Sudden Death), sind in Millisekunden angegeben und werden
+ * mit toTicks() umgerechnet - ein Match mit 1000 Hz spielt sich also genauso schnell wie eines mit
+ * 20 Hz, nur feiner aufgelöst.
+ *
+ * Jedes BombermanGame hat genau einen Kontext, der an alle seine Spielstände weitergereicht wird.
+ */
+public class MatchContext {
+
+	/**
+	 * Standard-Tickrate in Millisekunden: 20 Ticks pro Sekunde.
+	 */
+	public static final long DEFAULT_TICK_RATE = 50;
+
+	public static final int MIN_TICKS_PER_SECOND = 20;
+	public static final int MAX_TICKS_PER_SECOND = 1000;
+
+	private static final long DEFAULT_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(DEFAULT_TICK_RATE);
+
+	/**
+	 * Ab dieser Sekunde wird die Arena zugemauert.
+	 */
+	public static final long DEFAULT_SUDDEN_DEATH_START = 300;
+
+	private long tickNanos = DEFAULT_TICK_NANOS;
+	private long suddenDeathStart = DEFAULT_SUDDEN_DEATH_START;
+	private long suddenDeathStepTicks = 0;
+	private int suddenDeathCellsPerStep = 1;
+	private boolean headless = false;
+	private SoundManager soundManager = null;
+	private IMatchListener matchListener = null;
+	private TickProfiler profiler = null;
+
+	public MatchContext () {
+	}
+
+	/**
+	 * Erzeugt einen Kontext mit denselben Einstellungen, aber ohne Listener und Profiler.
+	 * @param other
+	 */
+	public MatchContext (MatchContext other) {
+		tickNanos = other.tickNanos;
+		headless = other.headless;
+		soundManager = other.soundManager;
+		suddenDeathStart = other.suddenDeathStart;
+		suddenDeathStepTicks = other.suddenDeathStepTicks;
+		suddenDeathCellsPerStep = other.suddenDeathCellsPerStep;
+	}
+
+	// Timing //////////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * @return Abstand zweier Ticks in Millisekunden, gerundet. Genau ist getTickNanos().
+	 */
+	public long getTickRate () {
+		return (tickNanos + 500000) / 1000000;
+	}
+
+	/**
+	 * @param tickRate Abstand zweier Ticks in Millisekunden, 1 bis 50.
+	 */
+	public void setTickRate (long tickRate) {
+		if (tickRate <= 0 || tickRate > TimeUnit.NANOSECONDS.toMillis(maxTickNanos()))
+			throw new IllegalArgumentException("Tick rate must be between 1 and 50 ms: " + tickRate);
+		setTickNanos(TimeUnit.MILLISECONDS.toNanos(tickRate));
+	}
+
+	/**
+	 * @return Abstand zweier Ticks in Nanosekunden.
+	 */
+	public long getTickNanos () {
+		return tickNanos;
+	}
+
+	/**
+	 * @param tickNanos Abstand zweier Ticks in Nanosekunden, entsprechend 20 bis 1000 Hz.
+	 */
+	public void setTickNanos (long tickNanos) {
+		if (tickNanos < minTickNanos() || tickNanos > maxTickNanos())
+			throw new IllegalArgumentException("Tick rate must be between " + MIN_TICKS_PER_SECOND + " and "
+					+ MAX_TICKS_PER_SECOND + " Hz: " + tickNanos + "ns per tick");
+		this.tickNanos = tickNanos;
+	}
+
+	/**
+	 * @param ticksPerSecond Tickfrequenz in Hz, 20 bis 1000.
+	 */
+	public void setTicksPerSecond (int ticksPerSecond) {
+		if (ticksPerSecond < MIN_TICKS_PER_SECOND || ticksPerSecond > MAX_TICKS_PER_SECOND)
+			throw new IllegalArgumentException("Tick rate must be between " + MIN_TICKS_PER_SECOND + " and "
+					+ MAX_TICKS_PER_SECOND + " Hz: " + ticksPerSecond);
+		setTickNanos((TimeUnit.SECONDS.toNanos(1) + ticksPerSecond / 2) / ticksPerSecond);
+	}
+
+	/**
+	 * @return Wie viele Ticks eine Sekunde Spielzeit hat, gerundet.
+	 */
+	public long getTicksPerSecond () {
+		return (TimeUnit.SECONDS.toNanos(1) + tickNanos / 2) / tickNanos;
+	}
+
+	/**
+	 * Rechnet eine Dauer der Spielregeln in Ticks dieses Matches um.
+	 * @param millis
+	 * @return Auf ganze Ticks gerundet, aber mindestens einer, solange millis positiv ist.
+	 */
+	public long toTicks (long millis) {
+		return toTicks(millis, tickNanos);
+	}
+
+	/**
+	 * @param ticks
+	 * @return Wie viele Millisekunden Spielzeit so viele Ticks dauern, abgerundet.
+	 */
+	public long toMillis (long ticks) {
+		return ticks * tickNanos / 1000000;
+	}
+
+	public static long toTicks (long millis, long tickNanos) {
+		if (millis <= 0)
+			return 0;
+		return Math.max(1, (TimeUnit.MILLISECONDS.toNanos(millis) + tickNanos / 2) / tickNanos);
+	}
+
+	/**
+	 * toTicks() für Elemente, die (noch) zu keinem Match gehören: mit der Standard-Tickrate.
+	 * @param millis
+	 * @return
+	 */
+	public static long defaultTicks (long millis) {
+		return toTicks(millis, DEFAULT_TICK_NANOS);
+	}
+
+	private static long minTickNanos () {
+		return TimeUnit.SECONDS.toNanos(1) / MAX_TICKS_PER_SECOND;
+	}
+
+	private static long maxTickNanos () {
+		return TimeUnit.SECONDS.toNanos(1) / MIN_TICKS_PER_SECOND;
+	}
+
+	// Sudden death ////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * @param seconds Spielzeit, ab der die Arena zugemauert wird.
+	 */
+	public void setSuddenDeathStart (long seconds) {
+		if (seconds < 0)
+			throw new IllegalArgumentException("Sudden death start must not be negative: " + seconds);
+		this.suddenDeathStart = seconds;
+	}
+
+	public long getSuddenDeathStart () {
+		return suddenDeathStart;
+	}
+
+	/**
+	 * @return Der Tick, in dem das erste Feld zugemauert wird.
+	 */
+	public long getSuddenDeathStartTick () {
+		return toTicks(TimeUnit.SECONDS.toMillis(suddenDeathStart));
+	}
+
+	/**
+	 * @param ticks Abstand zweier Schritte in Ticks, 0 für einen Schritt pro Sekunde Spielzeit.
+	 */
+	public void setSuddenDeathStepTicks (long ticks) {
+		if (ticks < 0)
+			throw new IllegalArgumentException("Sudden death step must not be negative: " + ticks);
+		this.suddenDeathStepTicks = ticks;
+	}
+
+	/**
+	 * @return Abstand zweier Schritte in Ticks, mindestens 1.
+	 */
+	public long getSuddenDeathStepTicks () {
+		if (suddenDeathStepTicks > 0)
+			return suddenDeathStepTicks;
+		return toTicks(TimeUnit.SECONDS.toMillis(1));
+	}
+
+	/**
+	 * @param cells Wie viele Felder ein Schritt zumauert.
+	 */
+	public void setSuddenDeathCellsPerStep (int cells) {
+		if (cells <= 0)
+			throw new IllegalArgumentException("Sudden death needs at least one cell per step: " + cells);
+		this.suddenDeathCellsPerStep = cells;
+	}
+
+	public int getSuddenDeathCellsPerStep () {
+		return suddenDeathCellsPerStep;
+	}
+
+	// Profiling ///////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * @param profiler Misst ab dem nächsten Tick die Phasen jedes Ticks, null schaltet ab.
+	 */
+	public void setProfiler (TickProfiler profiler) {
+		this.profiler = profiler;
+	}
+
+	public TickProfiler getProfiler () {
+		return profiler;
+	}
+
+	// Headless ////////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * @return true, wenn weder gezeichnet noch Sound gespielt noch geloggt wird.
+	 */
+	public boolean isHeadless () {
+		return headless;
+	}
+
+	public void setHeadless (boolean headless) {
+		this.headless = headless;
+	}
+
+	public void log (String message) {
+		if (!headless)
+			Logger.log(message);
+	}
+
+	// Sound ///////////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * @param soundManager Der SoundManager für dieses Match, null für Stille.
+	 */
+	public void setSoundManager (SoundManager soundManager) {
+		this.soundManager = soundManager;
+	}
+
+	public SoundManager getSoundManager () {
+		return soundManager;
+	}
+
+	public void playSound (String label) {
+		if (headless || soundManager == null)
+			return;
+
+		try {
+			soundManager.playSound(label);
+		} catch (SoundFailedException ex) {
+			java.util.logging.Logger.getLogger(MatchContext.class.getName()).log(Level.SEVERE, "Error while playing " + label, ex);
+		}
+	}
+
+	// Match events ////////////////////////////////////////////////////////////////////////////////
+
+	public void setMatchListener (IMatchListener matchListener) {
+		this.matchListener = matchListener;
+	}
+
+	public IMatchListener getMatchListener () {
+		return matchListener;
+	}
+
+	public void fireMatchWon (HashMap<Integer, Player> players) {
+		if (matchListener != null)
+			matchListener.matchWon(players);
+	}
+}
@@ -0,0 +1,142 @@
+package de.tu_darmstadt.gdi1.bomberman.game;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Der Zufallsgenerator eines Matches. Alles, was im Spiel vom Zufall abhängt (PowerUps aus
+ * Steinen, generierte Level), zieht aus dem Generator seines Spielstands - gleicher Seed und
+ * gleiche Eingaben ergeben also dasselbe Match. Darauf bauen Replays und Regressionsläufe auf.
+ *
+ * Der Algorithmus ist SplitMix64: schnell, ohne Synchronisation und mit split() teilbar. Ein
+ * abgespaltener Generator liefert einen eigenen, vom Rest unabhängigen Strom, so dass mehrere
+ * Threads ohne gemeinsamen Zustand und trotzdem reproduzierbar würfeln können. Der Algorithmus ist
+ * hier selbst implementiert, damit gespeicherte Seeds auch mit einer anderen JVM dasselbe Spiel
+ * ergeben.
+ *
+ * Nicht threadsicher - dafür gibt es split().
+ */
+public class MatchRandom {
+
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+	// Makes seeds taken at the same nanosecond differ
+	private static final AtomicLong seedUniquifier = new AtomicLong(0);
+
+	private long state;
+	private final long gamma;
+
+	public MatchRandom (long seed) {
+		this(seed, GOLDEN_GAMMA);
+	}
+
+	private MatchRandom (long seed, long gamma) {
+		this.state = seed;
+		this.gamma = gamma;
+	}
+
+	/**
+	 * @return Ein neuer Seed für Matches, deren Seed egal ist. Man kann ihn sich trotzdem merken,
+	 * um das Match später nachzuspielen.
+	 */
+	public static long randomSeed () {
+		return mix64(System.nanoTime()) ^ mix64(seedUniquifier.addAndGet(GOLDEN_GAMMA));
+	}
+
+	/**
+	 * Leitet aus einem Seed den Seed für das index-te Match einer Serie ab, unabhängig davon, in
+	 * welcher Reihenfolge oder auf welchem Thread die Matches laufen.
+	 * @param seed
+	 * @param index
+	 * @return
+	 */
+	public static long derive (long seed, long index) {
+		return mix64(mix64(seed) + (index + 1) * GOLDEN_GAMMA);
+	}
+
+	// Drawing /////////////////////////////////////////////////////////////////////////////////////
+
+	public long nextLong () {
+		return mix64(nextState());
+	}
+
+	public int nextInt () {
+		return mix32(nextState());
+	}
+
+	/**
+	 * @param bound Obergrenze (exklusiv), muss positiv sein.
+	 * @return Gleichverteilt aus [0, bound).
+	 */
+	public int nextInt (int bound) {
+		if (bound <= 0)
+			throw new IllegalArgumentException("Bound must be positive: " + bound);
+
+		int r = nextInt() >>> 1;
+		int m = bound - 1;
+		if ((bound & m) == 0)
+			return (int) ((bound * (long) r) >> 31);
+
+		// Reject the values that would make the lower results more likely
+		for (int u = r; u - (r = u % bound) + m < 0; u = nextInt() >>> 1)
+			;
+		return r;
+	}
+
+	public boolean nextBoolean () {
+		return nextInt() < 0;
+	}
+
+	/**
+	 * @return Gleichverteilt aus [0, 1).
+	 */
+	public double nextDouble () {
+		return (nextLong() >>> 11) * 0x1.0p-53;
+	}
+
+	/**
+	 * Spaltet einen unabhängigen Generator ab. Dieser Generator zieht dafür zwei Werte.
+	 * @return
+	 */
+	public MatchRandom split () {
+		return new MatchRandom(nextLong(), mixGamma(nextState()));
+	}
+
+	/**
+	 * @return Der innere Zustand. Zusammen mit setState() für Snapshots gedacht: wer den Zustand
+	 * zurücksetzt, bekommt ab da dieselben Zahlen noch einmal.
+	 */
+	public long getState () {
+		return state;
+	}
+
+	public void setState (long state) {
+		this.state = state;
+	}
+
+	// SplitMix64 //////////////////////////////////////////////////////////////////////////////////
+
+	private long nextState () {
+		return state += gamma;
+	}
+
+	private static long mix64 (long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	private static int mix32 (long z) {
+		z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+		return (int) (((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+	}
+
+	private static long mixGamma (long z) {
+		z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+		z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		z = (z ^ (z >>> 33)) | 1L;
+
+		// Gammas with too few bit flips give poorly mixed streams
+		int n = Long.bitCount(z ^ (z >>> 1));
+		return (n < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+	}
+}
@@ -0,0 +1,612 @@
+package de.tu_darmstadt.gdi1.bomberman.game;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import de.tu_darmstadt.gdi1.bomberman.game.board.BitBoard;
+import de.tu_darmstadt.gdi1.bomberman.game.board.BombermanBoard;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Bomb;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Delegate;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Explosion;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Floor;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.GameElement;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Player;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.PowerUp;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Stone;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Wall;
+import de.tu_darmstadt.gdi1.bomberman.game.levels.BombermanGameData;
+
+/**
+ * Merkt sich den Spielstand der letzten Ticks in einem Ringpuffer fester Größe, als Grundlage für
+ * Rollback im Netzwerk und zum Debuggen. Nach jedem Tick capture() aufrufen, dann setzt restore()
+ * den Spielstand in Mikrosekunden auf jeden der letzten capacity Ticks zurück. Die Alternative,
+ * jeden Tick das ganze Spielfeld per GameBoard.clone() zu kopieren, ist dafür viel zu langsam.
+ *
+ * Ein Snapshot besteht aus zwei Teilen, beide kompakt als Bytes kodiert (Zahlen als varint):
+ *
+ *   Felder:   nur die seit dem letzten Snapshot veränderten (siehe
+ *             BombermanBoard.getChangedCells()), alle keyframeInterval Snapshots einmal alle.
+ *             Ein Feld ist die Anzahl seiner Elemente, dann ein Code pro Element. Explosionen
+ *             tragen Stil und Ende, PowerUps ihre Art und Spieler ihre ID direkt mit.
+ *   Objekte:  der Zustand des Zufallsgenerators, die liegenden Bomben in der Reihenfolge, in der
+ *             sie gelegt wurden, und alle Spieler - immer komplett, das sind nur ein paar Dutzend
+ *             Bytes.
+ *
+ * Beim Zurücksetzen werden nur die Felder neu aufgebaut, die sich seit dem Ziel-Tick geändert
+ * haben. Die Spieler-Objekte bleiben dieselben, Bomben und Zeiträder werden neu angelegt. Alle
+ * neueren Snapshots werden dabei verworfen, ab da wird ja eine andere Zukunft gespielt. Die Uhr
+ * des Spiels stellt BombermanGame.rewindTo().
+ *
+ * Nicht threadsicher, nur vom Spiel-Thread zwischen zwei Ticks benutzen.
+ */
+public class SnapshotRing {
+
+	/**
+	 * Sechs Sekunden bei 20 Ticks pro Sekunde.
+	 */
+	public static final int DEFAULT_CAPACITY = 120;
+	public static final int DEFAULT_KEYFRAME_INTERVAL = 30;
+
+	// Element codes in the field records
+	private static final int FLOOR = 1;
+	private static final int WALL = 2;
+	private static final int STONE = 3;
+	private static final int BOMB = 4;
+	private static final int EXPLOSION = 5;
+	private static final int POWER_UP = 6;
+	private static final int PLAYER = 7;
+	private static final int DELEGATE = 8;
+
+	private static final Player.direction[] DIRECTIONS = Player.direction.values();
+	private static final Explosion.style[] STYLES = Explosion.style.values();
+
+	private final BombermanGameData gameData;
+	private final BombermanBoard board;
+	private final int width;
+	private final int cellCount;
+	private final int capacity;
+	private final int keyframeInterval;
+
+	// One slot per snapshot, used round and round
+	private final long[] ticks;
+	private final boolean[] keyframes;
+	private final Record[] cellRecords;
+	private final Record[] objectRecords;
+	// The fields that changed in the tick(s) before each snapshot, for keyframes as well
+	private final long[][] changedCells;
+	private int newest = -1;
+	private int count = 0;
+	private int sinceKeyframe = 0;
+
+	// Scratch space, reused from call to call
+	private final byte[][] cellSource;
+	private final int[] cellOffset;
+	private final long[] rebuild;
+	private final ArrayList<GameElement> elements = new ArrayList<GameElement>();
+	private final ArrayList<Bomb> bombs = new ArrayList<Bomb>();
+	private long bombsPlaced;
+	private final ArrayList<Explosion> explosions = new ArrayList<Explosion>();
+	private final ArrayList<Integer> dead = new ArrayList<Integer>();
+	private byte[] in;
+	private int pos;
+
+	public SnapshotRing (BombermanGameData gameData) {
+		this(gameData, DEFAULT_CAPACITY, DEFAULT_KEYFRAME_INTERVAL);
+	}
+
+	/**
+	 * @param gameData
+	 * @param capacity So viele der zuletzt gespeicherten Ticks lassen sich immer zurückholen.
+	 * @param keyframeInterval Alle so viele Snapshots werden alle Felder gespeichert. Größer spart
+	 * Speicher, kleiner macht restore() schneller.
+	 */
+	public SnapshotRing (BombermanGameData gameData, int capacity, int keyframeInterval) {
+		if (capacity < 1 || keyframeInterval < 1)
+			throw new IllegalArgumentException("Capacity and keyframe interval must be positive.");
+
+		this.gameData = gameData;
+		this.board = gameData.getBoard();
+		this.width = board.getWidth();
+		this.cellCount = board.getWidth() * board.getHeight();
+		this.capacity = capacity;
+		this.keyframeInterval = keyframeInterval;
+
+		// Enough slots that the keyframe of the oldest of the last capacity ticks is still there
+		int slots = capacity + keyframeInterval - 1;
+		ticks = new long[slots];
+		keyframes = new boolean[slots];
+		cellRecords = new Record[slots];
+		objectRecords = new Record[slots];
+		changedCells = new long[slots][(cellCount + 63) >>> 6];
+		for (int i = 0; i < slots; i++) {
+			cellRecords[i] = new Record();
+			objectRecords[i] = new Record();
+		}
+
+		cellSource = new byte[cellCount][];
+		cellOffset = new int[cellCount];
+		rebuild = new long[(cellCount + 63) >>> 6];
+	}
+
+	public int getCapacity () {
+		return capacity;
+	}
+
+	/**
+	 * @return Der älteste Tick, auf den sich zurücksetzen lässt, -1 wenn der Ring leer ist.
+	 */
+	public long getOldestTick () {
+		int slot = oldestRestorableSlot();
+		return slot < 0 ? -1 : ticks[slot];
+	}
+
+	/**
+	 * @return Der zuletzt gespeicherte Tick, -1 wenn der Ring leer ist.
+	 */
+	public long getNewestTick () {
+		return count == 0 ? -1 : ticks[newest];
+	}
+
+	public boolean canRestore (long tick) {
+		return slotOf(tick) >= 0;
+	}
+
+	/**
+	 * @return Wie viele Snapshots gerade gespeichert sind.
+	 */
+	public int size () {
+		return count;
+	}
+
+	/**
+	 * @return Wie viele Bytes die gespeicherten Snapshots gerade belegen.
+	 */
+	public int getBytes () {
+		int bytes = 0;
+		for (int i = 0, slot = newest; i < count; i++, slot = previous(slot)) {
+			bytes += cellRecords[slot].length + objectRecords[slot].length;
+		}
+		return bytes;
+	}
+
+	/**
+	 * Vergisst alle Snapshots, der nächste speichert wieder alle Felder.
+	 */
+	public void clear () {
+		newest = -1;
+		count = 0;
+		sinceKeyframe = 0;
+	}
+
+	// Capturing ///////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Speichert den Spielstand des gerade abgearbeiteten Ticks.
+	 */
+	public void capture () {
+		long tick = gameData.getCurrentTick();
+		if (count > 0 && tick <= ticks[newest])
+			throw new IllegalStateException("Tick " + tick + " is not newer than the last snapshot (" + ticks[newest] + ").");
+
+		boolean keyframe = count == 0 || sinceKeyframe >= keyframeInterval - 1;
+		newest = next(newest);
+		if (count < ticks.length)
+			count++;
+		ticks[newest] = tick;
+		keyframes[newest] = keyframe;
+		sinceKeyframe = keyframe ? 0 : sinceKeyframe + 1;
+
+		writeCells(cellRecords[newest], keyframe);
+		writeObjects(objectRecords[newest]);
+		long[] changed = board.getChangedCells();
+		System.arraycopy(changed, 0, changedCells[newest], 0, changed.length);
+		board.clearChangedCells();
+	}
+
+	private void writeCells (Record out, boolean keyframe) {
+		out.length = 0;
+		if (keyframe) {
+			for (int i = 0; i < cellCount; i++) {
+				writeCell(out, i);
+			}
+			return;
+		}
+
+		// Changed fields only, each preceded by the distance to the previous one
+		long[] changed = board.getChangedCells();
+		int last = -1;
+		for (int word = 0; word < changed.length; word++) {
+			for (long bits = changed[word]; bits != 0; bits &= bits - 1) {
+				int i = (word << 6) + Long.numberOfTrailingZeros(bits);
+				out.writeVarLong(i - last - 1);
+				writeCell(out, i);
+				last = i;
+			}
+		}
+	}
+
+	private void writeCell (Record out, int i) {
+		List<GameElement> cell = board.peekElements(i % width, i / width);
+		out.writeVarLong(cell.size());
+		for (int j = 0; j < cell.size(); j++) {
+			GameElement el = cell.get(j);
+			if (el instanceof Floor) {
+				out.writeByte(FLOOR);
+			} else if (el instanceof Wall) {
+				out.writeByte(WALL);
+			} else if (el instanceof Stone) {
+				out.writeByte(STONE);
+			} else if (el instanceof Bomb) {
+				out.writeByte(BOMB);
+			} else if (el instanceof Explosion) {
+				Explosion ex = (Explosion) el;
+				out.writeByte(EXPLOSION);
+				out.writeByte(ex.getStyle().ordinal());
+				out.writeVarLong(ex.getRemovalTick());
+			} else if (el instanceof PowerUp) {
+				out.writeByte(POWER_UP);
+				out.writeVarLong(((PowerUp) el).getpowerupID());
+			} else if (el instanceof Player) {
+				out.writeByte(PLAYER);
+				out.writeVarLong(((Player) el).getPlayerID());
+			} else if (el instanceof Delegate) {
+				out.writeByte(DELEGATE);
+			} else {
+				throw new IllegalStateException("Cannot take a snapshot of " + el.getDescription());
+			}
+		}
+	}
+
+	private void writeObjects (Record out) {
+		out.length = 0;
+		out.writeLong(gameData.getRandom().getState());
+
+		// Bombs in table order, with their laying order for the fuses
+		List<Bomb> bombs = gameData.getBombs();
+		out.writeVarLong(gameData.getBombsPlaced());
+		out.writeVarLong(bombs.size());
+		for (int b = 0; b < bombs.size(); b++) {
+			Bomb bomb = bombs.get(b);
+			out.writeVarLong(bomb.getY() * width + bomb.getX());
+			out.writeVarLong(bomb.getPlayer().getPlayerID());
+			out.writeVarLong(bomb.getDetonationRadius());
+			out.writeVarLong(bomb.getExplosionTick());
+			out.writeVarLong(bomb.getSequence());
+		}
+
+		out.writeVarLong(gameData.getPlayers().size());
+		for (Player pl : gameData.getPlayers()) {
+			out.writeVarLong(pl.getPlayerID());
+			out.writeVarLong(pl.getX());
+			out.writeVarLong(pl.getY());
+			out.writeByte(pl.getDirection().ordinal());
+			out.writeByte(gameData.isDead(pl.getPlayerID()) ? 1 : 0);
+			out.writeVarLong(pl.getNextMoveAllowedTick());
+			out.writeVarLong(pl.getMoveDelayMillis());
+			out.writeVarLong(pl.getBombradius());
+			out.writeVarLong(pl.getmymaxbombs());
+
+			out.writeVarLong(pl.getPlayersKilled().size());
+			for (Player killed : pl.getPlayersKilled()) {
+				out.writeVarLong(killed.getPlayerID());
+			}
+
+			// Bombs count by their position in the bomb list (plus one). Bombs that are gone but
+			// still count towards the limit (taken over in a chain reaction) are written as 0.
+			List<Bomb> own = pl.getMyBombs();
+			out.writeVarLong(own.size());
+			for (int b = 0; b < own.size(); b++) {
+				out.writeVarLong(gameData.getBombIndex(own.get(b)) + 1);
+			}
+		}
+	}
+
+	// Restoring ///////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Setzt den Spielstand auf einen gespeicherten Tick zurück und verwirft alle neueren
+	 * Snapshots. Danach noch BombermanGame.rewindTo(tick) aufrufen.
+	 * @param tick
+	 * @throws IllegalArgumentException Wenn der Tick nicht (mehr) im Ring ist.
+	 */
+	public void restore (long tick) {
+		int target = slotOf(tick);
+		if (target < 0)
+			throw new IllegalArgumentException("Tick " + tick + " is not in the snapshot ring ("
+					+ getOldestTick() + " - " + getNewestTick() + ").");
+
+		// Fields that changed after the target tick: those in the newer snapshots, and what
+		// changed since the newest one
+		System.arraycopy(board.getChangedCells(), 0, rebuild, 0, rebuild.length);
+		for (int slot = target; slot != newest; ) {
+			slot = next(slot);
+			for (int word = 0; word < rebuild.length; word++) {
+				rebuild[word] |= changedCells[slot][word];
+			}
+		}
+
+		locateCells(target);
+		readObjects(objectRecords[target]);
+
+		for (int word = 0; word < rebuild.length; word++) {
+			for (long bits = rebuild[word]; bits != 0; bits &= bits - 1) {
+				rebuildCell((word << 6) + Long.numberOfTrailingZeros(bits));
+			}
+		}
+
+		// Every field with an explosion, in board order
+		explosions.clear();
+		long[] layer = gameData.getBitBoard().getLayer(BitBoard.EXPLOSION);
+		for (int word = 0; word < layer.length; word++) {
+			for (long bits = layer[word]; bits != 0; bits &= bits - 1) {
+				int i = (word << 6) + Long.numberOfTrailingZeros(bits);
+				for (GameElement el : board.getElements(i % width, i / width)) {
+					if (el instanceof Explosion)
+						explosions.add((Explosion) el);
+				}
+			}
+		}
+
+		gameData.restore(tick, bombsPlaced, bombs, explosions, dead);
+
+		// The newer snapshots belong to a future that is not going to happen any more
+		while (newest != target) {
+			newest = previous(newest);
+			count--;
+		}
+		sinceKeyframe = 0;
+		for (int slot = target; !keyframes[slot]; slot = previous(slot)) {
+			sinceKeyframe++;
+		}
+		board.clearChangedCells();
+	}
+
+	/**
+	 * Sucht für jedes Feld den Snapshot, der seinen Stand zum Ziel-Tick enthält: den Keyframe
+	 * davor und darüber die Deltas bis zum Ziel.
+	 */
+	private void locateCells (int target) {
+		int keyframe = target;
+		while (!keyframes[keyframe])
+			keyframe = previous(keyframe);
+
+		Record record = cellRecords[keyframe];
+		in = record.data;
+		pos = 0;
+		for (int i = 0; i < cellCount; i++) {
+			cellSource[i] = in;
+			cellOffset[i] = pos;
+			skipCell();
+		}
+
+		for (int slot = keyframe; slot != target; ) {
+			slot = next(slot);
+			record = cellRecords[slot];
+			in = record.data;
+			pos = 0;
+			int i = -1;
+			while (pos < record.length) {
+				i += (int) readVarLong() + 1;
+				cellSource[i] = in;
+				cellOffset[i] = pos;
+				skipCell();
+			}
+		}
+	}
+
+	private void readObjects (Record record) {
+		in = record.data;
+		pos = 0;
+		gameData.getRandom().setState(readLong());
+
+		// The bomb fields are rebuilt in any case, so that every bomb is a fresh object
+		for (Bomb bomb : gameData.getBombs()) {
+			int i = bomb.getY() * width + bomb.getX();
+			rebuild[i >>> 6] |= 1L << i;
+		}
+
+		bombs.clear();
+		bombsPlaced = readVarLong();
+		int bombCount = (int) readVarLong();
+		for (int b = 0; b < bombCount; b++) {
+			int i = (int) readVarLong();
+			Player owner = player((int) readVarLong());
+			int radius = (int) readVarLong();
+			Bomb bomb = new Bomb(owner, radius, readVarLong());
+			bomb.setSequence(readVarLong());
+			link(bomb, i);
+			bombs.add(bomb);
+			rebuild[i >>> 6] |= 1L << i;
+		}
+
+		dead.clear();
+		int playerCount = (int) readVarLong();
+		for (int p = 0; p < playerCount; p++) {
+			Player pl = player((int) readVarLong());
+			int x = (int) readVarLong();
+			int y = (int) readVarLong();
+			pl.setCoordinates(x, y);
+			pl.setDirection(DIRECTIONS[in[pos++]]);
+			if (in[pos++] != 0)
+				dead.add(pl.getPlayerID());
+			pl.setNextMoveAllowedTick(readVarLong());
+			pl.setMoveDelayMillis(readVarLong());
+			pl.setBombRadius((int) readVarLong());
+			pl.setmyMaxBombs((int) readVarLong());
+
+			pl.getPlayersKilled().clear();
+			int kills = (int) readVarLong();
+			for (int k = 0; k < kills; k++) {
+				pl.getPlayersKilled().add(player((int) readVarLong()));
+			}
+
+			pl.getMyBombs().clear();
+			int own = (int) readVarLong();
+			for (int b = 0; b < own; b++) {
+				int idx = (int) readVarLong();
+				pl.getMyBombs().add(idx > 0 ? bombs.get(idx - 1) : new Bomb(pl, 0, -1));
+			}
+		}
+	}
+
+	private void rebuildCell (int i) {
+		in = cellSource[i];
+		pos = cellOffset[i];
+
+		elements.clear();
+		int size = (int) readVarLong();
+		for (int j = 0; j < size; j++) {
+			int code = in[pos++];
+			switch (code) {
+				case FLOOR:
+					elements.add(link(new Floor(), i));
+					break;
+				case WALL:
+					elements.add(link(new Wall(), i));
+					break;
+				case STONE:
+					elements.add(link(new Stone(), i));
+					break;
+				case BOMB:
+					elements.add(bombAt(i));
+					break;
+				case EXPLOSION:
+					Explosion.style style = STYLES[in[pos++]];
+					elements.add(link(new Explosion(style, readVarLong()), i));
+					break;
+				case POWER_UP:
+					elements.add(link(new PowerUp((int) readVarLong()), i));
+					break;
+				case PLAYER:
+					elements.add(player((int) readVarLong()));
+					break;
+				case DELEGATE:
+					elements.add(gameData.getDelegate());
+					break;
+				default:
+					throw new IllegalStateException("Corrupt snapshot, unknown element code " + code);
+			}
+		}
+		board.setElements(i % width, i / width, elements);
+	}
+
+	private void skipCell () {
+		int size = (int) readVarLong();
+		for (int j = 0; j < size; j++) {
+			switch (in[pos++]) {
+				case EXPLOSION:
+					pos++;
+					readVarLong();
+					break;
+				case POWER_UP:
+				case PLAYER:
+					readVarLong();
+					break;
+			}
+		}
+	}
+
+	// Helpers /////////////////////////////////////////////////////////////////////////////////////
+
+	private GameElement link (GameElement el, int i) {
+		el.setGameBoard(board);
+		el.setGameData(gameData);
+		el.setCoordinates(i % width, i / width);
+		return el;
+	}
+
+	private Bomb bombAt (int i) {
+		for (Bomb bomb : bombs) {
+			if (bomb.getY() * width + bomb.getX() == i)
+				return bomb;
+		}
+		throw new IllegalStateException("Corrupt snapshot, no bomb for field " + i);
+	}
+
+	private Player player (int playerIdx) {
+		Player pl = gameData.getPlayer(playerIdx);
+		if (pl == null)
+			throw new IllegalStateException("Snapshot of another game, there is no player " + playerIdx);
+		return pl;
+	}
+
+	private int slotOf (long tick) {
+		int oldest = oldestRestorableSlot();
+		if (oldest < 0 || tick < ticks[oldest])
+			return -1;
+
+		for (int slot = newest; ; slot = previous(slot)) {
+			if (ticks[slot] == tick)
+				return slot;
+			if (slot == oldest || ticks[slot] < tick)
+				return -1;
+		}
+	}
+
+	/**
+	 * @return Der älteste Keyframe im Ring - alles davor lässt sich nicht mehr herstellen.
+	 */
+	private int oldestRestorableSlot () {
+		int slot = (newest - count + 1 + ticks.length) % ticks.length;
+		for (int i = 0; i < count; i++, slot = next(slot)) {
+			if (keyframes[slot])
+				return slot;
+		}
+		return -1;
+	}
+
+	private int next (int slot) {
+		return slot + 1 == ticks.length ? 0 : slot + 1;
+	}
+
+	private int previous (int slot) {
+		return slot == 0 ? ticks.length - 1 : slot - 1;
+	}
+
+	private long readVarLong () {
+		long value = 0;
+		for (int shift = 0; ; shift += 7) {
+			byte b = in[pos++];
+			value |= (long) (b & 0x7f) << shift;
+			if (b >= 0)
+				return value;
+		}
+	}
+
+	private long readLong () {
+		long value = 0;
+		for (int i = 0; i < 8; i++) {
+			value = value << 8 | (in[pos++] & 0xff);
+		}
+		return value;
+	}
+
+	/**
+	 * Ein wiederverwendbarer, wachsender Byte-Puffer.
+	 */
+	private static final class Record {
+		byte[] data = new byte[64];
+		int length = 0;
+
+		void writeByte (int b) {
+			if (length == data.length)
+				data = Arrays.copyOf(data, data.length * 2);
+			data[length++] = (byte) b;
+		}
+
+		void writeVarLong (long value) {
+			while ((value & ~0x7fL) != 0) {
+				writeByte((int) ((value & 0x7f) | 0x80));
+				value >>>= 7;
+			}
+			writeByte((int) value);
+		}
+
+		void writeLong (long value) {
+			for (int shift = 56; shift >= 0; shift -= 8) {
+				writeByte((int) (value >>> shift));
+			}
+		}
+	}
+}
@@ -0,0 +1,320 @@
+package de.tu_darmstadt.gdi1.bomberman.game;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Misst, wie lange die einzelnen Phasen von BombermanGame.tick() dauern, damit man bei einem
+ * verspäteten Frame sieht, ob es an den Bewegungen, einer Kettenexplosion oder am Zeichnen lag.
+ *
+ * Pro Phase gibt es ein Histogramm mit logarithmischen Fächern (16 pro Zweierpotenz, also höchstens
+ * gut 6% daneben), daraus kommen p50, p99, p99.9 und das Maximum. Messen kostet pro Phase einen
+ * System.nanoTime() Aufruf und das Hochzählen eines Fachs, ohne Allokation. Ticks, die länger als
+ * eine Tickdauer brauchen, werden als Überschreitung gezählt.
+ *
+ * Gemessen wird nur, wenn der MatchContext einen Profiler hat. Mit register() ist er als MBean
+ * unter de.tu_darmstadt.gdi1.bomberman:type=TickProfiler zu sehen, mit setLogInterval() schreibt
+ * er regelmäßig eine Zeile ins Log. Beides schaltet fromSystemProperties() über
+ * -Dbomberman.profile=true und -Dbomberman.profile.logSeconds=N ein.
+ *
+ * Geschrieben wird nur vom Tick-Thread. Gelesen werden darf von überall, die Werte können dann
+ * einen Tick hinterherhinken. reset() wirkt erst beim nächsten Tick.
+ */
+public class TickProfiler implements TickProfilerMBean {
+
+	/**
+	 * Die Phasen eines Ticks in ihrer Reihenfolge, TICK ist der ganze Tick.
+	 */
+	public enum Phase {
+		INPUT,
+		MOVING,
+		BOMBS,
+		EXPLOSIONS,
+		GAME_TIME,
+		REDRAW,
+		TICK
+	}
+
+	public static final String DOMAIN = "de.tu_darmstadt.gdi1.bomberman";
+
+	private static final Phase[] PHASES = Phase.values();
+	// 16 buckets per power of two, values up to 2^40 ns (18 minutes)
+	private static final int SUB_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+	private static final int MAX_EXPONENT = 40;
+	private static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB_BUCKETS;
+
+	private static final Logger logger = Logger.getLogger(TickProfiler.class.getName());
+
+	private final String name;
+	private final long[][] counts = new long[PHASES.length][BUCKETS];
+	private final long[] max = new long[PHASES.length];
+	private volatile long ticks = 0;
+	private volatile long overruns = 0;
+	private volatile long budgetNanos = 0;
+	private volatile boolean resetWanted = false;
+
+	// The running tick
+	private long tickStart;
+	private long lapStart;
+
+	private long logIntervalNanos = 0;
+	private long lastLog;
+	private ObjectName objectName;
+
+	/**
+	 * @param name Unter diesem Namen erscheint der Profiler als MBean und im Log, etwa "room-3".
+	 */
+	public TickProfiler (String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Erzeugt einen Profiler, wenn -Dbomberman.profile=true gesetzt ist, registriert ihn als MBean
+	 * und loggt alle -Dbomberman.profile.logSeconds Sekunden (0 oder nicht gesetzt: gar nicht).
+	 * @param name
+	 * @return Der Profiler, null wenn nicht gemessen werden soll.
+	 */
+	public static TickProfiler fromSystemProperties (String name) {
+		if (!Boolean.getBoolean("bomberman.profile"))
+			return null;
+
+		TickProfiler profiler = new TickProfiler(name);
+		profiler.setLogInterval(Long.getLong("bomberman.profile.logSeconds", 0), TimeUnit.SECONDS);
+		profiler.register();
+		return profiler;
+	}
+
+	public String getName () {
+		return name;
+	}
+
+	/**
+	 * @param interval So oft schreibt der Profiler seine Zahlen ins Log, 0 nie.
+	 * @param unit
+	 */
+	public void setLogInterval (long interval, TimeUnit unit) {
+		logIntervalNanos = unit.toNanos(interval);
+		lastLog = System.nanoTime();
+	}
+
+	// Measuring ///////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Zu Beginn des Ticks aufrufen.
+	 */
+	public void begin () {
+		if (resetWanted) {
+			resetWanted = false;
+			for (long[] phase : counts) {
+				Arrays.fill(phase, 0);
+			}
+			Arrays.fill(max, 0);
+			ticks = 0;
+			overruns = 0;
+		}
+		tickStart = System.nanoTime();
+		lapStart = tickStart;
+	}
+
+	/**
+	 * Nach jeder Phase aufrufen: die Zeit seit dem letzten lap() bzw. begin() zählt zu ihr.
+	 * @param phase
+	 */
+	public void lap (Phase phase) {
+		long now = System.nanoTime();
+		record(phase, now - lapStart);
+		lapStart = now;
+	}
+
+	/**
+	 * Schließt den Tick ab, nach dem lap() der letzten Phase.
+	 * @param budgetNanos Die Tickdauer. Braucht der Tick länger, ist das eine Überschreitung.
+	 */
+	public void end (long budgetNanos) {
+		long total = lapStart - tickStart;
+		record(Phase.TICK, total);
+		this.budgetNanos = budgetNanos;
+		if (total > budgetNanos)
+			overruns++;
+		ticks++;
+
+		if (logIntervalNanos > 0 && lapStart - lastLog >= logIntervalNanos) {
+			lastLog = lapStart;
+			logger.info(toString());
+		}
+	}
+
+	/**
+	 * Zählt eine Messung zu einer Phase.
+	 * @param phase
+	 * @param nanos
+	 */
+	public void record (Phase phase, long nanos) {
+		int p = phase.ordinal();
+		counts[p][bucketOf(nanos)]++;
+		if (nanos > max[p])
+			max[p] = nanos;
+	}
+
+	static int bucketOf (long nanos) {
+		if (nanos < SUB_BUCKETS)
+			return nanos <= 0 ? 0 : (int) nanos;
+		int exponent = Math.min(63 - Long.numberOfLeadingZeros(nanos), MAX_EXPONENT);
+		int sub = (int) (nanos >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+	}
+
+	/**
+	 * @return Der größte Wert, der in das Fach fällt.
+	 */
+	static long highestIn (int bucket) {
+		if (bucket < SUB_BUCKETS)
+			return bucket;
+		int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+		long sub = bucket % SUB_BUCKETS;
+		return ((SUB_BUCKETS + sub + 1) << (exponent - SUB_BITS)) - 1;
+	}
+
+	// Reading /////////////////////////////////////////////////////////////////////////////////////
+
+	public long getTicks () {
+		return ticks;
+	}
+
+	public long getOverruns () {
+		return overruns;
+	}
+
+	public long getBudgetNanos () {
+		return budgetNanos;
+	}
+
+	public String[] getPhases () {
+		String[] names = new String[PHASES.length];
+		for (int i = 0; i < names.length; i++) {
+			names[i] = PHASES[i].name();
+		}
+		return names;
+	}
+
+	public String[] getReport () {
+		String[] lines = new String[PHASES.length];
+		for (int i = 0; i < lines.length; i++) {
+			Phase phase = PHASES[i];
+			lines[i] = String.format(Locale.ROOT, "%-10s p50=%dus p99=%dus p99.9=%dus max=%dus", phase.name(),
+					micros(getPercentileNanos(phase, 50)), micros(getPercentileNanos(phase, 99)),
+					micros(getPercentileNanos(phase, 99.9)), micros(getMaxNanos(phase)));
+		}
+		return lines;
+	}
+
+	public long getPercentileNanos (String phase, double percentile) {
+		return getPercentileNanos(Phase.valueOf(phase), percentile);
+	}
+
+	public long getMaxNanos (String phase) {
+		return getMaxNanos(Phase.valueOf(phase));
+	}
+
+	/**
+	 * @param phase
+	 * @param percentile Zwischen 0 und 100.
+	 * @return So lange hat die Phase in percentile Prozent der Ticks höchstens gedauert, 0 ohne
+	 * Messungen.
+	 */
+	public long getPercentileNanos (Phase phase, double percentile) {
+		if (percentile < 0 || percentile > 100)
+			throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percentile);
+
+		long[] buckets = counts[phase.ordinal()];
+		long total = 0;
+		for (long count : buckets) {
+			total += count;
+		}
+		if (total == 0)
+			return 0;
+
+		long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+		long seen = 0;
+		for (int i = 0; i < buckets.length; i++) {
+			seen += buckets[i];
+			if (seen >= rank)
+				return Math.min(highestIn(i), getMaxNanos(phase));
+		}
+		return getMaxNanos(phase);
+	}
+
+	public long getMaxNanos (Phase phase) {
+		return max[phase.ordinal()];
+	}
+
+	public void reset () {
+		resetWanted = true;
+	}
+
+	private static long micros (long nanos) {
+		return TimeUnit.NANOSECONDS.toMicros(nanos);
+	}
+
+	// JMX /////////////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Meldet den Profiler beim MBeanServer der Plattform an. Ein älterer Profiler gleichen Namens
+	 * wird dabei ersetzt. Klappt das nicht, wird nur gewarnt - das Spiel läuft trotzdem.
+	 */
+	public void register () {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName objectName = new ObjectName(DOMAIN + ":type=TickProfiler,name=" + ObjectName.quote(name));
+			if (server.isRegistered(objectName))
+				server.unregisterMBean(objectName);
+			server.registerMBean(this, objectName);
+			this.objectName = objectName;
+		} catch (JMException e) {
+			logger.warning("Cannot register tick profiler " + name + ": " + e);
+		}
+	}
+
+	/**
+	 * Meldet den Profiler wieder ab, falls er angemeldet war.
+	 */
+	public void unregister () {
+		if (objectName == null)
+			return;
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			if (server.isRegistered(objectName))
+				server.unregisterMBean(objectName);
+		} catch (JMException e) {
+			logger.warning("Cannot unregister tick profiler " + name + ": " + e);
+		}
+		objectName = null;
+	}
+
+	public ObjectName getObjectName () {
+		return objectName;
+	}
+
+	@Override
+	public String toString () {
+		StringBuilder sb = new StringBuilder("TickProfiler[").append(name)
+				.append(", ticks=").append(ticks)
+				.append(", overruns=").append(overruns);
+		for (Phase phase : PHASES) {
+			sb.append(", ").append(phase.name().toLowerCase(Locale.ROOT))
+				.append('=').append(micros(getPercentileNanos(phase, 50)))
+				.append('/').append(micros(getPercentileNanos(phase, 99)))
+				.append('/').append(micros(getPercentileNanos(phase, 99.9)))
+				.append('/').append(micros(getMaxNanos(phase)));
+		}
+		return sb.append(" us (p50/p99/p99.9/max)]").toString();
+	}
+}
@@ -0,0 +1,48 @@
+package de.tu_darmstadt.gdi1.bomberman.game;
+
+/**
+ * Was der TickProfiler per JMX (jconsole, VisualVM) zeigt. Zeiten in Nanosekunden.
+ */
+public interface TickProfilerMBean {
+
+	/**
+	 * @return Anzahl der gemessenen Ticks.
+	 */
+	long getTicks ();
+
+	/**
+	 * @return Anzahl der Ticks, die länger als eine Tickdauer gebraucht haben.
+	 */
+	long getOverruns ();
+
+	/**
+	 * @return Die Tickdauer, gegen die Überschreitungen gezählt werden.
+	 */
+	long getBudgetNanos ();
+
+	/**
+	 * @return Die Namen der Phasen, wie sie getPercentileNanos() und getMaxNanos() erwarten.
+	 */
+	String[] getPhases ();
+
+	/**
+	 * @return Eine Zeile pro Phase mit p50, p99, p99.9 und Maximum.
+	 */
+	String[] getReport ();
+
+	/**
+	 * @param phase Name der Phase, siehe getPhases().
+	 * @param percentile Zwischen 0 und 100, etwa 99.9.
+	 */
+	long getPercentileNanos (String phase, double percentile);
+
+	/**
+	 * @param phase Name der Phase, siehe getPhases().
+	 */
+	long getMaxNanos (String phase);
+
+	/**
+	 * Fängt mit dem nächsten Tick neu an zu zählen.
+	 */
+	void reset ();
+}
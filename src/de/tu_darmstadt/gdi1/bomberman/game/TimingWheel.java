@@ -0,0 +1,238 @@
+package de.tu_darmstadt.gdi1.bomberman.game;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchisches Zeitrad: merkt sich Objekte, die zu einem bestimmten (absoluten) Tick fällig
+ * werden - Bomben, die explodieren, Explosionen, die verschwinden. Ein Tick kostet damit nur so
+ * viel, wie in ihm tatsächlich fällig wird, egal wie viele Bomben auf dem Feld liegen.
+ *
+ * Jede Ebene hat 64 Fächer. Ebene 0 hat ein Fach pro Tick, Ebene 1 eines pro 64 Ticks und so
+ * weiter. Immer wenn eine Ebene einmal herum ist, wird das nächste Fach der Ebene darüber auf die
+ * unteren Ebenen verteilt. Einplanen und Fälligwerden kosten konstante Zeit.
+ *
+ * Objekte, die zum selben Tick fällig werden, kommen in der Reihenfolge heraus, in der sie
+ * eingeplant wurden - auch wenn das eine früh in ein höheres Fach kam und das andere später direkt
+ * in eine untere Ebene. Dafür bekommt jeder Eintrag eine laufende Nummer, nach der jedes Fach
+ * sortiert bleibt. Herausnehmen kann man nichts - wer ein Objekt vorzeitig loswird, muss beim
+ * Fälligwerden prüfen, ob es noch gebraucht wird.
+ *
+ * Nicht threadsicher.
+ */
+public class TimingWheel<T> {
+
+	private static final int SLOT_BITS = 6;
+	private static final int SLOTS = 1 << SLOT_BITS;
+	private static final int SLOT_MASK = SLOTS - 1;
+	private static final int LEVELS = 4;
+
+	/**
+	 * Weiter in der Zukunft liegende Ticks landen erst einmal im letzten Fach und werden beim
+	 * Verteilen neu einsortiert. Bei 20 Ticks pro Sekunde sind das gut neun Tage.
+	 */
+	public static final long MAX_DELAY = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+	private static final class Entry<T> {
+		T item;
+		long tick;
+		// Scheduling order, every slot is sorted by it
+		long seq;
+		Entry<T> next;
+	}
+
+	// One singly linked FIFO list per slot
+	private final Entry<T>[][] heads;
+	private final Entry<T>[][] tails;
+
+	// Recycled entries, so that scheduling does not produce garbage
+	private Entry<T> free = null;
+
+	private long now;
+	private long scheduled = 0;
+	private int size = 0;
+	private final ArrayList<T> due = new ArrayList<T>();
+
+	public TimingWheel () {
+		this(0);
+	}
+
+	/**
+	 * @param now Der Tick, der gerade abgearbeitet ist. Der erste advance() liefert now + 1.
+	 */
+	public TimingWheel (long now) {
+		this.now = now;
+		heads = newSlots();
+		tails = newSlots();
+	}
+
+	/**
+	 * Java kann keine generischen Arrays anlegen. Das Array verlässt die Klasse nie und enthält
+	 * nur Entry<T>, der Cast ist also sicher.
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private static <T> Entry<T>[][] newSlots () {
+		return (Entry<T>[][]) new Entry[LEVELS][SLOTS];
+	}
+
+	/**
+	 * @return Der zuletzt abgearbeitete Tick.
+	 */
+	public long getNow () {
+		return now;
+	}
+
+	/**
+	 * @return Anzahl der eingeplanten Objekte.
+	 */
+	public int size () {
+		return size;
+	}
+
+	/**
+	 * Plant ein Objekt für einen Tick ein. Ticks, die schon vorbei sind, werden beim nächsten
+	 * advance() fällig.
+	 * @param item
+	 * @param tick
+	 */
+	public void schedule (T item, long tick) {
+		Entry<T> e = free;
+		if (e != null)
+			free = e.next;
+		else
+			e = new Entry<T>();
+
+		e.item = item;
+		e.tick = Math.max(tick, now + 1);
+		e.seq = scheduled++;
+		insert(e);
+		size++;
+	}
+
+	/**
+	 * Vergisst alle eingeplanten Objekte und stellt die Uhr auf einen beliebigen Tick, etwa beim
+	 * Zurückspielen eines Snapshots.
+	 * @param now Der Tick, der gerade abgearbeitet ist.
+	 */
+	public void reset (long now) {
+		for (int level = 0; level < LEVELS; level++) {
+			for (int idx = 0; idx < SLOTS; idx++) {
+				Entry<T> e = heads[level][idx];
+				while (e != null) {
+					Entry<T> next = e.next;
+					e.item = null;
+					e.next = free;
+					free = e;
+					e = next;
+				}
+				heads[level][idx] = null;
+				tails[level][idx] = null;
+			}
+		}
+		this.now = now;
+		scheduled = 0;
+		size = 0;
+		due.clear();
+	}
+
+	private void insert (Entry<T> e) {
+		long delta = e.tick - now;
+		long slotTick = delta > MAX_DELAY ? now + MAX_DELAY : e.tick;
+
+		int level = 0;
+		while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1)))
+			level++;
+
+		int idx = (int) (slotTick >>> (SLOT_BITS * level)) & SLOT_MASK;
+		Entry<T> tail = tails[level][idx];
+		if (tail == null || tail.seq < e.seq) {
+			// New entries always go here, cascaded ones whenever nothing newer is in the slot yet
+			e.next = null;
+			if (tail == null)
+				heads[level][idx] = e;
+			else
+				tail.next = e;
+			tails[level][idx] = e;
+			return;
+		}
+
+		// Cascaded behind entries scheduled later: keep the slot in scheduling order
+		Entry<T> prev = null;
+		Entry<T> at = heads[level][idx];
+		while (at.seq < e.seq) {
+			prev = at;
+			at = at.next;
+		}
+		e.next = at;
+		if (prev == null)
+			heads[level][idx] = e;
+		else
+			prev.next = e;
+	}
+
+	// Advancing ///////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Geht einen Tick weiter.
+	 * @return Die in diesem Tick fälligen Objekte. Die Liste gehört dem Zeitrad und ist nur bis
+	 * zum nächsten Aufruf gültig.
+	 */
+	public List<T> advance () {
+		due.clear();
+		step();
+		return due;
+	}
+
+	/**
+	 * Geht bis einschließlich tick weiter. Liegt tick nicht in der Zukunft, passiert nichts.
+	 * @param tick
+	 * @return Alle bis dahin fälligen Objekte, nach Fälligkeit sortiert. Die Liste gehört dem
+	 * Zeitrad und ist nur bis zum nächsten Aufruf gültig.
+	 */
+	public List<T> advanceTo (long tick) {
+		due.clear();
+		while (now < tick)
+			step();
+		return due;
+	}
+
+	private void step () {
+		now++;
+
+		// Whenever a level wrapped around, spread the next slot of the level above
+		for (int level = 1; level < LEVELS; level++) {
+			if ((now & ((1L << (SLOT_BITS * level)) - 1)) != 0)
+				break;
+
+			int idx = (int) (now >>> (SLOT_BITS * level)) & SLOT_MASK;
+			Entry<T> e = heads[level][idx];
+			heads[level][idx] = null;
+			tails[level][idx] = null;
+			while (e != null) {
+				Entry<T> next = e.next;
+				insert(e);
+				e = next;
+			}
+		}
+
+		int idx = (int) now & SLOT_MASK;
+		Entry<T> e = heads[0][idx];
+		heads[0][idx] = null;
+		tails[0][idx] = null;
+		while (e != null) {
+			Entry<T> next = e.next;
+			due.add(e.item);
+			size--;
+
+			e.item = null;
+			e.next = free;
+			free = e;
+			e = next;
+		}
+	}
+
+	@Override
+	public String toString () {
+		return "TimingWheel[now=" + now + ", size=" + size + "]";
+	}
+}
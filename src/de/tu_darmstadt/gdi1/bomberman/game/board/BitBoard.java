@@ -0,0 +1,165 @@
+package de.tu_darmstadt.gdi1.bomberman.game.board;
+
+import java.io.Serializable;
+
+/**
+ * Das Spielfeld als Bitmasken: pro Ebene (Mauer, Stein, Bombe, Explosion, PowerUp, Spieler) ein
+ * Bit pro Feld, zeilenweise in long[] gepackt. Damit lassen sich Fragen wie "ist das Feld
+ * blockiert?" ohne Listen, Objekte und instanceof beantworten.
+ *
+ * Die Klasse weiß nichts über GameElements, sie wird vom BombermanBoard gepflegt.
+ */
+public class BitBoard implements Serializable, Cloneable {
+
+	private static final long serialVersionUID = -3402184559180271633L;
+
+	// Layers //////////////////////////////////////////////////////////////////////////////////////
+
+	public static final int WALL = 0;
+	public static final int STONE = 1;
+	public static final int BOMB = 2;
+	public static final int EXPLOSION = 3;
+	public static final int POWER_UP = 4;
+	public static final int PLAYER = 5;
+	public static final int LAYERS = 6;
+
+	public static final int WALL_BIT = 1 << WALL;
+	public static final int STONE_BIT = 1 << STONE;
+	public static final int BOMB_BIT = 1 << BOMB;
+	public static final int EXPLOSION_BIT = 1 << EXPLOSION;
+	public static final int POWER_UP_BIT = 1 << POWER_UP;
+	public static final int PLAYER_BIT = 1 << PLAYER;
+
+	/**
+	 * Ebenen, durch die kein Spieler laufen kann.
+	 */
+	public static final int SOLID = WALL_BIT | STONE_BIT | BOMB_BIT | PLAYER_BIT;
+
+	/**
+	 * Ebenen, die eine Explosion wegsprengt.
+	 */
+	public static final int DESTROYABLE = STONE_BIT | POWER_UP_BIT | PLAYER_BIT;
+
+	private final int width;
+	private final int height;
+
+	// layers[layer][word], field (x,y) is bit (y * width + x)
+	private final long[][] layers;
+
+	public BitBoard (int width, int height) {
+		this.width = width;
+		this.height = height;
+		this.layers = new long[LAYERS][(width * height + 63) >>> 6];
+	}
+
+	public int getWidth () {
+		return width;
+	}
+
+	public int getHeight () {
+		return height;
+	}
+
+	// Single fields ///////////////////////////////////////////////////////////////////////////////
+
+	public boolean get (int layer, int x, int y) {
+		int i = y * width + x;
+		return (layers[layer][i >>> 6] & (1L << i)) != 0;
+	}
+
+	public void set (int layer, int x, int y, boolean value) {
+		int i = y * width + x;
+		if (value)
+			layers[layer][i >>> 6] |= 1L << i;
+		else
+			layers[layer][i >>> 6] &= ~(1L << i);
+	}
+
+	/**
+	 * @return Die Ebenen des Feldes als Bitmaske (WALL_BIT, STONE_BIT, ...).
+	 */
+	public int getMask (int x, int y) {
+		int i = y * width + x;
+		int word = i >>> 6;
+		long bit = 1L << i;
+
+		int mask = 0;
+		for (int layer = 0; layer < LAYERS; layer++) {
+			if ((layers[layer][word] & bit) != 0)
+				mask |= 1 << layer;
+		}
+		return mask;
+	}
+
+	/**
+	 * Setzt alle Ebenen eines Feldes auf einmal.
+	 * @param mask Bitmaske aus WALL_BIT, STONE_BIT, ...
+	 */
+	public void setMask (int x, int y, int mask) {
+		int i = y * width + x;
+		int word = i >>> 6;
+		long bit = 1L << i;
+
+		for (int layer = 0; layer < LAYERS; layer++) {
+			if ((mask & (1 << layer)) != 0)
+				layers[layer][word] |= bit;
+			else
+				layers[layer][word] &= ~bit;
+		}
+	}
+
+	/**
+	 * @return true, wenn auf dem Feld etwas liegt, das Spieler aufhält.
+	 */
+	public boolean isSolid (int x, int y) {
+		int i = y * width + x;
+		int word = i >>> 6;
+		long bit = 1L << i;
+
+		return ((layers[WALL][word] | layers[STONE][word] | layers[BOMB][word] | layers[PLAYER][word]) & bit) != 0;
+	}
+
+	// Whole layers ////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * @return Wie viele Felder auf der Ebene belegt sind.
+	 */
+	public int count (int layer) {
+		int count = 0;
+		for (long word : layers[layer]) {
+			count += Long.bitCount(word);
+		}
+		return count;
+	}
+
+	/**
+	 * @return Die Bits der Ebene, zeilenweise. Nicht verändern!
+	 */
+	public long[] getLayer (int layer) {
+		return layers[layer];
+	}
+
+	/**
+	 * @return Eine Prüfsumme über alle Ebenen. Gleiche Belegung, gleiche Summe - damit lässt sich
+	 * billig vergleichen, ob zwei Spiele gleich verlaufen sind.
+	 */
+	public long checksum () {
+		long hash = 0xcbf29ce484222325L;
+		for (long[] layer : layers) {
+			for (long word : layer) {
+				hash = (hash ^ word) * 0x100000001b3L;
+				hash ^= hash >>> 29;
+			}
+		}
+		return hash;
+	}
+
+	@Override
+	public BitBoard clone () {
+		BitBoard clone = new BitBoard(width, height);
+		for (int layer = 0; layer < LAYERS; layer++) {
+			System.arraycopy(layers[layer], 0, clone.layers[layer], 0, layers[layer].length);
+		}
+		return clone;
+	}
+}
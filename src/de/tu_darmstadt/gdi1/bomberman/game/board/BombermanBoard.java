@@ -0,0 +1,505 @@
+package de.tu_darmstadt.gdi1.bomberman.game.board;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Bomb;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Explosion;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.GameElement;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Player;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.PowerUp;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Stone;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Wall;
+import de.tu_darmstadt.gdi1.framework.interfaces.IBoard;
+import de.tu_darmstadt.gdi1.framework.interfaces.IBoardListener;
+import de.tu_darmstadt.gdi1.framework.interfaces.IGameBoard;
+import de.tu_darmstadt.gdi1.framework.model.BoardChanges;
+import de.tu_darmstadt.gdi1.framework.utils.Point;
+
+/**
+ * Das Bomberman Spielfeld. Nach außen ein ganz normales IGameBoard mit einer Liste von Elementen
+ * pro Feld, intern wird zusätzlich ein BitBoard gepflegt: jede Änderung an einer Feldliste setzt
+ * die Bits des Feldes neu. Spiellogik, die nur wissen will, was auf einem Feld liegt (Kollision,
+ * Explosionen), fragt das BitBoard statt durch die Liste zu laufen.
+ *
+ * Die Listen, die getElements() liefert, gehören dem Feld - Änderungen daran wirken sofort.
+ * setElements() mit einer fremden Liste übernimmt deren Inhalt. Wer nur lesen will, nimmt
+ * peekElements().
+ *
+ * Außerdem merkt sich das Spielfeld, welche Felder seit dem letzten clearChangedCells() verändert
+ * wurden. Darauf baut der SnapshotRing seine Deltas auf.
+ *
+ * Unabhängig davon gibt es die Dirty-Felder eines Ticks: was im laufenden Tick verändert (oder
+ * per markDirty() zum Neuzeichnen vorgemerkt) wurde, ist nach endTick() bis zum nächsten
+ * endTick() über getTickDirtyCells() zu haben - für GUI, GameServer, Aufzeichnung. Weil jede
+ * Änderung an einer Feldliste das selbst erledigt, kann die Spiellogik kein Feld vergessen.
+ *
+ * Wer wissen will, was sich genau geändert hat, meldet einen IBoardListener an. Die Feldlisten
+ * zeichnen dann jedes hinzugefügte und entfernte Element auf, endTick() liefert alles als ein
+ * Paket aus. Ohne Listener wird nichts aufgezeichnet.
+ *
+ * Für sehr große Karten gibt es das ChunkedBoard, create() wählt nach der Größe.
+ */
+public class BombermanBoard implements IGameBoard<GameElement> {
+
+	private static final long serialVersionUID = 2718950457731260935L;
+
+	private final int width;
+	private final int height;
+	private final Cell[] cells;
+	private final BitBoard bits;
+	// Field (x,y) is bit (y * width + x), like in the BitBoard
+	private final long[] changed;
+	// Dirty in the running tick, and in the last finished one. Swapped by endTick().
+	private long[] dirty;
+	private long[] tickDirty;
+	// Null until somebody listens
+	private transient BoardChanges<GameElement> changes;
+
+	public BombermanBoard (int width, int height) {
+		this(width, height, true);
+	}
+
+	/**
+	 * @param allocate false, wenn die Unterklasse ihre Felder selbst verwaltet (siehe cell()).
+	 */
+	BombermanBoard (int width, int height, boolean allocate) {
+		this.width = width;
+		this.height = height;
+		this.cells = allocate ? new Cell[width * height] : null;
+		this.bits = new BitBoard(width, height);
+		this.changed = new long[(width * height + 63) >>> 6];
+		this.dirty = new long[changed.length];
+		this.tickDirty = new long[changed.length];
+
+		if (!allocate)
+			return;
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				cells[y * width + x] = new Cell(x, y);
+			}
+		}
+	}
+
+	/**
+	 * Ein leeres Spielfeld in der passenden Bauart: ab CHUNKED_CELLS Feldern ein ChunkedBoard,
+	 * darunter ein gewöhnliches.
+	 * @param width
+	 * @param height
+	 * @return
+	 */
+	public static BombermanBoard create (int width, int height) {
+		if ((long) width * height >= ChunkedBoard.CHUNKED_CELLS)
+			return new ChunkedBoard(width, height);
+		return new BombermanBoard(width, height);
+	}
+
+	/**
+	 * Übernimmt ein beliebiges Spielfeld. Die Elemente selbst werden nicht kopiert.
+	 * @param board
+	 * @return Das Spielfeld selbst, falls es schon ein BombermanBoard ist.
+	 */
+	public static BombermanBoard wrap (IGameBoard<GameElement> board) {
+		if (board instanceof BombermanBoard)
+			return (BombermanBoard) board;
+
+		BombermanBoard result = create(board.getWidth(), board.getHeight());
+		for (int x = 0; x < board.getWidth(); x++) {
+			for (int y = 0; y < board.getHeight(); y++) {
+				result.setElements(x, y, board.getElements(x, y));
+			}
+		}
+		return result;
+	}
+
+	public BitBoard getBits () {
+		return bits;
+	}
+
+	/**
+	 * @return Die seit dem letzten clearChangedCells() veränderten Felder als Bits, zeilenweise wie
+	 * im BitBoard. Nicht verändern!
+	 */
+	public long[] getChangedCells () {
+		return changed;
+	}
+
+	public void clearChangedCells () {
+		Arrays.fill(changed, 0);
+	}
+
+	// Dirty cells /////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Merkt ein Feld zum Neuzeichnen vor, dessen Inhalt gleich geblieben ist, das aber anders
+	 * aussehen soll (etwa eine Bombe kurz vor der Explosion). Änderungen an den Feldlisten
+	 * markieren sich selbst.
+	 * @param x
+	 * @param y
+	 */
+	public void markDirty (int x, int y) {
+		int i = y * width + x;
+		dirty[i >>> 6] |= 1L << i;
+	}
+
+	/**
+	 * Schließt den Tick ab: die bisher markierten Felder werden zu getTickDirtyCells(), der
+	 * nächste Tick fängt leer an. Kostet nur das Leeren eines Bitsets. Die Board-Listener bekommen
+	 * die Änderungen des Ticks.
+	 * @return getTickDirtyCells()
+	 */
+	public long[] endTick () {
+		long[] done = dirty;
+		dirty = tickDirty;
+		tickDirty = done;
+		Arrays.fill(dirty, 0);
+		flushBoardChanges();
+		return done;
+	}
+
+	/**
+	 * @return Die im zuletzt abgeschlossenen Tick veränderten Felder als Bits, zeilenweise wie im
+	 * BitBoard. Gültig bis zum nächsten endTick(), nicht verändern!
+	 */
+	public long[] getTickDirtyCells () {
+		return tickDirty;
+	}
+
+	/**
+	 * Vergisst alle Dirty-Felder, auch die des letzten Ticks - etwa nach dem Aufbau des Spielfelds.
+	 */
+	public void clearDirtyCells () {
+		Arrays.fill(dirty, 0);
+		Arrays.fill(tickDirty, 0);
+	}
+
+	/**
+	 * @return Die Ebene des Elements im BitBoard als Bitmaske, 0 für Boden und Delegate.
+	 */
+	public static int maskOf (GameElement element) {
+		if (element instanceof Wall)
+			return BitBoard.WALL_BIT;
+		if (element instanceof Stone)
+			return BitBoard.STONE_BIT;
+		if (element instanceof Bomb)
+			return BitBoard.BOMB_BIT;
+		if (element instanceof Explosion)
+			return BitBoard.EXPLOSION_BIT;
+		if (element instanceof PowerUp)
+			return BitBoard.POWER_UP_BIT;
+		if (element instanceof Player)
+			return BitBoard.PLAYER_BIT;
+		return 0;
+	}
+
+	// Scans ///////////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Sammelt alle Elemente vom Typ type auf Feldern, deren Ebene layer belegt ist - spaltenweise,
+	 * also in derselben Reihenfolge wie eine Schleife über x und darin über y. Felder ohne die
+	 * Ebene werden nur im BitBoard angesehen, ihre Listen nicht angefasst.
+	 * @param layer Die Ebene im BitBoard, etwa BitBoard.STONE.
+	 * @param type
+	 * @param into Hierhin wird gesammelt.
+	 * @return into
+	 */
+	public <T extends GameElement> List<T> collect (int layer, Class<T> type, List<T> into) {
+		for (int x = 0; x < width; x++) {
+			collectColumn(layer, type, into, x, 0, height);
+		}
+		return into;
+	}
+
+	/**
+	 * collect() für die Felder (x, fromY) bis (x, toY - 1).
+	 */
+	<T extends GameElement> void collectColumn (int layer, Class<T> type, List<T> into, int x, int fromY, int toY) {
+		for (int y = fromY; y < toY; y++) {
+			if (!bits.get(layer, x, y))
+				continue;
+			List<GameElement> cell = peekElements(x, y);
+			for (int i = 0; i < cell.size(); i++) {
+				if (type.isInstance(cell.get(i)))
+					into.add(type.cast(cell.get(i)));
+			}
+		}
+	}
+
+	// Storage /////////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * @return Die Liste des Feldes, wird bei Bedarf angelegt.
+	 */
+	Cell cell (int x, int y) {
+		return cells[y * width + x];
+	}
+
+	/**
+	 * Setzt die Bits eines Feldes. Jede Änderung an einer Feldliste landet hier.
+	 */
+	void updateMask (int x, int y, int mask) {
+		bits.setMask(x, y, mask);
+	}
+
+	/**
+	 * Merkt das Feld als verändert und dirty vor.
+	 */
+	void markChanged (int x, int y) {
+		int i = y * width + x;
+		changed[i >>> 6] |= 1L << i;
+		dirty[i >>> 6] |= 1L << i;
+	}
+
+	/**
+	 * Meldet den Board-Listenern, dass das Feld jetzt now statt old enthält.
+	 */
+	void recordChange (int x, int y, List<GameElement> old, List<GameElement> now) {
+		if (changes != null)
+			changes.diff(x, y, old, now);
+	}
+
+	// IGameBoard //////////////////////////////////////////////////////////////////////////////////
+
+	public List<GameElement> getElements (int x, int y) {
+		return cell(x, y);
+	}
+
+	/**
+	 * Wie getElements(), aber nur zum Lesen: die Liste darf nicht verändert werden. Scans über das
+	 * ganze Spielfeld nehmen diese Variante, damit ein ChunkedBoard für leere Bereiche nichts
+	 * anlegen muss.
+	 */
+	public List<GameElement> peekElements (int x, int y) {
+		return cell(x, y);
+	}
+
+	public List<GameElement> getElements (Point coord) {
+		return getElements(coord.getX(), coord.getY());
+	}
+
+	public List<GameElement> getElements (int packedCoord) {
+		return getElements(Point.packedX(packedCoord), Point.packedY(packedCoord));
+	}
+
+	public void setElements (int x, int y, List<GameElement> elementList) {
+		Cell cell = cell(x, y);
+		if (elementList == cell) {
+			cell.refresh();
+			return;
+		}
+
+		if (changes != null)
+			changes.diff(x, y, cell.elements, elementList != null ? elementList : Collections.<GameElement>emptyList());
+		cell.elements.clear();
+		if (elementList != null)
+			cell.elements.addAll(elementList);
+		cell.refresh();
+	}
+
+	public void setElements (Point coord, List<GameElement> elementList) {
+		setElements(coord.getX(), coord.getY(), elementList);
+	}
+
+	public void setElements (int packedCoord, List<GameElement> elementList) {
+		setElements(Point.packedX(packedCoord), Point.packedY(packedCoord), elementList);
+	}
+
+	public void addBoardListener (IBoardListener<GameElement> listener) {
+		if (changes == null)
+			changes = new BoardChanges<GameElement>();
+		changes.addListener(listener);
+	}
+
+	public void removeBoardListener (IBoardListener<GameElement> listener) {
+		if (changes == null)
+			return;
+		changes.removeListener(listener);
+		if (!changes.isRecording())
+			changes = null;
+	}
+
+	public void flushBoardChanges () {
+		if (changes != null)
+			changes.flush(this);
+	}
+
+	public int getWidth () {
+		return width;
+	}
+
+	public int getHeight () {
+		return height;
+	}
+
+	public boolean checkCoordinates (int x, int y) {
+		return x >= 0 && x < width && y >= 0 && y < height;
+	}
+
+	public boolean checkCoordinates (Point position) {
+		return checkCoordinates(position.getX(), position.getY());
+	}
+
+	public boolean checkCoordinates (int packedPosition) {
+		return checkCoordinates(Point.packedX(packedPosition), Point.packedY(packedPosition));
+	}
+
+	/**
+	 * Erzeugt eine Kopie mit geklonten Elementen, wie GameBoard.clone().
+	 */
+	@Override
+	public BombermanBoard clone () {
+		BombermanBoard clone = new BombermanBoard(width, height);
+		for (int i = 0; i < cells.length; i++) {
+			Cell cell = clone.cells[i];
+			for (GameElement element : cells[i].elements) {
+				cell.elements.add(element.clone());
+			}
+			cell.refresh();
+		}
+		return clone;
+	}
+
+	public boolean equals (IBoard<GameElement> other) {
+		if (other == null) { return false; }
+		if (getWidth() != other.getWidth()) { return false; }
+		if (getHeight() != other.getHeight()) { return false; }
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++) {
+				if (!peekElements(x, y).equals(other.getElements(x, y))) { return false; }
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode () {
+		int i = 0;
+		for (Cell cell : cells) {
+			i = i ^ cell.hashCode();
+		}
+		return i;
+	}
+
+	// Fields //////////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Die Elementliste eines Feldes. Hält nach jeder Änderung die Bits des Feldes aktuell.
+	 */
+	class Cell extends AbstractList<GameElement> implements RandomAccess, Serializable {
+		private static final long serialVersionUID = -8016350944786458106L;
+
+		final int x;
+		final int y;
+		final ArrayList<GameElement> elements = new ArrayList<GameElement>(4);
+
+		Cell (int x, int y) {
+			this.x = x;
+			this.y = y;
+		}
+
+		void refresh () {
+			int mask = 0;
+			for (int i = 0; i < elements.size(); i++) {
+				mask |= maskOf(elements.get(i));
+			}
+			updateMask(x, y, mask);
+			markChanged();
+		}
+
+		void markChanged () {
+			BombermanBoard.this.markChanged(x, y);
+		}
+
+		@Override
+		public GameElement get (int index) {
+			return elements.get(index);
+		}
+
+		@Override
+		public int size () {
+			return elements.size();
+		}
+
+		@Override
+		public GameElement set (int index, GameElement element) {
+			GameElement old = elements.set(index, element);
+			if (changes != null) {
+				changes.removed(x, y, old);
+				changes.added(x, y, element);
+			}
+			refresh();
+			return old;
+		}
+
+		@Override
+		public void add (int index, GameElement element) {
+			elements.add(index, element);
+			modCount++;
+			if (changes != null)
+				changes.added(x, y, element);
+			updateMask(x, y, bits.getMask(x, y) | maskOf(element));
+			markChanged();
+		}
+
+		@Override
+		public GameElement remove (int index) {
+			GameElement old = elements.remove(index);
+			modCount++;
+			if (changes != null)
+				changes.removed(x, y, old);
+			refresh();
+			return old;
+		}
+
+		// AbstractList would walk an iterator for these, which is garbage on every step
+		@Override
+		public int indexOf (Object o) {
+			return elements.indexOf(o);
+		}
+
+		@Override
+		public boolean contains (Object o) {
+			return elements.indexOf(o) >= 0;
+		}
+
+		@Override
+		public boolean remove (Object o) {
+			int index = elements.indexOf(o);
+			if (index < 0)
+				return false;
+			remove(index);
+			return true;
+		}
+
+		@Override
+		public boolean addAll (Collection<? extends GameElement> c) {
+			boolean changed = elements.addAll(c);
+			modCount++;
+			if (changes != null) {
+				for (GameElement element : c) {
+					changes.added(x, y, element);
+				}
+			}
+			refresh();
+			return changed;
+		}
+
+		@Override
+		public void clear () {
+			if (changes != null) {
+				for (int i = 0; i < elements.size(); i++) {
+					changes.removed(x, y, elements.get(i));
+				}
+			}
+			elements.clear();
+			modCount++;
+			refresh();
+		}
+	}
+}
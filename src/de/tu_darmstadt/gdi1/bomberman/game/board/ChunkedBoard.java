@@ -0,0 +1,442 @@
+package de.tu_darmstadt.gdi1.bomberman.game.board;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Floor;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.GameElement;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Wall;
+import de.tu_darmstadt.gdi1.framework.interfaces.IBoard;
+
+/**
+ * Ein BombermanBoard für sehr große Karten. Statt von Anfang an eine Liste pro Feld anzulegen,
+ * liegen die Felder in Chunks zu CHUNK_SIZE x CHUNK_SIZE, und ein Chunk entsteht erst, wenn zum
+ * ersten Mal etwas anderes als Gelände hineingelegt wird.
+ *
+ * Gelände - Boden und Mauer, in genau dieser Reihenfolge - steht außerhalb der Chunks nur in Bits:
+ * der Boden in einem eigenen Bitset, die Mauer im BitBoard. Ein setElements() mit nichts als
+ * Gelände, wie es beim Laden eines Levels für fast jedes Feld kommt, legt deshalb keinen Chunk
+ * an. Gelesen wird solches Gelände als eine von vier festen Listen aus einem Boden und einer
+ * Mauer, die sich alle Felder des Spielfelds teilen. Entsteht der Chunk, bekommen seine Felder
+ * genau diese Elemente.
+ *
+ * getElements() auf ein Feld ohne Chunk legt keinen Chunk an, sondern liefert eine kleine Sicht,
+ * die sich den Chunk erst beim ersten Verändern holt. Wer nur liest, nimmt peekElements(): das
+ * liefert dort die geteilten Listen und legt gar nichts an.
+ *
+ * Jeder Chunk zählt, wie viele seiner Felder auf jeder Ebene des BitBoards belegt sind. Liegen in
+ * einem Chunk weder Bomben noch Explosionen noch Spieler, ruht er (isDormant()). Scans über das
+ * ganze Spielfeld (collect()) überspringen Chunks, in denen die gesuchte Ebene leer ist.
+ *
+ * BitBoard und die Bitsets der veränderten Felder bleiben dicht - ein paar Bits pro Feld sind auch
+ * bei 2000x2000 nur wenige MB.
+ */
+public class ChunkedBoard extends BombermanBoard {
+
+	private static final long serialVersionUID = -5127744150922817343L;
+
+	public static final int CHUNK_BITS = 5;
+	public static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+	/**
+	 * Ab so vielen Feldern baut BombermanBoard.create() ein ChunkedBoard.
+	 */
+	public static final int CHUNKED_CELLS = 256 * 256;
+
+	/**
+	 * Ebenen, die einen Chunk wach halten.
+	 */
+	public static final int ACTIVE = BitBoard.BOMB_BIT | BitBoard.EXPLOSION_BIT | BitBoard.PLAYER_BIT;
+
+	private final int chunksX;
+	private final int chunksY;
+	// Chunk (cx,cy) is chunks[cy * chunksX + cx], null until something is put there. The board size
+	// is fixed, so a plain array keyed by chunk number is the cheapest int map there is.
+	private final Chunk[] chunks;
+	private int allocated = 0;
+	private int active = 0;
+
+	// Fields outside the chunks with a floor, (x,y) is bit (y * width + x). Walls are in the BitBoard.
+	private final long[] floors;
+	// Shared by every field outside the chunks, see terrain()
+	private final Floor floor = new Floor();
+	private final Wall wall = new Wall();
+	private final List<GameElement> floorOnly = Collections.<GameElement>singletonList(floor);
+	private final List<GameElement> wallOnly = Collections.<GameElement>singletonList(wall);
+	private final List<GameElement> floorAndWall = Collections.unmodifiableList(Arrays.<GameElement>asList(floor, wall));
+
+	public ChunkedBoard (int width, int height) {
+		super(width, height, false);
+		this.chunksX = (width + CHUNK_MASK) >>> CHUNK_BITS;
+		this.chunksY = (height + CHUNK_MASK) >>> CHUNK_BITS;
+		this.chunks = new Chunk[chunksX * chunksY];
+		this.floors = new long[(width * height + 63) >>> 6];
+	}
+
+	// Chunks //////////////////////////////////////////////////////////////////////////////////////
+
+	public int getChunksX () {
+		return chunksX;
+	}
+
+	public int getChunksY () {
+		return chunksY;
+	}
+
+	/**
+	 * @return Wie viele Chunks bisher angelegt wurden.
+	 */
+	public int getAllocatedChunks () {
+		return allocated;
+	}
+
+	/**
+	 * @return Wie viele Chunks gerade Bomben, Explosionen oder Spieler enthalten.
+	 */
+	public int getActiveChunks () {
+		return active;
+	}
+
+	public boolean isAllocated (int cx, int cy) {
+		return chunks[cy * chunksX + cx] != null;
+	}
+
+	/**
+	 * @return true, wenn im Chunk weder Bomben noch Explosionen noch Spieler liegen - auch für
+	 * Chunks, die es noch gar nicht gibt.
+	 */
+	public boolean isDormant (int cx, int cy) {
+		Chunk chunk = chunks[cy * chunksX + cx];
+		return chunk == null || chunk.activeCells == 0;
+	}
+
+	/**
+	 * @return isDormant() für den Chunk, in dem das Feld (x,y) liegt.
+	 */
+	public boolean isDormantAt (int x, int y) {
+		return isDormant(x >>> CHUNK_BITS, y >>> CHUNK_BITS);
+	}
+
+	/**
+	 * @return Wie viele Felder des Chunks auf der Ebene belegt sind. Für Chunks, die es noch nicht
+	 * gibt, immer 0 - auch wenn dort Mauern stehen.
+	 */
+	public int count (int cx, int cy, int layer) {
+		Chunk chunk = chunks[cy * chunksX + cx];
+		return chunk != null ? chunk.counts[layer] : 0;
+	}
+
+	private Chunk allocate (int cx, int cy) {
+		Chunk chunk = new Chunk();
+		int left = cx << CHUNK_BITS, top = cy << CHUNK_BITS;
+		int right = Math.min(getWidth(), left + CHUNK_SIZE), bottom = Math.min(getHeight(), top + CHUNK_SIZE);
+		for (int y = top; y < bottom; y++) {
+			for (int x = left; x < right; x++) {
+				Cell cell = new Cell(x, y);
+				cell.elements.addAll(terrain(x, y));
+				if (getBits().get(BitBoard.WALL, x, y))
+					chunk.count(0, BitBoard.WALL_BIT);
+				chunk.cells[((y & CHUNK_MASK) << CHUNK_BITS) | (x & CHUNK_MASK)] = cell;
+			}
+		}
+		chunks[cy * chunksX + cx] = chunk;
+		allocated++;
+		return chunk;
+	}
+
+	// Storage /////////////////////////////////////////////////////////////////////////////////////
+
+	@Override
+	Cell cell (int x, int y) {
+		int cx = x >>> CHUNK_BITS, cy = y >>> CHUNK_BITS;
+		Chunk chunk = chunks[cy * chunksX + cx];
+		if (chunk == null)
+			chunk = allocate(cx, cy);
+		return chunk.cells[((y & CHUNK_MASK) << CHUNK_BITS) | (x & CHUNK_MASK)];
+	}
+
+	/**
+	 * @return Das Gelände eines Feldes ohne Chunk, als eine der geteilten Listen.
+	 */
+	private List<GameElement> terrain (int x, int y) {
+		int i = y * getWidth() + x;
+		boolean hasFloor = (floors[i >>> 6] & (1L << i)) != 0;
+		if (getBits().get(BitBoard.WALL, x, y))
+			return hasFloor ? floorAndWall : wallOnly;
+		return hasFloor ? floorOnly : Collections.<GameElement>emptyList();
+	}
+
+	/**
+	 * @return true, wenn die Liste nur aus Gelände besteht: höchstens ein Boden, dahinter höchstens
+	 * eine Mauer.
+	 */
+	private static boolean isTerrain (List<GameElement> elements) {
+		int n = elements.size();
+		if (n > 2)
+			return false;
+		int i = 0;
+		if (i < n && elements.get(i) instanceof Floor)
+			i++;
+		if (i < n && elements.get(i) instanceof Wall)
+			i++;
+		return i == n;
+	}
+
+	/**
+	 * Setzt das Gelände eines Feldes ohne Chunk.
+	 */
+	private void setTerrain (int x, int y, List<GameElement> elements) {
+		int i = y * getWidth() + x;
+		boolean hasFloor = !elements.isEmpty() && elements.get(0) instanceof Floor;
+		boolean hasWall = !elements.isEmpty() && elements.get(elements.size() - 1) instanceof Wall;
+		List<GameElement> old = terrain(x, y);
+		if (hasFloor)
+			floors[i >>> 6] |= 1L << i;
+		else
+			floors[i >>> 6] &= ~(1L << i);
+		super.updateMask(x, y, hasWall ? BitBoard.WALL_BIT : 0);
+		recordChange(x, y, old, terrain(x, y));
+		markChanged(x, y);
+	}
+
+	@Override
+	void updateMask (int x, int y, int mask) {
+		int old = getBits().getMask(x, y);
+		if (old != mask)
+			chunks[(y >>> CHUNK_BITS) * chunksX + (x >>> CHUNK_BITS)].count(old, mask);
+		super.updateMask(x, y, mask);
+	}
+
+	// Scans ///////////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Wie BombermanBoard.collect(), in derselben Reihenfolge, sieht sich aber nur Chunks an, in
+	 * denen die Ebene belegt ist.
+	 */
+	@Override
+	public <T extends GameElement> List<T> collect (int layer, Class<T> type, List<T> into) {
+		for (int x = 0; x < getWidth(); x++) {
+			int cx = x >>> CHUNK_BITS;
+			for (int cy = 0; cy < chunksY; cy++) {
+				Chunk chunk = chunks[cy * chunksX + cx];
+				if (chunk == null ? layer != BitBoard.WALL : chunk.counts[layer] == 0)
+					continue;
+				int top = cy << CHUNK_BITS;
+				collectColumn(layer, type, into, x, top, Math.min(getHeight(), top + CHUNK_SIZE));
+			}
+		}
+		return into;
+	}
+
+	// IGameBoard //////////////////////////////////////////////////////////////////////////////////
+
+	@Override
+	public List<GameElement> getElements (int x, int y) {
+		Chunk chunk = chunks[(y >>> CHUNK_BITS) * chunksX + (x >>> CHUNK_BITS)];
+		if (chunk == null)
+			return new EmptyCell(x, y);
+		return chunk.cells[((y & CHUNK_MASK) << CHUNK_BITS) | (x & CHUNK_MASK)];
+	}
+
+	@Override
+	public List<GameElement> peekElements (int x, int y) {
+		Chunk chunk = chunks[(y >>> CHUNK_BITS) * chunksX + (x >>> CHUNK_BITS)];
+		if (chunk == null)
+			return terrain(x, y);
+		return chunk.cells[((y & CHUNK_MASK) << CHUNK_BITS) | (x & CHUNK_MASK)];
+	}
+
+	/**
+	 * Wie bei BombermanBoard. Besteht die Liste nur aus Gelände und hat das Feld noch keinen Chunk,
+	 * wird nur das Gelände vermerkt - die Elemente der Liste selbst werden dann nicht übernommen,
+	 * sondern der geteilte Boden und die geteilte Mauer.
+	 */
+	@Override
+	public void setElements (int x, int y, List<GameElement> elementList) {
+		if (chunks[(y >>> CHUNK_BITS) * chunksX + (x >>> CHUNK_BITS)] == null
+				&& (elementList == null || isTerrain(elementList))) {
+			setTerrain(x, y, elementList != null ? elementList : Collections.<GameElement>emptyList());
+			return;
+		}
+		// The view has turned into the real cell by now, which super would clear before copying
+		if (elementList instanceof EmptyCell && ((EmptyCell) elementList).x == x && ((EmptyCell) elementList).y == y)
+			elementList = cell(x, y);
+		super.setElements(x, y, elementList);
+	}
+
+	/**
+	 * Erzeugt eine Kopie mit geklonten Elementen. Chunks, die es hier nicht gibt, fehlen auch in
+	 * der Kopie, ihr Gelände bekommt sie als Bits.
+	 */
+	@Override
+	public ChunkedBoard clone () {
+		ChunkedBoard clone = new ChunkedBoard(getWidth(), getHeight());
+		for (int i = 0; i < chunks.length; i++) {
+			if (chunks[i] != null)
+				continue;
+			int left = (i % chunksX) << CHUNK_BITS, top = (i / chunksX) << CHUNK_BITS;
+			int right = Math.min(getWidth(), left + CHUNK_SIZE), bottom = Math.min(getHeight(), top + CHUNK_SIZE);
+			for (int y = top; y < bottom; y++) {
+				for (int x = left; x < right; x++) {
+					List<GameElement> terrain = terrain(x, y);
+					if (!terrain.isEmpty())
+						clone.setTerrain(x, y, terrain);
+				}
+			}
+		}
+		for (Chunk chunk : chunks) {
+			if (chunk == null)
+				continue;
+			for (Cell cell : chunk.cells) {
+				if (cell == null || cell.elements.isEmpty())
+					continue;
+				Cell copy = clone.cell(cell.x, cell.y);
+				for (GameElement element : cell.elements) {
+					copy.elements.add(element.clone());
+				}
+				copy.refresh();
+			}
+		}
+		return clone;
+	}
+
+	@Override
+	public boolean equals (IBoard<GameElement> other) {
+		if (!(other instanceof ChunkedBoard) || other.getWidth() != getWidth() || other.getHeight() != getHeight())
+			return super.equals(other);
+
+		for (int i = 0; i < chunks.length; i++) {
+			int left = (i % chunksX) << CHUNK_BITS, top = (i / chunksX) << CHUNK_BITS;
+			int right = Math.min(getWidth(), left + CHUNK_SIZE), bottom = Math.min(getHeight(), top + CHUNK_SIZE);
+			for (int x = left; x < right; x++) {
+				for (int y = top; y < bottom; y++) {
+					if (!peekElements(x, y).equals(((ChunkedBoard) other).peekElements(x, y))) { return false; }
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Derselbe Wert wie bei einem BombermanBoard mit denselben Elementen.
+	 */
+	@Override
+	public int hashCode () {
+		int i = 0;
+		for (int c = 0; c < chunks.length; c++) {
+			Chunk chunk = chunks[c];
+			if (chunk != null) {
+				for (Cell cell : chunk.cells) {
+					if (cell != null)
+						i = i ^ cell.hashCode();
+				}
+				continue;
+			}
+			int left = (c % chunksX) << CHUNK_BITS, top = (c / chunksX) << CHUNK_BITS;
+			int right = Math.min(getWidth(), left + CHUNK_SIZE), bottom = Math.min(getHeight(), top + CHUNK_SIZE);
+			for (int y = top; y < bottom; y++) {
+				for (int x = left; x < right; x++) {
+					i = i ^ terrain(x, y).hashCode();
+				}
+			}
+		}
+		return i;
+	}
+
+	// Chunk ///////////////////////////////////////////////////////////////////////////////////////
+
+	private class Chunk implements Serializable {
+		private static final long serialVersionUID = 4035118834927266403L;
+
+		// Cell (x,y) is cells[(y & CHUNK_MASK) << CHUNK_BITS | (x & CHUNK_MASK)], null off the board
+		final Cell[] cells = new Cell[CHUNK_SIZE * CHUNK_SIZE];
+		// How many cells are set on each layer
+		final int[] counts = new int[BitBoard.LAYERS];
+		// Cells with something ACTIVE on them
+		int activeCells = 0;
+
+		void count (int old, int mask) {
+			int diff = old ^ mask;
+			for (int layer = 0; layer < BitBoard.LAYERS; layer++) {
+				if ((diff & (1 << layer)) != 0)
+					counts[layer] += (mask & (1 << layer)) != 0 ? 1 : -1;
+			}
+
+			boolean was = (old & ACTIVE) != 0, is = (mask & ACTIVE) != 0;
+			if (was == is)
+				return;
+			activeCells += is ? 1 : -1;
+			if (activeCells == 0)
+				active--;
+			else if (is && activeCells == 1)
+				active++;
+		}
+	}
+
+	/**
+	 * Ein Feld in einem Chunk, den es noch nicht gibt. Liest sich wie sein Gelände, die erste
+	 * Änderung legt den Chunk an, ab dann geht alles an die echte Liste.
+	 */
+	private class EmptyCell extends AbstractList<GameElement> implements RandomAccess {
+		final int x;
+		final int y;
+
+		EmptyCell (int x, int y) {
+			this.x = x;
+			this.y = y;
+		}
+
+		private List<GameElement> target () {
+			if (chunks[(y >>> CHUNK_BITS) * chunksX + (x >>> CHUNK_BITS)] == null)
+				return terrain(x, y);
+			return cell(x, y);
+		}
+
+		@Override
+		public GameElement get (int index) {
+			return target().get(index);
+		}
+
+		@Override
+		public int size () {
+			return target().size();
+		}
+
+		@Override
+		public GameElement set (int index, GameElement element) {
+			return cell(x, y).set(index, element);
+		}
+
+		@Override
+		public void add (int index, GameElement element) {
+			cell(x, y).add(index, element);
+			modCount++;
+		}
+
+		@Override
+		public GameElement remove (int index) {
+			modCount++;
+			return cell(x, y).remove(index);
+		}
+
+		@Override
+		public boolean addAll (Collection<? extends GameElement> c) {
+			modCount++;
+			return cell(x, y).addAll(c);
+		}
+
+		@Override
+		public void clear () {
+			if (!target().isEmpty()) {
+				modCount++;
+				cell(x, y).clear();
+			}
+		}
+	}
+}
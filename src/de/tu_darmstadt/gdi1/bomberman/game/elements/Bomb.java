@@ -5,8 +5,7 @@ import java.util.List;
 
 import javax.swing.ImageIcon;
 
-import de.tu_darmstadt.gdi1.bomberman.sound.SoundManagerFactory;
-import de.tu_darmstadt.gdi1.framework.utils.Point;
+import de.tu_darmstadt.gdi1.bomberman.game.EntityTable;
 
 /**
  * javadoc: Not yet commented
@@ -15,28 +14,118 @@ import de.tu_darmstadt.gdi1.framework.utils.Point;
  */
 public class Bomb extends GameElement {
 
+    /**
+     * So lange brennt die Zündschnur einer frisch gelegten Bombe, in Millisekunden.
+     */
+    public static final long FUSE_MILLIS = 3000;
+
+    /**
+     * So viele Millisekunden vor der Explosion wechselt die Bombe auf die Warn-Grafik.
+     */
+    public static final long WARNING_MILLIS = 1000;
+
+    /**
+     * So lange bleibt ein Explosionsfeld sichtbar, plus EXPLOSION_DAMPING_MILLIS für jedes Feld
+     * Reichweite, das die Explosion dort noch hätte.
+     */
+    public static final long EXPLOSION_MILLIS = 250;
+    public static final long EXPLOSION_DAMPING_MILLIS = 50;
+
+    /**
+     * Platz der Bombe in den liegenden Bomben der BombermanGameData.
+     */
+    public static final EntityTable.Slots<Bomb> SLOTS = new EntityTable.Slots<Bomb>() {
+        public int getSlot(Bomb bomb) {
+            return bomb.slot;
+        }
+
+        public void setSlot(Bomb bomb, int slot) {
+            bomb.slot = slot;
+        }
+    };
+
+    /**
+     * Platz der Bombe in den Bomben ihres Spielers (Player.getMyBombs()).
+     */
+    public static final EntityTable.Slots<Bomb> OWNER_SLOTS = new EntityTable.Slots<Bomb>() {
+        public int getSlot(Bomb bomb) {
+            return bomb.ownerSlot;
+        }
+
+        public void setSlot(Bomb bomb, int slot) {
+            bomb.ownerSlot = slot;
+        }
+    };
+
     private int ticksTillExplode;
+    // The absolute tick in which the bomb explodes, -1 as long as it is not lying on a board
+    private long explosionTick = -1;
     private int detonationRadius;
-    private int explosionLastingTicks = 5;
-    private int explosionLastingDamping = 1;
     protected Player player;
 
+    private int slot = -1;
+    private int ownerSlot = -1;
+    // Order in which the bombs were put into the game, see BombermanGameData.addBomb()
+    private long sequence;
+
     public Bomb(Player player, int ticksTillExplode) {
         this.ticksTillExplode = ticksTillExplode;
         this.player = player;
         this.detonationRadius = player.getBombradius();
     }
 
-    //public void setdetonationRadius(int newRadius){
-    //	detonationRadius = newRadius;
-    //}
+    /**
+     * Stellt eine liegende Bombe wieder her, etwa aus einem Snapshot.
+     *
+     * @param player
+     * @param detonationRadius
+     * @param explosionTick
+     */
+    public Bomb(Player player, int detonationRadius, long explosionTick) {
+        this.player = player;
+        this.detonationRadius = detonationRadius;
+        this.explosionTick = explosionTick;
+    }
+
+    /**
+     * @return Wie viele Ticks die Bombe noch tickt, bevor sie im darauffolgenden explodiert.
+     */
     public int getTicksTillExplode() {
-        return ticksTillExplode;
+        if (explosionTick < 0 || gameData == null) {
+            return ticksTillExplode;
+        }
+        return (int) (explosionTick - gameData.getCurrentTick() - 1);
     }
 
+    /**
+     * Setzt die Zündschnur einer Bombe, die noch nicht im Spiel ist. Liegt sie schon, entscheidet
+     * der Explosionstick, den die BombermanGameData beim Einplanen vergeben hat.
+     *
+     * @param ticksTillExplode
+     */
     public void setTicksTillExplode(int ticksTillExplode) {
         this.ticksTillExplode = ticksTillExplode;
     }
+
+    public long getExplosionTick() {
+        return explosionTick;
+    }
+
+    public void setExplosionTick(long explosionTick) {
+        this.explosionTick = explosionTick;
+    }
+
+    /**
+     * @return Eine laufende Nummer: später gelegte Bomben haben größere. Gleichzeitig fällige
+     * Bomben explodieren in dieser Reihenfolge.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
     
     // get und set player
     public void setPlayer(Player player){
@@ -47,18 +136,21 @@ public class Bomb extends GameElement {
     	return player;
     }
 
-    //public int getDetonationRadius ()
-    //{
-    //	return detonationRadius;
-    //}
     @Override
     public GameElement clone() {
-        return new Bomb(player, this.ticksTillExplode);
+        return new Bomb(player, getTicksTillExplode());
+    }
+
+    /**
+     * @return So viele Ticks vor der Explosion wechselt die Bombe auf die Warn-Grafik.
+     */
+    public int getWarningTicks() {
+        return (int) toTicks(WARNING_MILLIS);
     }
 
     @Override
-    public ImageIcon getImageIcon() {
-        if (ticksTillExplode < 20) {
+    public ImageIcon getImageIcon(String skinPath) {
+        if (getTicksTillExplode() < getWarningTicks()) {
             return new ImageIcon(skinPath+"bomb_attention.png");
         } else {
             return new ImageIcon(skinPath+"bomb.png");
@@ -75,16 +167,12 @@ public class Bomb extends GameElement {
         return ' ';
     }
 
-    public void decreaseBombTicks() {
-        setTicksTillExplode(getTicksTillExplode() - 1);
-    }
-
     public boolean isSolid() {
         return true;
     }
 
     public boolean isDirty() {
-        return (ticksTillExplode == 19);
+        return (getTicksTillExplode() == getWarningTicks() - 1);
     }
 
     @Override
@@ -103,101 +191,31 @@ public class Bomb extends GameElement {
      */
     public ArrayList<Explosion> explode(long tickCount) {
         ArrayList<Explosion> list = new ArrayList<Explosion>();
-
-        // Create center of the explosion
-        List<GameElement> present = gameBoard.getElements(x, y);
-        Explosion center = new Explosion(Explosion.style.CENTER, tickCount + explosionLastingTicks + detonationRadius * explosionLastingDamping);
-        center.setCoordinates(this.x, this.y);
-        center.setGameBoard(gameBoard);
-        center.setGameData(gameData);
-        list.add(center);
-        present.add(center);
-
-        // Replace the elements of the center of the explosion
-        gameBoard.setElements(x, y, present);
-
-        // Remove myself
-        destroy();
-
-        // Spread the explosion in all 4 directions + center.
-        list.addAll(propagateExplosion(new Point(x, y), new Point(0, 0), Explosion.style.CENTER, 1, tickCount));
-        list.addAll(propagateExplosion(new Point(x, y), new Point(-1, 0), Explosion.style.HORIZONTAL, detonationRadius, tickCount));
-        list.addAll(propagateExplosion(new Point(x, y), new Point(1, 0), Explosion.style.HORIZONTAL, detonationRadius, tickCount));
-        list.addAll(propagateExplosion(new Point(x, y), new Point(0, -1), Explosion.style.VERTICAL, detonationRadius, tickCount));
-        list.addAll(propagateExplosion(new Point(x, y), new Point(0, 1), Explosion.style.VERTICAL, detonationRadius, tickCount));
-
-
-        // play sound
-        SoundManagerFactory.playWithoutAnnoyingExceptions(SoundManagerFactory.SoundLabel.BOMB);
-
+        explode(tickCount, list);
         return list;
     }
 
-    protected ArrayList<Explosion> propagateExplosion(Point pos, Point dir, Explosion.style style, int range, long tickCount) {
-
-        // We may return explosions from here
-        ArrayList<Explosion> list = new ArrayList<Explosion>();
-
-        // Get the new coordinate
-        Point newpos = new Point(pos.getX() + dir.getX(), pos.getY() + dir.getY());
-
-        // If we fell off the board, stop
-        if (!gameBoard.checkCoordinates(newpos)) {
-            return list;
-        }
-
-        // Check the elements on the new coordinate
-        boolean isStopped = false;
-        ArrayList<GameElement> toRemove = new ArrayList<GameElement>();
-        ArrayList<Bomb> toExplode = new ArrayList<Bomb>();
-        List<GameElement> present = gameBoard.getElements(newpos.getX(), newpos.getY());
-        for (GameElement e : present) {
-            // Another bomb - also explode
-            if (e instanceof Bomb) {
-                ((Bomb) e).setPlayer(player);
-                toExplode.add((Bomb) e);
-            } // Something solid - definitely stop propagation
-            else if (e.isSolid()) {
-                isStopped = true;
-            }
-
-            if (e.isDestroyable()) {
-            	if (e instanceof Player){
-            		System.out.println(getPlayer().getDescription() + " killed " + ((Player) e).getDescription());
-            		getPlayer().addKill(((Player) e));
-            	}
-                toRemove.add(e);
-            }
-        }
-
-        for (Bomb b : toExplode) {
-            list.addAll(b.explode(tickCount));
-        }
-
-        // If we hit something solid and nothing could be destroyed, cancel here.
-        if (isStopped && toRemove.isEmpty()) {
-            return list;
-        }
-
-        // Create a new explosion
-        Explosion ex = new Explosion(style, tickCount + explosionLastingTicks + range * explosionLastingDamping);
-        ex.setCoordinates(newpos);
-        ex.setGameBoard(gameBoard);
-        ex.setGameData(gameData);
-        list.add(ex);
-        present.add(ex);
-        gameBoard.setElements(newpos.getX(), newpos.getY(), present);
-
-        // Remove things we bombed away
-        for (GameElement e : toRemove) {
-            e.destroy();
-        }
+    /**
+     * Lässt diese Bombe sofort explodieren, samt aller Bomben, die sie
+     * mitreißt (siehe ChainReaction).
+     *
+     * @param tickCount
+     * @param explosions Hier werden die Explosionsfelder angehängt.
+     */
+    public void explode(long tickCount, List<Explosion> explosions) {
+        ChainReaction chain = (gameData != null) ? gameData.getChainReaction() : new ChainReaction();
+        chain.resolve(this, tickCount, explosions);
+    }
 
-        // Go on spreading if we still have range left and were not stopped
-        if (!isStopped && range > 0) {
-            list.addAll(propagateExplosion(newpos, dir, style, range - 1, tickCount));
-        }
+    public int getDetonationRadius() {
+        return detonationRadius;
+    }
 
-        return list;
+    /**
+     * @param range Die Reichweite, die die Explosion an diesem Feld noch hat.
+     * @return Wie viele Ticks ein Explosionsfeld sichtbar bleibt.
+     */
+    int getExplosionDuration(int range) {
+        return (int) toTicks(EXPLOSION_MILLIS + range * EXPLOSION_DAMPING_MILLIS);
     }
 }
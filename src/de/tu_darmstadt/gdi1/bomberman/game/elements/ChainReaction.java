@@ -0,0 +1,275 @@
+package de.tu_darmstadt.gdi1.bomberman.game.elements;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import de.tu_darmstadt.gdi1.bomberman.game.board.BitBoard;
+import de.tu_darmstadt.gdi1.bomberman.sound.SoundManagerFactory;
+
+/**
+ * Lässt eine Bombe samt aller Bomben explodieren, die sie mitreißt. Früher riefen sich
+ * Bomb.explode() und propagateExplosion() gegenseitig rekursiv auf und legten bei jedem Schritt
+ * neue Listen und Punkte an. Hier läuft dieselbe Abfolge über einen eigenen Stapel von
+ * Arbeitsschritten, dessen Puffer wiederverwendet werden.
+ *
+ * Die Reihenfolge ist exakt die der Rekursion: zuerst das Zentrum, dann die Arme in der
+ * Reihenfolge Mitte, links, rechts, oben, unten. Trifft ein Arm eine Bombe, explodiert diese
+ * komplett, bevor der Arm weiterläuft. Mitgerissene Bomben gehören danach dem Spieler, dessen
+ * Bombe sie gezündet hat - die Kills bekommt also der Auslöser der Kette.
+ *
+ * Jeder Spielstand hat seine eigene Instanz, sie ist nicht threadsicher.
+ */
+public class ChainReaction {
+
+	private static final int EXPLODE = 0;
+	private static final int PROPAGATE = 1;
+
+	// The arms of an explosion, in the order the recursion used to walk them. The first one is
+	// the center field itself with range 1, the others get the radius of the bomb.
+	private static final int ARMS = 5;
+	private static final int[] ARM_DX = {0, -1, 1, 0, 0};
+	private static final int[] ARM_DY = {0, 0, 0, -1, 1};
+	private static final Explosion.style[] ARM_STYLE = {Explosion.style.CENTER,
+			Explosion.style.HORIZONTAL, Explosion.style.HORIZONTAL,
+			Explosion.style.VERTICAL, Explosion.style.VERTICAL};
+
+	// The work stack, one entry per pending explode() or propagateExplosion() call
+	private int depth = 0;
+	private int[] kind;
+	private int[] phase;
+	private Bomb[] bomb;
+	private int[] fieldX;
+	private int[] fieldY;
+	private int[] arm;
+	private int[] range;
+	private boolean[] stopped;
+	private int[] removeStart;
+
+	// Elements a propagation step destroys once the bombs it hit have gone off. Shared by all
+	// steps, each step owns the part above its removeStart.
+	private final ArrayList<GameElement> toRemove = new ArrayList<GameElement>(32);
+	private final ArrayList<Bomb> toExplode = new ArrayList<Bomb>(4);
+
+	private List<Explosion> out;
+	private long tickCount;
+
+	public ChainReaction () {
+		this(32);
+	}
+
+	/**
+	 * @param capacity Erwartete Tiefe der Kette, der Stapel wächst bei Bedarf.
+	 */
+	public ChainReaction (int capacity) {
+		kind = new int[capacity];
+		phase = new int[capacity];
+		bomb = new Bomb[capacity];
+		fieldX = new int[capacity];
+		fieldY = new int[capacity];
+		arm = new int[capacity];
+		range = new int[capacity];
+		stopped = new boolean[capacity];
+		removeStart = new int[capacity];
+	}
+
+	/**
+	 * Lässt die Bombe und alles, was sie mitreißt, explodieren.
+	 * @param root Die zuerst explodierende Bombe.
+	 * @param tickCount Der aktuelle Tick, bestimmt wann die Explosionen verschwinden.
+	 * @param explosions Hier werden alle neuen Explosionsfelder angehängt, in der Reihenfolge
+	 * ihrer Entstehung.
+	 */
+	public void resolve (Bomb root, long tickCount, List<Explosion> explosions) {
+		if (depth != 0)
+			throw new IllegalStateException("Chain reaction resolved re-entrantly.");
+
+		this.out = explosions;
+		this.tickCount = tickCount;
+		try {
+			pushExplode(root);
+			while (depth > 0) {
+				int f = depth - 1;
+				if (kind[f] == EXPLODE)
+					stepExplode(f);
+				else
+					stepPropagate(f);
+			}
+		} finally {
+			// Do not keep the game alive through the buffers
+			Arrays.fill(bomb, 0, depth, null);
+			toRemove.clear();
+			toExplode.clear();
+			depth = 0;
+			out = null;
+		}
+	}
+
+	// Steps ///////////////////////////////////////////////////////////////////////////////////////
+
+	private void stepExplode (int f) {
+		Bomb b = bomb[f];
+
+		if (phase[f] == 0) {
+			// Create center of the explosion
+			List<GameElement> present = b.gameBoard.getElements(b.x, b.y);
+			Explosion center = createExplosion(b, Explosion.style.CENTER, b.x, b.y, b.getDetonationRadius());
+			present.add(center);
+			b.gameBoard.setElements(b.x, b.y, present);
+
+			// Remove the bomb
+			b.destroy();
+		}
+
+		if (phase[f] < ARMS) {
+			int a = phase[f]++;
+			pushPropagate(b, b.x, b.y, a, a == 0 ? 1 : b.getDetonationRadius());
+			return;
+		}
+
+		b.playSound(SoundManagerFactory.SoundLabel.BOMB);
+		pop(f);
+	}
+
+	private void stepPropagate (int f) {
+		Bomb b = bomb[f];
+
+		if (phase[f] == 0) {
+			int x = fieldX[f] + ARM_DX[arm[f]];
+			int y = fieldY[f] + ARM_DY[arm[f]];
+
+			// If we fell off the board, stop
+			if (!b.gameBoard.checkCoordinates(x, y)) {
+				pop(f);
+				return;
+			}
+			fieldX[f] = x;
+			fieldY[f] = y;
+
+			// Nothing to destroy or set off here? Then the bits alone tell whether we are stopped.
+			int mask = b.getFieldMask(x, y);
+			boolean inspect = (mask & (BitBoard.DESTROYABLE | BitBoard.BOMB_BIT)) != 0;
+			if (!inspect && (mask & BitBoard.SOLID) != 0) {
+				pop(f);
+				return;
+			}
+
+			boolean isStopped = false;
+			removeStart[f] = toRemove.size();
+			List<GameElement> present = b.gameBoard.getElements(x, y);
+			for (int i = 0; inspect && i < present.size(); i++) {
+				GameElement e = present.get(i);
+				// Another bomb - also explode
+				if (e instanceof Bomb) {
+					((Bomb) e).setPlayer(b.getPlayer());
+					toExplode.add((Bomb) e);
+				} // Something solid - definitely stop propagation
+				else if (e.isSolid()) {
+					isStopped = true;
+				}
+
+				if (e.isDestroyable()) {
+					if (e instanceof Player) {
+						if (!b.isHeadless())
+							b.log(b.getPlayer().getDescription() + " killed " + ((Player) e).getDescription());
+						b.getPlayer().addKill((Player) e);
+					}
+					toRemove.add(e);
+				}
+			}
+			stopped[f] = isStopped;
+			phase[f] = 1;
+
+			// The bombs we hit go off completely before this arm goes on. Pushed backwards, so
+			// that the first one found is the first one to explode.
+			for (int i = toExplode.size() - 1; i >= 0; i--) {
+				pushExplode(toExplode.get(i));
+			}
+			toExplode.clear();
+			return;
+		}
+
+		int x = fieldX[f], y = fieldY[f];
+		int start = removeStart[f];
+
+		// If we hit something solid and nothing could be destroyed, cancel here.
+		if (stopped[f] && toRemove.size() == start) {
+			pop(f);
+			return;
+		}
+
+		// Create a new explosion
+		List<GameElement> present = b.gameBoard.getElements(x, y);
+		present.add(createExplosion(b, ARM_STYLE[arm[f]], x, y, range[f]));
+		b.gameBoard.setElements(x, y, present);
+
+		// Remove things we bombed away
+		for (int i = start; i < toRemove.size(); i++) {
+			toRemove.get(i).destroy();
+		}
+		for (int i = toRemove.size() - 1; i >= start; i--) {
+			toRemove.remove(i);
+		}
+
+		// Go on spreading if we still have range left and were not stopped
+		if (!stopped[f] && range[f] > 0) {
+			range[f]--;
+			phase[f] = 0;
+			return;
+		}
+		pop(f);
+	}
+
+	private Explosion createExplosion (Bomb b, Explosion.style style, int x, int y, int range) {
+		Explosion ex = new Explosion(style, tickCount + b.getExplosionDuration(range));
+		ex.setCoordinates(x, y);
+		ex.setGameBoard(b.gameBoard);
+		ex.setGameData(b.gameData);
+		out.add(ex);
+		return ex;
+	}
+
+	// Stack ///////////////////////////////////////////////////////////////////////////////////////
+
+	private void pushExplode (Bomb b) {
+		int f = push();
+		kind[f] = EXPLODE;
+		bomb[f] = b;
+	}
+
+	private void pushPropagate (Bomb b, int x, int y, int direction, int r) {
+		int f = push();
+		kind[f] = PROPAGATE;
+		bomb[f] = b;
+		fieldX[f] = x;
+		fieldY[f] = y;
+		arm[f] = direction;
+		range[f] = r;
+	}
+
+	private int push () {
+		if (depth == kind.length)
+			grow();
+		int f = depth++;
+		phase[f] = 0;
+		return f;
+	}
+
+	private void pop (int f) {
+		bomb[f] = null;
+		depth--;
+	}
+
+	private void grow () {
+		int capacity = kind.length * 2;
+		kind = Arrays.copyOf(kind, capacity);
+		phase = Arrays.copyOf(phase, capacity);
+		bomb = Arrays.copyOf(bomb, capacity);
+		fieldX = Arrays.copyOf(fieldX, capacity);
+		fieldY = Arrays.copyOf(fieldY, capacity);
+		arm = Arrays.copyOf(arm, capacity);
+		range = Arrays.copyOf(range, capacity);
+		stopped = Arrays.copyOf(stopped, capacity);
+		removeStart = Arrays.copyOf(removeStart, capacity);
+	}
+}
@@ -1,10 +1,11 @@
 package de.tu_darmstadt.gdi1.bomberman.game.elements;
 
+import java.util.Arrays;
 import java.util.List;
 import javax.swing.ImageIcon;
 
-import de.tu_darmstadt.gdi1.bomberman.BombermanController;
-import de.tu_darmstadt.gdi1.framework.utils.Point;
+import de.tu_darmstadt.gdi1.bomberman.game.MatchContext;
+import de.tu_darmstadt.gdi1.bomberman.game.board.BitBoard;
 
 
 /**
@@ -23,7 +24,7 @@ public class Delegate extends GameElement {
     }
 
     @Override
-    public ImageIcon getImageIcon() {
+    public ImageIcon getImageIcon(String skinPath) {
 		return null;
     }
 
@@ -52,33 +53,106 @@ public class Delegate extends GameElement {
 
 	// Delegate runner /////////////////////////////////////////////////////////////////////////////
 
-	public void manageSuddenDeath (BombermanController controller) {
-		for (int i = 1; i < gameBoard.getWidth()-1; i++) {
-			for (int j = 1; j < gameBoard.getHeight()-1; j++) {
-				GameElement gameElement = gameBoard.getElements(i, j).get(gameBoard.getElements(i, j).size() - 1);
-				if (!(gameElement instanceof Wall)) {
-					System.out.println("Sudden Death: Stoning " + i + ", " + j);
-
-					if (gameElement instanceof Player) {
-						System.out.println(gameElement.getDescription() + " died");
-						gameElement.destroy();
-					}
-
-					// TODO - Place Wall
-					List<GameElement> gE = gameBoard.getElements(i,j);
-					Wall wall = new Wall();
-					wall.setCoordinates(i, j);
-					wall.setGameBoard(gameBoard);
-					wall.setGameData(gameData);
-					gE.add(wall);
-					gameBoard.setElements(i, j, gE);
-
-
-					controller.addDirtyPoint(new Point(i,j));
-					controller.redrawDirtyPoints();
-					return;
+	// Cells sudden death walls up, in order, as y * width + x. Built on first use.
+	private int[] suddenDeathSchedule;
+
+	/**
+	 * Sudden Death: ab dem Start-Tick (MatchContext.getSuddenDeathStartTick()) wird alle
+	 * getSuddenDeathStepTicks() Ticks die Arena weiter zugemauert, getSuddenDeathCellsPerStep()
+	 * Felder pro Schritt. Die Reihenfolge ist eine Spirale von außen nach innen, im Uhrzeigersinn ab
+	 * (1,1) - Felder mit Mauern aus dem Level werden übersprungen. Wer auf einem zugemauerten Feld
+	 * steht, stirbt.
+	 *
+	 * Welche Felder dran sind, ergibt sich allein aus dem Tick, der Delegate merkt sich also nichts,
+	 * was ein SnapshotRing zurücksetzen müsste. Pro Schritt kostet das O(Felder pro Schritt), egal
+	 * wie groß das Spielfeld ist.
+	 *
+	 * @param tick Der gerade laufende Tick, wird jeden Tick aufgerufen.
+	 */
+	public void manageSuddenDeath (long tick) {
+		MatchContext context = gameData.getContext();
+		long sinceStart = tick - context.getSuddenDeathStartTick();
+		long stepTicks = context.getSuddenDeathStepTicks();
+		if (sinceStart < 0 || sinceStart % stepTicks != 0)
+			return;
+
+		if (suddenDeathSchedule == null)
+			suddenDeathSchedule = buildSuddenDeathSchedule();
+
+		int cellsPerStep = context.getSuddenDeathCellsPerStep();
+		long first = sinceStart / stepTicks * cellsPerStep;
+		if (first >= suddenDeathSchedule.length)
+			return;
+
+		int width = gameBoard.getWidth();
+		int last = (int) Math.min(suddenDeathSchedule.length, first + cellsPerStep);
+		for (int k = (int) first; k < last; k++) {
+			int x = suddenDeathSchedule[k] % width;
+			int y = suddenDeathSchedule[k] / width;
+			if (!isHeadless())
+				log("Sudden Death: Stoning " + x + ", " + y);
+
+			List<GameElement> gE = gameBoard.getElements(x, y);
+			boolean players = (getFieldMask(x, y) & BitBoard.PLAYER_BIT) != 0;
+			for (int i = gE.size() - 1; players && i >= 0; i--) {
+				if (gE.get(i) instanceof Player) {
+					if (!isHeadless())
+						log(gE.get(i).getDescription() + " died");
+					gE.get(i).destroy();
 				}
 			}
+
+			Wall wall = new Wall();
+			wall.setCoordinates(x, y);
+			wall.setGameBoard(gameBoard);
+			wall.setGameData(gameData);
+			gE.add(wall);
+			gameBoard.setElements(x, y, gE);
+		}
+	}
+
+	/**
+	 * @return Die Felder innerhalb des Randes als Spirale von außen nach innen, ohne die, auf denen
+	 * schon eine Mauer steht. Mit BitBoard werden dafür keine Feldlisten angefasst, auf einem
+	 * ChunkedBoard entstehen so keine Chunks.
+	 */
+	private int[] buildSuddenDeathSchedule () {
+		int width = gameBoard.getWidth();
+		int[] schedule = new int[Math.max(0, (width - 2) * (gameBoard.getHeight() - 2))];
+		int n = 0;
+
+		int left = 1, top = 1, right = width - 2, bottom = gameBoard.getHeight() - 2;
+		while (left <= right && top <= bottom) {
+			for (int x = left; x <= right; x++)
+				n = schedule(schedule, n, x, top);
+			for (int y = top + 1; y <= bottom; y++)
+				n = schedule(schedule, n, right, y);
+			if (top < bottom) {
+				for (int x = right - 1; x >= left; x--)
+					n = schedule(schedule, n, x, bottom);
+			}
+			if (left < right) {
+				for (int y = bottom - 1; y > top; y--)
+					n = schedule(schedule, n, left, y);
+			}
+			left++;
+			top++;
+			right--;
+			bottom--;
+		}
+		return Arrays.copyOf(schedule, n);
+	}
+
+	private int schedule (int[] schedule, int n, int x, int y) {
+		if (bits != null) {
+			if (bits.get(BitBoard.WALL, x, y))
+				return n;
+		} else {
+			List<GameElement> elements = gameBoard.getElements(x, y);
+			if (!elements.isEmpty() && elements.get(elements.size() - 1) instanceof Wall)
+				return n;
 		}
+		schedule[n] = y * gameBoard.getWidth() + x;
+		return n + 1;
 	}
 }
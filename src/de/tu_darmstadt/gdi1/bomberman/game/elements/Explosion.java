@@ -2,6 +2,8 @@ package de.tu_darmstadt.gdi1.bomberman.game.elements;
 
 import javax.swing.ImageIcon;
 
+import de.tu_darmstadt.gdi1.bomberman.game.EntityTable;
+
 /**
  * javadoc: Not yet commented
  *
@@ -9,6 +11,19 @@ import javax.swing.ImageIcon;
  */
 public class Explosion extends GameElement
 {
+	/**
+	 * Platz der Explosion in den Explosionen der BombermanGameData.
+	 */
+	public static final EntityTable.Slots<Explosion> SLOTS = new EntityTable.Slots<Explosion>() {
+		public int getSlot (Explosion ex) {
+			return ex.slot;
+		}
+
+		public void setSlot (Explosion ex, int slot) {
+			ex.slot = slot;
+		}
+	};
+
 	public enum style {
 		CENTER,
 		HORIZONTAL,
@@ -20,6 +35,8 @@ public class Explosion extends GameElement
 	// The tick in which the explosion will disappear
 	protected long	removalTick;
 
+	private int slot = -1;
+
 	public Explosion (style style, long removaltick) {
 		myStyle = style;
 		this.removalTick = removaltick;
@@ -31,6 +48,14 @@ public class Explosion extends GameElement
 		return new Explosion(myStyle, removalTick);
 	}
 
+	public style getStyle () {
+		return myStyle;
+	}
+
+	public long getRemovalTick () {
+		return removalTick;
+	}
+
 	public boolean shouldBeRemoved (long tick) {
 		return (removalTick <= tick);
 	}
@@ -50,7 +75,7 @@ public class Explosion extends GameElement
 	}
 
 	@Override
-	public ImageIcon getImageIcon () {
+	public ImageIcon getImageIcon (String skinPath) {
 		switch (myStyle) {
 			case CENTER: return new ImageIcon(skinPath+"explosion_center.png");
 			case HORIZONTAL: return new ImageIcon(skinPath+"explosion_h.png");
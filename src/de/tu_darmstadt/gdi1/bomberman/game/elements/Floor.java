@@ -17,7 +17,7 @@ public class Floor extends GameElement
 	}
 
 	@Override
-	public ImageIcon getImageIcon ()
+	public ImageIcon getImageIcon (String skinPath)
 	{
 		return new ImageIcon(skinPath+"floor.png");
 	}
@@ -3,6 +3,9 @@ package de.tu_darmstadt.gdi1.bomberman.game.elements;
 import java.util.List;
 import javax.swing.ImageIcon;
 
+import de.tu_darmstadt.gdi1.bomberman.game.MatchContext;
+import de.tu_darmstadt.gdi1.bomberman.game.board.BitBoard;
+import de.tu_darmstadt.gdi1.bomberman.game.board.BombermanBoard;
 import de.tu_darmstadt.gdi1.bomberman.game.levels.BombermanGameData;
 import de.tu_darmstadt.gdi1.framework.interfaces.IBoardElement;
 import de.tu_darmstadt.gdi1.framework.interfaces.IGameBoard;
@@ -15,25 +18,30 @@ import de.tu_darmstadt.gdi1.framework.utils.Point;
 public abstract class GameElement implements IBoardElement {
 	private static final long serialVersionUID = 4973814294335529190L;
 
-	protected static String skinPath = "resource/images/";
-
 	@Override
 	public abstract GameElement clone();
 
 	protected IGameBoard<GameElement> gameBoard = null;
 	protected BombermanGameData gameData = null;
+	// Bit representation of gameBoard, null if the board does not have one
+	protected BitBoard bits = null;
 
 	protected int x;
 	protected int y;
 
 	public void setGameBoard (IGameBoard<GameElement> gb) {
 		gameBoard = gb;
+		bits = (gb instanceof BombermanBoard) ? ((BombermanBoard) gb).getBits() : null;
 	}
 
 	public void setGameData (BombermanGameData data) {
 		gameData = data;
 	}
 
+	public BombermanGameData getGameData () {
+		return gameData;
+	}
+
 	public void setCoordinates (int x, int y)
 	{
 		this.x = x;
@@ -57,6 +65,13 @@ public abstract class GameElement implements IBoardElement {
 		return new Point(x,y);
 	}
 
+	/**
+	 * @return Die Koordinaten als ein int (siehe Point.pack()), ohne ein Point Objekt anzulegen.
+	 */
+	public int getPackedPoint () {
+		return Point.pack(x, y);
+	}
+
 	// Behavior ////////////////////////////////////////////////////////////////////////////////////
 
 	/**
@@ -75,20 +90,81 @@ public abstract class GameElement implements IBoardElement {
 		return false;
 	}
 
+	/**
+	 * Liefert die Ebenen des Feldes als Bitmaske (siehe BitBoard). Ohne BitBoard sind alle Bits
+	 * gesetzt - wer damit eine Abkürzung nehmen will, landet so immer im langsamen Weg.
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	protected int getFieldMask (int x, int y) {
+		return bits != null ? bits.getMask(x, y) : -1;
+	}
+
+	/**
+	 * Liegt auf dem Feld etwas, das Spieler aufhält?
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	protected boolean isSolidAt (int x, int y) {
+		if (bits != null)
+			return bits.isSolid(x, y);
+
+		for (GameElement e : gameBoard.getElements(x, y)) {
+			if (e.isSolid())
+				return true;
+		}
+		return false;
+	}
+
 	public void destroy () {
 		List<GameElement> present = gameBoard.getElements(x, y);
 		present.remove(this);
 		gameBoard.setElements(x, y, present);
 	}
 
-	public static void setSkin (String name) {
-		skinPath = "resource/"+name+"/";
+	/**
+	 * Läuft das Spiel dieses Elements ohne Oberfläche (Simulation, Tests)? Dann wird weder
+	 * geloggt noch Sound abgespielt.
+	 * @return
+	 */
+	protected boolean isHeadless () {
+		return gameData != null && gameData.isHeadless();
+	}
+
+	protected void playSound (String label) {
+		if (gameData != null)
+			gameData.getContext().playSound(label);
+	}
+
+	protected void log (String message) {
+		if (gameData != null)
+			gameData.getContext().log(message);
+	}
+
+	/**
+	 * Rechnet eine Dauer der Spielregeln in Ticks um, mit der Tickrate des eigenen Matches.
+	 * Ohne Spielstand gilt die Standard-Tickrate.
+	 * @param millis
+	 * @return
+	 */
+	protected long toTicks (long millis) {
+		if (gameData != null)
+			return gameData.getContext().toTicks(millis);
+		return MatchContext.defaultTicks(millis);
 	}
 
 
 	// Appearance //////////////////////////////////////////////////////////////////////////////////
 
-	public abstract ImageIcon getImageIcon ();
+	/**
+	 * Liefert die Grafik dieses Elements aus dem angegebenen Skin-Verzeichnis. Welcher Skin gilt,
+	 * entscheidet die GUI (siehe Skin) - das Element selbst weiß nichts davon.
+	 * @param skinPath Verzeichnis des Skins, mit abschließendem Slash.
+	 * @return
+	 */
+	public abstract ImageIcon getImageIcon (String skinPath);
 
 	public abstract String getDescription ();
 	
@@ -5,6 +5,9 @@ import java.util.List;
 
 import javax.swing.ImageIcon;
 
+import de.tu_darmstadt.gdi1.bomberman.game.EntityTable;
+import de.tu_darmstadt.gdi1.bomberman.game.board.BitBoard;
+import de.tu_darmstadt.gdi1.bomberman.game.board.BombermanBoard;
 import de.tu_darmstadt.gdi1.bomberman.sound.SoundManagerFactory;
 
 /**
@@ -17,6 +20,30 @@ public class Player extends GameElement {
     public static final String DESCRITION = "Player";
     public static final String PATTERN = DESCRITION + ".+";
 
+    /**
+     * So viele Spieler kann ein Level haben, IDs gehen von 1 bis MAX_PLAYERS.
+     */
+    public static final int MAX_PLAYERS = 256;
+
+    /**
+     * Level-Zeichen für einen Spawnpunkt ohne feste ID, siehe BombermanLevelInformationProvider.
+     */
+    public static final char SPAWN_SYMBOL = '+';
+
+    /**
+     * Die vier Skins, ab Spieler 5 geht es wieder von vorne los.
+     */
+    private static final String[] COLORS = {"White", "Red", "Black", "Blue"};
+    private static final String[] ICONS = {"player_white.png", "player_red.png", "player_black.png", "player_blue.png"};
+
+    /**
+     * Zeit zwischen zwei Schritten in Millisekunden: am Anfang, wie viel jedes Speed-PowerUp
+     * abzieht und wie schnell es höchstens wird.
+     */
+    public static final long MOVE_DELAY_MILLIS = 250;
+    public static final long SPEED_UP_MILLIS = 50;
+    public static final long MIN_MOVE_DELAY_MILLIS = 150;
+
 	public Integer getKillCount ()
 	{
 		return playersKilled.size();
@@ -36,10 +63,10 @@ public class Player extends GameElement {
     private direction dir = direction.NULL;
     private int playerID;
     private long nextMoveAllowedTick = 0;
-    private long moveDelay = 5;
+    private long moveDelayMillis = MOVE_DELAY_MILLIS;
     private int bombRadius = 0;
     private int myMaxBombs = 1;
-    private ArrayList<Bomb> myBombs = new ArrayList<Bomb>();
+    private EntityTable<Bomb> myBombs = new EntityTable<Bomb>(Bomb.OWNER_SLOTS, 4);
     private ArrayList<Player> playersKilled =new ArrayList<Player>();
 
     public Player(int playerID) {
@@ -51,8 +78,9 @@ public class Player extends GameElement {
         Player.super.destroy();
 
         // play sound
-        SoundManagerFactory.playWithoutAnnoyingExceptions(SoundManagerFactory.SoundLabel.DIE);
-        System.out.println("Player " + playerID + " died.");
+        playSound(SoundManagerFactory.SoundLabel.DIE);
+        if (!isHeadless())
+            log("Player " + playerID + " died.");
         gameData.removePlayer(playerID);
 
     }
@@ -82,13 +110,37 @@ public class Player extends GameElement {
         dir = d;
     }
 
+    /**
+     * @return Zeit zwischen zwei Schritten in Ticks des Matches.
+     */
     public long getMoveDelay() {
-        return moveDelay;
+        return toTicks(moveDelayMillis);
     }
 
-    public void setMoveDelay(long moveDelay) {
-        this.moveDelay = moveDelay;
+    public long getMoveDelayMillis() {
+        return moveDelayMillis;
+    }
+
+    public void setMoveDelayMillis(long moveDelayMillis) {
+        this.moveDelayMillis = moveDelayMillis;
+    }
 
+    /**
+     * @return Der erste Tick, in dem sich der Spieler wieder bewegen darf.
+     */
+    public long getNextMoveAllowedTick() {
+        return nextMoveAllowedTick;
+    }
+
+    public void setNextMoveAllowedTick(long nextMoveAllowedTick) {
+        this.nextMoveAllowedTick = nextMoveAllowedTick;
+    }
+
+    /**
+     * @return Die Bomben, die der Spieler gelegt hat und die noch zu seinem Limit zählen.
+     */
+    public EntityTable<Bomb> getMyBombs() {
+        return myBombs;
     }
 
     public int getBombradius() {
@@ -140,22 +192,22 @@ public class Player extends GameElement {
             return false;
         }
 
+        // Collision detection baby!
+        if (isSolidAt(newX, newY)) {
+            return false;
+        }
+
         // Get who is already where we want to go
         List<GameElement> present = gameBoard.getElements(this.x, this.y);
         List<GameElement> target = gameBoard.getElements(newX, newY);
-
-        // Collision detection baby!
-        for (GameElement t : target) {
-            if (t.isSolid()) {
-                return false;
-            }
-        }
+        boolean powerUpAhead = (getFieldMask(newX, newY) & BitBoard.POWER_UP_BIT) != 0;
 
 
         // play sound
-        SoundManagerFactory.playWithoutAnnoyingExceptions(SoundManagerFactory.SoundLabel.WALK);
+        playSound(SoundManagerFactory.SoundLabel.WALK);
         // Perform the move
-        System.out.println("Player " + getPlayerID() + " moves to (" + newX + "," + newY + ")");
+        if (!isHeadless())
+            log("Player " + getPlayerID() + " moves to (" + newX + "," + newY + ")");
         present.remove(this);
         gameBoard.setElements(x, y, present);
         target.add(this);
@@ -163,16 +215,17 @@ public class Player extends GameElement {
         this.x = newX;
         this.y = newY;
 
-        nextMoveAllowedTick = ticknumber + moveDelay;
+        nextMoveAllowedTick = ticknumber + getMoveDelay();
 
         //found a PowerUp?
-        for (int i = 0; i < target.size() - 1; i++) {
+        for (int i = 0; powerUpAhead && i < target.size() - 1; i++) {
             if (target.get(i) instanceof PowerUp) {
                 PowerUp up = ((PowerUp) target.get(i));
 
-                System.out.println(getDescription() + " got a power up");
+                if (!isHeadless())
+                    log(getDescription() + " got a power up");
                 // play sound
-                SoundManagerFactory.playWithoutAnnoyingExceptions(SoundManagerFactory.SoundLabel.POWER_UP);
+                playSound(SoundManagerFactory.SoundLabel.POWER_UP);
                 switch (up.getpowerupID()) {
                     case 1:
                         // Radius der Bomben wird erhöht
@@ -202,7 +255,8 @@ public class Player extends GameElement {
         // quickfix für "alternative reality paradox" - bug
         if (present.contains(this)) {
             present.remove(this);
-            System.out.println("Der Löwe frisst Player " + getPlayerID());
+            if (!isHeadless())
+                log("Der Löwe frisst Player " + getPlayerID());
         }
 
         return true;
@@ -220,7 +274,7 @@ public class Player extends GameElement {
         }
 
         // Bomb creation
-        Bomb bomb = new Bomb(this, 60);
+        Bomb bomb = new Bomb(this, (int) toTicks(Bomb.FUSE_MILLIS));
         bomb.setCoordinates(this.x, this.y);
         bomb.setGameBoard(gameBoard);
         bomb.setGameData(gameData);
@@ -236,13 +290,19 @@ public class Player extends GameElement {
     public List<GameElement> mightyBlow() {
         ArrayList<GameElement> list = new ArrayList<GameElement>();
         ArrayList<Stone> toExplode = new ArrayList<Stone>();
-        for (int i = 0; i < gameBoard.getWidth(); i++) {
-            for (int j = 0; j < gameBoard.getHeight(); j++) {
-                List<GameElement> gE = gameBoard.getElements(i, j);
-                for (GameElement elem : gE) {
-                    if (elem instanceof Stone) {
-                        toExplode.add((Stone) elem);
-                        list.add(elem);
+        if (gameBoard instanceof BombermanBoard) {
+            // Only cells with the stone bit, on a ChunkedBoard only chunks with stones in them
+            ((BombermanBoard) gameBoard).collect(BitBoard.STONE, Stone.class, toExplode);
+            list.addAll(toExplode);
+        } else {
+            for (int i = 0; i < gameBoard.getWidth(); i++) {
+                for (int j = 0; j < gameBoard.getHeight(); j++) {
+                    List<GameElement> gE = gameBoard.getElements(i, j);
+                    for (GameElement elem : gE) {
+                        if (elem instanceof Stone) {
+                            toExplode.add((Stone) elem);
+                            list.add(elem);
+                        }
                     }
                 }
             }
@@ -256,7 +316,7 @@ public class Player extends GameElement {
     }
 
     public void removeBombOwnage(Bomb b) {
-        myBombs.remove(b);
+        myBombs.swapRemove(b);
     }
 
     // STAMMDATEN: PARSING, ICON, CLONING ... //////////////////////////////////////////////////////
@@ -266,76 +326,69 @@ public class Player extends GameElement {
     }
 
     @Override
-    public ImageIcon getImageIcon() {
-        if (playerID == 1) {
-            return new ImageIcon(skinPath+"player_white.png");
-        } else if (playerID == 2) {
-            return new ImageIcon(skinPath+"player_red.png");
-        } else if (playerID == 3) {
-            return new ImageIcon(skinPath+"player_black.png");
-        } else {
-            return new ImageIcon(skinPath+"player_blue.png");
-        }
+    public ImageIcon getImageIcon(String skinPath) {
+        return new ImageIcon(skinPath + ICONS[skin()]);
     }
 
+    /**
+     * @return Spieler 1 bis 4 heißen nach ihrer Farbe, alle weiteren bekommen die ID dazu.
+     */
     @Override
     public String getDescription() {
-        //FIXME ist das nötig?
-        // kann man nich sagen plyer und die farbe mit der id berechenen ??
-        if (playerID == 1) {
-            return DESCRITION + " White";
-        } else if (playerID == 2) {
-            return DESCRITION + " Red";
-        } else if (playerID == 3) {
-            return DESCRITION + " Black";
-        } else {
-            return DESCRITION + " Blue";
+        if (playerID <= COLORS.length) {
+            return DESCRITION + " " + COLORS[skin()];
         }
+        return DESCRITION + " " + COLORS[skin()] + " " + playerID;
     }
 
+    /**
+     * @return Die Ziffer für Spieler 1 bis 9, sonst SPAWN_SYMBOL.
+     */
     @Override
     public char getParsingSymbol() {
-        if (playerID == 1) {
-            return '1';
-        } else if (playerID == 2) {
-            return '2';
-        } else if (playerID == 3) {
-            return '3';
-        } else {
-            return '4';
+        if (playerID >= 1 && playerID <= 9) {
+            return (char) ('0' + playerID);
         }
+        return SPAWN_SYMBOL;
+    }
+
+    private int skin() {
+        return Math.max(0, playerID - 1) % COLORS.length;
     }
 
     // POWERUP ////////////////////////////////////////////////////////////////////////////
     public void increaseBombRadius() {
         if (getBombradius() < 9) {
             setBombRadius(getBombradius() + 1);
-            System.out.println("Bombradius: " + getBombradius());
+            if (!isHeadless())
+                log("Bombradius: " + getBombradius());
         } else {
-            System.out.println("Bombradius: max. reached! (9)");
+            log("Bombradius: max. reached! (9)");
         }
     }
 
     public void increaseBombCount() {
         if (getmymaxbombs() < 9) {
             setmyMaxBombs(getmymaxbombs() + 1);
-            System.out.println("BombCount: " + getmymaxbombs());
+            if (!isHeadless())
+                log("BombCount: " + getmymaxbombs());
         } else {
-            System.out.println("BombCount: max. reached! (9)");
+            log("BombCount: max. reached! (9)");
         }
     }
 
     public void increaseSpeed() {
-        if (getMoveDelay() > 3) {
-            setMoveDelay(getMoveDelay() - 1);
-            System.out.println("MoveDelay: " + getMoveDelay());
+        if (getMoveDelayMillis() > MIN_MOVE_DELAY_MILLIS) {
+            setMoveDelayMillis(Math.max(MIN_MOVE_DELAY_MILLIS, getMoveDelayMillis() - SPEED_UP_MILLIS));
+            if (!isHeadless())
+                log("MoveDelay: " + getMoveDelayMillis() + " ms");
         } else {
-            System.out.println("MaxSpeed was reached!");
+            log("MaxSpeed was reached!");
         }
     }
 
     public void setSuperBomb() {
-        System.out.println("SUPERBOMB");
+        log("SUPERBOMB");
         setBombRadius(9);
     }
 }
\ No newline at end of file
@@ -1,8 +1,9 @@
 package de.tu_darmstadt.gdi1.bomberman.game.elements;
 
-import java.util.Random;
 import javax.swing.ImageIcon;
 
+import de.tu_darmstadt.gdi1.bomberman.game.MatchRandom;
+
 public class PowerUp extends GameElement
 {
 	// PowerID decides of which PowerUp-Type this is
@@ -16,10 +17,13 @@ public class PowerUp extends GameElement
 		return powerID;
 	}
 
-	public PowerUp ()
+	/**
+	 * Würfelt die Art des PowerUps mit dem Zufallsgenerator des Matches aus.
+	 * @param random
+	 */
+	public PowerUp (MatchRandom random)
 	{	
-		Random generator = new Random();
-		int rnd = generator.nextInt( 99 ) + 1;
+		int rnd = random.nextInt( 99 ) + 1;
 		if (rnd <= 35){
 			powerID = 1;
 		}else if (rnd <= 55 ){
@@ -48,7 +52,7 @@ public class PowerUp extends GameElement
 		return new PowerUp(powerID);
 	}
 
-	public ImageIcon getImageIcon() {
+	public ImageIcon getImageIcon(String skinPath) {
 	
 		switch(powerID){
 			case 1:
@@ -87,6 +91,7 @@ public class PowerUp extends GameElement
 	@Override
 	public void destroy() {
 		PowerUp.super.destroy();
-		System.out.println(getDescription() + " died.");
+		if (!isHeadless())
+			log(getDescription() + " died.");
 	}
 }
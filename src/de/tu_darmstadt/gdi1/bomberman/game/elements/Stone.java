@@ -1,7 +1,6 @@
 package de.tu_darmstadt.gdi1.bomberman.game.elements;
 
 import java.util.List;
-import java.util.Random;
 import javax.swing.ImageIcon;
 
 /**
@@ -18,7 +17,7 @@ public class Stone extends GameElement
 	}
 
 	@Override
-	public ImageIcon getImageIcon ()
+	public ImageIcon getImageIcon (String skinPath)
 	{
 		return new ImageIcon(skinPath+"stone.png");
 	}
@@ -50,10 +49,9 @@ public class Stone extends GameElement
 	{
 		super.destroy();
 		List<GameElement> present = gameBoard.getElements(x, y);
-		Random generator = new Random();
-		if (generator.nextInt(4) == 0)
+		if (gameData.getRandom().nextInt(4) == 0)
 		{
-			PowerUp powerUp = new PowerUp();
+			PowerUp powerUp = new PowerUp(gameData.getRandom());
 			powerUp.setGameBoard(gameBoard);
 			powerUp.setGameData(gameData);
 			powerUp.setCoordinates(x, y);
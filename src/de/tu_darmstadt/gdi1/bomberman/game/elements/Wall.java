@@ -17,7 +17,7 @@ public class Wall extends GameElement
 	}
 
 	@Override
-	public ImageIcon getImageIcon ()
+	public ImageIcon getImageIcon (String skinPath)
 	{
 		return new ImageIcon(skinPath+"wall.png");
 	}
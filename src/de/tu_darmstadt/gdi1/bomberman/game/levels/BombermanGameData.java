@@ -1,16 +1,29 @@
 package de.tu_darmstadt.gdi1.bomberman.game.levels;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.RandomAccess;
 
+import de.tu_darmstadt.gdi1.bomberman.game.EntityTable;
+import de.tu_darmstadt.gdi1.bomberman.game.InputBuffer;
+import de.tu_darmstadt.gdi1.bomberman.game.MatchContext;
+import de.tu_darmstadt.gdi1.bomberman.game.MatchRandom;
+import de.tu_darmstadt.gdi1.bomberman.game.TimingWheel;
+import de.tu_darmstadt.gdi1.bomberman.game.board.BitBoard;
+import de.tu_darmstadt.gdi1.bomberman.game.board.BombermanBoard;
 import de.tu_darmstadt.gdi1.bomberman.game.elements.Bomb;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.ChainReaction;
 import de.tu_darmstadt.gdi1.bomberman.game.elements.Delegate;
 import de.tu_darmstadt.gdi1.bomberman.game.elements.Explosion;
 import de.tu_darmstadt.gdi1.bomberman.game.elements.GameElement;
 import de.tu_darmstadt.gdi1.bomberman.game.elements.Player;
-import de.tu_darmstadt.gdi1.bomberman.gui.Gui;
 import de.tu_darmstadt.gdi1.bomberman.sound.SoundManagerFactory;
 import de.tu_darmstadt.gdi1.framework.interfaces.IGameBoard;
 import de.tu_darmstadt.gdi1.framework.model.GameData;
@@ -23,21 +36,98 @@ import de.tu_darmstadt.gdi1.framework.model.StepManager;
 public class BombermanGameData extends GameData<GameElement> {
 
     /**
-     * Contains all players the level contains.
+     * Contains all players the level contains, ordered by ID. Dead players stay in here.
      */
-    protected HashMap<Integer, Player> players = new HashMap<Integer, Player>();
-	protected HashMap<Integer, Player> deadPlayers = new HashMap<Integer, Player>();
-    protected ArrayList<Bomb> bombs = new ArrayList<Bomb>();
-    protected ArrayList<Explosion> explosions = new ArrayList<Explosion>();
+    protected List<Player> players;
+    protected Player[] playersById = new Player[1];
+    protected boolean[] dead = new boolean[1];
+
+    /**
+     * The living players, ordered by ID: players without the dead ones, packed into the front of
+     * the array. Whatever runs every tick walks this, so its cost follows the players still in
+     * the game and not everyone the level ever had.
+     */
+    protected Player[] alive = new Player[0];
+    protected int aliveCount = 0;
+    private final List<Player> aliveView = new AlivePlayers();
+
+    /**
+     * Bombs lying on the board and explosions that are still burning. Order is stable for a given
+     * match, but not the order of adding (see EntityTable).
+     */
+    protected EntityTable<Bomb> bombs = new EntityTable<Bomb>(Bomb.SLOTS);
+    protected EntityTable<Explosion> explosions = new EntityTable<Explosion>(Explosion.SLOTS, 64);
+    protected long bombsPlaced = 0;
+
+    private static final Comparator<Bomb> BY_SEQUENCE = new Comparator<Bomb>() {
+        public int compare(Bomb a, Bomb b) {
+            return Long.compare(a.getSequence(), b.getSequence());
+        }
+    };
+    private static final Comparator<Explosion> BY_POSITION = new Comparator<Explosion>() {
+        public int compare(Explosion a, Explosion b) {
+            int byRow = Integer.compare(a.getY(), b.getY());
+            return byRow != 0 ? byRow : Integer.compare(a.getX(), b.getX());
+        }
+    };
 	protected Delegate delegate;
 
+    /**
+     * Bombs keyed by the tick they explode in, and by the tick they start to look dangerous.
+     * Explosions keyed by the tick they disappear in. Entries of bombs and explosions that are
+     * gone early stay in the wheels and are skipped when they come due.
+     */
+    protected TimingWheel<Bomb> bombFuses = new TimingWheel<Bomb>();
+    protected TimingWheel<Bomb> bombWarnings = new TimingWheel<Bomb>();
+    protected TimingWheel<Explosion> explosionTimeouts = new TimingWheel<Explosion>();
+
+    /**
+     * Resolves exploding bombs. Kept per game so its buffers are reused from bomb to bomb.
+     */
+    protected ChainReaction chainReaction = new ChainReaction();
+
+    /**
+     * Settings and surroundings of the match this state belongs to (tick rate, sound, headless...).
+     */
+    protected MatchContext context = new MatchContext();
+
+    /**
+     * Every random decision of the match draws from here, so the seed plus the inputs decide the
+     * whole match.
+     */
+    protected long seed;
+    protected MatchRandom random;
+
+    /**
+     * Input of the players, collected between two ticks and applied at the start of the next one.
+     */
+    protected InputBuffer inputBuffer = new InputBuffer();
+
+    /**
+     * The board the elements live on. Same instance as the step manager's current board.
+     */
+    protected BombermanBoard board;
+
+    /**
+     * Übernimmt ein beliebiges Spielfeld in ein BombermanBoard (die Elemente werden nicht kopiert).
+     *
+     * @param gameBoard
+     */
     public BombermanGameData(IGameBoard<GameElement> gameBoard) {
+        this(BombermanBoard.wrap(gameBoard));
+    }
+
+    public BombermanGameData(BombermanBoard gameBoard) {
         super(new StepManager<GameElement>(gameBoard));
+        board = gameBoard;
+        setSeed(MatchRandom.randomSeed());
 
-        // Scan the game field for players and the like. Also link game elements to myself
+        // Scan the game field for players and the like. Also link game elements to myself. Only
+        // the elements change, so the lists are just peeked at.
+        ArrayList<Player> found = new ArrayList<Player>();
         for (int x = 0; x < gameBoard.getWidth(); x++) {
             for (int y = 0; y < gameBoard.getHeight(); y++) {
-                List<GameElement> elements = gameBoard.getElements(x, y);
+                List<GameElement> elements = gameBoard.peekElements(x, y);
                 for (GameElement el : elements) {
 
                     el.setGameBoard(gameBoard);
@@ -45,76 +135,381 @@ public class BombermanGameData extends GameData<GameElement> {
                     el.setGameData(this);
 
                     if (el instanceof Player) {
-                        Player pl = (Player) el;
-                        players.put(pl.getPlayerID(), pl);
+                        found.add((Player) el);
                     } else if (el instanceof Bomb) {
-                        bombs.add((Bomb) el);
+                        addBomb((Bomb) el);
                     }
                 }
             }
         }
 
+        for (Player pl : found) {
+            if (pl.getPlayerID() >= playersById.length) {
+                playersById = Arrays.copyOf(playersById, pl.getPlayerID() + 1);
+            }
+            playersById[pl.getPlayerID()] = pl;
+        }
+        ArrayList<Player> byId = new ArrayList<Player>();
+        for (Player pl : playersById) {
+            if (pl != null) {
+                byId.add(pl);
+            }
+        }
+        players = Collections.unmodifiableList(byId);
+        dead = new boolean[playersById.length];
+        alive = byId.toArray(new Player[byId.size()]);
+        aliveCount = alive.length;
+
 		// Add the delegate
 		delegate = new Delegate();
 		delegate.setGameBoard(gameBoard);
 		delegate.setGameData(this);
 		List<GameElement> firstField = gameBoard.getElements(0,0);
 		firstField.add(delegate);
+
+        // Building the board is not a change anyone needs to hear about
+        gameBoard.clearDirtyCells();
     }
 
 	public Delegate getDelegate () {
 		return delegate;
 	}
 
+    public BombermanBoard getBoard() {
+        return board;
+    }
+
+    /**
+     * @return Die Belegung des Spielfelds als Bitmasken, immer auf dem aktuellen Stand.
+     */
+    public BitBoard getBitBoard() {
+        return board.getBits();
+    }
+
+    public MatchContext getContext() {
+        return context;
+    }
+
+    public void setContext(MatchContext context) {
+        if (context == null) {
+            throw new NullPointerException("A game needs a match context.");
+        }
+        this.context = context;
+    }
+
+    /**
+     * @return Die Eingaben, die auf den nächsten Tick warten. Darf von jedem Thread befüllt werden.
+     */
+    public InputBuffer getInputBuffer() {
+        return inputBuffer;
+    }
+
+    // Randomness ////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * @return Der Zufallsgenerator des Matches. Nur vom Spiel-Thread benutzen.
+     */
+    public MatchRandom getRandom() {
+        return random;
+    }
+
+    /**
+     * @return Der Seed, mit dem das Match gestartet wurde.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Setzt den Zufallsgenerator auf einen neuen Seed zurück. Vor dem ersten Tick aufrufen, sonst
+     * ist das Match nicht mehr aus dem Seed allein nachspielbar.
+     *
+     * @param seed
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+        this.random = new MatchRandom(seed);
+    }
+
+    public boolean isHeadless() {
+        return context.isHeadless();
+    }
+
+    /**
+     * Erzeugt einen neuen, unabhängigen Spielstand auf einer Kopie des aktuellen Spielfelds. Das
+     * ist viel billiger, als denselben Level für jedes Match neu zu parsen und zu validieren.
+     * Gedacht für unberührte Level-Vorlagen: der Zustand der Spieler (Powerups, Kills) und
+     * liegende Bomben werden nicht übernommen. Der Kontext wird kopiert, aber ohne Listener. Die
+     * Kopie startet mit demselben Seed, für eine Serie verschiedener Matches setSeed() aufrufen.
+     *
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public BombermanGameData copy() {
+        IGameBoard<GameElement> board = (IGameBoard<GameElement>) getStepManager().getCurrentBoard();
+
+        // The new game data brings its own delegate
+        for (int x = 0; x < board.getWidth(); x++) {
+            for (int y = 0; y < board.getHeight(); y++) {
+                Iterator<GameElement> it = board.getElements(x, y).iterator();
+                while (it.hasNext()) {
+                    GameElement el = it.next();
+                    if (el instanceof Delegate || el instanceof Bomb) {
+                        it.remove();
+                    }
+                }
+            }
+        }
+
+        BombermanGameData data = new BombermanGameData(board);
+        data.setContext(new MatchContext(context));
+        data.setLevelFilename(getLevelFilename());
+        data.setSeed(seed);
+        return data;
+    }
+
     // Players /////////////////////////////////////////////////////////////////////////////////////
-    public Collection<Player> getPlayers() {
-        return players.values();
+
+    /**
+     * @return Alle Spieler des Levels, auch die toten, aufsteigend nach ID. Nicht veränderbar.
+     */
+    public List<Player> getPlayers() {
+        return players;
     }
 
+    /**
+     * @return Der Spieler mit dieser ID, null wenn es ihn nicht gibt.
+     */
     public Player getPlayer(int playerIdx) {
-        return players.get(playerIdx);
+        return playerIdx >= 0 && playerIdx < playersById.length ? playersById[playerIdx] : null;
+    }
+
+    public boolean isDead(int playerIdx) {
+        return playerIdx >= 0 && playerIdx < dead.length && dead[playerIdx];
+    }
+
+    public int getAlivePlayerCount() {
+        return aliveCount;
+    }
+
+    /**
+     * @return Die lebenden Spieler, aufsteigend nach ID. Nicht veränderbar, aber live: wer stirbt,
+     * verschwindet sofort daraus. Mit get(i) ohne Iterator durchlaufen.
+     */
+    public List<Player> getAlivePlayers() {
+        return aliveView;
     }
 
     public void removePlayer(int playerIdx) {
-        deadPlayers.put(playerIdx, players.get(playerIdx));
-        isWon();
+        if (getPlayer(playerIdx) == null || dead[playerIdx]) {
+            return;
+        }
+
+        dead[playerIdx] = true;
+        // Dying is rare, so the shift is cheaper than keeping the IDs in order any other way
+        int i = 0;
+        while (alive[i].getPlayerID() != playerIdx) {
+            i++;
+        }
+        System.arraycopy(alive, i + 1, alive, i, aliveCount - i - 1);
+        alive[--aliveCount] = null;
+        if (isWon()) {
+            // play sound
+            context.playSound(SoundManagerFactory.SoundLabel.GAME_END);
+            HashMap<Integer, Player> all = new HashMap<Integer, Player>();
+            for (Player pl : players) {
+                all.put(pl.getPlayerID(), pl);
+            }
+            context.fireMatchWon(all);
+        }
+    }
+
+    // Timing ////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * @return Der zuletzt abgearbeitete Tick dieses Spielstands.
+     */
+    public long getCurrentTick() {
+        return bombFuses.getNow();
     }
 
     // Bombs ///////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Legt eine Bombe ins Spiel. Sie explodiert getTicksTillExplode() + 1 Ticks nach dem aktuellen.
+     *
+     * @param bomb
+     */
     public void addBomb(Bomb bomb) {
-        if (bomb != null && !bombs.contains(bomb)) {
-            bombs.add(bomb);
+        if (bomb == null || !bombs.add(bomb)) {
+            return;
+        }
+        bomb.setSequence(bombsPlaced++);
+
+        long explosionTick = getCurrentTick() + bomb.getTicksTillExplode() + 1;
+        bomb.setExplosionTick(explosionTick);
+        bombFuses.schedule(bomb, explosionTick);
+        long warningTicks = getContext().toTicks(Bomb.WARNING_MILLIS);
+        if (explosionTick - warningTicks > getCurrentTick()) {
+            bombWarnings.schedule(bomb, explosionTick - warningTicks);
         }
     }
 
     public void removeBomb(Bomb bomb) {
-        bombs.remove(bomb);
+        bombs.swapRemove(bomb);
+    }
+
+    public boolean hasBomb(Bomb bomb) {
+        return bombs.has(bomb);
+    }
+
+    /**
+     * @return Der Platz der Bombe in getBombs(), -1 wenn sie nicht (mehr) liegt.
+     */
+    public int getBombIndex(Bomb bomb) {
+        return bombs.slotOf(bomb);
+    }
+
+    /**
+     * @return Wie viele Bomben bisher ins Spiel kamen, siehe Bomb.getSequence().
+     */
+    public long getBombsPlaced() {
+        return bombsPlaced;
     }
 
-    public ArrayList<Bomb> getBombs() {
+    public ChainReaction getChainReaction() {
+        return chainReaction;
+    }
+
+    /**
+     * @return Die liegenden Bomben. Nur lesen, verändert wird über addBomb() und removeBomb().
+     */
+    public List<Bomb> getBombs() {
         return bombs;
     }
 
+    /**
+     * Geht mit den Zündschnüren bis zum übergebenen Tick weiter.
+     *
+     * @param tick
+     * @return Die Bomben, die jetzt explodieren müssten. Bomben, die schon vorher weggesprengt
+     * wurden, können noch enthalten sein (siehe hasBomb). Nur bis zum nächsten Aufruf gültig.
+     */
+    public List<Bomb> advanceBombFuses(long tick) {
+        return bombFuses.advanceTo(tick);
+    }
+
+    /**
+     * @param tick
+     * @return Die Bomben, die jetzt auf die Warn-Grafik wechseln. Wie bei advanceBombFuses.
+     */
+    public List<Bomb> advanceBombWarnings(long tick) {
+        return bombWarnings.advanceTo(tick);
+    }
+
     // Explosions ///////////////////////////////////////////////////////////////////////////////////////
     public void addExplosions(ArrayList<Explosion> explosions) {
-        if (explosions != null) {
-            this.explosions.addAll(explosions);
+        if (explosions == null) {
+            return;
+        }
+
+        for (Explosion ex : explosions) {
+            if (this.explosions.add(ex)) {
+                explosionTimeouts.schedule(ex, ex.getRemovalTick());
+            }
         }
     }
 
     public void removeExplosion(Explosion exp) {
-        explosions.remove(exp);
+        explosions.swapRemove(exp);
     }
 
-    public ArrayList<Explosion> getExplosions() {
+    public boolean hasExplosion(Explosion exp) {
+        return explosions.has(exp);
+    }
+
+    /**
+     * @return Die brennenden Explosionen. Nur lesen.
+     */
+    public List<Explosion> getExplosions() {
         return explosions;
     }
 
+    /**
+     * @param tick
+     * @return Die Explosionen, die jetzt verschwinden, zeilenweise in Spielfeld-Reihenfolge. Nach
+     * einem restore() ist nicht mehr bekannt, in welcher Reihenfolge sie entstanden sind, so
+     * verschwinden sie im zurückgespielten Spiel genauso wie im ursprünglichen. Sonst wie bei
+     * advanceBombFuses.
+     */
+    public List<Explosion> advanceExplosionTimeouts(long tick) {
+        List<Explosion> due = explosionTimeouts.advanceTo(tick);
+        if (due.size() > 1) {
+            Collections.sort(due, BY_POSITION);
+        }
+        return due;
+    }
+
+    // Snapshots ///////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Übernimmt Bomben, Explosionen und tote Spieler, nachdem ein SnapshotRing das Spielfeld auf
+     * einen früheren Tick zurückgesetzt hat, und baut die Zeiträder für diesen Tick neu auf.
+     *
+     * @param tick Der Tick, der gerade abgearbeitet ist.
+     * @param bombsPlaced getBombsPlaced() zu diesem Tick.
+     * @param bombs Die liegenden Bomben in der Reihenfolge von getBombs(), mit ihrer alten
+     * Bomb.getSequence() - in deren Reihenfolge explodieren gleichzeitig fällige Bomben.
+     * @param explosions
+     * @param dead Die IDs der toten Spieler.
+     */
+    public void restore(long tick, long bombsPlaced, Collection<Bomb> bombs, Collection<Explosion> explosions,
+            Collection<Integer> dead) {
+        bombFuses.reset(tick);
+        bombWarnings.reset(tick);
+        explosionTimeouts.reset(tick);
+
+        this.bombs.clear();
+        this.bombsPlaced = bombsPlaced;
+        ArrayList<Bomb> byLaying = new ArrayList<Bomb>(bombs);
+        Collections.sort(byLaying, BY_SEQUENCE);
+        for (Bomb bomb : bombs) {
+            this.bombs.add(bomb);
+        }
+        long warningTicks = getContext().toTicks(Bomb.WARNING_MILLIS);
+        for (Bomb bomb : byLaying) {
+            bombFuses.schedule(bomb, bomb.getExplosionTick());
+            if (bomb.getExplosionTick() - warningTicks > tick) {
+                bombWarnings.schedule(bomb, bomb.getExplosionTick() - warningTicks);
+            }
+        }
+
+        this.explosions.clear();
+        for (Explosion ex : explosions) {
+            this.explosions.add(ex);
+            explosionTimeouts.schedule(ex, ex.getRemovalTick());
+        }
+
+        Arrays.fill(this.dead, false);
+        for (Integer playerIdx : dead) {
+            if (getPlayer(playerIdx) != null) {
+                this.dead[playerIdx] = true;
+            }
+        }
+        aliveCount = 0;
+        for (Player pl : players) {
+            if (!this.dead[pl.getPlayerID()]) {
+                alive[aliveCount++] = pl;
+            }
+        }
+        Arrays.fill(alive, aliveCount, alive.length, null);
+    }
+
     // Gamedata Interface //////////////////////////////////////////////////////////////////////////
     @Override
     public boolean isLost() {
         // play sound
-        SoundManagerFactory.playWithoutAnnoyingExceptions(SoundManagerFactory.SoundLabel.GAME_END);
+        context.playSound(SoundManagerFactory.SoundLabel.GAME_END);
         return false;
     }
 
@@ -129,20 +524,22 @@ public class BombermanGameData extends GameData<GameElement> {
     }
 
     public boolean isWon() {
-        boolean won = false;
-
         // Game Mode "Multiplayer"
-        if ((players.size() - deadPlayers.size()) == 1) {
-            won = true;
-            try {
-                // play sound
-                SoundManagerFactory.playWithoutAnnoyingExceptions(SoundManagerFactory.SoundLabel.GAME_END);
-                Gui.getInstance().showWinnerScreen(players);
-            }
-            catch (Exception e) {
+        return getAlivePlayerCount() == 1;
+    }
 
+    private class AlivePlayers extends AbstractList<Player> implements RandomAccess {
+        @Override
+        public Player get(int index) {
+            if (index >= aliveCount) {
+                throw new IndexOutOfBoundsException("Index " + index + ", size " + aliveCount);
             }
+            return alive[index];
+        }
+
+        @Override
+        public int size() {
+            return aliveCount;
         }
-        return won;
     }
 }
@@ -4,19 +4,25 @@
  */
 package de.tu_darmstadt.gdi1.bomberman.game.levels;
 
+import de.tu_darmstadt.gdi1.bomberman.game.MatchRandom;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Player;
+
 /**
  *
  * @author JUehV
  */
 public class BombermanLevelGenerator {
 
-    private static char generateBlock(boolean withSolid) {
+    private static char generateBlock(boolean withSolid, int fillPercent, MatchRandom random) {
+        // Full levels draw exactly as before, so existing seeds keep their levels
+        if (fillPercent < 100 && random.nextInt(100) >= fillPercent) {
+            return ' ';
+        }
         int mod = 2;
-        int value = (int) Math.abs(Math.random()*10000);
         if (withSolid) {
             mod = 3;
         }
-        value = value % mod;
+        int value = random.nextInt(mod);
 
         switch (value) {
             case 0:
@@ -32,6 +38,39 @@ public class BombermanLevelGenerator {
     }
 
     public static String generateGrid(int size, int player) {
+        return generateGrid(size, player, new MatchRandom(MatchRandom.randomSeed()));
+    }
+
+    /**
+     * Erzeugt einen Level aus dem übergebenen Zufallsgenerator - derselbe Seed ergibt denselben
+     * Level. Jede Zeile würfelt mit einem eigenen, abgespaltenen Generator, ihr Inhalt hängt also
+     * nur von ihrer Nummer ab und nicht davon, in welcher Reihenfolge die Zeilen entstehen.
+     *
+     * Die ersten vier Spieler stehen in den Ecken. Alle weiteren bekommen Spawnpunkte
+     * (Player.SPAWN_SYMBOL), gleichmäßig über das Feld verteilt und mit freien Feldern drumherum.
+     *
+     * @param size
+     * @param player
+     * @param random
+     * @return
+     */
+    public static String generateGrid(int size, int player, MatchRandom random) {
+        return generateGrid(size, player, 100, random);
+    }
+
+    /**
+     * Wie generateGrid(int, int, MatchRandom), aber nur etwa fillPercent Prozent der freien
+     * Felder bekommen überhaupt einen Stein oder eine Mauer, der Rest bleibt Boden. Für große
+     * Schlachtfelder: ein ChunkedBoard legt nur Chunks an, in denen etwas anderes als Boden und
+     * Mauer liegt.
+     *
+     * @param size
+     * @param player
+     * @param fillPercent 0 bis 100, 100 ergibt denselben Level wie ohne.
+     * @param random
+     * @return
+     */
+    public static String generateGrid(int size, int player, int fillPercent, MatchRandom random) {
         StringBuilder mapString = new StringBuilder();
 
         // automatic size correction
@@ -54,9 +93,10 @@ public class BombermanLevelGenerator {
         mapString.append('\n');
 
         // Print top player line
+        MatchRandom row = random.split();
         mapString.append('#').append('1').append(' ');
         for (int i = 0; i < size - 6; i++) {
-            mapString.append(generateBlock(false));
+            mapString.append(generateBlock(false, fillPercent, row));
         }
         mapString.append(' ');
         if (player > 2) {
@@ -66,24 +106,27 @@ public class BombermanLevelGenerator {
         }
         mapString.append('#').append('\n');
         // Print 2nd top player line
+        row = random.split();
         mapString.append('#').append(' ');
         for (int i = 0; i < size - 4; i++) {
-            mapString.append(generateBlock(true));
+            mapString.append(generateBlock(true, fillPercent, row));
         }
         mapString.append(' ').append('#').append('\n');
 
         // Print middle field
         for (int j = 0; j < size - 6; j++) {
-            mapString.append('#').append(generateBlock(false));
+            row = random.split();
+            mapString.append('#').append(generateBlock(false, fillPercent, row));
             for (int i = 0; i < size - 4; i++) {
-                mapString.append(generateBlock(true));
+                mapString.append(generateBlock(true, fillPercent, row));
             }
-            mapString.append(generateBlock(false)).append('#').append('\n');
+            mapString.append(generateBlock(false, fillPercent, row)).append('#').append('\n');
         }
         // Print bottom player line
+        row = random.split();
         mapString.append('#').append(' ');
         for (int i = 0; i < size - 4; i++) {
-            mapString.append(generateBlock(true));
+            mapString.append(generateBlock(true, fillPercent, row));
         }
         mapString.append(' ').append('#').append('\n');
 
@@ -94,8 +137,9 @@ public class BombermanLevelGenerator {
             mapString.append(' ');
         }
         mapString.append(' ');
+        row = random.split();
         for (int i = 0; i < size - 6; i++) {
-            mapString.append(generateBlock(false));
+            mapString.append(generateBlock(false, fillPercent, row));
         }
         mapString.append(' ').append('2').append('#').append('\n');
 
@@ -104,6 +148,65 @@ public class BombermanLevelGenerator {
             mapString.append('#');
         }
 
+        if (player > 4) {
+            return addSpawnPoints(mapString.toString(), size, player - 4);
+        }
         return mapString.toString();
     }
+
+    /**
+     * Verteilt count Spawnpunkte auf ein Raster über dem Inneren des Levels und räumt die Felder
+     * um jeden herum frei, damit niemand eingemauert beginnt.
+     */
+    private static String addSpawnPoints(String level, int size, int count) {
+        if (count + 4 > Player.MAX_PLAYERS) {
+            throw new IllegalArgumentException("More than " + Player.MAX_PLAYERS + " players");
+        }
+        if (count + 4 > (size - 2) * (size - 2)) {
+            throw new IllegalArgumentException("No room for " + (count + 4) + " players on " + size + "x" + size);
+        }
+        String[] lines = level.split("\n");
+        char[][] grid = new char[lines.length][];
+        for (int i = 0; i < lines.length; i++) {
+            grid[i] = lines[i].toCharArray();
+        }
+
+        int cols = (int) Math.ceil(Math.sqrt(count));
+        int rows = (count + cols - 1) / cols;
+        for (int n = 0; n < count; n++) {
+            // centre of the n-th cell of a rows x cols raster over the inner fields
+            int x = 1 + (2 * (n % cols) + 1) * (size - 2) / (2 * cols);
+            int y = 1 + (2 * (n / cols) + 1) * (size - 2) / (2 * rows);
+            // small boards: take the next free field in reading order
+            while (isPlayerSymbol(grid[y][x])) {
+                x++;
+                if (x > size - 2) {
+                    x = 1;
+                    y = y < size - 2 ? y + 1 : 1;
+                }
+            }
+            grid[y][x] = Player.SPAWN_SYMBOL;
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dx = -1; dx <= 1; dx++) {
+                    int nx = x + dx, ny = y + dy;
+                    if (nx >= 1 && ny >= 1 && nx <= size - 2 && ny <= size - 2 && !isPlayerSymbol(grid[ny][nx])) {
+                        grid[ny][nx] = ' ';
+                    }
+                }
+            }
+        }
+
+        StringBuilder mapString = new StringBuilder();
+        for (int i = 0; i < grid.length; i++) {
+            if (i > 0) {
+                mapString.append('\n');
+            }
+            mapString.append(grid[i]);
+        }
+        return mapString.toString();
+    }
+
+    private static boolean isPlayerSymbol(char c) {
+        return c == Player.SPAWN_SYMBOL || (c >= '1' && c <= '9');
+    }
 }
@@ -1,11 +1,14 @@
 package de.tu_darmstadt.gdi1.bomberman.game.levels;
 
+import java.util.BitSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Logger;
 
 import de.tu_darmstadt.gdi1.bomberman.BombermanController;
+import de.tu_darmstadt.gdi1.bomberman.game.board.BitBoard;
+import de.tu_darmstadt.gdi1.bomberman.game.board.BombermanBoard;
 import de.tu_darmstadt.gdi1.bomberman.game.elements.Floor;
 import de.tu_darmstadt.gdi1.bomberman.game.elements.GameElement;
 import de.tu_darmstadt.gdi1.bomberman.game.elements.Player;
@@ -13,6 +16,7 @@ import de.tu_darmstadt.gdi1.bomberman.game.elements.Stone;
 import de.tu_darmstadt.gdi1.bomberman.game.elements.Wall;
 import de.tu_darmstadt.gdi1.framework.exceptions.InvalidLevelDataException;
 import de.tu_darmstadt.gdi1.framework.interfaces.IGameBoard;
+import de.tu_darmstadt.gdi1.framework.interfaces.IGameBoardFactory;
 import de.tu_darmstadt.gdi1.framework.interfaces.IGameData;
 import de.tu_darmstadt.gdi1.framework.interfaces.ILevelInformationProvider;
 
@@ -21,13 +25,17 @@ import de.tu_darmstadt.gdi1.framework.interfaces.ILevelInformationProvider;
  * vom Framework vorverarbeitete Level Informationen und kann diese dann prüfen
  * und parsen.
  */
-public class BombermanLevelInformationProvider implements ILevelInformationProvider<GameElement> {
+public class BombermanLevelInformationProvider implements ILevelInformationProvider<GameElement>, IGameBoardFactory<GameElement> {
 
     Logger logger = Logger.getLogger(BombermanController.class.getName());
 
+    private static final String SEED_KEY = "seed:";
+
     /**
      * Parst ein Zeichen aus der Datei und gibt die BoardElements für dieses
-     * Zeichen zurück.
+     * Zeichen zurück. Spieler stehen als Ziffer 1 bis 9 im Level, beliebig
+     * viele weitere als Player.SPAWN_SYMBOL - die bekommen ihre ID erst in
+     * verifyGameBoard().
      *
      * @param c Das Zeichen.
      * @return
@@ -49,27 +57,34 @@ public class BombermanLevelInformationProvider implements ILevelInformationProvi
             case '*':
                 l.add(new Stone());
                 break;
-            // Spieler 1 auf leerem Feld
-            case '1':
-                l.add(new Player(1));
-                break;
-            // Spieler 1 auf leerem Feld
-            case '2':
-                l.add(new Player(2));
+            // Spawnpunkt ohne feste ID, numbered in verifyGameBoard()
+            case Player.SPAWN_SYMBOL:
+                l.add(new Player(0));
                 break;
-            // Spieler 1 auf leerem Feld
-            case '3':
-                l.add(new Player(3));
-                break;
-            // Spieler 1 auf leerem Feld
-            case '4':
-                l.add(new Player(4));
+            default:
+                // Spieler 1 bis 9 auf leerem Feld
+                if (c >= '1' && c <= '9') {
+                    l.add(new Player(c - '0'));
+                }
                 break;
         }
 
         return l;
     }
 
+    /**
+     * Level werden gleich in ein BombermanBoard geladen, große in ein ChunkedBoard - ein
+     * GameBoard mit einer LinkedList pro Feld wäre bei 2000x2000 zu viel.
+     *
+     * @param width
+     * @param height
+     * @return
+     */
+    @Override
+    public IGameBoard<GameElement> createGameBoard(int width, int height) {
+        return BombermanBoard.create(width, height);
+    }
+
     /**
      * Der letzte Verarbeitungsschritt - setzt die über die anderen Funktionen
      * gewonnenen Informationen zu einem Gamedata Objekt zusammen.
@@ -82,11 +97,99 @@ public class BombermanLevelInformationProvider implements ILevelInformationProvi
      */
     @Override
     public IGameData<GameElement> verifyGameBoard(IGameBoard<GameElement> gameBoard, int lineCount, Map<Integer, String> nonBoardInformations) throws InvalidLevelDataException {
+        numberSpawnPoints(gameBoard);
         BombermanLevelValidator validator = new BombermanLevelValidator(gameBoard);
         if (!validator.isGameBoardValid()) {
             throw new InvalidLevelDataException(validator.getErrors());
         }
-        return new BombermanGameData(gameBoard);
+        BombermanGameData data = new BombermanGameData(gameBoard);
+        if (nonBoardInformations != null) {
+            for (String line : nonBoardInformations.values()) {
+                Long seed = parseSeed(line);
+                if (seed != null) {
+                    data.setSeed(seed);
+                }
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Gibt den Spawnpunkten aus getBoardElementsFor() ihre Spieler-IDs: in
+     * Lesereihenfolge (Zeile für Zeile) die kleinsten, die noch kein Spieler
+     * mit Ziffer hat.
+     *
+     * @param gameBoard Das frisch geladene Spielfeld.
+     * @throws InvalidLevelDataException Wenn es mehr als Player.MAX_PLAYERS
+     * Spieler werden.
+     */
+    static void numberSpawnPoints(IGameBoard<GameElement> gameBoard) throws InvalidLevelDataException {
+        BitSet used = new BitSet(Player.MAX_PLAYERS + 1);
+        boolean spawns = false;
+        for (int y = 0; y < gameBoard.getHeight(); y++) {
+            for (int x = 0; x < gameBoard.getWidth(); x++) {
+                if (!mayHavePlayer(gameBoard, x, y)) {
+                    continue;
+                }
+                for (GameElement element : gameBoard.getElements(x, y)) {
+                    if (element instanceof Player) {
+                        int id = ((Player) element).getPlayerID();
+                        spawns |= id == 0;
+                        used.set(id);
+                    }
+                }
+            }
+        }
+        if (!spawns) {
+            return;
+        }
+
+        int next = 0;
+        for (int y = 0; y < gameBoard.getHeight(); y++) {
+            for (int x = 0; x < gameBoard.getWidth(); x++) {
+                if (!mayHavePlayer(gameBoard, x, y)) {
+                    continue;
+                }
+                List<GameElement> field = gameBoard.getElements(x, y);
+                for (int i = 0; i < field.size(); i++) {
+                    GameElement element = field.get(i);
+                    if (element instanceof Player && ((Player) element).getPlayerID() == 0) {
+                        next = used.nextClearBit(next + 1);
+                        if (next > Player.MAX_PLAYERS) {
+                            throw new InvalidLevelDataException("More than " + Player.MAX_PLAYERS + " players in level");
+                        }
+                        used.set(next);
+                        field.set(i, new Player(next));
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean mayHavePlayer(IGameBoard<GameElement> gameBoard, int x, int y) {
+        // A BombermanBoard knows without walking the lists
+        return !(gameBoard instanceof BombermanBoard) || ((BombermanBoard) gameBoard).getBits().get(BitBoard.PLAYER, x, y);
+    }
+
+    /**
+     * Liest eine Zeile der Form "// seed: 1234". Ein Level mit Seed spielt sich bei gleichen
+     * Eingaben immer gleich.
+     *
+     * @param line Die Zeile ohne Präfix.
+     * @return Der Seed, oder null wenn die Zeile keinen angibt.
+     * @throws InvalidLevelDataException Wenn der Seed keine Zahl ist.
+     */
+    static Long parseSeed(String line) throws InvalidLevelDataException {
+        String trimmed = line.trim();
+        if (!trimmed.toLowerCase().startsWith(SEED_KEY)) {
+            return null;
+        }
+        String value = trimmed.substring(SEED_KEY.length()).trim();
+        try {
+            return Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new InvalidLevelDataException("Invalid seed in level: " + value);
+        }
     }
 
     /**
@@ -106,8 +209,14 @@ public class BombermanLevelInformationProvider implements ILevelInformationProvi
         return "//";
     }
 
+    /**
+     * Speichert den Seed des Spiels mit, damit der gespeicherte Level genauso weiterspielt.
+     */
     @Override
     public String getNoneBoardInformationLineFor(IGameData<GameElement> gameData) throws InvalidLevelDataException {
-        throw new UnsupportedOperationException("Not supported yet.");
+        if (!(gameData instanceof BombermanGameData)) {
+            return null;
+        }
+        return " " + SEED_KEY + " " + ((BombermanGameData) gameData).getSeed();
     }
 }
@@ -2,13 +2,12 @@ package de.tu_darmstadt.gdi1.bomberman.game.levels;
 
 import java.io.IOException;
 import java.util.HashMap;
-import java.util.List;
 
+import de.tu_darmstadt.gdi1.bomberman.game.MatchRandom;
 import de.tu_darmstadt.gdi1.bomberman.game.elements.GameElement;
 import de.tu_darmstadt.gdi1.bomberman.game.elements.Player;
 import de.tu_darmstadt.gdi1.framework.exceptions.InvalidLevelDataException;
 import de.tu_darmstadt.gdi1.framework.exceptions.NoNextLevelException;
-import de.tu_darmstadt.gdi1.framework.interfaces.IBoard;
 import de.tu_darmstadt.gdi1.framework.interfaces.IGameData;
 import de.tu_darmstadt.gdi1.framework.utils.level.LevelManager;
 
@@ -19,8 +18,14 @@ import de.tu_darmstadt.gdi1.framework.utils.level.LevelManager;
 public class BombermanLevelManager extends LevelManager<GameElement>  {
 	HashMap<Integer,Player> players = new HashMap<Integer, Player>();
         boolean generate;
-        final int BOARDSIZE = 12;
-        final int NO_OF_PLAYER = 4;
+        int boardSize = 12;
+        int playerCount = 4;
+
+	// Seed given on the command line, the seed of the running match and how many matches were
+	// started from the given seed
+	Long seed;
+	long currentSeed;
+	int matches = 0;
 	
 	public BombermanLevelManager (boolean randomize)
 	{
@@ -34,6 +39,51 @@ public class BombermanLevelManager extends LevelManager<GameElement>  {
 		generate = false;
 	}
 
+	/**
+	 * Legt fest, dass alle folgenden Matches aus diesem Seed abgeleitet werden: das n-te Match
+	 * spielt mit MatchRandom.derive(seed, n), auch generierte Level. Überschreibt Seeds aus den
+	 * Leveldateien.
+	 * @param seed null für zufällige Matches.
+	 */
+	public void setSeed (Long seed)
+	{
+		this.seed = seed;
+		this.matches = 0;
+	}
+
+	/**
+	 * Kantenlänge generierter Level. Ab ChunkedBoard.CHUNKED_CELLS Feldern wird in ein
+	 * ChunkedBoard geladen, 2000 geht also auch.
+	 * @param size Mindestens 5.
+	 */
+	public void setBoardSize (int size)
+	{
+		if (size < 5)
+			throw new IllegalArgumentException("Board size " + size + " < 5");
+		this.boardSize = size;
+	}
+
+	public int getBoardSize ()
+	{
+		return boardSize;
+	}
+
+	/**
+	 * Wie viele Spieler in generierten Leveln stehen, ab dem fünften auf Spawnpunkten.
+	 * @param count 2 bis Player.MAX_PLAYERS.
+	 */
+	public void setPlayerCount (int count)
+	{
+		if (count < 2 || count > Player.MAX_PLAYERS)
+			throw new IllegalArgumentException("Player count " + count + " not in 2.." + Player.MAX_PLAYERS);
+		this.playerCount = count;
+	}
+
+	public int getPlayerCount ()
+	{
+		return playerCount;
+	}
+
 	public HashMap<Integer,Player> getPlayers()
 	{
 		return players;
@@ -43,22 +93,17 @@ public class BombermanLevelManager extends LevelManager<GameElement>  {
 	public IGameData<GameElement> loadNextLevel () throws NoNextLevelException, InvalidLevelDataException, IOException
 	{
         IGameData<GameElement> gd;
+        currentSeed = seed != null ? MatchRandom.derive(seed, matches++) : MatchRandom.randomSeed();
         if (generate){
-            gd = super.loadLevel(BombermanLevelGenerator.generateGrid(BOARDSIZE, NO_OF_PLAYER));
+            gd = generateLevel(currentSeed);
         } else {
 			gd = super.loadNextLevel();
+			applySeed(gd);
         }
-		IBoard<GameElement> gb = gd.getStepManager().getCurrentBoard();
+		// The game data found them already, no need to walk the whole board again
 		players = new HashMap<Integer,Player>();
-		for (int x = 0; x < gb.getWidth(); x++) {
-			for (int y = 0; y < gb.getHeight(); y++) {
-				List<GameElement> list = gb.getElements(x,y);
-				if (list.get(list.size()-1) instanceof Player) {
-					Player player = (Player) list.get(list.size()-1);
-					player.setCoordinates(x,y);
-					players.put(player.getPlayerID(), player);
-				}
-			}
+		for (Player player : ((BombermanGameData) gd).getPlayers()) {
+			players.put(player.getPlayerID(), player);
 		}
 
 		return gd;
@@ -67,11 +112,32 @@ public class BombermanLevelManager extends LevelManager<GameElement>  {
     @Override
     public IGameData<GameElement> loadCurrentAgain() throws InvalidLevelDataException, IOException {
         IGameData<GameElement> gd;
+        // With a fixed seed, again means the very same match
+        if (seed == null) {
+            currentSeed = MatchRandom.randomSeed();
+        }
         if (generate) {
-            gd = super.loadLevel(BombermanLevelGenerator.generateGrid(BOARDSIZE, NO_OF_PLAYER));
+            gd = generateLevel(currentSeed);
         } else {
             gd = super.loadCurrentAgain();
+            applySeed(gd);
         }
         return gd;
     }
+
+    private IGameData<GameElement> generateLevel(long matchSeed) throws InvalidLevelDataException, IOException {
+        MatchRandom random = new MatchRandom(matchSeed);
+        IGameData<GameElement> gd = super.loadLevel(BombermanLevelGenerator.generateGrid(boardSize, playerCount, random.split()));
+        ((BombermanGameData) gd).setSeed(random.nextLong());
+        return gd;
+    }
+
+    /**
+     * Ein Seed von der Kommandozeile gewinnt gegen den aus der Leveldatei.
+     */
+    private void applySeed(IGameData<GameElement> gd) {
+        if (seed != null) {
+            ((BombermanGameData) gd).setSeed(currentSeed);
+        }
+    }
 }
@@ -9,7 +9,6 @@ import de.tu_darmstadt.gdi1.bomberman.game.elements.GameElement;
 import de.tu_darmstadt.gdi1.bomberman.game.elements.Player;
 import de.tu_darmstadt.gdi1.bomberman.game.elements.Wall;
 import de.tu_darmstadt.gdi1.framework.interfaces.IGameBoard;
-import de.tu_darmstadt.gdi1.framework.utils.Point;
 import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -17,8 +16,8 @@ import java.util.regex.Pattern;
 
 /**
  * Validiert das Gameboard nach folgenden Aspekten: 1. Ist das Feld von Wänden
- * umgeben und somit auch Quadratisch? 2. Sind mehr als 1 und weniger als 5
- * Spieler vorhanden? 3. Sind Player nur einfach vertreten? 4. Können sich die
+ * umgeben und somit auch Quadratisch? 2. Sind mehr als 1 und höchstens
+ * Player.MAX_PLAYERS Spieler vorhanden? 3. Sind Player nur einfach vertreten? 4. Können sich die
  * Spieler untereinander erreichen?
  *
  * @author JUehV
@@ -27,51 +26,10 @@ public class BombermanLevelValidator {
 
     private IGameBoard<GameElement> gameBoard;
     private static final Logger logger = Logger.getLogger(BombermanController.class.getName());
+    private static final Pattern PLAYER = Pattern.compile(Player.PATTERN);
     private StringBuilder errorStack = new StringBuilder();
     private List<String> playerStack = new ArrayList<String>();
 
-    private class GameBoardNode {
-
-        private List<Integer> children = new ArrayList<Integer>();
-        private boolean isPlayerStation;
-        private Point coordinate;
-        private int id;
-
-        public GameBoardNode(int id, boolean isPlayerStation, Point coordinate) {
-            this.isPlayerStation = isPlayerStation;
-            this.coordinate = coordinate;
-            this.id = id;
-        }
-
-        public List<Integer> getChildren() {
-            return children;
-        }
-
-        public void addChild(int child) {
-            this.children.add(child);
-        }
-
-        public Point getCoordinate() {
-            return coordinate;
-        }
-
-        public void setCoordinate(Point coordinate) {
-            this.coordinate = coordinate;
-        }
-
-        public boolean isIsPlayerStation() {
-            return isPlayerStation;
-        }
-
-        public void setIsPlayerStation(boolean isPlayerStation) {
-            this.isPlayerStation = isPlayerStation;
-        }
-
-        public int getId() {
-            return id;
-        }
-    }
-
     /**
      *
      * @param gameBoard
@@ -158,7 +116,7 @@ public class BombermanLevelValidator {
         for (GameElement element : elements) {
             // Substring kann hier nicht eingesetzt werden, da es Descriptions gibt
             // die kürzer sind als "Player". Daher wird Patternmachting verwende.
-            if (Pattern.matches(Player.PATTERN, element.getDescription())) {
+            if (PLAYER.matcher(element.getDescription()).matches()) {
                 if (addToStack){
                     playerStack.add(element.getDescription());
                 }
@@ -171,10 +129,10 @@ public class BombermanLevelValidator {
 
     /**
      * Checks if there are enough player present. It will also fail if there are
-     * more then 4 players. Notice that you should check the Border first. The
+     * more then Player.MAX_PLAYERS players. Notice that you should check the Border first. The
      * Method builds the player stack which is needed by checkPlayerIdentity.
      *
-     * @return true for 1 < player < 5. false else.
+     * @return true for 1 < player <= Player.MAX_PLAYERS. false else.
      */
     private boolean checkPlayerCount() {
         int numOfPlayer = 0;
@@ -187,7 +145,7 @@ public class BombermanLevelValidator {
             }
         }
 
-        if (numOfPlayer < 5 && numOfPlayer > 1) {
+        if (numOfPlayer <= Player.MAX_PLAYERS && numOfPlayer > 1) {
             logger.log(Level.INFO, "Found {0} Player.", numOfPlayer);
             return true;
         } else {
@@ -211,105 +169,74 @@ public class BombermanLevelValidator {
      */
     private boolean checkPlayerIdentity() {
         boolean retval = true;
-        for (int i = 0; i < playerStack.size(); i++) {
-            String item = playerStack.get(i);
-            for (int j = i + 1; j < playerStack.size(); j++) {
-                if (item.equalsIgnoreCase(playerStack.get(j))) {
-                    StringBuilder msg = new StringBuilder("Player is multiple times present: ");
-                    msg.append(item);
-                    // log msg
-                    logger.log(Level.SEVERE, msg.toString());
-                    // add msg to stack
-                    errorStack.append(msg).append("\n");
-                    retval = false;
-                }
+        // a set instead of comparing every pair, there may be hundreds of players
+        Set<String> seen = new HashSet<String>();
+        for (String item : playerStack) {
+            if (!seen.add(item.toLowerCase())) {
+                StringBuilder msg = new StringBuilder("Player is multiple times present: ");
+                msg.append(item);
+                // log msg
+                logger.log(Level.SEVERE, msg.toString());
+                // add msg to stack
+                errorStack.append(msg).append("\n");
+                retval = false;
             }
         }
         return retval;
     }
 
-    private Map<Integer, GameBoardNode> convertGameBoardToGraph() {
-        Map<Integer, GameBoardNode> graph = new HashMap<Integer, GameBoardNode>();
-        Point pos = new Point(1, 1);
-
+    /**
+     * Breitensuche über alle Felder ohne Mauer (auch diagonal benachbart), vom ersten solchen Feld
+     * aus. Läuft direkt auf dem Raster statt über einen Graphen aus Knoten, damit das auch bei
+     * 2000x2000 Feldern geht.
+     *
+     * @return true, wenn alle Spieler aus checkPlayerCount() erreichbar sind.
+     */
+    private boolean checkPlayerConnected() {
+        // Hilfsvariablen
+        final int width = gameBoard.getWidth();
+        final int height = gameBoard.getHeight();
+        boolean[] seen = new boolean[width * height];
+        int[] queue = new int[width * height];
+        int head = 0;
+        int tail = 0;
+        int foundPlayers = 0;
 
-        // Spielfeld in betretbare Nodes konvertiern
-        for (int i = 1; i < gameBoard.getHeight() - 1; i++) {
-            for (int j = 1; j < gameBoard.getWidth() - 1; j++) {
+        // start at the first field without a wall, row by row
+        for (int i = 1; i < height - 1 && tail == 0; i++) {
+            for (int j = 1; j < width - 1 && tail == 0; j++) {
                 if (!isWall(gameBoard.getElements(j, i))) {
-                    graph.put(graph.size(), new GameBoardNode(graph.size(),
-                            isPlayer(gameBoard.getElements(j, i),false),
-                            new Point(j, i)));
+                    seen[i * width + j] = true;
+                    queue[tail++] = i * width + j;
                 }
             }
         }
+        // breadth-first search
+        while (head < tail) {
+            int x = queue[head] % width;
+            int y = queue[head++] / width;
 
-        // linking nodes
-        for (GameBoardNode item : graph.values()) {
-            int right = item.getCoordinate().getX() + 1;
-            int left = item.getCoordinate().getX() - 1;
-            int stationX = item.getCoordinate().getX();
-            int down = item.getCoordinate().getY() + 1;
-            int up = item.getCoordinate().getY() - 1;
-            int stationY = item.getCoordinate().getY();
+            if (isPlayer(gameBoard.getElements(x, y), false)) {
+                foundPlayers++;
 
-            for (GameBoardNode linkItem : graph.values()) {
-                if (item.equals(linkItem)) {
-                    continue;
-                }
-                if (right == linkItem.getCoordinate().getX()
-                        || left == linkItem.getCoordinate().getX()
-                        || stationX == linkItem.getCoordinate().getX()) {
-                    if (up == linkItem.getCoordinate().getY()
-                            || down == linkItem.getCoordinate().getY()
-                            || stationY == linkItem.getCoordinate().getY()) {
-                        // item is direct neighbour 
-                        item.addChild(linkItem.getId());
-                    }
+                StringBuilder msg = new StringBuilder("Player found at: ");
+                msg.append(x).append(",").append(y);
+                // log msg
+                logger.log(Level.INFO, msg.toString());
+
+                if (foundPlayers >= playerStack.size()) {
+                    return true;
                 }
             }
-        }
-        return graph;
-    }
 
-    private boolean checkPlayerConnected() {
-        // Hilfsvariablen
-        Queue<Integer> searchQueue = new LinkedList<Integer>();
-        List<Integer> checkedList = new ArrayList<Integer>();
-        int foundPlayers = 0;
-        // breadth-first search
-        Map<Integer, GameBoardNode> gameBoardAsGraph = convertGameBoardToGraph();
-
-        GameBoardNode startNode = gameBoardAsGraph.get(0);
-        // build the queue
-        for (int childId : startNode.getChildren()) {
-            searchQueue.add(childId);
-        }
-        // search in the queue
-        while (!searchQueue.isEmpty()) {
-            Integer id = searchQueue.poll();
-            if (id != null && !checkedList.contains(id)) {
-                // add to checklist 
-                checkedList.add(id);
-                // check if node is a player station and add children to queue
-                GameBoardNode node = gameBoardAsGraph.get(id);
-                if (node != null) {
-                    for (int childId : node.getChildren()) {
-                        searchQueue.add(childId);
+            for (int ny = y - 1; ny <= y + 1; ny++) {
+                for (int nx = x - 1; nx <= x + 1; nx++) {
+                    if (nx < 1 || ny < 1 || nx > width - 2 || ny > height - 2 || seen[ny * width + nx]) {
+                        continue;
                     }
-
-                    if (node.isPlayerStation) {
-                        foundPlayers++;
-
-                        StringBuilder msg = new StringBuilder("Player found at: ");
-                        msg.append(node.getCoordinate().getX()).append(",");
-                        msg.append(node.getCoordinate().getY());
-                        // log msg
-                        logger.log(Level.INFO, msg.toString());
-
-                        if (foundPlayers >= playerStack.size()) {
-                            return true;
-                        }
+                    seen[ny * width + nx] = true;
+                    if (!isWall(gameBoard.getElements(nx, ny))) {
+                        queue[tail++] = ny * width + nx;
                     }
                 }
             }
@@ -35,6 +35,7 @@ public class ControllerInputEvent extends ControllerEvent {
 	protected int playerIndex;
 	protected button btn;
 	protected state ste;
+	protected long timestamp;
 
 	public ControllerInputEvent (int playerIdx, button button, state state) {
 		super(ControllerEvent.type.PLAYER_INPUT);
@@ -42,6 +43,16 @@ public class ControllerInputEvent extends ControllerEvent {
 		playerIndex = playerIdx;
 		btn = button;
 		ste = state;
+		timestamp = System.nanoTime();
+	}
+
+	/**
+	 * Gibt zurück, wann die Taste betätigt wurde (System.nanoTime()). Daran wird gemessen, wie
+	 * lange die Eingabe auf ihren Tick gewartet hat.
+	 * @return
+	 */
+	public long getTimestamp () {
+		return timestamp;
 	}
 
 	/**
@@ -35,7 +35,7 @@ public class Gui extends UserInterface<GameElement> {
     private WinnerScreen winnerScreen;
     // Used for skin cycling
     int skinIndex = 0;
-    protected ArrayList<Point> dirtyPoints = new ArrayList<Point>();
+    protected Skin skin = new Skin();
     Logger logger = Logger.getLogger(BombermanController.class.getName());
 
     private Gui(AbstractBombermanController ctr) {
@@ -80,7 +80,7 @@ public class Gui extends UserInterface<GameElement> {
                 quitGameGUI();
                 break;
             case MAIN_MENU:
-	            Gui.getInstance().showMainMenu();
+	            showMainMenu();
                 break;
             case UPDATE_TIME:
                 setTitle("The amazing TU Darmstadt Bomberman! [" + ((BombermanController) controller).getTimeInSeconds() + " sec.]");
@@ -114,45 +114,28 @@ public class Gui extends UserInterface<GameElement> {
     }
 
     /**
-     * Sets a coordinate of the game board dirty.
+     * Zeichnet die markierten Felder neu.
      *
-     * @param p
+     * @param board
+     * @param cells Ein Bit pro Feld, Feld (x,y) ist Bit y * Breite + x.
      */
-    public void setCoordinateDirty(Point p) {
-        System.out.println("Setting dirty " + p);
-        if (!dirtyPoints.contains(p)) {
-            dirtyPoints.add(p);
-        }
-    }
-
-    public synchronized void addDirtyPoints(ArrayList<Point> points) {
-        for (Point p : points) {
-            if (!dirtyPoints.contains(p)) {
-                dirtyPoints.add(p);
-            }
-        }
-    }
-
-    public synchronized void addDirtyPoint(Point point) {
-        if (!dirtyPoints.contains(point)) {
-            dirtyPoints.add(point);
-        }
-    }
-
-    public synchronized void redrawDirty(IBoard<GameElement> board) {
-        if (board == null || dirtyPoints.isEmpty()) {
+    public synchronized void redrawDirty(IBoard<GameElement> board, long[] cells) {
+        if (board == null) {
             return;
         }
 
-        for (Point p : dirtyPoints) {
-            JLabel label = boardPanel.getLabelAt(board, p.getX(), p.getY());
-            ImageIcon icon = this.getComponentForBoard(board, p);
-            if (icon != null) {
-                label.setIcon(icon);
+        int width = board.getWidth();
+        for (int w = 0; w < cells.length; w++) {
+            for (long word = cells[w]; word != 0; word &= word - 1) {
+                int i = (w << 6) + Long.numberOfTrailingZeros(word);
+                Point p = new Point(i % width, i / width);
+                JLabel label = boardPanel.getLabelAt(board, p.getX(), p.getY());
+                ImageIcon icon = this.getComponentForBoard(board, p);
+                if (icon != null) {
+                    label.setIcon(icon);
+                }
             }
         }
-
-        dirtyPoints.clear();
     }
 
     public synchronized void redrawFull(IBoard<GameElement> board) {
@@ -352,7 +335,7 @@ public class Gui extends UserInterface<GameElement> {
 
         // Switch for game elements
         System.out.println("Switching to skin " + skin + " (idx " + skinIndex + " of " + children.length + ")");
-        GameElement.setSkin(skin);
+        this.skin = new Skin(skin);
 
         // Force redraw
         ControllerEvent evt = ControllerEvent.create(ControllerEvent.type.CHANGE_SKIN);
@@ -366,7 +349,7 @@ public class Gui extends UserInterface<GameElement> {
         ArrayList<ImageIcon> iconList = new ArrayList<ImageIcon>();
         ImageIcon ret = null;
         for (GameElement gameElement : aList) {
-            iconList.add(gameElement.getImageIcon());
+            iconList.add(skin.getIcon(gameElement));
         }
 
         if (iconList.size() == 1) {
@@ -1,9 +1,46 @@
 package de.tu_darmstadt.gdi1.bomberman.gui;
 
+import javax.swing.ImageIcon;
+
+import de.tu_darmstadt.gdi1.bomberman.game.elements.GameElement;
+
 /**
  * Der Skin liefert die Grafiken. Wenn man dem Spiel einen neuen Look geben will, einfach nur den
  * Skin ersetzen. Wenn etwas kompliziert ist, gehört es hier höchstwahrscheinlich nicht rein.
+ *
+ * Jede GUI hat ihren eigenen Skin, die Spielelemente selbst kennen keinen.
  */
 public class Skin {
 
+	/**
+	 * Name des Standard-Skins, also des Verzeichnisses unterhalb von resource/.
+	 */
+	public static final String DEFAULT = "images";
+
+	private final String name;
+	private final String path;
+
+	public Skin (String name) {
+		this.name = name;
+		this.path = "resource/" + name + "/";
+	}
+
+	public Skin () {
+		this(DEFAULT);
+	}
+
+	public String getName () {
+		return name;
+	}
+
+	/**
+	 * @return Das Verzeichnis des Skins mit abschließendem Slash.
+	 */
+	public String getPath () {
+		return path;
+	}
+
+	public ImageIcon getIcon (GameElement element) {
+		return element.getImageIcon(path);
+	}
 }
@@ -0,0 +1,261 @@
+package de.tu_darmstadt.gdi1.bomberman.net;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import de.tu_darmstadt.gdi1.bomberman.game.board.BitBoard;
+import de.tu_darmstadt.gdi1.bomberman.game.levels.BombermanGameData;
+
+/**
+ * Die Änderungen am Spielfeld der letzten Ticks, aus denen der GameServer für jeden Client ein
+ * DELTA gegen den Tick baut, den der Client zuletzt bestätigt hat.
+ *
+ * Pro Tick wird nur festgehalten, was sich im Tick geändert hat (siehe
+ * BombermanBoard.getTickDirtyCells()): welche Felder, und welche Ebenen dort danach liegen. Ein DELTA
+ * von Tick a nach Tick b enthält jedes Feld, das sich in einem der Ticks a+1..b geändert hat, einmal,
+ * mit der Maske aus dem letzten dieser Ticks. Die Felder gehen zeilenweise als Läufe über die
+ * Leitung, ruhige Bereiche dazwischen kosten nur ihre Länge:
+ *
+ *   long   Tick, long Basis-Tick, long System.nanoTime() des Servers, short Sieger-ID (0xffff = Unentschieden)
+ *   ...    Spieler wie im STATE
+ *   int    Anzahl Läufe, pro Lauf: varint unveränderte Felder davor, varint Länge, Länge Masken
+ *
+ * Aufwand und Größe hängen damit von der Anzahl geänderter Felder ab, nicht von der Spielfeldgröße.
+ * Alle Clients mit derselben Basis bekommen denselben Puffer, kodiert wird pro Tick also höchstens
+ * einmal pro Basis. Die Puffer sind direkt und schreibgeschützt: der Kanal schreibt sie ohne
+ * Zwischenkopie, und kein Client kann sie einem anderen verändern.
+ *
+ * capture() läuft auf dem Thread des Spiels, alles andere auf dem, der verschickt.
+ */
+public class DeltaStream {
+
+	/**
+	 * Was ein Tick am Spielfeld geändert hat. Unveränderlich, darf also den Thread wechseln.
+	 */
+	public static final class Tick {
+		final long tick;
+		final long createdNanos;
+		final int winner;
+		final byte[] players;
+		// Changed cells in ascending order and their masks after the tick
+		final int[] cells;
+		final byte[] masks;
+		// Complete STATE message of this tick, if one was asked for
+		final ByteBuffer keyframe;
+		// Clients that have neither sent nor dropped a frame of this tick yet
+		int pending = 0;
+
+		Tick (long tick, int winner, byte[] players, int[] cells, byte[] masks, ByteBuffer keyframe) {
+			this.tick = tick;
+			this.createdNanos = System.nanoTime();
+			this.winner = winner;
+			this.players = players;
+			this.cells = cells;
+			this.masks = masks;
+			this.keyframe = keyframe;
+		}
+
+		public long getTick () {
+			return tick;
+		}
+
+		public int getChangedCells () {
+			return cells.length;
+		}
+
+		/**
+		 * @return Die komplette STATE Nachricht, null wenn bei capture() keine verlangt war.
+		 */
+		public ByteBuffer getKeyframe () {
+			return keyframe;
+		}
+	}
+
+	/**
+	 * So viele Ticks reicht ein DELTA höchstens zurück, ältere Clients bekommen einen STATE.
+	 */
+	public static final int DEFAULT_HISTORY = 64;
+
+	private final int cellCount;
+	private final Tick[] history;
+	private int newest = -1;
+	private int count = 0;
+
+	// Merge scratch space, reused for every encode
+	private final long[] union;
+	private final byte[] latest;
+	private ByteBuffer scratch = ByteBuffer.allocate(1024);
+
+	// DELTAs of the newest tick, by distance to their base
+	private final ByteBuffer[] cache;
+
+	public DeltaStream (int width, int height) {
+		this(width, height, DEFAULT_HISTORY);
+	}
+
+	public DeltaStream (int width, int height, int historySize) {
+		this.cellCount = width * height;
+		this.history = new Tick[historySize];
+		this.union = new long[(cellCount + 63) >>> 6];
+		this.latest = new byte[cellCount];
+		this.cache = new ByteBuffer[historySize + 1];
+	}
+
+	/**
+	 * Hält fest, was sich im zuletzt abgeschlossenen Tick geändert hat. Nach jedem tick()
+	 * aufrufen - wer einen Tick auslässt, verliert dessen Änderungen.
+	 * @param data
+	 * @param tick
+	 * @param winner Sieger-ID, 0 solange das Match läuft, StateFrame.DRAW bei Unentschieden.
+	 * @param keyframe true, wenn zusätzlich der komplette Spielstand kodiert werden soll.
+	 */
+	public static Tick capture (BombermanGameData data, long tick, int winner, boolean keyframe) {
+		long[] dirty = data.getBoard().getTickDirtyCells();
+		int n = 0;
+		for (long word : dirty) {
+			n += Long.bitCount(word);
+		}
+
+		BitBoard bits = data.getBitBoard();
+		int width = bits.getWidth();
+		int[] cells = new int[n];
+		byte[] masks = new byte[n];
+		int k = 0;
+		for (int w = 0; w < dirty.length; w++) {
+			for (long word = dirty[w]; word != 0; word &= word - 1) {
+				int i = (w << 6) + Long.numberOfTrailingZeros(word);
+				cells[k] = i;
+				masks[k++] = (byte) bits.getMask(i % width, i / width);
+			}
+		}
+
+		ByteBuffer players = ByteBuffer.allocate(StateFrame.playersSize(data));
+		StateFrame.writePlayers(players, data);
+		return new Tick(tick, winner, players.array(), cells, masks,
+				keyframe ? StateFrame.encode(data, tick, winner) : null);
+	}
+
+	/**
+	 * Nimmt den nächsten Tick auf. Fehlt einer dazwischen, fängt die Geschichte neu an.
+	 * @param tick
+	 */
+	public void add (Tick tick) {
+		if (count > 0 && tick.tick != history[newest].tick + 1)
+			count = 0;
+
+		newest = (newest + 1) % history.length;
+		history[newest] = tick;
+		count = Math.min(count + 1, history.length);
+		Arrays.fill(cache, null);
+	}
+
+	/**
+	 * @return Der neuste Tick, null vor dem ersten add().
+	 */
+	public Tick getNewest () {
+		return count == 0 ? null : history[newest];
+	}
+
+	/**
+	 * @return true, wenn es für einen Client auf diesem Stand ein DELTA zum neusten Tick gibt.
+	 */
+	public boolean canEncode (long baseTick) {
+		if (count == 0)
+			return false;
+		long distance = history[newest].tick - baseTick;
+		return distance >= 0 && distance <= count;
+	}
+
+	/**
+	 * Kodiert die Änderungen vom Basis-Tick bis zum neusten Tick als DELTA Nachricht. Mehrfache
+	 * Aufrufe mit derselben Basis liefern denselben Puffer, bis zum nächsten add().
+	 * @param baseTick Der Tick, den der Client schon hat.
+	 * @return Ein direkter, schreibgeschützter Puffer bereit zum Lesen - position und limit nur auf
+	 * einem duplicate() verändern.
+	 * @throws IllegalArgumentException Wenn der Tick nicht mehr (oder noch nicht) in der Geschichte ist.
+	 */
+	public ByteBuffer encode (long baseTick) {
+		if (!canEncode(baseTick))
+			throw new IllegalArgumentException("No delta from tick " + baseTick);
+
+		Tick to = history[newest];
+		int distance = (int) (to.tick - baseTick);
+		if (cache[distance] == null)
+			cache[distance] = merge(to, baseTick, distance);
+		return cache[distance];
+	}
+
+	private ByteBuffer merge (Tick to, long baseTick, int distance) {
+		// Newest first, so the first mask seen for a cell is its current one
+		int changed = 0;
+		for (int d = 0; d < distance; d++) {
+			Tick t = history[(newest - d + history.length) % history.length];
+			for (int k = 0; k < t.cells.length; k++) {
+				int i = t.cells[k];
+				long bit = 1L << i;
+				if ((union[i >>> 6] & bit) == 0) {
+					union[i >>> 6] |= bit;
+					latest[i] = t.masks[k];
+					changed++;
+				}
+			}
+		}
+
+		// Worst case: every changed cell its own run with two five byte varints
+		int length = 8 + 8 + 8 + 2 + to.players.length + 4 + changed * 11;
+		if (scratch.capacity() < Protocol.STATE_HEADER_SIZE + length)
+			scratch = ByteBuffer.allocate(Integer.highestOneBit(Protocol.STATE_HEADER_SIZE + length) * 2);
+		ByteBuffer out = scratch;
+		out.clear();
+		out.put(Protocol.DELTA);
+		out.putInt(0);
+		out.putLong(to.tick);
+		out.putLong(baseTick);
+		out.putLong(to.createdNanos);
+		out.putShort((short) to.winner);
+		out.put(to.players);
+		int runsAt = out.position();
+		out.putInt(0);
+
+		int runs = 0;
+		int end = 0;
+		for (int w = 0; w < union.length; w++) {
+			long word = union[w];
+			union[w] = 0;
+			while (word != 0) {
+				int start = (w << 6) + Long.numberOfTrailingZeros(word);
+				// Length of the run of set bits from start, possibly across words
+				int i = start;
+				while (i < cellCount && (word & (1L << i)) != 0) {
+					word &= ~(1L << i);
+					i++;
+					if ((i & 63) == 0 && i < cellCount) {
+						w++;
+						word = union[w];
+						union[w] = 0;
+					}
+				}
+				Protocol.putVarInt(out, start - end);
+				Protocol.putVarInt(out, i - start);
+				out.put(latest, start, i - start);
+				end = i;
+				runs++;
+			}
+		}
+
+		out.putInt(runsAt, runs);
+		out.putInt(1, out.position() - Protocol.STATE_HEADER_SIZE);
+		out.flip();
+		return share(out);
+	}
+
+	/**
+	 * @return Eine Kopie des Inhalts als direkter, schreibgeschützter Puffer bereit zum Lesen.
+	 */
+	static ByteBuffer share (ByteBuffer message) {
+		ByteBuffer shared = ByteBuffer.allocateDirect(message.remaining());
+		shared.put(message);
+		shared.flip();
+		return shared.asReadOnlyBuffer();
+	}
+}
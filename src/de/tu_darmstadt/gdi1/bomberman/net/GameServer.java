@@ -0,0 +1,776 @@
+package de.tu_darmstadt.gdi1.bomberman.net;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import de.tu_darmstadt.gdi1.bomberman.game.BombermanGame;
+import de.tu_darmstadt.gdi1.bomberman.game.MatchContext;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Player;
+import de.tu_darmstadt.gdi1.bomberman.game.levels.BombermanGameData;
+import de.tu_darmstadt.gdi1.bomberman.game.levels.BombermanLevelManager;
+import de.tu_darmstadt.gdi1.bomberman.gui.ControllerInputEvent;
+import de.tu_darmstadt.gdi1.framework.exceptions.InvalidLevelDataException;
+import de.tu_darmstadt.gdi1.framework.utils.FileUtility;
+
+/**
+ * Ein autoritativer Bomberman Server: die Spiele laufen headless auf dem Server, die Clients
+ * schicken nur ihre Tastendrücke und bekommen nach jedem Tick den Spielstand (siehe Protocol).
+ *
+ * Der Server hostet ein oder viele Matches (Room). Mit einem Spielstand gebaut, gibt es genau einen
+ * Raum, jede Verbindung landet sofort darin, und ist das Match vorbei, beendet sich der Server.
+ * Mit einem Level gebaut ist er eine Lobby: Clients schicken zuerst JOIN mit einer Raumnummer, der
+ * Raum wird beim ersten JOIN aus dem Level erzeugt und nach seinem Match wieder geschlossen.
+ *
+ * Threads, unabhängig von der Zahl der Räume und Verbindungen:
+ *
+ *   1 Selector-Thread   run(): nimmt Verbindungen an, liest Eingaben, schreibt Spielstände,
+ *                       alles non-blocking für alle Räume
+ *   n Tick-Threads      ein geteilter Pool (setTickThreads(), Standard: ein Thread pro Kern),
+ *                       auf dem die Ticks aller Räume als periodische Aufgaben laufen
+ *
+ * Ein Raum braucht also keinen eigenen Thread - weder eine GameLoop noch einen Controller mit
+ * Eingabe-Thread wie das lokale Spiel. Eingaben landen im InputBuffer des Raums, der genau dafür
+ * gebaut ist: gesammelt auf einem beliebigen Thread, angewendet zu Beginn des nächsten Ticks.
+ * Kommt der Pool nicht hinterher, holt er verpasste Ticks eines Raums direkt hintereinander nach.
+ *
+ * Nach jedem Tick hält der Tick-Thread fest, welche Felder sich geändert haben (DeltaStream), der
+ * Selector-Thread schickt jedem Client die Änderungen seit dem neusten Stand, den der Client
+ * sicher hat: den er bestätigt hat oder der schon komplett an seinen Socket ging (TCP liefert in
+ * Reihenfolge). Clients mit derselben Basis teilen sich einen Puffer, direkt und schreibgeschützt,
+ * der nie pro Client kopiert oder kodiert wird. Wer noch nichts hat oder zu weit zurückliegt,
+ * bekommt einen kompletten Stand, den das Spiel dafür beim nächsten Tick mit kodiert.
+ *
+ * Kommt ein Client nicht hinterher, bekommt er nur den neusten Stand - ältere, noch nicht
+ * angefangene Stände werden für ihn verworfen, pro Client wartet höchstens einer. Zuschauer
+ * bekommen nur das Delta des letzten Ticks, das für alle gleich ist; wer dafür zu weit
+ * zurückliegt, wird auf einen kompletten Stand zurückgesetzt. Pro Tick und Raum wird für Zuschauer
+ * also höchstens ein Delta und ein kompletter Stand kodiert, egal wie viele zuschauen.
+ *
+ * Die ersten Verbindungen eines Raums bekommen die Spieler des Levels, höchstens MAX_PLAYERS, alle
+ * weiteren schauen zu. Das Match startet, sobald minPlayers Spieler verbunden sind.
+ *
+ *   java ...GameServer [Leveldatei] [Port] [--lobby]
+ */
+public class GameServer implements Runnable {
+
+	public static final int MAX_PLAYERS = Player.MAX_PLAYERS;
+
+	/**
+	 * So lange wartet ein Raum nach Spielende höchstens, bis alle Clients den letzten Stand haben.
+	 */
+	private static final long SHUTDOWN_GRACE_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+	static final class Client {
+		final SocketChannel channel;
+		SelectionKey key;
+		final ByteBuffer in = ByteBuffer.allocate(256);
+		// Null until the client joined a room
+		Room room;
+		int playerIdx;
+		// What is being written right now, and the newest frame waiting behind it
+		ByteBuffer out;
+		DeltaStream.Tick outTick;
+		ByteBuffer queued;
+		DeltaStream.Tick queuedTick;
+		// Newest tick the client has confirmed, -1 for none
+		long acked = -1;
+		// Newest tick that went to the socket or is being written right now, -1 for none
+		long sentTick = -1;
+
+		Client (SocketChannel channel) {
+			this.channel = channel;
+		}
+	}
+
+	Logger logger = Logger.getLogger(GameServer.class.getName());
+
+	private final int port;
+	// Lobby: every room starts from this level. Otherwise there is only one room, number 0.
+	private final String level;
+	private final Room singleRoom;
+	private final Map<Integer, Room> rooms = new HashMap<Integer, Room>();
+	private int minPlayers = MAX_PLAYERS;
+	private int maxClients = 1024;
+	private int maxRooms = 1000;
+	private int tickThreads = Runtime.getRuntime().availableProcessors();
+	private long tickNanos = -1;
+
+	private Selector selector;
+	private ServerSocketChannel serverChannel;
+	private ScheduledThreadPoolExecutor ticker;
+	private volatile boolean running = false;
+	private final ArrayList<Client> clients = new ArrayList<Client>();
+
+	// Rooms with published ticks, handed over from the tick threads to the selector thread
+	private final Queue<Room> readyRooms = new ConcurrentLinkedQueue<Room>();
+	// Rooms whose tick crashed and that could not even publish a draw
+	private final Queue<Room> failedRooms = new ConcurrentLinkedQueue<Room>();
+	private int finishingRooms = 0;
+
+	// Statistics. Written by the selector thread only, read by anyone.
+	private volatile int connectedPlayers = 0;
+	private volatile int openRooms = 0;
+	private volatile long roomsFinished = 0;
+	private volatile long framesBroadcast = 0;
+	private volatile long framesSent = 0;
+	private volatile long framesDropped = 0;
+	private volatile long keyframesSent = 0;
+	private volatile long resyncs = 0;
+	private volatile long bytesSent = 0;
+	private volatile long sendLatencyNanosSum = 0;
+	private volatile long maxSendLatencyNanos = 0;
+	private volatile long ticksCompleted = 0;
+	private volatile long tickLatencyNanosSum = 0;
+	private volatile long maxTickLatencyNanos = 0;
+
+	/**
+	 * Ein Server für genau ein Match.
+	 * @param gameData Der Spielstand vor dem ersten Tick.
+	 * @param port 0 für einen beliebigen freien Port, siehe getPort().
+	 */
+	public GameServer (BombermanGameData gameData, int port) {
+		this.port = port;
+		this.level = null;
+		this.singleRoom = new Room(this, 0, gameData);
+		rooms.put(0, singleRoom);
+		openRooms = 1;
+	}
+
+	/**
+	 * Eine Lobby: jeder Raum bekommt einen eigenen Spielstand aus dem Level.
+	 * @param level Die Leveldaten, wie sie BombermanLevelManager.loadLevel(String) versteht.
+	 * @param port 0 für einen beliebigen freien Port, siehe getPort().
+	 * @throws InvalidLevelDataException Wenn sich das Level nicht laden lässt - lieber jetzt als
+	 * beim ersten JOIN.
+	 */
+	public GameServer (String level, int port) throws InvalidLevelDataException {
+		this.port = port;
+		this.level = level;
+		this.singleRoom = null;
+		new BombermanLevelManager(false).loadLevel(level);
+	}
+
+	/**
+	 * @return Das Spiel des einzigen Raums, null für eine Lobby.
+	 */
+	public BombermanGame getGame () {
+		return singleRoom == null ? null : singleRoom.game;
+	}
+
+	/**
+	 * @return true, wenn Clients sich per JOIN einen Raum aussuchen.
+	 */
+	public boolean isLobby () {
+		return singleRoom == null;
+	}
+
+	/**
+	 * @param minPlayers So viele Spieler müssen in einem Raum verbunden sein, bevor sein Match startet.
+	 */
+	public void setMinPlayers (int minPlayers) {
+		this.minPlayers = minPlayers;
+		if (singleRoom != null)
+			singleRoom.minPlayers = Math.min(minPlayers, singleRoom.minPlayers);
+	}
+
+	/**
+	 * @param maxClients Mehr Verbindungen (Spieler und Zuschauer, über alle Räume) werden sofort
+	 * geschlossen.
+	 */
+	public void setMaxClients (int maxClients) {
+		this.maxClients = maxClients;
+	}
+
+	/**
+	 * @param maxRooms Mehr gleichzeitige Räume macht die Lobby nicht auf.
+	 */
+	public void setMaxRooms (int maxRooms) {
+		this.maxRooms = maxRooms;
+	}
+
+	/**
+	 * @param tickThreads Größe des Pools, auf dem die Ticks aller Räume laufen. Vor run() setzen.
+	 */
+	public void setTickThreads (int tickThreads) {
+		if (tickThreads < 1)
+			throw new IllegalArgumentException("At least one tick thread is needed: " + tickThreads);
+		this.tickThreads = tickThreads;
+	}
+
+	public int getTickThreads () {
+		return tickThreads;
+	}
+
+	/**
+	 * @param tickRate Abstand zweier Ticks in Millisekunden für neue Räume der Lobby. Sonst gilt die
+	 * Tickrate aus dem Level.
+	 */
+	public void setTickRate (long tickRate) {
+		MatchContext context = new MatchContext();
+		context.setTickRate(tickRate);
+		this.tickNanos = context.getTickNanos();
+	}
+
+	/**
+	 * @param ticksPerSecond Tickfrequenz neuer Räume der Lobby in Hz, 20 bis 1000. Höhere Frequenzen
+	 * verkürzen die Zeit von der Eingabe bis zum Tick, kosten aber entsprechend mehr CPU pro Raum.
+	 */
+	public void setTicksPerSecond (int ticksPerSecond) {
+		MatchContext context = new MatchContext();
+		context.setTicksPerSecond(ticksPerSecond);
+		this.tickNanos = context.getTickNanos();
+	}
+
+	/**
+	 * Öffnet den Port. Passiert sonst in run(), vorher aufrufen, um bei Port 0 den tatsächlichen
+	 * Port zu erfahren.
+	 * @throws IOException
+	 */
+	public synchronized void bind () throws IOException {
+		if (serverChannel != null)
+			return;
+
+		selector = Selector.open();
+		serverChannel = ServerSocketChannel.open();
+		serverChannel.configureBlocking(false);
+		serverChannel.socket().setReuseAddress(true);
+		serverChannel.socket().bind(new InetSocketAddress(port), 1024);
+		serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+	}
+
+	/**
+	 * @return Der Port, auf dem der Server lauscht, -1 vor bind().
+	 */
+	public int getPort () {
+		return serverChannel == null ? -1 : serverChannel.socket().getLocalPort();
+	}
+
+	public boolean isRunning () {
+		return running;
+	}
+
+	/**
+	 * Beendet den Server. Darf von jedem Thread aufgerufen werden.
+	 */
+	public void stop () {
+		running = false;
+		Selector sel = selector;
+		if (sel != null)
+			sel.wakeup();
+	}
+
+	// Event loop //////////////////////////////////////////////////////////////////////////////////
+
+	@Override
+	public void run () {
+		try {
+			bind();
+			ticker = new ScheduledThreadPoolExecutor(tickThreads, new ThreadFactory() {
+				private final AtomicInteger count = new AtomicInteger();
+
+				public Thread newThread (Runnable r) {
+					Thread thread = new Thread(r, "GameServer-tick-" + count.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			ticker.setRemoveOnCancelPolicy(true);
+			running = true;
+			logger.info("Bomberman server listening on port " + getPort() + (isLobby() ? " (lobby)" : ""));
+
+			while (running) {
+				selector.select(finishingRooms > 0 ? 100 : 0);
+
+				Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+				while (it.hasNext()) {
+					SelectionKey key = it.next();
+					it.remove();
+					if (!key.isValid())
+						continue;
+
+					if (key.isAcceptable()) {
+						accept();
+					} else {
+						Client client = (Client) key.attachment();
+						if (key.isReadable())
+							read(client);
+						if (key.isValid() && key.isWritable())
+							write(client);
+					}
+				}
+
+				for (Room room = readyRooms.poll(); room != null; room = readyRooms.poll()) {
+					room.ready.set(false);
+					DeltaStream.Tick tick = room.drain();
+					if (tick != null && rooms.get(room.id) == room)
+						broadcast(room, tick);
+				}
+
+				for (Room room = failedRooms.poll(); room != null; room = failedRooms.poll()) {
+					if (rooms.get(room.id) == room)
+						closeRoom(room);
+				}
+
+				if (finishingRooms > 0)
+					closeFinishedRooms();
+			}
+		} catch (IOException e) {
+			logger.severe("Bomberman server failed: " + e);
+		} finally {
+			shutdown();
+		}
+	}
+
+	/**
+	 * Meldet, dass der Raum neue Ticks veröffentlicht hat. Läuft auf dem Tick-Thread.
+	 */
+	void ready (Room room) {
+		if (room.ready.compareAndSet(false, true)) {
+			readyRooms.add(room);
+			Selector sel = selector;
+			if (sel != null)
+				sel.wakeup();
+		}
+	}
+
+	/**
+	 * Meldet, dass der Raum abgestürzt ist und keinen Stand mehr veröffentlichen kann. Läuft auf
+	 * dem Tick-Thread.
+	 */
+	void roomFailed (Room room) {
+		failedRooms.add(room);
+		Selector sel = selector;
+		if (sel != null)
+			sel.wakeup();
+	}
+
+	private void accept () throws IOException {
+		SocketChannel channel = serverChannel.accept();
+		if (channel == null)
+			return;
+		if (clients.size() >= maxClients) {
+			channel.close();
+			return;
+		}
+
+		channel.configureBlocking(false);
+		channel.socket().setTcpNoDelay(true);
+		Client client = new Client(channel);
+		client.key = channel.register(selector, SelectionKey.OP_READ, client);
+		clients.add(client);
+
+		if (singleRoom != null)
+			join(client, singleRoom);
+	}
+
+	/**
+	 * Lässt den Client dem Raum beitreten: als Spieler, solange Plätze frei sind, sonst als
+	 * Zuschauer.
+	 */
+	private void join (Client client, Room room) {
+		client.room = room;
+		client.playerIdx = room.takePlayer();
+		room.clients.add(client);
+
+		client.out = ByteBuffer.allocate(Protocol.WELCOME_SIZE);
+		Protocol.writeWelcome(client.out, client.playerIdx, room.gameData.getBoard().getWidth(),
+				room.gameData.getBoard().getHeight(), room.game.getTickNanos());
+		client.out.flip();
+		write(client);
+
+		if (client.playerIdx > 0) {
+			connectedPlayers++;
+			logger.fine("Room " + room.id + ": player " + client.playerIdx + " connected from "
+					+ client.channel.socket().getRemoteSocketAddress());
+			if (!room.isStarted() && room.connectedPlayers >= room.minPlayers)
+				room.start(ticker);
+		}
+	}
+
+	/**
+	 * @return Der Raum mit der Nummer, neu aufgemacht, falls es ihn noch nicht gibt. Null, wenn
+	 * schon zu viele offen sind.
+	 */
+	private Room openRoom (int id) {
+		Room room = rooms.get(id);
+		if (room != null || rooms.size() >= maxRooms)
+			return room;
+
+		BombermanGameData data;
+		try {
+			data = (BombermanGameData) new BombermanLevelManager(false).loadLevel(level);
+		} catch (InvalidLevelDataException e) {
+			// Loaded fine in the constructor
+			throw new IllegalStateException(e);
+		}
+		if (tickNanos > 0)
+			data.getContext().setTickNanos(tickNanos);
+		room = new Room(this, id, data);
+		room.minPlayers = Math.min(minPlayers, room.minPlayers);
+		rooms.put(id, room);
+		openRooms = rooms.size();
+		return room;
+	}
+
+	private void read (Client client) {
+		try {
+			if (client.channel.read(client.in) < 0) {
+				disconnect(client);
+				return;
+			}
+		} catch (IOException e) {
+			disconnect(client);
+			return;
+		}
+
+		ByteBuffer in = client.in;
+		in.flip();
+		while (in.hasRemaining()) {
+			byte type = in.get(in.position());
+			if (type == Protocol.INPUT && in.remaining() >= Protocol.INPUT_SIZE) {
+				in.get();
+				ControllerInputEvent.button button = Protocol.toButton(in.get());
+				ControllerInputEvent.state state = Protocol.toState(in.get());
+				if (client.playerIdx > 0 && button != null && state != null)
+					client.room.gameData.getInputBuffer().offer(client.playerIdx, button, state, System.nanoTime());
+			} else if (type == Protocol.ACK && in.remaining() >= Protocol.ACK_SIZE) {
+				in.get();
+				client.acked = Math.max(client.acked, in.getLong());
+			} else if (type == Protocol.JOIN && in.remaining() >= Protocol.JOIN_SIZE) {
+				in.get();
+				int roomId = in.getInt();
+				if (client.room != null || !isLobby()) {
+					protocolError(client);
+					return;
+				}
+				Room room = openRoom(roomId);
+				if (room == null) {
+					logger.warning("Too many rooms, dropping client " + client.channel.socket().getRemoteSocketAddress());
+					disconnect(client);
+					return;
+				}
+				join(client, room);
+			} else if (type != Protocol.INPUT && type != Protocol.ACK && type != Protocol.JOIN) {
+				protocolError(client);
+				return;
+			} else {
+				break;
+			}
+		}
+		in.compact();
+	}
+
+	private void protocolError (Client client) {
+		logger.warning("Protocol error, dropping client " + client.channel.socket().getRemoteSocketAddress());
+		disconnect(client);
+	}
+
+	private void write (Client client) {
+		try {
+			while (true) {
+				if (client.out == null) {
+					if (client.queued == null)
+						break;
+					client.out = client.queued.duplicate();
+					client.outTick = client.queuedTick;
+					client.sentTick = client.outTick.tick;
+					client.queued = null;
+					client.queuedTick = null;
+				}
+
+				bytesSent += client.channel.write(client.out);
+				if (client.out.hasRemaining()) {
+					client.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+					return;
+				}
+
+				if (client.outTick != null)
+					finish(client.outTick, true);
+				client.out = null;
+				client.outTick = null;
+			}
+			client.key.interestOps(SelectionKey.OP_READ);
+		} catch (IOException e) {
+			disconnect(client);
+		}
+	}
+
+	private void broadcast (Room room, DeltaStream.Tick tick) {
+		framesBroadcast++;
+		if (tick.winner != 0 && room.finishingSince < 0) {
+			room.finishingSince = System.nanoTime();
+			finishingRooms++;
+		}
+
+		for (int i = room.clients.size() - 1; i >= 0; i--) {
+			Client client = room.clients.get(i);
+			long base = Math.max(client.acked, client.sentTick);
+			boolean delta = base >= 0 && room.deltas.canEncode(base);
+			// Spectators only get the delta everybody up to date shares
+			if (delta && client.playerIdx == 0 && base != tick.tick - 1) {
+				delta = false;
+				resyncs++;
+			}
+
+			ByteBuffer frame;
+			if (delta) {
+				frame = room.deltas.encode(base);
+			} else if (tick.keyframe != null) {
+				frame = tick.keyframe;
+				keyframesSent++;
+			} else {
+				// Comes with the next tick
+				room.keyframeWanted.set(true);
+				continue;
+			}
+
+			tick.pending++;
+			if (client.queued != null) {
+				framesDropped++;
+				finish(client.queuedTick, false);
+			}
+			client.queued = frame;
+			client.queuedTick = tick;
+			write(client);
+		}
+	}
+
+	/**
+	 * Ein Client ist mit einem Tick fertig, gesendet oder verworfen.
+	 */
+	private void finish (DeltaStream.Tick tick, boolean sent) {
+		long latency = System.nanoTime() - tick.createdNanos;
+		if (sent) {
+			framesSent++;
+			sendLatencyNanosSum += latency;
+			if (latency > maxSendLatencyNanos)
+				maxSendLatencyNanos = latency;
+		}
+
+		if (--tick.pending == 0) {
+			ticksCompleted++;
+			tickLatencyNanosSum += latency;
+			if (latency > maxTickLatencyNanos)
+				maxTickLatencyNanos = latency;
+		}
+	}
+
+	/**
+	 * Schließt die Räume, deren Match vorbei ist und deren Clients den letzten Stand haben (oder
+	 * die die Gnadenfrist verpasst haben). Ohne Lobby ist damit auch der Server fertig.
+	 */
+	private void closeFinishedRooms () {
+		long now = System.nanoTime();
+		for (Room room : new ArrayList<Room>(rooms.values())) {
+			if (room.finishingSince >= 0
+					&& (allFlushed(room) || now - room.finishingSince > SHUTDOWN_GRACE_NANOS))
+				closeRoom(room);
+		}
+	}
+
+	/**
+	 * Schließt den Raum und trennt seine Clients. Ohne Lobby ist damit auch der Server fertig.
+	 */
+	private void closeRoom (Room room) {
+		rooms.remove(room.id);
+		openRooms = rooms.size();
+		if (room.finishingSince >= 0)
+			finishingRooms--;
+		room.stop();
+		for (Client client : new ArrayList<Client>(room.clients)) {
+			disconnect(client);
+		}
+		roomsFinished++;
+		logger.fine("Room " + room.id + " closed after tick " + room.game.getTickCount());
+		if (room == singleRoom)
+			running = false;
+	}
+
+	private boolean allFlushed (Room room) {
+		for (Client client : room.clients) {
+			if (client.out != null || client.queued != null)
+				return false;
+		}
+		return true;
+	}
+
+	private void disconnect (Client client) {
+		if (!clients.remove(client))
+			return;
+
+		client.key.cancel();
+		try {
+			client.channel.close();
+		} catch (IOException e) {
+			// gone anyway
+		}
+
+		if (client.outTick != null)
+			finish(client.outTick, false);
+		if (client.queuedTick != null)
+			finish(client.queuedTick, false);
+
+		Room room = client.room;
+		if (room != null) {
+			room.clients.remove(client);
+			if (client.playerIdx > 0) {
+				logger.fine("Room " + room.id + ": player " + client.playerIdx + " disconnected");
+				connectedPlayers--;
+				room.releasePlayer(client.playerIdx);
+			}
+			// A lobby room nobody waits in any more would never start and never be closed
+			if (room != singleRoom && room.clients.isEmpty() && !room.isStarted() && rooms.get(room.id) == room) {
+				rooms.remove(room.id);
+				openRooms = rooms.size();
+				room.stop();
+				logger.fine("Room " + room.id + " closed, everybody left before the match started");
+			}
+		}
+	}
+
+	private void shutdown () {
+		running = false;
+		for (Room room : rooms.values()) {
+			room.stop();
+		}
+		if (ticker != null)
+			ticker.shutdownNow();
+
+		for (Client client : new ArrayList<Client>(clients)) {
+			disconnect(client);
+		}
+		try {
+			if (serverChannel != null)
+				serverChannel.close();
+			if (selector != null)
+				selector.close();
+		} catch (IOException e) {
+			logger.warning("Could not close the server socket: " + e);
+		}
+		logger.info("Bomberman server stopped: " + this);
+	}
+
+	// Statistics //////////////////////////////////////////////////////////////////////////////////
+
+	public int getConnectedPlayers () {
+		return connectedPlayers;
+	}
+
+	public int getOpenRooms () {
+		return openRooms;
+	}
+
+	/**
+	 * @return Anzahl der Räume, deren Match vorbei ist und die geschlossen wurden.
+	 */
+	public long getRoomsFinished () {
+		return roomsFinished;
+	}
+
+	/**
+	 * @return Anzahl der Spielstände, die an alle Clients ihres Raums gingen (einer pro Tick und Raum).
+	 */
+	public long getFramesBroadcast () {
+		return framesBroadcast;
+	}
+
+	/**
+	 * @return Anzahl der Spielstände, die ein einzelner Client komplett bekommen hat.
+	 */
+	public long getFramesSent () {
+		return framesSent;
+	}
+
+	/**
+	 * @return Anzahl der Spielstände, die für einen zu langsamen Client verworfen wurden.
+	 */
+	public long getFramesDropped () {
+		return framesDropped;
+	}
+
+	/**
+	 * @return Anzahl der kompletten Spielstände (STATE statt DELTA), die an Clients gingen.
+	 */
+	public long getKeyframesSent () {
+		return keyframesSent;
+	}
+
+	/**
+	 * @return Wie oft ein Zuschauer zu weit zurücklag und statt eines Deltas auf einen kompletten
+	 * Stand zurückgesetzt wurde.
+	 */
+	public long getResyncs () {
+		return resyncs;
+	}
+
+	public long getBytesSent () {
+		return bytesSent;
+	}
+
+	/**
+	 * @return Durchschnittliche Zeit vom Ende eines Ticks, bis sein Stand bei einem Client im
+	 * Socket ist.
+	 */
+	public long getAverageSendLatencyNanos () {
+		long sent = framesSent;
+		return sent == 0 ? 0 : sendLatencyNanosSum / sent;
+	}
+
+	public long getMaxSendLatencyNanos () {
+		return maxSendLatencyNanos;
+	}
+
+	/**
+	 * @return Durchschnittliche Zeit vom Ende eines Ticks, bis alle Clients seines Raums seinen
+	 * Stand haben.
+	 */
+	public long getAverageTickLatencyNanos () {
+		long ticks = ticksCompleted;
+		return ticks == 0 ? 0 : tickLatencyNanosSum / ticks;
+	}
+
+	public long getMaxTickLatencyNanos () {
+		return maxTickLatencyNanos;
+	}
+
+	@Override
+	public String toString () {
+		return "GameServer[port=" + getPort() + ", rooms=" + openRooms + ", finished=" + roomsFinished
+				+ ", clients=" + clients.size() + ", frames=" + framesBroadcast
+				+ ", sent=" + framesSent + ", keyframes=" + keyframesSent + ", resyncs=" + resyncs
+				+ ", dropped=" + framesDropped
+				+ ", bytes=" + bytesSent
+				+ ", avgSend=" + getAverageSendLatencyNanos() / 1000 + "us"
+				+ ", maxSend=" + maxSendLatencyNanos / 1000 + "us"
+				+ ", avgTick=" + getAverageTickLatencyNanos() / 1000 + "us"
+				+ ", maxTick=" + maxTickLatencyNanos / 1000 + "us]";
+	}
+
+	public static void main (String[] args) throws Exception {
+		File level = new File(args.length > 0 ? args[0] : "resource/levels/Simple.lvl");
+		int port = args.length > 1 ? Integer.parseInt(args[1]) : Protocol.DEFAULT_PORT;
+		boolean lobby = args.length > 2 && args[2].equals("--lobby");
+
+		GameServer server = lobby
+				? new GameServer(FileUtility.readFile(level), port)
+				: new GameServer((BombermanGameData) new BombermanLevelManager(false).loadLevel(level), port);
+		server.run();
+	}
+}
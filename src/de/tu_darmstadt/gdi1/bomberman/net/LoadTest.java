@@ -0,0 +1,228 @@
+package de.tu_darmstadt.gdi1.bomberman.net;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import de.tu_darmstadt.gdi1.bomberman.game.MatchRandom;
+import de.tu_darmstadt.gdi1.bomberman.game.levels.BombermanGameData;
+import de.tu_darmstadt.gdi1.bomberman.game.levels.BombermanLevelManager;
+import de.tu_darmstadt.gdi1.bomberman.gui.ControllerInputEvent;
+
+/**
+ * Lasttest für den GameServer über Loopback: startet einen Server und verbindet viele simulierte
+ * Clients, alle auf einem Selector. Die ersten vier steuern die Spieler mit zufälligen Eingaben,
+ * der Rest schaut zu. Gemessen wird, wie lange ein Spielstand vom Ende seines Ticks bis zum
+ * Client braucht - Server und Clients laufen in derselben JVM, System.nanoTime() ist also
+ * vergleichbar. Der Server misst dazu selbst, wie lange das Senden pro Tick dauert. Jeder Client
+ * bestätigt jeden Stand, bekommt also nach dem ersten STATE nur noch DELTAs.
+ *
+ *   java ...LoadTest [Clients] [Sekunden] [Tickdauer ms] [Leveldatei]
+ */
+public class LoadTest {
+
+	private static final ControllerInputEvent.button[] MOVES = {ControllerInputEvent.button.UP,
+			ControllerInputEvent.button.DOWN, ControllerInputEvent.button.LEFT, ControllerInputEvent.button.RIGHT};
+
+	private static final class Connection {
+		final SocketChannel channel;
+		final ByteBuffer in = ByteBuffer.allocate(64 * 1024);
+		final ByteBuffer out = ByteBuffer.allocate(64);
+		// Each client keeps its own copy of the board, deltas apply to it
+		final StateFrame frame = new StateFrame();
+		int playerIdx = -1;
+		ControllerInputEvent.button held = null;
+
+		Connection (SocketChannel channel) {
+			this.channel = channel;
+		}
+	}
+
+	private final MatchRandom random = new MatchRandom(4711);
+	private long[] latencies = new long[4096];
+	private int frames = 0;
+	private long maxTick = 0;
+	private int winner = 0;
+	private int rooms = 0;
+	private int deltas = 0;
+
+	public static void main (String[] args) throws Exception {
+		int clientCount = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+		long tickRate = args.length > 2 ? Long.parseLong(args[2]) : 50;
+		File level = new File(args.length > 3 ? args[3] : "resource/levels/Simple.lvl");
+
+		BombermanGameData data = (BombermanGameData) new BombermanLevelManager(false).loadLevel(level);
+		data.getContext().setTickRate(tickRate);
+		data.setSeed(4711);
+		GameServer server = new GameServer(data, 0);
+		server.setMaxClients(clientCount);
+		server.bind();
+		Thread serverThread = new Thread(server, "GameServer");
+		serverThread.start();
+
+		LoadTest test = new LoadTest();
+		test.run(server.getPort(), clientCount, 0, TimeUnit.SECONDS.toNanos(seconds));
+		server.stop();
+		serverThread.join();
+
+		System.out.println(test.report(clientCount));
+		System.out.println(String.format(Locale.ROOT,
+				"server: %d ticks sent, per client %.1f us avg / %.1f us max, to all clients %.1f us avg / %.1f us max, %d dropped, %d keyframes, %d resyncs, %d kB",
+				server.getFramesBroadcast(), server.getAverageSendLatencyNanos() / 1e3, server.getMaxSendLatencyNanos() / 1e3,
+				server.getAverageTickLatencyNanos() / 1e3, server.getMaxTickLatencyNanos() / 1e3,
+				server.getFramesDropped(), server.getKeyframesSent(), server.getResyncs(), server.getBytesSent() / 1024));
+	}
+
+	/**
+	 * Verbindet die Clients und liest, bis die Zeit um oder das Match entschieden ist.
+	 * @param rooms 0 für einen Server mit nur einem Match, sonst verteilen sich die Clients
+	 * reihum per JOIN auf so viele Räume der Lobby, und es geht weiter, bis alle Räume fertig sind.
+	 */
+	public void run (int port, int clientCount, int rooms, long nanos) throws IOException {
+		Selector selector = Selector.open();
+		InetSocketAddress address = new InetSocketAddress("127.0.0.1", port);
+		this.rooms = rooms;
+		ByteBuffer join = ByteBuffer.allocate(Protocol.JOIN_SIZE);
+		for (int i = 0; i < clientCount; i++) {
+			SocketChannel channel = SocketChannel.open(address);
+			channel.socket().setTcpNoDelay(true);
+			if (rooms > 0) {
+				join.clear();
+				Protocol.writeJoin(join, i % rooms);
+				join.flip();
+				while (join.hasRemaining()) {
+					channel.write(join);
+				}
+			}
+			channel.configureBlocking(false);
+			channel.register(selector, SelectionKey.OP_READ, new Connection(channel));
+		}
+
+		long end = System.nanoTime() + nanos;
+		int open = clientCount;
+		while (open > 0 && (winner == 0 || rooms > 0) && System.nanoTime() < end) {
+			selector.select(100);
+			Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+			while (it.hasNext()) {
+				SelectionKey key = it.next();
+				it.remove();
+				Connection conn = (Connection) key.attachment();
+				try {
+					if (conn.channel.read(conn.in) >= 0) {
+						receive(conn);
+						continue;
+					}
+				} catch (IOException e) {
+					// Closed by the server while answering, e.g. when its room finished
+				}
+				key.cancel();
+				conn.channel.close();
+				open--;
+			}
+		}
+
+		for (SelectionKey key : selector.keys()) {
+			key.channel().close();
+		}
+		selector.close();
+	}
+
+	private void receive (Connection conn) throws IOException {
+		long now = System.nanoTime();
+		ByteBuffer in = conn.in;
+		in.flip();
+		while (in.hasRemaining()) {
+			int start = in.position();
+			byte type = in.get();
+			if (type == Protocol.WELCOME) {
+				if (in.remaining() < Protocol.WELCOME_SIZE - 1) {
+					in.position(start);
+					break;
+				}
+				conn.playerIdx = in.getShort();
+				in.position(start + Protocol.WELCOME_SIZE);
+			} else if (type == Protocol.STATE || type == Protocol.DELTA) {
+				if (in.remaining() < 4 || in.remaining() < 4 + in.getInt(start + 1)) {
+					in.position(start);
+					break;
+				}
+				int length = in.getInt();
+				int next = in.position() + length;
+				StateFrame frame = conn.frame;
+				if (type == Protocol.STATE) {
+					frame.read(in);
+				} else {
+					frame.readDelta(in);
+					deltas++;
+				}
+				in.position(next);
+				record(now - frame.getServerNanos(), frame.getTick());
+				if (frame.isDecided())
+					winner = frame.getWinner();
+				respond(conn);
+			} else {
+				throw new IOException("Unknown message type " + type);
+			}
+		}
+		in.compact();
+	}
+
+	/**
+	 * Bestätigt den Stand. Spieler spielen dazu zufällig: laufen herum, wechseln ab und zu die
+	 * Richtung, legen selten Bomben.
+	 */
+	private void respond (Connection conn) throws IOException {
+		conn.out.clear();
+		Protocol.writeAck(conn.out, conn.frame.getTick());
+		if (conn.playerIdx > 0) {
+			int roll = random.nextInt(40);
+			if (roll == 0) {
+				Protocol.writeInput(conn.out, ControllerInputEvent.button.BOMB, ControllerInputEvent.state.PRESSED);
+				Protocol.writeInput(conn.out, ControllerInputEvent.button.BOMB, ControllerInputEvent.state.RELEASED);
+			} else if (roll < 5) {
+				if (conn.held != null)
+					Protocol.writeInput(conn.out, conn.held, ControllerInputEvent.state.RELEASED);
+				conn.held = MOVES[random.nextInt(MOVES.length)];
+				Protocol.writeInput(conn.out, conn.held, ControllerInputEvent.state.PRESSED);
+			}
+		}
+		conn.out.flip();
+		while (conn.out.hasRemaining()) {
+			conn.channel.write(conn.out);
+		}
+	}
+
+	private void record (long latency, long tick) {
+		if (frames == latencies.length)
+			latencies = Arrays.copyOf(latencies, frames * 2);
+		latencies[frames++] = latency;
+		maxTick = Math.max(maxTick, tick);
+	}
+
+	public String report (int clientCount) {
+		long[] sorted = Arrays.copyOf(latencies, frames);
+		Arrays.sort(sorted);
+		long sum = 0;
+		for (long l : sorted) {
+			sum += l;
+		}
+		return String.format(Locale.ROOT,
+				"%d clients, %d ticks, %d frames received (%d deltas); latency tick to client: avg %.1f us, p50 %.1f us, p99 %.1f us, max %.1f us%s",
+				clientCount, maxTick, frames, deltas, frames == 0 ? 0 : sum / 1e3 / frames, percentile(sorted, 0.5) / 1e3,
+				percentile(sorted, 0.99) / 1e3, frames == 0 ? 0 : sorted[frames - 1] / 1e3,
+				winner != 0 && rooms == 0 ? ", match decided (winner " + winner + ")" : "");
+	}
+
+	private static long percentile (long[] sorted, double p) {
+		return sorted.length == 0 ? 0 : sorted[(int) Math.min(sorted.length - 1, p * sorted.length)];
+	}
+}
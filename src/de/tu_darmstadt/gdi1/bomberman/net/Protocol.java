@@ -0,0 +1,115 @@
+package de.tu_darmstadt.gdi1.bomberman.net;
+
+import java.nio.ByteBuffer;
+
+import de.tu_darmstadt.gdi1.bomberman.gui.ControllerInputEvent;
+
+/**
+ * Das Netzwerkprotokoll zwischen GameServer und Clients. Jede Nachricht beginnt mit einem Byte für
+ * ihren Typ, alle Zahlen big endian wie bei ByteBuffer üblich.
+ *
+ * Server an Client:
+ *
+ *   WELCOME  short Spieler-ID (0 = Zuschauer), short Breite, short Höhe, long Tickdauer (ns)
+ *   STATE    int Länge des Rests, dann der komplette Spielstand eines Ticks (siehe StateFrame)
+ *   DELTA    int Länge des Rests, dann die Felder, die sich seit einem früheren Tick geändert
+ *            haben (siehe DeltaStream)
+ *
+ * Client an Server:
+ *
+ *   INPUT    byte ControllerInputEvent.button, byte ControllerInputEvent.state (je ordinal)
+ *   ACK      long Tick des neusten Spielstands, den der Client hat
+ *   JOIN     int Raumnummer, nur bei einer Lobby und als erste Nachricht - WELCOME kommt dann
+ *            erst danach
+ *
+ * Solange ein Client nichts bestätigt hat, bekommt er komplette Spielstände, danach nur noch
+ * DELTAs gegen den zuletzt bestätigten Tick.
+ *
+ * Eingaben von Zuschauern werden ignoriert, ebenso Buttons, die nicht das Spielfeld betreffen
+ * (MAIN_MENU) - pausieren kann ein Client den Server nicht.
+ */
+public final class Protocol {
+
+	public static final int DEFAULT_PORT = 4711;
+
+	public static final byte WELCOME = 1;
+	public static final byte STATE = 2;
+	public static final byte INPUT = 3;
+	public static final byte DELTA = 4;
+	public static final byte ACK = 5;
+	public static final byte JOIN = 6;
+
+	public static final int WELCOME_SIZE = 1 + 2 + 2 + 2 + 8;
+	public static final int INPUT_SIZE = 1 + 1 + 1;
+	public static final int ACK_SIZE = 1 + 8;
+	public static final int JOIN_SIZE = 1 + 4;
+	/**
+	 * Typ und Länge vor jedem STATE und DELTA.
+	 */
+	public static final int STATE_HEADER_SIZE = 1 + 4;
+
+	private static final ControllerInputEvent.button[] BUTTONS = ControllerInputEvent.button.values();
+	private static final ControllerInputEvent.state[] STATES = ControllerInputEvent.state.values();
+
+	private Protocol () {
+	}
+
+	public static void writeWelcome (ByteBuffer out, int playerIdx, int width, int height, long tickNanos) {
+		out.put(WELCOME);
+		out.putShort((short) playerIdx);
+		out.putShort((short) width);
+		out.putShort((short) height);
+		out.putLong(tickNanos);
+	}
+
+	public static void writeInput (ByteBuffer out, ControllerInputEvent.button button, ControllerInputEvent.state state) {
+		out.put(INPUT);
+		out.put((byte) button.ordinal());
+		out.put((byte) state.ordinal());
+	}
+
+	public static void writeAck (ByteBuffer out, long tick) {
+		out.put(ACK);
+		out.putLong(tick);
+	}
+
+	public static void writeJoin (ByteBuffer out, int room) {
+		out.put(JOIN);
+		out.putInt(room);
+	}
+
+	/**
+	 * Schreibt eine nicht negative Zahl in 7-Bit Gruppen, kleine Zahlen brauchen so nur ein Byte.
+	 */
+	public static void putVarInt (ByteBuffer out, int value) {
+		while ((value & ~0x7f) != 0) {
+			out.put((byte) (value & 0x7f | 0x80));
+			value >>>= 7;
+		}
+		out.put((byte) value);
+	}
+
+	public static int getVarInt (ByteBuffer in) {
+		int value = 0;
+		for (int shift = 0; ; shift += 7) {
+			byte b = in.get();
+			value |= (b & 0x7f) << shift;
+			if (b >= 0)
+				return value;
+		}
+	}
+
+	/**
+	 * @return Der Button zum übertragenen Wert, null bei unbekannten Werten.
+	 */
+	public static ControllerInputEvent.button toButton (int ordinal) {
+		return ordinal >= 0 && ordinal < BUTTONS.length ? BUTTONS[ordinal] : null;
+	}
+
+	/**
+	 * @return Der Zustand zum übertragenen Wert, null bei unbekannten Werten.
+	 */
+	public static ControllerInputEvent.state toState (int ordinal) {
+		return ordinal >= 0 && ordinal < STATES.length ? STATES[ordinal] : null;
+	}
+}
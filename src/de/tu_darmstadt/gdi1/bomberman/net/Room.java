@@ -0,0 +1,207 @@
+package de.tu_darmstadt.gdi1.bomberman.net;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+import de.tu_darmstadt.gdi1.bomberman.game.BombermanGame;
+import de.tu_darmstadt.gdi1.bomberman.game.TickProfiler;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Player;
+import de.tu_darmstadt.gdi1.bomberman.game.levels.BombermanGameData;
+import de.tu_darmstadt.gdi1.bomberman.gui.ControllerInputEvent;
+
+/**
+ * Ein Match auf dem GameServer: Spielstand, Spieler-Plätze und die Clients, die mitspielen oder
+ * zuschauen. Die Ticks laufen als Aufgabe auf dem Tick-Pool des Servers, den sich alle Räume
+ * teilen - ein Raum hat keinen eigenen Thread.
+ *
+ * tick() läuft auf einem Thread des Pools, alles andere auf dem Selector-Thread des Servers.
+ */
+class Room {
+
+	private static final ControllerInputEvent.button[] DIRECTIONS = {ControllerInputEvent.button.UP,
+			ControllerInputEvent.button.DOWN, ControllerInputEvent.button.LEFT, ControllerInputEvent.button.RIGHT};
+
+	Logger logger = Logger.getLogger(Room.class.getName());
+
+	final int id;
+	final BombermanGameData gameData;
+	final BombermanGame game;
+	final DeltaStream deltas;
+	final List<GameServer.Client> clients = new ArrayList<GameServer.Client>();
+
+	private final int[] playerIds;
+	private final boolean[] playerTaken;
+	int minPlayers;
+	int connectedPlayers = 0;
+
+	// Handed over from the tick thread to the selector thread
+	final Queue<DeltaStream.Tick> published = new ConcurrentLinkedQueue<DeltaStream.Tick>();
+	final AtomicBoolean keyframeWanted = new AtomicBoolean(true);
+	// Set while the room waits in the server's ready queue
+	final AtomicBoolean ready = new AtomicBoolean(false);
+	private final GameServer server;
+	private volatile ScheduledFuture<?> ticking;
+	private volatile boolean decided = false;
+
+	// When the last frame went out, -1 while the match runs
+	long finishingSince = -1;
+
+	Room (GameServer server, int id, BombermanGameData gameData) {
+		this.server = server;
+		this.id = id;
+		this.gameData = gameData;
+		this.game = new BombermanGame(gameData);
+		this.deltas = new DeltaStream(gameData.getBoard().getWidth(), gameData.getBoard().getHeight());
+
+		int[] ids = new int[gameData.getPlayers().size()];
+		int n = 0;
+		for (Player pl : gameData.getPlayers()) {
+			ids[n++] = pl.getPlayerID();
+		}
+		Arrays.sort(ids);
+		playerIds = Arrays.copyOf(ids, Math.min(ids.length, GameServer.MAX_PLAYERS));
+		playerTaken = new boolean[playerIds.length];
+		minPlayers = playerIds.length;
+	}
+
+	boolean isStarted () {
+		return ticking != null || decided;
+	}
+
+	// Players /////////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * @return Die ID des nächsten freien Spielers, 0 wenn alle vergeben sind.
+	 */
+	int takePlayer () {
+		for (int i = 0; i < playerIds.length; i++) {
+			if (!playerTaken[i]) {
+				playerTaken[i] = true;
+				connectedPlayers++;
+				return playerIds[i];
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Gibt den Spieler für die nächste Verbindung frei. Er lässt alle Richtungstasten los, damit
+	 * er nicht weiter läuft.
+	 */
+	void releasePlayer (int playerIdx) {
+		for (int i = 0; i < playerIds.length; i++) {
+			if (playerIds[i] == playerIdx) {
+				playerTaken[i] = false;
+				connectedPlayers--;
+			}
+		}
+
+		long now = System.nanoTime();
+		for (ControllerInputEvent.button button : DIRECTIONS) {
+			gameData.getInputBuffer().offer(playerIdx, button, ControllerInputEvent.state.RELEASED, now);
+		}
+	}
+
+	// Ticking /////////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Veröffentlicht den Stand vor dem ersten Tick und lässt die Ticks auf dem Pool laufen.
+	 */
+	void start (ScheduledExecutorService ticker) {
+		logger.info("Room " + id + ": all players there, starting the match");
+		publish();
+		if (decided)
+			return;
+		game.getContext().setProfiler(TickProfiler.fromSystemProperties("room-" + id));
+		long tickNanos = game.getTickNanos();
+		ticking = ticker.scheduleAtFixedRate(new Runnable() {
+			public void run () {
+				tick();
+			}
+		}, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+	}
+
+	void stop () {
+		if (ticking != null)
+			ticking.cancel(false);
+		TickProfiler profiler = game.getContext().getProfiler();
+		if (profiler != null)
+			profiler.unregister();
+	}
+
+	private void tick () {
+		if (decided) {
+			stop();
+			return;
+		}
+		try {
+			game.tick();
+			publish();
+		} catch (RuntimeException e) {
+			// Rethrown, it would silently cancel the task and leave the clients waiting forever
+			logger.severe("Room " + id + " crashed in tick " + game.getTickCount() + ": " + e);
+			fail();
+		}
+	}
+
+	/**
+	 * Beendet das Match nach einem Absturz als Unentschieden, damit der Server den Raum wie nach
+	 * jedem anderen Match schließt. Lässt sich nicht einmal das veröffentlichen, schließt der
+	 * Server ihn sofort.
+	 */
+	private void fail () {
+		decided = true;
+		stop();
+		try {
+			published.add(DeltaStream.capture(gameData, game.getTickCount(), StateFrame.DRAW, true));
+			server.ready(this);
+		} catch (RuntimeException e) {
+			logger.severe("Room " + id + " could not publish a draw: " + e);
+			server.roomFailed(this);
+		}
+	}
+
+	/**
+	 * Hält die Änderungen des Ticks fest und meldet den Raum beim Selector-Thread, der sie
+	 * verschickt. Ist das Match entschieden, war das der letzte Tick.
+	 */
+	private void publish () {
+		int winner = 0;
+		if (gameData.getAlivePlayerCount() <= 1) {
+			winner = StateFrame.DRAW;
+			for (Player pl : gameData.getPlayers()) {
+				if (!gameData.isDead(pl.getPlayerID()))
+					winner = pl.getPlayerID();
+			}
+		}
+
+		published.add(DeltaStream.capture(gameData, game.getTickCount(), winner, keyframeWanted.getAndSet(false)));
+		server.ready(this);
+
+		if (winner != 0) {
+			decided = true;
+			stop();
+		}
+	}
+
+	/**
+	 * Übernimmt alle veröffentlichten Ticks in den DeltaStream.
+	 * @return Der neuste davon, null wenn nichts Neues da war.
+	 */
+	DeltaStream.Tick drain () {
+		DeltaStream.Tick tick = null;
+		for (DeltaStream.Tick t = published.poll(); t != null; t = published.poll()) {
+			deltas.add(t);
+			tick = t;
+		}
+		return tick;
+	}
+}
@@ -0,0 +1,86 @@
+package de.tu_darmstadt.gdi1.bomberman.net;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import de.tu_darmstadt.gdi1.bomberman.game.levels.BombermanGameData;
+import de.tu_darmstadt.gdi1.bomberman.game.levels.BombermanLevelManager;
+import de.tu_darmstadt.gdi1.framework.utils.FileUtility;
+
+/**
+ * Wie viele Räume schafft ein Kern? Startet eine Lobby, füllt jeden Raum per LoadTest mit einem
+ * zufällig spielenden Client pro Spieler des Levels (plus Zuschauern) und misst die CPU-Zeit der Server-Threads, also
+ * des Selector-Threads und des Tick-Pools. Die Clients laufen in derselben JVM, ihre CPU-Zeit
+ * zählt nicht mit.
+ *
+ * Ergebnis ist die CPU-Zeit pro Raum und Tick, inklusive Kodieren und Verschicken, und daraus
+ * die Anzahl Räume, die ein Kern bei der Tickrate durchhält.
+ *
+ *   java ...RoomBenchmark [Räume] [Sekunden] [Tickdauer ms] [Zuschauer pro Raum] [Tick-Threads] [Leveldatei]
+ */
+public class RoomBenchmark {
+
+	public static void main (String[] args) throws Exception {
+		int rooms = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+		int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		long tickRate = args.length > 2 ? Long.parseLong(args[2]) : 50;
+		int spectators = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+		int tickThreads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+		File level = new File(args.length > 5 ? args[5] : "resource/levels/Simple.lvl");
+
+		String levelData = FileUtility.readFile(level);
+		int players = ((BombermanGameData) new BombermanLevelManager(false).loadLevel(levelData)).getPlayers().size();
+		int clients = rooms * (players + spectators);
+		GameServer server = new GameServer(levelData, 0);
+		server.setTickRate(tickRate);
+		server.setTickThreads(tickThreads);
+		server.setMaxRooms(rooms);
+		server.setMaxClients(clients);
+		server.bind();
+		Thread serverThread = new Thread(server, "GameServer");
+		serverThread.start();
+
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		LoadTest test = new LoadTest();
+		long cpuBefore = serverCpuNanos(threads);
+		long start = System.nanoTime();
+		long wall, cpu, roomTicks;
+		try {
+			test.run(server.getPort(), clients, rooms, TimeUnit.SECONDS.toNanos(seconds));
+		} finally {
+			wall = System.nanoTime() - start;
+			cpu = serverCpuNanos(threads) - cpuBefore;
+			roomTicks = server.getFramesBroadcast();
+			server.stop();
+			serverThread.join();
+		}
+
+		double cpuPerRoomTick = roomTicks == 0 ? 0 : (double) cpu / roomTicks;
+		double roomsPerCore = cpuPerRoomTick == 0 ? 0 : TimeUnit.MILLISECONDS.toNanos(tickRate) / cpuPerRoomTick;
+		System.out.println(test.report(clients));
+		System.out.println(String.format(Locale.ROOT,
+				"%d rooms, %d finished, %d room ticks in %.1f s; server threads: %d tick + 1 selector, %.2f cores busy",
+				rooms, server.getRoomsFinished(), roomTicks, wall / 1e9, tickThreads, (double) cpu / wall));
+		System.out.println(String.format(Locale.ROOT,
+				"%.1f us CPU per room tick -> %.0f rooms per core at %d ms ticks",
+				cpuPerRoomTick / 1e3, roomsPerCore, tickRate));
+	}
+
+	/**
+	 * @return Die bisher verbrauchte CPU-Zeit aller Threads des Servers.
+	 */
+	private static long serverCpuNanos (ThreadMXBean threads) {
+		long sum = 0;
+		for (Thread thread : Thread.getAllStackTraces().keySet()) {
+			if (thread.getName().startsWith("GameServer")) {
+				long cpu = threads.getThreadCpuTime(thread.getId());
+				if (cpu > 0)
+					sum += cpu;
+			}
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,208 @@
+package de.tu_darmstadt.gdi1.bomberman.net;
+
+import java.nio.ByteBuffer;
+
+import de.tu_darmstadt.gdi1.bomberman.game.board.BitBoard;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Player;
+import de.tu_darmstadt.gdi1.bomberman.game.levels.BombermanGameData;
+
+/**
+ * Der Spielstand eines Ticks, wie ihn der GameServer an alle Clients schickt. Das Spielfeld geht
+ * als BitBoard-Maske pro Feld über die Leitung (WALL_BIT, STONE_BIT, ...), dazu die Spieler mit
+ * Position und ob sie noch leben:
+ *
+ *   long   Tick
+ *   long   System.nanoTime() des Servers beim Erzeugen, für Latenzmessungen auf demselben Rechner
+ *   short  Sieger-ID, 0 solange das Match läuft, 0xffff bei Unentschieden
+ *   short  Anzahl Spieler, pro Spieler: short ID, byte lebt (0/1), short x, short y
+ *   short  Breite, short Höhe, dann ein byte pro Feld, zeilenweise
+ *
+ * Auf Client-Seite ist ein StateFrame das Abbild des Spielstands: read() übernimmt einen
+ * kompletten Stand, readDelta() danach nur noch die Änderungen aus einer DELTA Nachricht.
+ */
+public class StateFrame {
+
+	public static final int DRAW = 0xffff;
+
+	private long tick;
+	private long serverNanos;
+	private int winner;
+	private int playerCount;
+	private int[] playerIds = new int[4];
+	private boolean[] alive = new boolean[4];
+	private int[] xs = new int[4];
+	private int[] ys = new int[4];
+	private int width;
+	private int height;
+	private byte[] cells = new byte[0];
+
+	// Encoding ////////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Kodiert den aktuellen Spielstand als komplette STATE Nachricht.
+	 * @param data
+	 * @param tick
+	 * @param winner Sieger-ID, 0 solange das Match läuft, DRAW bei Unentschieden.
+	 * @return Ein neuer direkter, schreibgeschützter Puffer, bereit zum Lesen.
+	 */
+	public static ByteBuffer encode (BombermanGameData data, long tick, int winner) {
+		BitBoard bits = data.getBitBoard();
+		int width = bits.getWidth();
+		int height = bits.getHeight();
+		int length = 8 + 8 + 2 + playersSize(data) + 2 + 2 + width * height;
+
+		ByteBuffer out = ByteBuffer.allocateDirect(Protocol.STATE_HEADER_SIZE + length);
+		out.put(Protocol.STATE);
+		out.putInt(length);
+		out.putLong(tick);
+		out.putLong(System.nanoTime());
+		out.putShort((short) winner);
+		writePlayers(out, data);
+		out.putShort((short) width);
+		out.putShort((short) height);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				out.put((byte) bits.getMask(x, y));
+			}
+		}
+		out.flip();
+		return out.asReadOnlyBuffer();
+	}
+
+	/**
+	 * @return So viele Bytes schreibt writePlayers().
+	 */
+	public static int playersSize (BombermanGameData data) {
+		return 2 + data.getPlayers().size() * 7;
+	}
+
+	public static void writePlayers (ByteBuffer out, BombermanGameData data) {
+		out.putShort((short) data.getPlayers().size());
+		for (Player pl : data.getPlayers()) {
+			out.putShort((short) pl.getPlayerID());
+			out.put((byte) (data.isDead(pl.getPlayerID()) ? 0 : 1));
+			out.putShort((short) pl.getX());
+			out.putShort((short) pl.getY());
+		}
+	}
+
+	// Decoding ////////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Liest den Rest einer STATE Nachricht, also alles nach Typ und Länge.
+	 * @param in
+	 */
+	public void read (ByteBuffer in) {
+		tick = in.getLong();
+		serverNanos = in.getLong();
+		winner = in.getShort() & 0xffff;
+		readPlayers(in);
+
+		width = in.getShort();
+		height = in.getShort();
+		if (cells.length != width * height)
+			cells = new byte[width * height];
+		in.get(cells);
+	}
+
+	/**
+	 * Liest den Rest einer DELTA Nachricht und übernimmt die geänderten Felder. Veraltete Deltas,
+	 * die nichts Neues bringen, werden übersprungen.
+	 * @param in
+	 * @return false, wenn der Stand schon neuer war.
+	 * @throws IllegalStateException Wenn der Basis-Tick des Deltas neuer ist als der eigene Stand.
+	 */
+	public boolean readDelta (ByteBuffer in) {
+		long deltaTick = in.getLong();
+		long baseTick = in.getLong();
+		if (baseTick > tick || width == 0)
+			throw new IllegalStateException("Delta from tick " + baseTick + " does not apply to tick " + tick);
+		if (deltaTick <= tick)
+			return false;
+
+		tick = deltaTick;
+		serverNanos = in.getLong();
+		winner = in.getShort() & 0xffff;
+		readPlayers(in);
+
+		int runs = in.getInt();
+		int cell = 0;
+		for (int r = 0; r < runs; r++) {
+			cell += Protocol.getVarInt(in);
+			int length = Protocol.getVarInt(in);
+			in.get(cells, cell, length);
+			cell += length;
+		}
+		return true;
+	}
+
+	private void readPlayers (ByteBuffer in) {
+		playerCount = in.getShort() & 0xffff;
+		if (playerCount > playerIds.length) {
+			playerIds = new int[playerCount];
+			alive = new boolean[playerCount];
+			xs = new int[playerCount];
+			ys = new int[playerCount];
+		}
+		for (int i = 0; i < playerCount; i++) {
+			playerIds[i] = in.getShort() & 0xffff;
+			alive[i] = in.get() != 0;
+			xs[i] = in.getShort();
+			ys[i] = in.getShort();
+		}
+	}
+
+	public long getTick () {
+		return tick;
+	}
+
+	public long getServerNanos () {
+		return serverNanos;
+	}
+
+	/**
+	 * @return Sieger-ID, 0 solange das Match läuft, DRAW bei Unentschieden.
+	 */
+	public int getWinner () {
+		return winner;
+	}
+
+	public boolean isDecided () {
+		return winner != 0;
+	}
+
+	public int getPlayerCount () {
+		return playerCount;
+	}
+
+	public int getPlayerId (int i) {
+		return playerIds[i];
+	}
+
+	public boolean isAlive (int i) {
+		return alive[i];
+	}
+
+	public int getPlayerX (int i) {
+		return xs[i];
+	}
+
+	public int getPlayerY (int i) {
+		return ys[i];
+	}
+
+	public int getWidth () {
+		return width;
+	}
+
+	public int getHeight () {
+		return height;
+	}
+
+	/**
+	 * @return Die Ebenen des Feldes als Bitmaske wie im BitBoard.
+	 */
+	public int getMask (int x, int y) {
+		return cells[y * width + x];
+	}
+}
@@ -0,0 +1,177 @@
+package de.tu_darmstadt.gdi1.bomberman.replay;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ein aufgezeichnetes Match: Seed, Level und die Eingaben aller Spieler Tick für Tick. Weil das
+ * Spiel deterministisch ist, reicht das, um das Match exakt nachzuspielen. Zum Vergleich wird
+ * das Ergebnis (Länge, Sieger, Prüfsumme des Spielfelds) mitgespeichert.
+ *
+ * Dateiformat (big endian, wie DataOutputStream):
+ *
+ *   int     MAGIC "BMRP"
+ *   byte    VERSION
+ *   long    seed
+ *   long    Abstand zweier Ticks in Nanosekunden (Version 1: in Millisekunden)
+ *   int     Länge des Levels in Bytes, dann der Level als UTF-8
+ *   int     Länge der Eingaben in Bytes, dann die Eingaben (siehe ReplayRecorder)
+ *   long    ticks
+ *   int     winner
+ *   long    checksum
+ */
+public class Replay {
+
+	public static final int MAGIC = 0x424d5250;
+	public static final byte VERSION = 2;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final long seed;
+	private final long tickNanos;
+	private final String level;
+	private final byte[] inputs;
+	private final long ticks;
+	private final int winner;
+	private final long checksum;
+
+	/**
+	 * @param seed
+	 * @param tickNanos Abstand zweier Ticks in Nanosekunden. Die Spielregeln rechnen damit
+	 * Millisekunden in Ticks um, das Nachspielen muss also genau diese Tickrate verwenden.
+	 * @param level
+	 * @param inputs
+	 * @param ticks
+	 * @param winner
+	 * @param checksum
+	 */
+	public Replay (long seed, long tickNanos, String level, byte[] inputs, long ticks, int winner, long checksum) {
+		if (level == null)
+			throw new NullPointerException("A replay needs a level.");
+		this.seed = seed;
+		this.tickNanos = tickNanos;
+		this.level = level;
+		this.inputs = inputs;
+		this.ticks = ticks;
+		this.winner = winner;
+		this.checksum = checksum;
+	}
+
+	public long getSeed () {
+		return seed;
+	}
+
+	/**
+	 * @return Abstand zweier Ticks in Nanosekunden, mit dem aufgezeichnet wurde.
+	 */
+	public long getTickNanos () {
+		return tickNanos;
+	}
+
+	/**
+	 * @return Der Level beim Start des Matches, im Format der Leveldateien.
+	 */
+	public String getLevel () {
+		return level;
+	}
+
+	/**
+	 * @return Die kodierten Eingaben. Nicht verändern!
+	 */
+	byte[] getInputs () {
+		return inputs;
+	}
+
+	/**
+	 * @return Wie viele Ticks das Match lief.
+	 */
+	public long getTicks () {
+		return ticks;
+	}
+
+	public int getWinner () {
+		return winner;
+	}
+
+	/**
+	 * @return BitBoard.checksum() des Spielfelds am Ende des Matches.
+	 */
+	public long getChecksum () {
+		return checksum;
+	}
+
+	// Reading and writing /////////////////////////////////////////////////////////////////////////
+
+	public void write (OutputStream out) throws IOException {
+		DataOutputStream data = new DataOutputStream(out);
+		data.writeInt(MAGIC);
+		data.writeByte(VERSION);
+		data.writeLong(seed);
+		data.writeLong(tickNanos);
+		byte[] levelBytes = level.getBytes(UTF8);
+		data.writeInt(levelBytes.length);
+		data.write(levelBytes);
+		data.writeInt(inputs.length);
+		data.write(inputs);
+		data.writeLong(ticks);
+		data.writeInt(winner);
+		data.writeLong(checksum);
+		data.flush();
+	}
+
+	public static Replay read (InputStream in) throws IOException {
+		DataInputStream data = new DataInputStream(in);
+		if (data.readInt() != MAGIC)
+			throw new IOException("Not a replay file.");
+		byte version = data.readByte();
+		if (version != 1 && version != VERSION)
+			throw new IOException("Unsupported replay version: " + version);
+
+		long seed = data.readLong();
+		long tickNanos = data.readLong();
+		if (version == 1)
+			tickNanos = TimeUnit.MILLISECONDS.toNanos(tickNanos);
+		byte[] levelBytes = new byte[data.readInt()];
+		data.readFully(levelBytes);
+		byte[] inputs = new byte[data.readInt()];
+		data.readFully(inputs);
+		long ticks = data.readLong();
+		int winner = data.readInt();
+		long checksum = data.readLong();
+		return new Replay(seed, tickNanos, new String(levelBytes, UTF8), inputs, ticks, winner, checksum);
+	}
+
+	public void save (File file) throws IOException {
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+		try {
+			write(out);
+		} finally {
+			out.close();
+		}
+	}
+
+	public static Replay load (File file) throws IOException {
+		InputStream in = new BufferedInputStream(new FileInputStream(file));
+		try {
+			return read(in);
+		} finally {
+			in.close();
+		}
+	}
+
+	@Override
+	public String toString () {
+		return "Replay[seed=" + seed + ", ticks=" + ticks + ", winner=" + winner
+				+ ", input=" + inputs.length + " bytes]";
+	}
+}
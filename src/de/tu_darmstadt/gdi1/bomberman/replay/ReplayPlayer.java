@@ -0,0 +1,160 @@
+package de.tu_darmstadt.gdi1.bomberman.replay;
+
+import java.io.File;
+import java.util.Locale;
+
+import de.tu_darmstadt.gdi1.bomberman.game.BombermanGame;
+import de.tu_darmstadt.gdi1.bomberman.game.IInputSource;
+import de.tu_darmstadt.gdi1.bomberman.game.InputBuffer;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Player;
+import de.tu_darmstadt.gdi1.bomberman.game.levels.BombermanGameData;
+import de.tu_darmstadt.gdi1.bomberman.game.levels.BombermanLevelManager;
+import de.tu_darmstadt.gdi1.bomberman.simulation.HeadlessSimulation;
+import de.tu_darmstadt.gdi1.bomberman.simulation.SimulationResult;
+import de.tu_darmstadt.gdi1.framework.exceptions.InvalidLevelDataException;
+
+/**
+ * Spielt ein Replay ab, indem es die aufgezeichneten Eingaben Tick für Tick in das Spiel
+ * einspeist. Headless läuft das so schnell wie möglich (play()), in der GUI hängt man den Player
+ * als Eingabequelle an ein normal laufendes Spiel und bekommt das Match in Echtzeit.
+ *
+ * Als Programm gestartet spielt die Klasse ein Replay mehrmals headless ab, prüft das Ergebnis
+ * gegen die Aufnahme und misst die Ticks pro Sekunde - echte Matches als Last für
+ * Performance-Vergleiche von BombermanGame.tick():
+ *
+ *   java ...ReplayPlayer Replaydatei [Wiederholungen]
+ */
+public class ReplayPlayer implements IInputSource {
+
+	private static final Player.direction[] DIRECTIONS = Player.direction.values();
+
+	private final Replay replay;
+	private final byte[] inputs;
+	private int position = 0;
+
+	// The next entry to be fed, nextCount == 0 when the recording is over
+	private long nextTick = 0;
+	private int nextCount = 0;
+
+	public ReplayPlayer (Replay replay) {
+		this.replay = replay;
+		this.inputs = replay.getInputs();
+		readEntryHeader();
+	}
+
+	public Replay getReplay () {
+		return replay;
+	}
+
+	/**
+	 * @return Der Spielstand, mit dem das aufgezeichnete Match begann, samt dessen Tickrate.
+	 * @throws InvalidLevelDataException
+	 */
+	public BombermanGameData createGameData () throws InvalidLevelDataException {
+		BombermanLevelManager levelManager = new BombermanLevelManager(false);
+		BombermanGameData data = (BombermanGameData) levelManager.loadLevel(replay.getLevel());
+		data.setSeed(replay.getSeed());
+		data.getContext().setTickNanos(replay.getTickNanos());
+		return data;
+	}
+
+	// IInputSource ////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Eingaben zu Ticks, die schon vorbei sind, werden übersprungen - ein frischer Player steigt
+	 * also auch in ein Spiel ein, das per SnapshotRing auf einen späteren Tick gesetzt wurde.
+	 */
+	@Override
+	public void supplyInput (long tick, InputBuffer buffer) {
+		while (nextCount > 0 && nextTick <= tick) {
+			for (int i = 0; i < nextCount; i++) {
+				int playerIdx = (int) readVarLong();
+				int flags = inputs[position++] & 0xff;
+				int released = inputs[position++] & 0xff;
+				if (nextTick < tick)
+					continue;
+				buffer.offer(new InputBuffer.PlayerInput(playerIdx,
+						DIRECTIONS[flags & 0x7], DIRECTIONS[released & 0x7], DIRECTIONS[(flags >>> 3) & 0x7],
+						(flags & 1 << 6) != 0, (flags & 1 << 7) != 0));
+			}
+			readEntryHeader();
+		}
+	}
+
+	/**
+	 * @return true, wenn alle Eingaben eingespeist wurden.
+	 */
+	public boolean isDone () {
+		return nextCount == 0;
+	}
+
+	private void readEntryHeader () {
+		nextTick += readVarLong();
+		nextCount = (int) readVarLong();
+	}
+
+	private long readVarLong () {
+		long value = 0;
+		for (int shift = 0; ; shift += 7) {
+			byte b = inputs[position++];
+			value |= (long) (b & 0x7f) << shift;
+			if (b >= 0)
+				return value;
+		}
+	}
+
+	// Headless playback ///////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Spielt das Replay headless und so schnell wie möglich ab.
+	 * @param replay
+	 * @return Das Ergebnis des nachgespielten Matches.
+	 * @throws InvalidLevelDataException
+	 */
+	public static SimulationResult play (Replay replay) throws InvalidLevelDataException {
+		ReplayPlayer player = new ReplayPlayer(replay);
+		BombermanGameData data = player.createGameData();
+		HeadlessSimulation sim = new HeadlessSimulation(data);
+		BombermanGame game = sim.getGame();
+		game.setInputSource(player);
+
+		long start = System.nanoTime();
+		for (long i = 0; i < replay.getTicks(); i++) {
+			game.tick();
+		}
+		long nanos = System.nanoTime() - start;
+
+		return new SimulationResult(game.getTickCount(), nanos, sim.getWinner(), sim.isDecided(),
+				sim.getKills(), data.getBitBoard().checksum());
+	}
+
+	public static void main (String[] args) throws Exception {
+		if (args.length < 1) {
+			System.err.println("Usage: ReplayPlayer <replay file> [repetitions]");
+			return;
+		}
+		Replay replay = Replay.load(new File(args[0]));
+		int repetitions = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		System.out.println(replay);
+
+		SimulationResult result = play(replay);
+		boolean identical = result.getTicks() == replay.getTicks() && result.getWinner() == replay.getWinner()
+				&& result.getChecksum() == replay.getChecksum();
+		System.out.println(identical ? "Replay matches the recording."
+				: "Replay DIFFERS from the recording: " + result);
+
+		// Warm up the JIT before measuring
+		for (int i = 0; i < repetitions / 4 + 1; i++) {
+			play(replay);
+		}
+
+		long ticks = 0, nanos = 0;
+		for (int i = 0; i < repetitions; i++) {
+			result = play(replay);
+			ticks += result.getTicks();
+			nanos += result.getNanos();
+		}
+		System.out.println(String.format(Locale.ROOT, "%d x %d ticks, %.1f ms, throughput: %.0f ticks/s",
+				repetitions, replay.getTicks(), nanos / 1e6, ticks * 1e9 / nanos));
+	}
+}
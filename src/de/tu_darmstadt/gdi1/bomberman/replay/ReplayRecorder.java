@@ -0,0 +1,148 @@
+package de.tu_darmstadt.gdi1.bomberman.replay;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.List;
+
+import de.tu_darmstadt.gdi1.bomberman.game.BombermanGame;
+import de.tu_darmstadt.gdi1.bomberman.game.IInputRecorder;
+import de.tu_darmstadt.gdi1.bomberman.game.InputBuffer;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Player;
+import de.tu_darmstadt.gdi1.bomberman.game.levels.BombermanGameData;
+import de.tu_darmstadt.gdi1.bomberman.game.levels.BombermanLevelManager;
+import de.tu_darmstadt.gdi1.bomberman.simulation.HeadlessSimulation;
+import de.tu_darmstadt.gdi1.framework.exceptions.InvalidLevelDataException;
+
+/**
+ * Zeichnet ein Match auf. Muss vor dem ersten Tick angelegt werden, der Level wird beim Anlegen
+ * gespeichert:
+ *
+ *   ReplayRecorder recorder = new ReplayRecorder(gameData);
+ *   game.setInputRecorder(recorder);
+ *   ... spielen ...
+ *   Replay replay = recorder.finish(game.getTickCount());
+ *
+ * Die Eingaben werden kompakt kodiert, nur Ticks mit Eingaben kosten Platz:
+ *
+ *   varint  Ticks seit dem letzten Eintrag (der erste zählt ab 0)
+ *   varint  Anzahl Spieler mit Eingaben, 0 beendet die Liste
+ *   pro Spieler:
+ *     varint  Spieler-ID
+ *     byte    gehaltene Richtung | angetippte Richtung << 3 | Bombe << 6 | Mighty Blow << 7
+ *     byte    losgelassene Richtung
+ *
+ * Richtungen als Player.direction.ordinal().
+ *
+ * Als Programm gestartet zeichnet die Klasse ein Match mit RandomBots auf:
+ *
+ *   java ...ReplayRecorder Leveldatei Seed Replaydatei
+ */
+public class ReplayRecorder implements IInputRecorder {
+
+	private final BombermanGameData gameData;
+	private final long seed;
+	private final long tickNanos;
+	private final String level;
+
+	private final ByteArrayOutputStream inputs = new ByteArrayOutputStream(1024);
+	private long lastTick = 0;
+	private Replay replay;
+
+	/**
+	 * Die Tickrate wird aus dem MatchContext des Spielstands übernommen.
+	 * @param gameData Der Spielstand vor dem ersten Tick.
+	 * @throws InvalidLevelDataException Wenn sich das Spielfeld nicht als Level speichern lässt.
+	 */
+	public ReplayRecorder (BombermanGameData gameData) throws InvalidLevelDataException {
+		this.gameData = gameData;
+		this.seed = gameData.getSeed();
+		this.tickNanos = gameData.getContext().getTickNanos();
+		this.level = new BombermanLevelManager(false).saveBoardAsLevel(gameData);
+	}
+
+	@Override
+	public void recordInput (long tick, List<InputBuffer.PlayerInput> playerInputs) {
+		if (replay != null)
+			throw new IllegalStateException("Recording already finished.");
+
+		writeVarLong(tick - lastTick);
+		lastTick = tick;
+		writeVarLong(playerInputs.size());
+		for (InputBuffer.PlayerInput in : playerInputs) {
+			writeVarLong(in.getPlayerIndex());
+			inputs.write(in.getDirection().ordinal()
+					| in.getTapped().ordinal() << 3
+					| (in.isBomb() ? 1 << 6 : 0)
+					| (in.isMightyBlow() ? 1 << 7 : 0));
+			inputs.write(in.getReleased().ordinal());
+		}
+	}
+
+	/**
+	 * Beendet die Aufnahme. Weitere Aufrufe liefern dasselbe Replay.
+	 * @param ticks Wie viele Ticks das Match lief.
+	 * @return
+	 */
+	public Replay finish (long ticks) {
+		if (replay == null) {
+			writeVarLong(0);
+			writeVarLong(0);
+			replay = new Replay(seed, tickNanos, level, inputs.toByteArray(), ticks,
+					winnerOf(gameData), gameData.getBitBoard().checksum());
+		}
+		return replay;
+	}
+
+	public boolean isFinished () {
+		return replay != null;
+	}
+
+	/**
+	 * Lässt eine Simulation laufen und zeichnet sie dabei auf.
+	 * @param sim Eine Simulation vor dem ersten Tick.
+	 * @param maxTicks
+	 * @return
+	 * @throws InvalidLevelDataException
+	 */
+	public static Replay record (HeadlessSimulation sim, long maxTicks) throws InvalidLevelDataException {
+		BombermanGame game = sim.getGame();
+		ReplayRecorder recorder = new ReplayRecorder(game.getBombermanGameData());
+		game.setInputRecorder(recorder);
+		sim.run(maxTicks);
+		game.setInputRecorder(null);
+		return recorder.finish(game.getTickCount());
+	}
+
+	public static void main (String[] args) throws Exception {
+		if (args.length < 3) {
+			System.err.println("Usage: ReplayRecorder <level file> <seed> <replay file>");
+			return;
+		}
+		HeadlessSimulation sim = HeadlessSimulation.fromLevelFile(new File(args[0]));
+		sim.setSeed(Long.parseLong(args[1]));
+		Replay replay = record(sim, HeadlessSimulation.DEFAULT_MAX_TICKS);
+		replay.save(new File(args[2]));
+		System.out.println("Saved " + replay);
+	}
+
+	/**
+	 * @return Die ID des einzigen Überlebenden, sonst 0.
+	 */
+	static int winnerOf (BombermanGameData gameData) {
+		if (gameData.getAlivePlayerCount() != 1)
+			return 0;
+		for (Player pl : gameData.getPlayers()) {
+			if (!gameData.isDead(pl.getPlayerID()))
+				return pl.getPlayerID();
+		}
+		return 0;
+	}
+
+	private void writeVarLong (long value) {
+		while ((value & ~0x7fL) != 0) {
+			inputs.write((int) ((value & 0x7f) | 0x80));
+			value >>>= 7;
+		}
+		inputs.write((int) value);
+	}
+}
@@ -0,0 +1,130 @@
+package de.tu_darmstadt.gdi1.bomberman.simulation;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import de.tu_darmstadt.gdi1.bomberman.game.board.BombermanBoard;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Bomb;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Explosion;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Floor;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.GameElement;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Player;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Wall;
+import de.tu_darmstadt.gdi1.bomberman.game.levels.BombermanGameData;
+
+/**
+ * Misst Kettenreaktionen im schlimmsten Fall: jedes freie Feld trägt eine Superbombe (Radius 9),
+ * eine Bombe in der Ecke zündet alle anderen. Ausgegeben werden Zeit und Speicher pro Kette.
+ *
+ *   java ...ChainReactionBenchmark [Kantenlänge...]
+ */
+public class ChainReactionBenchmark {
+
+	private static final int RADIUS = 9;
+
+	/**
+	 * Baut ein quadratisches Feld mit Rand und einem Spieler pro Ecke, alles andere voller Bomben.
+	 * @param size Kantenlänge inklusive Rand.
+	 * @param pillars Ob wie im normalen Level jedes zweite Feld eine Säule ist.
+	 * @return
+	 */
+	public static BombermanGameData buildBombCarpet (int size, boolean pillars) {
+		BombermanBoard board = new BombermanBoard(size, size);
+		Player owner = new Player(1);
+		owner.setBombRadius(RADIUS);
+
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				List<GameElement> field = board.getElements(x, y);
+				field.add(new Floor());
+
+				boolean border = x == 0 || y == 0 || x == size - 1 || y == size - 1;
+				if (border || (pillars && x % 2 == 0 && y % 2 == 0)) {
+					field.add(new Wall());
+				}
+				else if (x == 1 && y == 1) {
+					field.add(owner);
+				}
+				else if (x == size - 2 && y == size - 2) {
+					field.add(new Player(2));
+				}
+				else if (x == 1 && y == size - 2) {
+					field.add(new Player(3));
+				}
+				else if (x == size - 2 && y == 1) {
+					field.add(new Player(4));
+				}
+				else {
+					field.add(new Bomb(owner, 60));
+				}
+			}
+		}
+
+		BombermanGameData data = new BombermanGameData(board);
+		data.getContext().setHeadless(true);
+		return data;
+	}
+
+	/**
+	 * Zündet die erste Bombe, der Rest folgt von selbst.
+	 * @return Anzahl der Explosionsfelder.
+	 */
+	public static int detonate (BombermanGameData data, List<Explosion> explosions) {
+		explosions.clear();
+		Bomb first = data.getBombs().iterator().next();
+		first.explode(0, explosions);
+		return explosions.size();
+	}
+
+	public static void main (String[] args) {
+		int[] sizes = {15, 41, 81};
+		if (args.length > 0) {
+			sizes = new int[args.length];
+			for (int i = 0; i < args.length; i++) {
+				sizes[i] = Integer.parseInt(args[i]);
+			}
+		}
+
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		boolean allocation = threads instanceof com.sun.management.ThreadMXBean;
+		List<Explosion> explosions = new ArrayList<Explosion>();
+
+		System.out.println("size pillars  bombs  explosions   us/chain   bytes/chain  bytes/explosion");
+		for (int size : sizes) {
+			for (boolean pillars : new boolean[] {false, true}) {
+				int rounds = Math.max(5, 200000 / (size * size));
+
+				// Warm up the JIT before measuring
+				for (int i = 0; i < rounds; i++) {
+					detonate(buildBombCarpet(size, pillars), explosions);
+				}
+
+				long nanos = 0, bytes = 0;
+				int bombs = 0, fields = 0;
+				for (int i = 0; i < rounds; i++) {
+					BombermanGameData data = buildBombCarpet(size, pillars);
+					bombs = data.getBombs().size();
+
+					long allocatedBefore = allocation ? allocatedBytes(threads) : 0;
+					long start = System.nanoTime();
+					fields = detonate(data, explosions);
+					nanos += System.nanoTime() - start;
+					if (allocation)
+						bytes += allocatedBytes(threads) - allocatedBefore;
+				}
+
+				System.out.println(String.format(Locale.ROOT, "%4d %7s %6d %11d %10.1f %13s %16s",
+						size, pillars, bombs, fields, nanos / 1e3 / rounds,
+						allocation ? String.valueOf(bytes / rounds) : "n/a",
+						allocation ? String.valueOf(bytes / rounds / Math.max(fields, 1)) : "n/a"));
+			}
+		}
+	}
+
+	private static long allocatedBytes (ThreadMXBean threads) {
+		return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+}
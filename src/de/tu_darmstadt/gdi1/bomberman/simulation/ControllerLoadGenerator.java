@@ -0,0 +1,424 @@
+package de.tu_darmstadt.gdi1.bomberman.simulation;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import de.tu_darmstadt.gdi1.bomberman.BombermanController;
+import de.tu_darmstadt.gdi1.bomberman.game.BombermanGame;
+import de.tu_darmstadt.gdi1.bomberman.game.GameLoop;
+import de.tu_darmstadt.gdi1.bomberman.game.InputBuffer;
+import de.tu_darmstadt.gdi1.bomberman.game.MatchRandom;
+import de.tu_darmstadt.gdi1.bomberman.game.TickProfiler;
+import de.tu_darmstadt.gdi1.bomberman.game.levels.BombermanGameData;
+import de.tu_darmstadt.gdi1.bomberman.gui.ControllerEvent;
+import de.tu_darmstadt.gdi1.bomberman.gui.ControllerInputEvent;
+import de.tu_darmstadt.gdi1.framework.exceptions.InvalidLevelDataException;
+
+/**
+ * Lastgenerator für die echte Spielschleife: vier Skripte drücken über
+ * BombermanController.handleEvent() Tasten wie Spieler an der Tastatur - Tastenwiederholung,
+ * Bomben im Dauerfeuer, schnelle Richtungswechsel. Dazwischen arbeiten der Event-Thread des
+ * AbstractControllers und die GameLoop des BombermanGame genau wie im richtigen Spiel, mit oder
+ * ohne GUI.
+ *
+ * Jede Sekunde und am Ende wird ausgegeben, wie viele Ticks zu spät kamen oder verworfen wurden,
+ * wie voll die Eventqueue war und wie lange ein Tastendruck bis zu dem Tick gebraucht hat, der ihn
+ * anwendet (gemessen vom InputBuffer, die Zeit in der Eventqueue also eingeschlossen). Ist ein
+ * Match entschieden, wird es wie vom Spieler neu gestartet.
+ *
+ *   java ...ControllerLoadGenerator [--gui] [--seconds N] [--seed N] [--profile human|superhuman]
+ *
+ * Ohne --profile laufen beide nacheinander. Die Skripte sind geseedet, die Threads natürlich nicht:
+ * zwei Läufe drücken dieselben Tasten in denselben Abständen, aber nicht unbedingt im selben Tick.
+ */
+public class ControllerLoadGenerator {
+
+	public static final int PLAYERS = 4;
+
+	/**
+	 * Wie schnell und was gedrückt wird. Die Prozente wählen die nächste Aktion, im Rest der Fälle
+	 * wiederholt die Tastatur die gehaltene Richtung.
+	 */
+	public enum Profile {
+		/** Eine Aktion alle 30 bis 250 ms, so schnell wie die Tastenwiederholung */
+		HUMAN (30000, 250000, 10, 25, 10),
+		/** Eine Aktion alle 0,1 bis 2 ms, vor allem Bomben und Richtungswechsel */
+		SUPERHUMAN (100, 2000, 30, 40, 5);
+
+		final long minGapNanos;
+		final long maxGapNanos;
+		final int bombPercent;
+		final int turnPercent;
+		final int releasePercent;
+
+		Profile (long minGapMicros, long maxGapMicros, int bombPercent, int turnPercent, int releasePercent) {
+			this.minGapNanos = TimeUnit.MICROSECONDS.toNanos(minGapMicros);
+			this.maxGapNanos = TimeUnit.MICROSECONDS.toNanos(maxGapMicros);
+			this.bombPercent = bombPercent;
+			this.turnPercent = turnPercent;
+			this.releasePercent = releasePercent;
+		}
+	}
+
+	private final LoadController controller;
+	private final TickProfiler profiler = new TickProfiler("load");
+	private final PlayerScript[] scripts = new PlayerScript[PLAYERS];
+
+	// Statistics of the current run. Everything is sampled by the driver thread.
+	private long eventsSent;
+	private long queueSamples;
+	private long queueDepthSum;
+	private int maxQueueDepth;
+	private int restarts;
+	private long maxLagNanos;
+	private long[] loopBase = new long[4];
+	// Input latency of the matches of this run that are already over
+	private long pastPresses;
+	private long pastLatencyNanos;
+	private long pastMaxLatencyNanos;
+	private BombermanGameData currentData;
+	private BombermanGameData restartedData;
+
+	/**
+	 * Startet einen Controller samt Spielschleife, aber noch ohne Eingaben.
+	 * @param seed Seed der Matches und der Skripte.
+	 * @param gui Mit GUI wie Main, sonst headless ohne Fenster und Sound.
+	 */
+	public ControllerLoadGenerator (long seed, boolean gui) throws Exception {
+		controller = gui ? new LoadController(seed) : new LoadController(seed, profiler);
+		controller.awaitGame();
+		controller.getGame().getContext().setProfiler(profiler);
+		profiler.register();
+
+		for (int i = 0; i < PLAYERS; i++) {
+			scripts[i] = new PlayerScript(i + 1, new MatchRandom(MatchRandom.derive(seed, i)));
+		}
+	}
+
+	// Driving /////////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Drückt Tasten mit dem gegebenen Tempo, bis die Zeit um ist.
+	 * @param profile
+	 * @param nanos Laufzeit.
+	 * @param reportNanos Abstand der Zwischenberichte, 0 für keine.
+	 */
+	public void run (Profile profile, long nanos, long reportNanos) {
+		startStatistics();
+
+		long start = System.nanoTime();
+		long end = start + nanos;
+		long nextReport = reportNanos > 0 ? start + reportNanos : Long.MAX_VALUE;
+		for (PlayerScript script : scripts) {
+			script.nextNanos = start + script.gap(profile);
+		}
+
+		long now;
+		while ((now = System.nanoTime()) < end) {
+			PlayerScript next = scripts[0];
+			for (PlayerScript script : scripts) {
+				if (script.nextNanos < next.nextNanos)
+					next = script;
+			}
+			if (next.nextNanos > now) {
+				LockSupport.parkNanos(this, Math.min(next.nextNanos, end) - now);
+				continue;
+			}
+
+			eventsSent += next.step(controller, profile);
+			sample();
+
+			if (now >= nextReport) {
+				System.out.println(String.format(Locale.ROOT, "%4ds  %s",
+						TimeUnit.NANOSECONDS.toSeconds(now - start + reportNanos / 2), this));
+				nextReport += reportNanos;
+			}
+		}
+
+		// Input still in the queue is part of this run
+		while (controller.getPendingEventCount() > 0) {
+			LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(1));
+		}
+		LockSupport.parkNanos(this, getLoop().getTickNanos() * 2);
+		sample();
+	}
+
+	/**
+	 * Beendet Spielschleife und Event-Thread über den normalen Weg, ein USER_QUIT Event.
+	 */
+	public void close () throws InterruptedException {
+		controller.quit();
+		profiler.unregister();
+	}
+
+	private void startStatistics () {
+		eventsSent = 0;
+		queueSamples = 0;
+		queueDepthSum = 0;
+		maxQueueDepth = 0;
+		restarts = 0;
+		maxLagNanos = 0;
+		pastPresses = 0;
+		pastLatencyNanos = 0;
+		pastMaxLatencyNanos = 0;
+		restartedData = null;
+
+		GameLoop loop = getLoop();
+		loopBase = new long[] {loop.getTicksExecuted(), loop.getTicksLate(), loop.getTicksDropped(), loop.getOverruns()};
+		currentData = controller.getGame().getBombermanGameData();
+		currentData.getInputBuffer().resetStatistics();
+		profiler.reset();
+	}
+
+	/**
+	 * Misst die Queue, sammelt die Latenzen beendeter Matches ein und startet entschiedene neu.
+	 */
+	private void sample () {
+		int depth = controller.getPendingEventCount();
+		queueSamples++;
+		queueDepthSum += depth;
+		if (depth > maxQueueDepth)
+			maxQueueDepth = depth;
+
+		long lag = getLoop().getLastLagNanos();
+		if (lag > maxLagNanos)
+			maxLagNanos = lag;
+
+		BombermanGameData data = controller.getGame().getBombermanGameData();
+		if (data != currentData) {
+			InputBuffer done = currentData.getInputBuffer();
+			pastPresses += done.getAppliedPresses();
+			pastLatencyNanos += done.getAverageLatencyNanos() * done.getAppliedPresses();
+			pastMaxLatencyNanos = Math.max(pastMaxLatencyNanos, done.getMaxLatencyNanos());
+			currentData = data;
+		}
+		if (data != restartedData && data.getAlivePlayerCount() <= 1) {
+			controller.handleEvent(new ControllerEvent(ControllerEvent.type.RESTART_GAME));
+			restartedData = data;
+			restarts++;
+		}
+	}
+
+	private GameLoop getLoop () {
+		return controller.getGame().getTickLoop();
+	}
+
+	// Results /////////////////////////////////////////////////////////////////////////////////////
+
+	public long getEventsSent () {
+		return eventsSent;
+	}
+
+	public long getTicksExecuted () {
+		return getLoop().getTicksExecuted() - loopBase[0];
+	}
+
+	public long getTicksLate () {
+		return getLoop().getTicksLate() - loopBase[1];
+	}
+
+	public long getTicksDropped () {
+		return getLoop().getTicksDropped() - loopBase[2];
+	}
+
+	public long getOverruns () {
+		return getLoop().getOverruns() - loopBase[3];
+	}
+
+	public long getMaxLagNanos () {
+		return maxLagNanos;
+	}
+
+	public int getMaxQueueDepth () {
+		return maxQueueDepth;
+	}
+
+	public double getAverageQueueDepth () {
+		return queueSamples == 0 ? 0 : (double) queueDepthSum / queueSamples;
+	}
+
+	/**
+	 * @return Wie viele Tastendrücke ein Tick angewendet hat, über alle Matches dieses Laufs.
+	 */
+	public long getAppliedPresses () {
+		return pastPresses + currentData.getInputBuffer().getAppliedPresses();
+	}
+
+	public long getAverageLatencyNanos () {
+		InputBuffer buffer = currentData.getInputBuffer();
+		long presses = pastPresses + buffer.getAppliedPresses();
+		long sum = pastLatencyNanos + buffer.getAverageLatencyNanos() * buffer.getAppliedPresses();
+		return presses == 0 ? 0 : sum / presses;
+	}
+
+	public long getMaxLatencyNanos () {
+		return Math.max(pastMaxLatencyNanos, currentData.getInputBuffer().getMaxLatencyNanos());
+	}
+
+	public int getRestarts () {
+		return restarts;
+	}
+
+	public TickProfiler getProfiler () {
+		return profiler;
+	}
+
+	@Override
+	public String toString () {
+		return String.format(Locale.ROOT,
+				"ticks %d late %d dropped %d overruns %d maxLag %dus | events %d queue max %d avg %.1f"
+				+ " | presses %d latency avg %dus max %dus | restarts %d",
+				getTicksExecuted(), getTicksLate(), getTicksDropped(), getOverruns(), maxLagNanos / 1000,
+				eventsSent, maxQueueDepth, getAverageQueueDepth(),
+				getAppliedPresses(), getAverageLatencyNanos() / 1000, getMaxLatencyNanos() / 1000, restarts);
+	}
+
+	// Scripts /////////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Die Tastatur eines Spielers.
+	 */
+	static class PlayerScript {
+		static final ControllerInputEvent.button[] DIRECTIONS = {ControllerInputEvent.button.UP,
+				ControllerInputEvent.button.DOWN, ControllerInputEvent.button.LEFT, ControllerInputEvent.button.RIGHT};
+
+		final int playerIdx;
+		final MatchRandom random;
+		ControllerInputEvent.button held = ControllerInputEvent.button.NULL;
+		long nextNanos;
+
+		PlayerScript (int playerIdx, MatchRandom random) {
+			this.playerIdx = playerIdx;
+			this.random = random;
+		}
+
+		/**
+		 * Drückt oder lässt los, was als Nächstes dran ist, und plant die nächste Aktion.
+		 * @return Anzahl der gesendeten Events.
+		 */
+		int step (BombermanController controller, Profile profile) {
+			int roll = random.nextInt(100);
+			int events = 0;
+			if (roll < profile.bombPercent) {
+				events += send(controller, ControllerInputEvent.button.BOMB, ControllerInputEvent.state.PRESSED);
+				events += send(controller, ControllerInputEvent.button.BOMB, ControllerInputEvent.state.RELEASED);
+			}
+			else if (roll < profile.bombPercent + profile.turnPercent || held == ControllerInputEvent.button.NULL) {
+				ControllerInputEvent.button dir = DIRECTIONS[random.nextInt(DIRECTIONS.length)];
+				if (held != ControllerInputEvent.button.NULL && held != dir)
+					events += send(controller, held, ControllerInputEvent.state.RELEASED);
+				held = dir;
+				events += send(controller, dir, ControllerInputEvent.state.PRESSED);
+			}
+			else if (roll < profile.bombPercent + profile.turnPercent + profile.releasePercent) {
+				events += send(controller, held, ControllerInputEvent.state.RELEASED);
+				held = ControllerInputEvent.button.NULL;
+			}
+			else {
+				// Key repeat: the keyboard sends PRESSED again as long as the key is held
+				events += send(controller, held, ControllerInputEvent.state.PRESSED);
+			}
+
+			nextNanos += gap(profile);
+			return events;
+		}
+
+		long gap (Profile profile) {
+			return profile.minGapNanos + (long) (random.nextDouble() * (profile.maxGapNanos - profile.minGapNanos));
+		}
+
+		private int send (BombermanController controller, ControllerInputEvent.button button, ControllerInputEvent.state state) {
+			controller.handleEvent(new ControllerInputEvent(playerIdx, button, state));
+			return 1;
+		}
+	}
+
+	// Controller //////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Der normale BombermanController. Headless lädt er den ersten Level selbst, statt in
+	 * initialize() die GUI aufzubauen.
+	 */
+	static class LoadController extends BombermanController {
+
+		/**
+		 * Mit GUI, genau wie Main mit --seed.
+		 */
+		LoadController (long seed) {
+			super(seed);
+		}
+
+		/**
+		 * Ohne GUI: der Testmodus unterdrückt initialize(), alles andere läuft wie gewohnt.
+		 */
+		LoadController (long seed, TickProfiler profiler) throws Exception {
+			super(true);
+			levelManager.setSeed(seed);
+			BombermanGameData data = (BombermanGameData) levelManager.loadNextLevel();
+			if (data == null)
+				throw new InvalidLevelDataException("No level to play.");
+			data.getContext().setHeadless(true);
+			data.getContext().setProfiler(profiler);
+			players = levelManager.getPlayers();
+
+			setGame(new BombermanGame(data, this));
+			getGame().initialiseTickTimer();
+			startWorker();
+		}
+
+		BombermanGame getGame () {
+			return game;
+		}
+
+		/**
+		 * Wartet, bis initialize() das Spiel gestartet hat.
+		 */
+		void awaitGame () throws InterruptedException {
+			while (getGame() == null || getGame().getTickLoop() == null) {
+				Thread.sleep(10);
+			}
+		}
+
+		void quit () throws InterruptedException {
+			handleEvent(new ControllerEvent(ControllerEvent.type.USER_QUIT));
+			getInnerThread().join(TimeUnit.SECONDS.toMillis(10));
+		}
+	}
+
+	// Main ////////////////////////////////////////////////////////////////////////////////////////
+
+	public static void main (String[] args) throws Exception {
+		boolean gui = false;
+		int seconds = 10;
+		long seed = 1;
+		Profile[] profiles = Profile.values();
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("--gui")) {
+				gui = true;
+			} else if (args[i].equals("--seconds") && i + 1 < args.length) {
+				seconds = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("--seed") && i + 1 < args.length) {
+				seed = Long.parseLong(args[++i]);
+			} else if (args[i].equals("--profile") && i + 1 < args.length) {
+				profiles = new Profile[] {Profile.valueOf(args[++i].toUpperCase(Locale.ROOT))};
+			} else {
+				System.err.println("Usage: ControllerLoadGenerator [--gui] [--seconds N] [--seed N] [--profile human|superhuman]");
+				System.exit(1);
+			}
+		}
+
+		ControllerLoadGenerator generator = new ControllerLoadGenerator(seed, gui);
+		for (Profile profile : profiles) {
+			System.out.println(profile + ", " + PLAYERS + " players, " + seconds + "s, "
+					+ (gui ? "with GUI" : "headless") + ", seed " + seed + ":");
+			generator.run(profile, TimeUnit.SECONDS.toNanos(seconds), TimeUnit.SECONDS.toNanos(1));
+			System.out.println("total  " + generator);
+			System.out.println(generator.getProfiler());
+			System.out.println();
+		}
+		generator.close();
+		if (gui)
+			System.exit(0);
+	}
+}
@@ -0,0 +1,188 @@
+package de.tu_darmstadt.gdi1.bomberman.simulation;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import de.tu_darmstadt.gdi1.bomberman.game.BombermanGame;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Player;
+import de.tu_darmstadt.gdi1.bomberman.game.levels.BombermanGameData;
+import de.tu_darmstadt.gdi1.bomberman.game.levels.BombermanLevelManager;
+import de.tu_darmstadt.gdi1.framework.exceptions.InvalidLevelDataException;
+
+/**
+ * Lässt ein Bomberman Match ohne GUI, Sound und Konsolenausgaben so schnell laufen, wie die CPU
+ * es hergibt. Die Spieler werden von Bots gesteuert - Spieler ohne Bot stehen einfach herum.
+ *
+ * Ein Match endet, sobald höchstens noch ein Spieler lebt oder das Tick-Limit erreicht ist. Dank
+ * Sudden Death (ab Sekunde 300, siehe MatchContext) endet jedes Match irgendwann von selbst.
+ *
+ * Als Programm gestartet misst die Klasse den Durchsatz (Ticks pro Sekunde) über viele Matches
+ * mit RandomBots, damit man ihn zwischen zwei Releases vergleichen kann:
+ *
+ *   java ...HeadlessSimulation [Leveldatei] [Anzahl Ticks]
+ */
+public class HeadlessSimulation {
+
+	/**
+	 * Zehn Minuten Spielzeit. Sudden Death mauert ab Sekunde 300 ein Feld pro Sekunde zu, auf den
+	 * mitgelieferten Levels ist bis dahin alles entschieden.
+	 */
+	public static final long DEFAULT_MAX_MILLIS = 600000;
+
+	/**
+	 * DEFAULT_MAX_MILLIS bei der Standard-Tickrate von 20 Ticks pro Sekunde.
+	 */
+	public static final long DEFAULT_MAX_TICKS = 12000;
+
+	protected final BombermanGame game;
+	protected final BombermanGameData gameData;
+	protected final Map<Integer, SimulationBot> bots = new HashMap<Integer, SimulationBot>();
+
+	public HeadlessSimulation (BombermanGameData data) {
+		gameData = data;
+		game = new BombermanGame(data);
+	}
+
+	public static HeadlessSimulation fromLevelString (String level) throws InvalidLevelDataException {
+		BombermanLevelManager levelManager = new BombermanLevelManager(false);
+		return new HeadlessSimulation((BombermanGameData) levelManager.loadLevel(level));
+	}
+
+	public static HeadlessSimulation fromLevelFile (File level) throws InvalidLevelDataException, IOException {
+		BombermanLevelManager levelManager = new BombermanLevelManager(false);
+		return new HeadlessSimulation((BombermanGameData) levelManager.loadLevel(level));
+	}
+
+	public BombermanGame getGame () {
+		return game;
+	}
+
+	public void setBot (int playerID, SimulationBot bot) {
+		bots.put(playerID, bot);
+	}
+
+	/**
+	 * Gibt jedem Spieler des Levels einen RandomBot. Der Seed jedes Bots wird aus dem übergebenen
+	 * Seed und der Spieler-ID abgeleitet.
+	 * @param seed
+	 */
+	public void setRandomBots (long seed) {
+		for (Player pl : gameData.getPlayers()) {
+			setBot(pl.getPlayerID(), new RandomBot(seed * 31 + pl.getPlayerID()));
+		}
+	}
+
+	/**
+	 * Macht das Match reproduzierbar: Spielstand und RandomBots bekommen Seeds aus dem
+	 * übergebenen. Gleicher Seed, gleiches Match.
+	 * @param seed
+	 */
+	public void setSeed (long seed) {
+		gameData.setSeed(seed);
+		setRandomBots(seed);
+	}
+
+	// Running /////////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Lässt das Match laufen, bis es entschieden ist oder maxTicks Ticks vergangen sind.
+	 * @param maxTicks
+	 * @return
+	 */
+	public SimulationResult run (long maxTicks) {
+		long start = System.nanoTime();
+		long ticks = 0;
+
+		while (ticks < maxTicks && !isDecided()) {
+			letBotsAct();
+			game.tick();
+			ticks++;
+		}
+
+		long nanos = System.nanoTime() - start;
+		return new SimulationResult(ticks, nanos, getWinner(), isDecided(), getKills(),
+				gameData.getBitBoard().checksum());
+	}
+
+	/**
+	 * Lässt das Match höchstens DEFAULT_MAX_MILLIS Spielzeit laufen, egal mit welcher Tickrate.
+	 * @return
+	 */
+	public SimulationResult run () {
+		return run(game.getContext().toTicks(DEFAULT_MAX_MILLIS));
+	}
+
+	protected void letBotsAct () {
+		long tick = game.getTickCount();
+		List<Player> players = gameData.getAlivePlayers();
+		for (int i = 0; i < players.size(); i++) {
+			Player pl = players.get(i);
+			SimulationBot bot = bots.get(pl.getPlayerID());
+			if (bot != null)
+				bot.act(game, pl, tick);
+		}
+	}
+
+	public boolean isDecided () {
+		return gameData.getAlivePlayerCount() <= 1;
+	}
+
+	/**
+	 * @return Abschüsse pro Spieler-ID, nur Spieler mit mindestens einem Abschuss.
+	 */
+	public Map<Integer, Integer> getKills () {
+		Map<Integer, Integer> kills = new HashMap<Integer, Integer>();
+		for (Player pl : gameData.getPlayers()) {
+			int count = pl.getKillCount();
+			if (count > 0)
+				kills.put(pl.getPlayerID(), count);
+		}
+		return kills;
+	}
+
+	/**
+	 * @return Die ID des einzigen Überlebenden oder SimulationResult.NO_WINNER.
+	 */
+	public int getWinner () {
+		if (gameData.getAlivePlayerCount() != 1)
+			return SimulationResult.NO_WINNER;
+		return gameData.getAlivePlayers().get(0).getPlayerID();
+	}
+
+	// Throughput measurement //////////////////////////////////////////////////////////////////////
+
+	public static void main (String[] args) throws Exception {
+		File level = new File(args.length > 0 ? args[0] : "resource/levels/Simple.lvl");
+		long totalTicks = args.length > 1 ? Long.parseLong(args[1]) : 2000000;
+
+		// Warm up the JIT before measuring
+		measure(level, totalTicks / 10);
+
+		long[] measured = measure(level, totalTicks);
+		double ticksPerSecond = measured[0] * 1e9 / measured[1];
+		System.out.println(String.format(Locale.ROOT, "Simulated %d ticks in %d matches, %.1f ms",
+				measured[0], measured[2], measured[1] / 1e6));
+		System.out.println(String.format(Locale.ROOT, "throughput: %.0f ticks/s", ticksPerSecond));
+	}
+
+	/**
+	 * Simuliert Matches mit RandomBots, bis insgesamt mindestens totalTicks Ticks gelaufen sind.
+	 * @return {ticks, nanos, matches}
+	 */
+	private static long[] measure (File level, long totalTicks) throws InvalidLevelDataException, IOException {
+		long ticks = 0, nanos = 0, matches = 0;
+		while (ticks < totalTicks) {
+			HeadlessSimulation sim = fromLevelFile(level);
+			sim.setSeed(matches);
+			SimulationResult result = sim.run();
+			ticks += result.getTicks();
+			nanos += result.getNanos();
+			matches++;
+		}
+		return new long[] {ticks, nanos, matches};
+	}
+}
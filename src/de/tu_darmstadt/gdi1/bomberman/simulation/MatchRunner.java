@@ -0,0 +1,170 @@
+package de.tu_darmstadt.gdi1.bomberman.simulation;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import de.tu_darmstadt.gdi1.bomberman.game.levels.BombermanGameData;
+import de.tu_darmstadt.gdi1.bomberman.game.levels.BombermanLevelManager;
+import de.tu_darmstadt.gdi1.framework.exceptions.InvalidLevelDataException;
+
+/**
+ * Simuliert viele Matches auf einem Level parallel auf allen Kernen. Das Level wird einmal
+ * geladen, jedes Match bekommt eine eigene Kopie mit eigenem MatchContext - die Matches teilen
+ * sich also keinen veränderlichen Zustand.
+ *
+ * Match i spielt mit RandomBots und dem Seed (seed + i), die Zuordnung von Matches zu Threads
+ * spielt damit keine Rolle: derselbe Seed ergibt dieselben Ergebnisse.
+ *
+ * Als Programm gestartet gibt die Klasse einen Bericht und eine Skalierungskurve von 1 bis N
+ * Threads aus:
+ *
+ *   java ...MatchRunner [Leveldatei] [Anzahl Matches] [max. Threads]
+ */
+public class MatchRunner {
+
+	/**
+	 * Bis zu dieser Anzahl Matches wird eine Aufgabe nicht weiter aufgeteilt.
+	 */
+	private static final int BATCH_SIZE = 4;
+
+	private final BombermanGameData template;
+	private long maxTicks = HeadlessSimulation.DEFAULT_MAX_TICKS;
+
+	public MatchRunner (BombermanGameData template) {
+		if (template == null)
+			throw new NullPointerException("Cannot run matches without a level.");
+		this.template = template;
+	}
+
+	public static MatchRunner fromLevelString (String level) throws InvalidLevelDataException {
+		BombermanLevelManager levelManager = new BombermanLevelManager(false);
+		return new MatchRunner((BombermanGameData) levelManager.loadLevel(level));
+	}
+
+	public static MatchRunner fromLevelFile (File level) throws InvalidLevelDataException, IOException {
+		BombermanLevelManager levelManager = new BombermanLevelManager(false);
+		return new MatchRunner((BombermanGameData) levelManager.loadLevel(level));
+	}
+
+	public void setMaxTicks (long maxTicks) {
+		this.maxTicks = maxTicks;
+	}
+
+	public long getMaxTicks () {
+		return maxTicks;
+	}
+
+	// Running /////////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Simuliert matches Matches auf threads Threads.
+	 * @param matches
+	 * @param threads
+	 * @param seed
+	 * @return Die zusammengefassten Ergebnisse aller Matches.
+	 */
+	public MatchStatistics run (int matches, int threads, long seed) {
+		if (threads < 1)
+			throw new IllegalArgumentException("At least one thread is needed: " + threads);
+
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			long start = System.nanoTime();
+			MatchStatistics stats = pool.invoke(new MatchTask(0, matches, seed));
+			stats.setWallNanos(System.nanoTime() - start);
+			return stats;
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	public MatchStatistics run (int matches, long seed) {
+		return run(matches, Runtime.getRuntime().availableProcessors(), seed);
+	}
+
+	/**
+	 * Spielt ein einzelnes Match auf einer frischen Kopie des Levels.
+	 * @param seed
+	 * @return
+	 */
+	public SimulationResult runMatch (long seed) {
+		BombermanGameData data;
+		// The template is only read, but the step manager's board clone is not meant for
+		// concurrent callers.
+		synchronized (template) {
+			data = template.copy();
+		}
+
+		HeadlessSimulation sim = new HeadlessSimulation(data);
+		sim.setSeed(seed);
+		return sim.run(maxTicks);
+	}
+
+	/**
+	 * Teilt den Bereich [from, to) der Match-Nummern so lange, bis er klein genug ist.
+	 */
+	private class MatchTask extends RecursiveTask<MatchStatistics> {
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+		private final int to;
+		private final long seed;
+
+		MatchTask (int from, int to, long seed) {
+			this.from = from;
+			this.to = to;
+			this.seed = seed;
+		}
+
+		@Override
+		protected MatchStatistics compute () {
+			if (to - from <= BATCH_SIZE) {
+				MatchStatistics stats = new MatchStatistics();
+				for (int i = from; i < to; i++) {
+					stats.add(runMatch(seed + i));
+				}
+				return stats;
+			}
+
+			int middle = (from + to) >>> 1;
+			MatchTask left = new MatchTask(from, middle, seed);
+			left.fork();
+			MatchStatistics stats = new MatchTask(middle, to, seed).compute();
+			stats.merge(left.join());
+			return stats;
+		}
+	}
+
+	// Scaling curve ///////////////////////////////////////////////////////////////////////////////
+
+	public static void main (String[] args) throws Exception {
+		File level = new File(args.length > 0 ? args[0] : "resource/levels/Simple.lvl");
+		int matches = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+		int maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+		MatchRunner runner = fromLevelFile(level);
+
+		// Warm up the JIT before measuring
+		runner.run(Math.max(matches / 10, 1), maxThreads, -1);
+
+		MatchStatistics full = runner.run(matches, maxThreads, 0);
+		System.out.println(matches + " matches on " + level + " with " + maxThreads + " threads:");
+		System.out.print(full.toReport());
+		System.out.println();
+
+		System.out.println("threads  wall ms   matches/s      ticks/s  speedup  efficiency");
+		double base = 0;
+		for (int threads = 1; threads <= maxThreads; threads++) {
+			MatchStatistics stats = runner.run(matches, threads, 0);
+			if (threads == 1)
+				base = stats.getTicksPerSecond();
+			double speedup = base <= 0 ? 0 : stats.getTicksPerSecond() / base;
+			System.out.println(String.format(Locale.ROOT, "%7d %8.1f %11.1f %12.0f %8.2f %10.0f%%",
+					threads, stats.getWallNanos() / 1e6, stats.getMatchesPerSecond(), stats.getTicksPerSecond(),
+					speedup, 100 * speedup / threads));
+		}
+	}
+}
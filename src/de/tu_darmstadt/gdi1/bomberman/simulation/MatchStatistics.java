@@ -0,0 +1,163 @@
+package de.tu_darmstadt.gdi1.bomberman.simulation;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Zusammengefasste Ergebnisse vieler Matches: Siege und Abschüsse pro Spieler, Unentschieden,
+ * abgebrochene Matches und die insgesamt simulierten Ticks.
+ *
+ * Nicht threadsicher - jeder Worker sammelt in seine eigene Instanz, die am Ende per merge()
+ * zusammengeführt werden.
+ */
+public class MatchStatistics {
+
+	private long matches = 0;
+	private long draws = 0;
+	private long timeouts = 0;
+	private long ticks = 0;
+	private long minTicks = Long.MAX_VALUE;
+	private long maxTicks = 0;
+	private long cpuNanos = 0;
+	private long wallNanos = 0;
+	private final Map<Integer, Long> wins = new TreeMap<Integer, Long>();
+	private final Map<Integer, Long> kills = new TreeMap<Integer, Long>();
+
+	public void add (SimulationResult result) {
+		matches++;
+		ticks += result.getTicks();
+		minTicks = Math.min(minTicks, result.getTicks());
+		maxTicks = Math.max(maxTicks, result.getTicks());
+		cpuNanos += result.getNanos();
+
+		if (!result.isFinished())
+			timeouts++;
+		else if (result.getWinner() == SimulationResult.NO_WINNER)
+			draws++;
+		else
+			increment(wins, result.getWinner(), 1);
+
+		for (Map.Entry<Integer, Integer> entry : result.getKills().entrySet()) {
+			increment(kills, entry.getKey(), entry.getValue());
+		}
+	}
+
+	public void merge (MatchStatistics other) {
+		matches += other.matches;
+		draws += other.draws;
+		timeouts += other.timeouts;
+		ticks += other.ticks;
+		minTicks = Math.min(minTicks, other.minTicks);
+		maxTicks = Math.max(maxTicks, other.maxTicks);
+		cpuNanos += other.cpuNanos;
+
+		for (Map.Entry<Integer, Long> entry : other.wins.entrySet()) {
+			increment(wins, entry.getKey(), entry.getValue());
+		}
+		for (Map.Entry<Integer, Long> entry : other.kills.entrySet()) {
+			increment(kills, entry.getKey(), entry.getValue());
+		}
+	}
+
+	private static void increment (Map<Integer, Long> map, int playerID, long amount) {
+		Long old = map.get(playerID);
+		map.put(playerID, (old == null ? 0 : old) + amount);
+	}
+
+	// Getters /////////////////////////////////////////////////////////////////////////////////////
+
+	public long getMatches () {
+		return matches;
+	}
+
+	/**
+	 * @return Anzahl der Matches, in denen alle Spieler gestorben sind.
+	 */
+	public long getDraws () {
+		return draws;
+	}
+
+	/**
+	 * @return Anzahl der Matches, die das Tick-Limit erreicht haben.
+	 */
+	public long getTimeouts () {
+		return timeouts;
+	}
+
+	public long getWins (int playerID) {
+		Long count = wins.get(playerID);
+		return count == null ? 0 : count;
+	}
+
+	public long getKills (int playerID) {
+		Long count = kills.get(playerID);
+		return count == null ? 0 : count;
+	}
+
+	public long getTicks () {
+		return ticks;
+	}
+
+	public double getAverageTicks () {
+		return matches == 0 ? 0 : (double) ticks / matches;
+	}
+
+	/**
+	 * @return Summe der Laufzeiten aller Matches, also die Rechenzeit über alle Threads.
+	 */
+	public long getCpuNanos () {
+		return cpuNanos;
+	}
+
+	/**
+	 * @return Wandzeit des gesamten Laufs, wird vom MatchRunner gesetzt.
+	 */
+	public long getWallNanos () {
+		return wallNanos;
+	}
+
+	void setWallNanos (long wallNanos) {
+		this.wallNanos = wallNanos;
+	}
+
+	/**
+	 * @return Simulierte Ticks pro Sekunde Wandzeit, über alle Threads.
+	 */
+	public double getTicksPerSecond () {
+		return wallNanos <= 0 ? 0 : ticks * 1e9 / wallNanos;
+	}
+
+	public double getMatchesPerSecond () {
+		return wallNanos <= 0 ? 0 : matches * 1e9 / wallNanos;
+	}
+
+	// Report //////////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * @return Mehrzeiliger Bericht für die Konsole.
+	 */
+	public String toReport () {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format(Locale.ROOT, "Matches:  %d (%d draws, %d hit the tick limit)%n", matches, draws, timeouts));
+		sb.append(String.format(Locale.ROOT, "Ticks:    %d total, avg %.1f, min %d, max %d%n",
+				ticks, getAverageTicks(), matches == 0 ? 0 : minTicks, maxTicks));
+		sb.append(String.format(Locale.ROOT, "Time:     %.1f ms wall, %.1f ms cpu%n", wallNanos / 1e6, cpuNanos / 1e6));
+		sb.append(String.format(Locale.ROOT, "Rate:     %.1f matches/s, %.0f ticks/s%n", getMatchesPerSecond(), getTicksPerSecond()));
+
+		TreeMap<Integer, Long> players = new TreeMap<Integer, Long>(wins);
+		players.putAll(kills);
+		for (Integer playerID : players.keySet()) {
+			long w = getWins(playerID);
+			sb.append(String.format(Locale.ROOT, "Player %d: %d wins (%.1f%%), %d kills%n",
+					playerID, w, matches == 0 ? 0 : 100.0 * w / matches, getKills(playerID)));
+		}
+		return sb.toString();
+	}
+
+	@Override
+	public String toString () {
+		return "MatchStatistics[matches=" + matches + ", draws=" + draws + ", timeouts=" + timeouts
+				+ ", wins=" + wins + ", kills=" + kills + "]";
+	}
+}
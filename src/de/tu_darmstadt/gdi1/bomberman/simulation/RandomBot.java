@@ -0,0 +1,68 @@
+package de.tu_darmstadt.gdi1.bomberman.simulation;
+
+import java.util.Random;
+
+import de.tu_darmstadt.gdi1.bomberman.game.BombermanGame;
+import de.tu_darmstadt.gdi1.bomberman.game.InputBuffer;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Player;
+import de.tu_darmstadt.gdi1.bomberman.gui.ControllerInputEvent;
+
+/**
+ * Ein sehr dummer Bot: wechselt in festen Abständen zufällig die Richtung und legt ab und zu eine
+ * Bombe. Reicht, um Last auf der Spiellogik zu erzeugen und Matches zu Ende zu bringen.
+ */
+public class RandomBot implements SimulationBot {
+
+	private static final ControllerInputEvent.button[] DIRECTIONS = {
+		ControllerInputEvent.button.NULL, ControllerInputEvent.button.UP, ControllerInputEvent.button.DOWN,
+		ControllerInputEvent.button.LEFT, ControllerInputEvent.button.RIGHT
+	};
+
+	private final Random random;
+	private final int decisionInterval;
+	private final int bombChance;
+
+	/**
+	 * @param seed Startwert des Zufallsgenerators, gleiche Seeds ergeben gleiche Entscheidungen.
+	 * @param decisionInterval Alle wie viele Ticks neu entschieden wird.
+	 * @param bombChance Wahrscheinlichkeit einer Bombe pro Entscheidung in Prozent.
+	 */
+	public RandomBot (long seed, int decisionInterval, int bombChance) {
+		this.random = new Random(seed);
+		this.decisionInterval = Math.max(1, decisionInterval);
+		this.bombChance = bombChance;
+	}
+
+	public RandomBot (long seed) {
+		this(seed, 5, 10);
+	}
+
+	@Override
+	public void act (BombermanGame game, Player player, long tick) {
+		if (tick % decisionInterval != 0)
+			return;
+
+		InputBuffer input = game.getBombermanGameData().getInputBuffer();
+		int id = player.getPlayerID();
+		long now = System.nanoTime();
+
+		if (random.nextInt(100) < bombChance)
+			input.offer(id, ControllerInputEvent.button.BOMB, ControllerInputEvent.state.PRESSED, now);
+
+		ControllerInputEvent.button btn = DIRECTIONS[random.nextInt(DIRECTIONS.length)];
+		if (btn == ControllerInputEvent.button.NULL)
+			input.offer(id, toButton(player.getDirection()), ControllerInputEvent.state.RELEASED, now);
+		else
+			input.offer(id, btn, ControllerInputEvent.state.PRESSED, now);
+	}
+
+	private static ControllerInputEvent.button toButton (Player.direction dir) {
+		switch (dir) {
+			case UP: return ControllerInputEvent.button.UP;
+			case DOWN: return ControllerInputEvent.button.DOWN;
+			case LEFT: return ControllerInputEvent.button.LEFT;
+			case RIGHT: return ControllerInputEvent.button.RIGHT;
+			default: return ControllerInputEvent.button.NULL;
+		}
+	}
+}
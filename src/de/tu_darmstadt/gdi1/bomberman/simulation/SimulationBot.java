@@ -0,0 +1,19 @@
+package de.tu_darmstadt.gdi1.bomberman.simulation;
+
+import de.tu_darmstadt.gdi1.bomberman.game.BombermanGame;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Player;
+
+/**
+ * Ein Bot steuert einen Spieler in einer headless Simulation. Er wird vor jedem Tick einmal
+ * gefragt, was sein Spieler tun soll, und drückt dafür wie die Tastatur Knöpfe im InputBuffer des
+ * Spiels - seine Eingaben lassen sich also auch als Replay aufzeichnen.
+ */
+public interface SimulationBot {
+
+	/**
+	 * @param game Das laufende Spiel.
+	 * @param player Der gesteuerte Spieler. Lebt garantiert noch.
+	 * @param tick Der Tick, der als nächstes ausgeführt wird.
+	 */
+	public void act (BombermanGame game, Player player, long tick);
+}
@@ -0,0 +1,98 @@
+package de.tu_darmstadt.gdi1.bomberman.simulation;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Ergebnis eines Simulationslaufs: wie lange (in Ticks und Wandzeit) lief das Match, wer hat
+ * gewonnen, wer hat wie viele Gegner erwischt und wie sah das Spielfeld am Ende aus.
+ */
+public class SimulationResult {
+
+	/**
+	 * Gewinner-ID, falls das Match ohne Sieger endete (alle tot oder Tick-Limit erreicht).
+	 */
+	public static final int NO_WINNER = 0;
+
+	private final long ticks;
+	private final long nanos;
+	private final int winner;
+	private final boolean finished;
+	private final Map<Integer, Integer> kills;
+	private final long checksum;
+
+	public SimulationResult (long ticks, long nanos, int winner, boolean finished) {
+		this(ticks, nanos, winner, finished, Collections.<Integer, Integer>emptyMap());
+	}
+
+	/**
+	 * @param kills Abschüsse pro Spieler-ID.
+	 */
+	public SimulationResult (long ticks, long nanos, int winner, boolean finished, Map<Integer, Integer> kills) {
+		this(ticks, nanos, winner, finished, kills, 0);
+	}
+
+	/**
+	 * @param kills Abschüsse pro Spieler-ID.
+	 * @param checksum BitBoard.checksum() des Spielfelds am Ende.
+	 */
+	public SimulationResult (long ticks, long nanos, int winner, boolean finished, Map<Integer, Integer> kills, long checksum) {
+		this.ticks = ticks;
+		this.nanos = nanos;
+		this.winner = winner;
+		this.finished = finished;
+		this.kills = Collections.unmodifiableMap(kills);
+		this.checksum = checksum;
+	}
+
+	public long getTicks () {
+		return ticks;
+	}
+
+	public long getNanos () {
+		return nanos;
+	}
+
+	/**
+	 * @return Die ID des Gewinners oder NO_WINNER.
+	 */
+	public int getWinner () {
+		return winner;
+	}
+
+	/**
+	 * @return true, wenn das Match entschieden ist, false wenn das Tick-Limit zugeschlagen hat.
+	 */
+	public boolean isFinished () {
+		return finished;
+	}
+
+	/**
+	 * @return Abschüsse pro Spieler-ID. Spieler ohne Abschuss können fehlen.
+	 */
+	public Map<Integer, Integer> getKills () {
+		return kills;
+	}
+
+	/**
+	 * @return Prüfsumme des Spielfelds am Ende, gleich bei gleichem Verlauf.
+	 */
+	public long getChecksum () {
+		return checksum;
+	}
+
+	/**
+	 * @return Der Durchsatz in Ticks pro Sekunde Wandzeit.
+	 */
+	public double getTicksPerSecond () {
+		if (nanos <= 0)
+			return 0;
+		return ticks * 1e9 / nanos;
+	}
+
+	@Override
+	public String toString () {
+		return "SimulationResult[ticks=" + ticks + ", winner=" + winner + ", finished=" + finished
+				+ ", " + String.format("%.0f", getTicksPerSecond()) + " ticks/s]";
+	}
+}
@@ -0,0 +1,73 @@
+package de.tu_darmstadt.gdi1.bomberman.simulation;
+
+import java.io.File;
+import java.util.Locale;
+
+import de.tu_darmstadt.gdi1.bomberman.game.SnapshotRing;
+import de.tu_darmstadt.gdi1.bomberman.game.levels.BombermanGameData;
+
+/**
+ * Misst, was der SnapshotRing pro Tick kostet: Zeit und Bytes für capture(), Zeit für ein
+ * restore() auf den ältesten Tick im Ring - im Vergleich zu einer Kopie des ganzen Spielfelds per
+ * clone(), wie sie der StepManager macht. Gespielt wird mit RandomBots.
+ *
+ *   java ...SnapshotBenchmark [Leveldatei] [Anzahl Matches]
+ */
+public class SnapshotBenchmark {
+
+	private long captures, captureNanos, stored, bytes;
+	private long restores, restoreNanos;
+	private long clones, cloneNanos;
+
+	public static void main (String[] args) throws Exception {
+		File level = new File(args.length > 0 ? args[0] : "resource/levels/Simple.lvl");
+		int matches = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+
+		// Warm up the JIT before measuring
+		new SnapshotBenchmark().run(level, matches);
+
+		SnapshotBenchmark benchmark = new SnapshotBenchmark();
+		benchmark.run(level, matches);
+		System.out.println(benchmark);
+	}
+
+	public void run (File level, int matches) throws Exception {
+		for (int seed = 1; seed <= matches; seed++) {
+			HeadlessSimulation sim = HeadlessSimulation.fromLevelFile(level);
+			sim.setSeed(seed);
+			BombermanGameData data = sim.getGame().getBombermanGameData();
+			SnapshotRing ring = new SnapshotRing(data);
+
+			ring.capture();
+			while (!sim.isDecided() && sim.getGame().getTickCount() < HeadlessSimulation.DEFAULT_MAX_TICKS) {
+				sim.run(1);
+
+				long start = System.nanoTime();
+				ring.capture();
+				captureNanos += System.nanoTime() - start;
+				captures++;
+
+				start = System.nanoTime();
+				data.getBoard().clone();
+				cloneNanos += System.nanoTime() - start;
+				clones++;
+			}
+			stored += ring.size();
+			bytes += ring.getBytes();
+
+			long oldest = ring.getOldestTick();
+			long start = System.nanoTime();
+			ring.restore(oldest);
+			restoreNanos += System.nanoTime() - start;
+			restores++;
+		}
+	}
+
+	@Override
+	public String toString () {
+		return String.format(Locale.ROOT, "%d snapshots: capture %.2f us, %.0f bytes; restore %.2f us; "
+				+ "clone() of the board %.2f us",
+				captures, captureNanos / 1e3 / captures, bytes / (double) stored,
+				restoreNanos / 1e3 / restores, cloneNanos / 1e3 / clones);
+	}
+}
@@ -35,7 +35,7 @@ public class DefaultTestAdapter implements ITestAdapter {
 
 	DefaultTestAdapter () {
 		levelManager = new BombermanLevelManager(false);
-		lastButtons = new ControllerInputEvent.button[4];
+		lastButtons = new ControllerInputEvent.button[Player.MAX_PLAYERS];
 	}
 
 	// LEVEL LOADING ///////////////////////////////////////////////////////////////////////////////
@@ -85,6 +85,8 @@ public class DefaultTestAdapter implements ITestAdapter {
 
 		controller = new BombermanController(true);
 		game = new BombermanGame(gd, controller);
+		// Tests brauchen weder Sound noch Konsolenausgaben
+		game.setHeadless(true);
 		controller.setGame(game);
 	}
 
@@ -171,16 +173,13 @@ public class DefaultTestAdapter implements ITestAdapter {
 					continue;
 
 				Element[] ls = new Element[el.size()];
+				int[] ids = new int[el.size()];
 				for (int i = 0; i < el.size(); i++)
 				{
 					if (el.get(i) instanceof Player) {
 						Player p = (Player)el.get(i);
-						switch(p.getPlayerID()) {
-							case 1: ls[i] = Element.PLAYER1; break;
-							case 2: ls[i] = Element.PLAYER2; break;
-							case 3: ls[i] = Element.PLAYER3; break;
-							case 4: ls[i] = Element.PLAYER4; break;
-						}
+						ls[i] = Element.player(p.getPlayerID());
+						ids[i] = p.getPlayerID();
 					}
 					else if (el.get(i) instanceof Bomb)
 						ls[i] = Element.BOMB;
@@ -200,6 +199,7 @@ public class DefaultTestAdapter implements ITestAdapter {
 
 				fs[x][y] = new FieldStatus();
 				fs[x][y].elements = ls;
+				fs[x][y].playerIds = ids;
 			}
 		}
 
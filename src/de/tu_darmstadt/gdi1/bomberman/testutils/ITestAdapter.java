@@ -18,9 +18,22 @@ public interface ITestAdapter {
 	enum Direction {UP,DOWN,LEFT,RIGHT,BOMB,NULL};
 
 	/**
-	 * Die möglichen Elemente, die in FieldStatus zurück gegeben werden können.
+	 * Die möglichen Elemente, die in FieldStatus zurück gegeben werden können. Spieler ab
+	 * Nummer 5 sind PLAYER, welcher es ist, sagt FieldStatus.containsPlayer(). PLAYER steht am Ende,
+	 * damit die bisherigen Elemente ihre Ordinalzahlen behalten.
 	 */
-	enum Element {PLAYER1, PLAYER2, PLAYER3, PLAYER4, FLOOR, BOMB, STONE, WALL, EXPLOSION, POWERUP};
+	enum Element {PLAYER1, PLAYER2, PLAYER3, PLAYER4, FLOOR, BOMB, STONE, WALL, EXPLOSION, POWERUP, PLAYER;
+
+		public static Element player (int playerIndex) {
+			switch (playerIndex) {
+				case 1: return PLAYER1;
+				case 2: return PLAYER2;
+				case 3: return PLAYER3;
+				case 4: return PLAYER4;
+				default: return PLAYER;
+			}
+		}
+	};
 
 	/**
 	 * Parameter, die zurückgeliefert werden können.
@@ -33,6 +46,8 @@ public interface ITestAdapter {
 	 */
 	public class FieldStatus {
 		Element[] elements;
+		// Player ID for every player in elements, 0 otherwise
+		int[] playerIds;
 
 		public boolean contains (Element c) {
 			for (int i = 0; i < elements.length; i++) {
@@ -42,6 +57,14 @@ public interface ITestAdapter {
 			return false;
 		}
 
+		public boolean containsPlayer (int playerIndex) {
+			for (int i = 0; i < playerIds.length; i++) {
+				if (playerIds[i] == playerIndex)
+					return true;
+			}
+			return false;
+		}
+
 		public void debugOut () {
 			for (int i = 0; i < elements.length; i++) {
 				System.out.println("... "+elements[i]);
@@ -73,7 +96,7 @@ public interface ITestAdapter {
 	 * angegebene Spieler bewegen WILL in den kommenden Ticks. Wenn er damit aufhören soll, muss
 	 * die Methode attemptStopPlayer aufgerufen werden.
 	 * Die eigentliche Bewegung erfolgt erst zum nächsten Tick (vorher passiert nichts).
-	 * @param playerIndex 1-4
+	 * @param playerIndex 1 bis Player.MAX_PLAYERS
 	 * @param dir
 	 */
 	public void attemptMovePlayer (int playerIndex, Direction dir);
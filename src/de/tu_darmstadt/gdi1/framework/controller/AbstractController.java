@@ -130,6 +130,34 @@ public abstract class AbstractController /*extends Thread*/ implements IControll
 	 * @see de.tu_darmstadt.gdi1.framework.controller.AbstractController#AbstractController()
 	 */
 	public AbstractController(final UncaughtExceptionHandler exceptionHandler) {
+		this(exceptionHandler, true);
+	}
+
+	/**
+	 * Creates a {@link de.tu_darmstadt.gdi1.framework.controller.AbstractController} with the default
+	 * {@link java.lang.Thread.UncaughtExceptionHandler} whose WorkerThread is only started if requested.<br>
+	 * A controller without a running WorkerThread never calls {@link #initialize()} and never
+	 * processes queued events on its own. This is meant for tests and headless games that call
+	 * {@link #processEvent(IControllerEvent)} synchronously.
+	 * 
+	 * @param startWorker
+	 *            false if the WorkerThread should not be started.
+	 * @see de.tu_darmstadt.gdi1.framework.controller.AbstractController#AbstractController()
+	 */
+	protected AbstractController(final boolean startWorker) {
+		this(new DefaultUncaughtExceptionHandlerOfController(), startWorker);
+	}
+
+	/**
+	 * Creates a {@link de.tu_darmstadt.gdi1.framework.controller.AbstractController}, see
+	 * {@link #AbstractController(java.lang.Thread.UncaughtExceptionHandler)}.
+	 * 
+	 * @param exceptionHandler
+	 *            the {@link java.lang.Thread.UncaughtExceptionHandler} for this thread, may be null.
+	 * @param startWorker
+	 *            false if the WorkerThread should not be started.
+	 */
+	protected AbstractController(final UncaughtExceptionHandler exceptionHandler, final boolean startWorker) {
     	super();
     	
     	innerThread = new InnerThread("EventQueueWorkerThread");
@@ -151,7 +179,9 @@ public abstract class AbstractController /*extends Thread*/ implements IControll
     	}
     	
     	//let the separate EventWorkerThread start
-    	innerThread.start();
+    	if (startWorker) {
+    		innerThread.start();
+    	}
     }
 	
     /** {@inheritDoc} */
@@ -164,6 +194,16 @@ public abstract class AbstractController /*extends Thread*/ implements IControll
 		addEvent(immediateEventQueue,  event);
 	}
 
+	/**
+	 * Returns how many events wait in both queues for the EventWorkerThread.<br>
+	 * Only a snapshot: other threads may add events and the worker may take them at the same time.
+	 * 
+	 * @return the number of queued events that have not been processed yet
+	 */
+	public int getPendingEventCount() {
+		return eventQueue.size() + immediateEventQueue.size();
+	}
+
 	/**
 	 * Inserts the event into the queue.<br>
 	 * If the queue is empty and/or the EventWorkerThread is marked as sleeping
@@ -254,6 +294,17 @@ public abstract class AbstractController /*extends Thread*/ implements IControll
 		return innerThread;
 	}
 	
+	/**
+	 * Starts the worker of a controller that was created with startWorker = false. Subclasses use
+	 * this to finish their own constructor before {@link #initialize()} runs on the worker.<br>
+	 * Does nothing if the worker was already started.
+	 */
+	protected synchronized void startWorker() {
+		if (innerThread.getState() == Thread.State.NEW) {
+			innerThread.start();
+		}
+	}
+
 	/**
 	 * let the worker stop his work (after finishing the current event processing).<br>
 	 * Be aware: there is no possibility to restart a thread.<br>
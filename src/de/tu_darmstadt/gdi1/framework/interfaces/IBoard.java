@@ -43,6 +43,15 @@ public interface IBoard<E extends IBoardElement> extends Cloneable {
 	 * @return the list of BoardElements on the given field of the board
 	 */
 	List<E> getElements(Point coord);
+
+	/**
+	 * Get the elements at the given field of the board.
+	 * 
+	 * @param packedCoord
+	 *            the coordinates of the field, packed with {@link Point#pack(int, int)}
+	 * @return the list of BoardElements on the given field of the board
+	 */
+	List<E> getElements(int packedCoord);
 	
 	/**
 	 * Get the width of the board.
@@ -88,6 +97,15 @@ public interface IBoard<E extends IBoardElement> extends Cloneable {
 	 * @return true if the position has valid coordinates, otherwise false
 	 */
 	boolean checkCoordinates(Point position);
+
+	/**
+	 * checks if the given coordinates are valid or out of bound.
+	 * 
+	 * @param packedPosition
+	 *            coordinates to check, packed with {@link Point#pack(int, int)}
+	 * @return true if the position has valid coordinates, otherwise false
+	 */
+	boolean checkCoordinates(int packedPosition);
 	
 }
 
@@ -0,0 +1,28 @@
+package de.tu_darmstadt.gdi1.framework.interfaces;
+
+import de.tu_darmstadt.gdi1.framework.model.BoardChanges;
+
+
+/**
+ * Gets told which elements were added to, removed from or moved between the fields of a board.
+ * The changes are collected and delivered in one batch whenever the board is flushed
+ * ({@link IGameBoard#flushBoardChanges()}), usually once at the end of every game tick.
+ *
+ * A listener lets renderers, AIs or network code follow the board incrementally instead of
+ * comparing whole boards.
+ *
+ * @param <E> The type of BoardElements used
+ */
+public interface IBoardListener<E extends IBoardElement> {
+
+	/**
+	 * Called with every non-empty batch of changes.
+	 *
+	 * @param board
+	 *            the board that changed, already in its new state
+	 * @param changes
+	 *            the changes in the order they happened. Only valid during this call, the board
+	 *            reuses the object for the next batch.
+	 */
+	void boardChanged(IBoard<E> board, BoardChanges<E> changes);
+}
@@ -48,5 +48,36 @@ public interface IGameBoard<E extends IBoardElement> extends IBoard<E>, Serializ
 	 *            the list of BoardElements which shall be placed there, may not be null.
 	 */
 	void setElements(Point coord, List<E> elementList);	
+
+	/**
+	 * Set the list of elements for a specified board field.
+	 * 
+	 * @param packedCoord
+	 *            the coordinates of the board field, packed with {@link Point#pack(int, int)}
+	 * @param elementList
+	 *            the list of BoardElements which shall be placed there, may not be null.
+	 */
+	void setElements(int packedCoord, List<E> elementList);
 	
+	/**
+	 * Registers a listener that is told about every element added to, removed from or moved
+	 * between fields of this board. The changes are collected and delivered in batches, see
+	 * {@link #flushBoardChanges()}. As long as no listener is registered, nothing is recorded.
+	 * 
+	 * @param listener
+	 *            the listener to add, added only once
+	 */
+	void addBoardListener(IBoardListener<E> listener);
+
+	/**
+	 * @param listener
+	 *            the listener that gets no further changes
+	 */
+	void removeBoardListener(IBoardListener<E> listener);
+
+	/**
+	 * Delivers the changes collected since the last flush to all listeners as one batch, if there
+	 * were any. Games call this once at the end of every tick or move.
+	 */
+	void flushBoardChanges();
 }
@@ -0,0 +1,23 @@
+package de.tu_darmstadt.gdi1.framework.interfaces;
+
+
+/**
+ * Optional extension of an {@link ILevelInformationProvider}: if the provider also implements
+ * this interface, levels are loaded into the boards it creates instead of a
+ * {@link de.tu_darmstadt.gdi1.framework.model.GameBoard}.<br>
+ * Lets a game pick a storage that suits its boards, e.g. a sparse one for very large maps, and
+ * saves copying the board after loading.
+ *
+ * @param <E> The type of BoardElements used
+ */
+public interface IGameBoardFactory<E extends IBoardElement> {
+
+	/**
+	 * @param width
+	 *            the width of the level
+	 * @param height
+	 *            the height of the level
+	 * @return an empty board of the given size
+	 */
+	IGameBoard<E> createGameBoard(int width, int height);
+}
@@ -0,0 +1,301 @@
+package de.tu_darmstadt.gdi1.framework.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import de.tu_darmstadt.gdi1.framework.interfaces.IBoard;
+import de.tu_darmstadt.gdi1.framework.interfaces.IBoardElement;
+import de.tu_darmstadt.gdi1.framework.interfaces.IBoardListener;
+import de.tu_darmstadt.gdi1.framework.utils.Point;
+
+
+/**
+ * Collects the changes of a board between two flushes and hands them to the board's
+ * {@link IBoardListener}s as one batch. Boards record into it while they change, listeners read
+ * it during {@link IBoardListener#boardChanged(IBoard, BoardChanges)}.
+ *
+ * An element that is removed from one field and right afterwards added to another one is
+ * reported as a single {@link Type#MOVED} change. Removed and added again on the same field, it
+ * is not reported at all.
+ *
+ * Nothing is recorded as long as nobody listens. The arrays are reused from batch to batch, so a
+ * board that keeps changing about the same amount per batch does not produce garbage.
+ *
+ * @param <E> The type of BoardElements used
+ */
+public class BoardChanges<E extends IBoardElement> {
+
+	/**
+	 * What happened to an element.
+	 */
+	public enum Type {
+		/** the element appeared on the field {@link BoardChanges#getToX(int)}/{@link BoardChanges#getToY(int)} */
+		ADDED,
+		/** the element disappeared from the field {@link BoardChanges#getFromX(int)}/{@link BoardChanges#getFromY(int)} */
+		REMOVED,
+		/** the element went from the "from" field to the "to" field */
+		MOVED
+	}
+
+	private final List<IBoardListener<E>> listeners = new ArrayList<IBoardListener<E>>();
+
+	private Type[] types = new Type[16];
+	// Packed with Point.pack()
+	private int[] from = new int[16];
+	private int[] to = new int[16];
+	private Object[] elements = new Object[16];
+	private int size = 0;
+
+	/**
+	 * @param listener
+	 *            gets every batch from now on
+	 */
+	public void addListener(final IBoardListener<E> listener) {
+		if (!listeners.contains(listener)) {
+			listeners.add(listener);
+		}
+	}
+
+	/**
+	 * @param listener
+	 *            gets no further batches
+	 */
+	public void removeListener(final IBoardListener<E> listener) {
+		listeners.remove(listener);
+		if (listeners.isEmpty()) {
+			clear();
+		}
+	}
+
+	/**
+	 * @return the listeners, in the order they were added
+	 */
+	public List<IBoardListener<E>> getListeners() {
+		return listeners;
+	}
+
+	/**
+	 * @return true if anybody listens, i.e. changes have to be recorded
+	 */
+	public boolean isRecording() {
+		return !listeners.isEmpty();
+	}
+
+	// Recording ///////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Records that an element appeared on a field.
+	 *
+	 * @param x
+	 *            the x coordinate of the field
+	 * @param y
+	 *            the y coordinate of the field
+	 * @param element
+	 *            the element
+	 */
+	public void added(final int x, final int y, final E element) {
+		if (!isRecording()) {
+			return;
+		}
+
+		// Taken from another field just before: that was a move
+		int last = size - 1;
+		if (last >= 0 && types[last] == Type.REMOVED && elements[last] == element) {
+			if (from[last] == Point.pack(x, y)) {
+				elements[last] = null;
+				size--;
+			} else {
+				types[last] = Type.MOVED;
+				to[last] = Point.pack(x, y);
+			}
+			return;
+		}
+
+		record(Type.ADDED, -1, Point.pack(x, y), element);
+	}
+
+	/**
+	 * Records that an element disappeared from a field.
+	 *
+	 * @param x
+	 *            the x coordinate of the field
+	 * @param y
+	 *            the y coordinate of the field
+	 * @param element
+	 *            the element
+	 */
+	public void removed(final int x, final int y, final E element) {
+		if (!isRecording()) {
+			return;
+		}
+		record(Type.REMOVED, Point.pack(x, y), -1, element);
+	}
+
+	/**
+	 * Records the difference between two contents of a field: whatever is only in the old list
+	 * was removed, whatever is only in the new one was added. Elements are compared by identity.
+	 *
+	 * @param x
+	 *            the x coordinate of the field
+	 * @param y
+	 *            the y coordinate of the field
+	 * @param before
+	 *            what was on the field
+	 * @param after
+	 *            what is on the field now
+	 */
+	public void diff(final int x, final int y, final List<? extends E> before, final List<? extends E> after) {
+		if (!isRecording()) {
+			return;
+		}
+		for (E element : before) {
+			if (!containsSame(after, element)) {
+				removed(x, y, element);
+			}
+		}
+		for (E element : after) {
+			if (!containsSame(before, element)) {
+				added(x, y, element);
+			}
+		}
+	}
+
+	private static boolean containsSame(final List<?> list, final Object element) {
+		for (Object o : list) {
+			if (o == element) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void record(final Type type, final int fromPacked, final int toPacked, final E element) {
+		if (size == types.length) {
+			types = Arrays.copyOf(types, size * 2);
+			from = Arrays.copyOf(from, size * 2);
+			to = Arrays.copyOf(to, size * 2);
+			elements = Arrays.copyOf(elements, size * 2);
+		}
+		types[size] = type;
+		from[size] = fromPacked;
+		to[size] = toPacked;
+		elements[size] = element;
+		size++;
+	}
+
+	/**
+	 * Hands the recorded changes to all listeners, if there are any, and starts a new batch.
+	 *
+	 * @param board
+	 *            the board the changes belong to
+	 */
+	public void flush(final IBoard<E> board) {
+		if (size == 0) {
+			return;
+		}
+		for (int i = 0; i < listeners.size(); i++) {
+			listeners.get(i).boardChanged(board, this);
+		}
+		clear();
+	}
+
+	private void clear() {
+		Arrays.fill(elements, 0, size, null);
+		size = 0;
+	}
+
+	// Reading /////////////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * @return the number of changes in this batch
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @param index
+	 *            the number of the change, from 0 to size() - 1
+	 * @return what happened
+	 */
+	public Type getType(final int index) {
+		check(index);
+		return types[index];
+	}
+
+	/**
+	 * @param index
+	 *            the number of the change, from 0 to size() - 1
+	 * @return the element that was added, removed or moved
+	 */
+	@SuppressWarnings("unchecked")
+	public E getElement(final int index) {
+		check(index);
+		return (E) elements[index];
+	}
+
+	/**
+	 * @param index
+	 *            the number of the change, from 0 to size() - 1
+	 * @return the field the element left, packed with {@link Point#pack(int, int)}; -1 for
+	 *         {@link Type#ADDED}
+	 */
+	public int getFrom(final int index) {
+		check(index);
+		return from[index];
+	}
+
+	/**
+	 * @param index
+	 *            the number of the change, from 0 to size() - 1
+	 * @return the field the element went to, packed with {@link Point#pack(int, int)}; -1 for
+	 *         {@link Type#REMOVED}
+	 */
+	public int getTo(final int index) {
+		check(index);
+		return to[index];
+	}
+
+	/**
+	 * @param index
+	 *            the number of the change
+	 * @return x coordinate of the field the element left
+	 */
+	public int getFromX(final int index) {
+		return Point.packedX(getFrom(index));
+	}
+
+	/**
+	 * @param index
+	 *            the number of the change
+	 * @return y coordinate of the field the element left
+	 */
+	public int getFromY(final int index) {
+		return Point.packedY(getFrom(index));
+	}
+
+	/**
+	 * @param index
+	 *            the number of the change
+	 * @return x coordinate of the field the element went to
+	 */
+	public int getToX(final int index) {
+		return Point.packedX(getTo(index));
+	}
+
+	/**
+	 * @param index
+	 *            the number of the change
+	 * @return y coordinate of the field the element went to
+	 */
+	public int getToY(final int index) {
+		return Point.packedY(getTo(index));
+	}
+
+	private void check(final int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Change " + index + ", batch size " + size);
+		}
+	}
+}
@@ -2,11 +2,13 @@ package de.tu_darmstadt.gdi1.framework.model;
 
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
 import de.tu_darmstadt.gdi1.framework.interfaces.IBoard;
 import de.tu_darmstadt.gdi1.framework.interfaces.IBoardElement;
+import de.tu_darmstadt.gdi1.framework.interfaces.IBoardListener;
 import de.tu_darmstadt.gdi1.framework.interfaces.IGameBoard;
 import de.tu_darmstadt.gdi1.framework.utils.Point;
 
@@ -15,6 +17,9 @@ import de.tu_darmstadt.gdi1.framework.utils.Point;
  * Implaments a game board consisting of multiple fields.
  * Each field can have multiple game elements on it.
  * Consider using StepManager instead if you want undo/redo.
+ * <p>Board listeners only learn about changes that are passed to setElements(), as the
+ * framework asks for anyway: the new content of the field is compared to what it was at the
+ * last call.</p>
  * @author Jan
  * @param <E> The type of BoardElements used
  */
@@ -38,6 +43,17 @@ public class GameBoard<E extends IBoardElement> implements Cloneable, Serializab
 	 * Address via board[column][row].
 	 */
 	private List<E>[][] board;
+
+	/**
+	 * Recorder for the board listeners, null as long as there are none.
+	 */
+	private transient BoardChanges<E> changes;
+
+	/**
+	 * What each field contained at the last setElements(), kept only while somebody listens.
+	 * Needed because callers usually change the list in place before setting it again.
+	 */
+	private transient List<E>[][] lastSet;
 	
 	/**
 	 * Creates an empty game board.
@@ -78,6 +94,55 @@ public class GameBoard<E extends IBoardElement> implements Cloneable, Serializab
 		} else {
 			board[x][y] = elements;
 		}
+
+		if (lastSet != null) {
+			changes.diff(x, y, lastSet[x][y], board[x][y]);
+			lastSet[x][y] = new ArrayList<E>(board[x][y]);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void addBoardListener(final IBoardListener<E> listener) {
+		if (changes == null) {
+			changes = new BoardChanges<E>();
+		}
+		changes.addListener(listener);
+
+		if (lastSet == null) {
+			// generic arrays cannot be created, the cast is safe as the array never leaves this class
+			@SuppressWarnings({"unchecked", "rawtypes"})
+			final List<E>[][] snapshot = (List<E>[][]) new List[sizex][sizey];
+			lastSet = snapshot;
+			for (int x = 0; x < sizex; x++) {
+				for (int y = 0; y < sizey; y++) {
+					lastSet[x][y] = new ArrayList<E>(board[x][y]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void removeBoardListener(final IBoardListener<E> listener) {
+		if (changes == null) {
+			return;
+		}
+		changes.removeListener(listener);
+		if (!changes.isRecording()) {
+			lastSet = null;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void flushBoardChanges() {
+		if (changes != null) {
+			changes.flush(this);
+		}
 	}
 	
 	/**
@@ -116,6 +181,13 @@ public class GameBoard<E extends IBoardElement> implements Cloneable, Serializab
 		return checkCoordinates(position.getX(), position.getY());
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean checkCoordinates(int packedPosition) {
+		return checkCoordinates(Point.packedX(packedPosition), Point.packedY(packedPosition));
+	}
+
 
 	/**
 	 * {@inheritDoc}
@@ -124,6 +196,13 @@ public class GameBoard<E extends IBoardElement> implements Cloneable, Serializab
 		setElements(coord.getX(), coord.getY(), elementList);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public void setElements(final int packedCoord, final List<E> elementList) {
+		setElements(Point.packedX(packedCoord), Point.packedY(packedCoord), elementList);
+	}
+
 
 
 	/**
@@ -133,6 +212,13 @@ public class GameBoard<E extends IBoardElement> implements Cloneable, Serializab
 		return getElements(coord.getX(), coord.getY());
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public List<E> getElements(final int packedCoord) {
+		return getElements(Point.packedX(packedCoord), Point.packedY(packedCoord));
+	}
+
 
 	/**
 	 * {@inheritDoc}
@@ -9,6 +9,7 @@ import java.util.List;
 import de.tu_darmstadt.gdi1.framework.exceptions.NoLastStepException;
 import de.tu_darmstadt.gdi1.framework.interfaces.IBoard;
 import de.tu_darmstadt.gdi1.framework.interfaces.IBoardElement;
+import de.tu_darmstadt.gdi1.framework.interfaces.IBoardListener;
 import de.tu_darmstadt.gdi1.framework.interfaces.IGameBoard;
 import de.tu_darmstadt.gdi1.framework.interfaces.IStepManager;
 import de.tu_darmstadt.gdi1.framework.utils.FrameworkUtils;
@@ -20,6 +21,8 @@ import de.tu_darmstadt.gdi1.framework.utils.Point;
  * Use saveStep() to store an undo step (i.e. probably you want to call that
  * once before (see {@link #saveStep()}) a set of all changes caused by one user action happes).
  * Use undo() or redo() do un- and redo.
+ * <p>Board listeners see the changes of the current board; an undo or redo is reported as the
+ * difference between the board before and after it.</p>
  * @author Jan
  */
 public class StepManager<E extends IBoardElement> implements Serializable, IStepManager<E>, Cloneable {
@@ -50,6 +53,12 @@ public class StepManager<E extends IBoardElement> implements Serializable, IStep
 	/** the maximal size of the undo history. zero is unlimited. */
 	private int maxRedoHistorySize = DEFAUL_MAX_HISTORY_SIZE;
 
+	/** Recorder for the board listeners, null as long as there are none. */
+	private transient BoardChanges<E> changes;
+
+	/** Passes the changes of the current board on as changes of this StepManager. */
+	private transient IBoardListener<E> forwarder;
+
 	/**
 	 * Creates and initializes a step (undo/redo) manager
 	 * containing an empty game board.
@@ -130,6 +139,13 @@ public class StepManager<E extends IBoardElement> implements Serializable, IStep
 		setElements(coords.getX(), coords.getY(), elements);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public void setElements(final int packedCoords, final List<E> elements) {
+		setElements(Point.packedX(packedCoords), Point.packedY(packedCoords), elements);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -137,6 +153,13 @@ public class StepManager<E extends IBoardElement> implements Serializable, IStep
 		return getElements(coords.getX(), coords.getY());
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public List<E> getElements(final int packedCoords) {
+		return getElements(Point.packedX(packedCoords), Point.packedY(packedCoords));
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -151,7 +174,76 @@ public class StepManager<E extends IBoardElement> implements Serializable, IStep
 		return checkCoordinates(point.getX(), point.getY());
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean checkCoordinates(final int packedPoint) {
+		return checkCoordinates(Point.packedX(packedPoint), Point.packedY(packedPoint));
+	}
+
+
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public void addBoardListener(final IBoardListener<E> listener) {
+		if (changes == null) {
+			changes = new BoardChanges<E>();
+			forwarder = new IBoardListener<E>() {
+				public void boardChanged(final IBoard<E> board, final BoardChanges<E> batch) {
+					forward(batch);
+				}
+			};
+			currentBoard.addBoardListener(forwarder);
+		}
+		changes.addListener(listener);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void removeBoardListener(final IBoardListener<E> listener) {
+		if (changes == null) {
+			return;
+		}
+		changes.removeListener(listener);
+		if (!changes.isRecording()) {
+			currentBoard.removeBoardListener(forwarder);
+			changes = null;
+			forwarder = null;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void flushBoardChanges() {
+		currentBoard.flushBoardChanges();
+		if (changes != null) {
+			changes.flush(this);
+		}
+	}
+
+	/**
+	 * Records a batch of the current board as changes of this StepManager.
+	 * @param batch the changes of the current board
+	 */
+	private void forward(final BoardChanges<E> batch) {
+		for (int i = 0; i < batch.size(); i++) {
+			E element = batch.getElement(i);
+			switch (batch.getType(i)) {
+			case ADDED:
+				changes.added(batch.getToX(i), batch.getToY(i), element);
+				break;
+			case REMOVED:
+				changes.removed(batch.getFromX(i), batch.getFromY(i), element);
+				break;
+			default:
+				changes.removed(batch.getFromX(i), batch.getFromY(i), element);
+				changes.added(batch.getToX(i), batch.getToY(i), element);
+			}
+		}
+	}
 
 	/**
 	 * {@inheritDoc}
@@ -196,7 +288,7 @@ public class StepManager<E extends IBoardElement> implements Serializable, IStep
 		while ((redoHistory.size() > maxRedoHistorySize) && (maxRedoHistorySize > 0)) {
 			redoHistory.removeLast();
 		}
-		currentBoard = undoHistory.removeFirst();
+		switchBoard(undoHistory.removeFirst());
 	}
 
 	/**
@@ -218,7 +310,25 @@ public class StepManager<E extends IBoardElement> implements Serializable, IStep
 			undoHistory.removeLast();
 		}
 
-		currentBoard = redoHistory.removeFirst();
+		switchBoard(redoHistory.removeFirst());
+	}
+
+	/**
+	 * Makes another board the current one and tells the listeners what changed.
+	 * @param newBoard the board from the undo or redo history
+	 */
+	private void switchBoard(final IGameBoard<E> newBoard) {
+		if (changes != null) {
+			currentBoard.flushBoardChanges();
+			currentBoard.removeBoardListener(forwarder);
+			for (int x = 0; x < currentBoard.getWidth(); x++) {
+				for (int y = 0; y < currentBoard.getHeight(); y++) {
+					changes.diff(x, y, currentBoard.getElements(x, y), newBoard.getElements(x, y));
+				}
+			}
+			newBoard.addBoardListener(forwarder);
+		}
+		currentBoard = newBoard;
 	}
 
 	/**
@@ -120,5 +120,54 @@ public class Point implements Serializable {
 		return new Point(current.getX(), current.getY() + modifyValue);
 	}
 
+	/**
+	 * Packs a coordinate into a single int, x in the upper and y in the lower 16 bits. Each part
+	 * keeps its sign, so coordinates from -32768 to 32767 survive unpacking. Lets hot code pass
+	 * coordinates around without creating Point objects.
+	 * 
+	 * @param x
+	 * 		the x-axis part of the coordinate
+	 * @param y
+	 * 		the y-axis part of the coordinate
+	 * @return
+	 * 		the packed coordinate
+	 * 
+	 * @see #packedX(int)
+	 * @see #packedY(int)
+	 */
+	public static int pack(final int x, final int y) {
+		return (x << 16) | (y & 0xFFFF);
+	}
+
+	/**
+	 * @param packed
+	 * 		a coordinate packed with {@link #pack(int, int)}
+	 * @return
+	 * 		its x-axis part
+	 */
+	public static int packedX(final int packed) {
+		return packed >> 16;
+	}
+
+	/**
+	 * @param packed
+	 * 		a coordinate packed with {@link #pack(int, int)}
+	 * @return
+	 * 		its y-axis part
+	 */
+	public static int packedY(final int packed) {
+		return (short) packed;
+	}
+
+	/**
+	 * @return
+	 * 		this point packed into an int
+	 * 
+	 * @see #pack(int, int)
+	 */
+	public int pack() {
+		return pack(x, y);
+	}
+
 
 }
@@ -16,6 +16,7 @@ import de.tu_darmstadt.gdi1.framework.exceptions.InvalidLevelDataException;
 import de.tu_darmstadt.gdi1.framework.interfaces.IBoard;
 import de.tu_darmstadt.gdi1.framework.interfaces.IBoardElement;
 import de.tu_darmstadt.gdi1.framework.interfaces.IGameBoard;
+import de.tu_darmstadt.gdi1.framework.interfaces.IGameBoardFactory;
 import de.tu_darmstadt.gdi1.framework.interfaces.IGameData;
 import de.tu_darmstadt.gdi1.framework.interfaces.ILevelInformationProvider;
 import de.tu_darmstadt.gdi1.framework.interfaces.LevelInterface;
@@ -106,7 +107,7 @@ public class Level<E extends IBoardElement> implements LevelInterface<E> {
 			}
 		}
 		
-		IGameBoard<E> gameBoard = new GameBoard<E>(width, height);
+		IGameBoard<E> gameBoard = createGameBoard(width, height);
 		
 		Map<Integer, String> additionalInformations = new HashMap<Integer, String>();
 		for (int i = 0; i < lineNumbers; i++) {
@@ -144,6 +145,18 @@ public class Level<E extends IBoardElement> implements LevelInterface<E> {
 		}
 	}
 
+	/**
+	 * The board a level is loaded into: from the {@link ILevelInformationProvider} if it is also a
+	 * {@link IGameBoardFactory}, a {@link GameBoard} otherwise.
+	 */
+	@SuppressWarnings("unchecked")
+	private IGameBoard<E> createGameBoard(final int width, final int height) {
+		if (levelInfoProvider instanceof IGameBoardFactory) {
+			return ((IGameBoardFactory<E>) levelInfoProvider).createGameBoard(width, height);
+		}
+		return new GameBoard<E>(width, height);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
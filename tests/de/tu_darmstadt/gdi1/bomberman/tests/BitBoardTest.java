@@ -0,0 +1,74 @@
+package de.tu_darmstadt.gdi1.bomberman.tests;
+
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import de.tu_darmstadt.gdi1.bomberman.game.board.BitBoard;
+import de.tu_darmstadt.gdi1.bomberman.game.board.BombermanBoard;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.GameElement;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Stone;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Wall;
+import de.tu_darmstadt.gdi1.bomberman.game.levels.BombermanGameData;
+import de.tu_darmstadt.gdi1.bomberman.simulation.HeadlessSimulation;
+
+/**
+ * Prüft, dass die Bits des Spielfelds immer zu den Elementlisten passen.
+ */
+public class BitBoardTest {
+	String simpleLevel = "###################\n"+
+						 "#1 ***  *  * *** 2#\n"+
+						 "# ###*#*# #*#*### #\n"+
+						 "# #* *  ***  * *#*#\n"+
+						 "#*#*# #*#*#*# #*#*#\n"+
+						 "#* ************  *#\n"+
+						 "#*#*# #*#*#*# #*#*#\n"+
+						 "#*#* *  ***  * *#*#\n"+
+						 "# ###*#*# #*#*### #\n"+
+						 "#3 ***  *  * *** 4#\n"+
+						 "###################\n";
+
+	private void assertInSync (BombermanBoard board) {
+		BitBoard bits = board.getBits();
+		for (int x = 0; x < board.getWidth(); x++) {
+			for (int y = 0; y < board.getHeight(); y++) {
+				int expected = 0;
+				for (GameElement e : board.getElements(x, y)) {
+					expected |= BombermanBoard.maskOf(e);
+				}
+				assertEquals("Field " + x + "," + y, expected, bits.getMask(x, y));
+			}
+		}
+	}
+
+	@Test
+	public void testBitsFollowTheMatch () throws Exception {
+		HeadlessSimulation sim = HeadlessSimulation.fromLevelString(simpleLevel);
+		sim.setRandomBots(3);
+		BombermanGameData data = sim.getGame().getBombermanGameData();
+
+		assertInSync(data.getBoard());
+		assertEquals(4, data.getBitBoard().count(BitBoard.PLAYER));
+		for (int i = 0; i < 40 && !sim.isDecided(); i++) {
+			sim.run(25);
+			assertInSync(data.getBoard());
+		}
+	}
+
+	@Test
+	public void testListChangesUpdateBits () {
+		BombermanBoard board = new BombermanBoard(3, 2);
+		List<GameElement> field = board.getElements(2, 1);
+		field.add(new Stone());
+		assertTrue(board.getBits().isSolid(2, 1));
+		assertTrue(board.getBits().get(BitBoard.STONE, 2, 1));
+
+		field.remove(0);
+		assertFalse(board.getBits().isSolid(2, 1));
+
+		board.setElements(0, 1, java.util.Arrays.<GameElement>asList(new Wall()));
+		assertEquals(BitBoard.WALL_BIT, board.getBits().getMask(0, 1));
+		assertEquals(BitBoard.WALL_BIT, board.clone().getBits().getMask(0, 1));
+	}
+}
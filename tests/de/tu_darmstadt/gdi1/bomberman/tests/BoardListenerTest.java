@@ -0,0 +1,138 @@
+package de.tu_darmstadt.gdi1.bomberman.tests;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import de.tu_darmstadt.gdi1.bomberman.game.BombermanGame;
+import de.tu_darmstadt.gdi1.bomberman.game.InputBuffer;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.GameElement;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Stone;
+import de.tu_darmstadt.gdi1.bomberman.gui.ControllerInputEvent;
+import de.tu_darmstadt.gdi1.bomberman.simulation.HeadlessSimulation;
+import de.tu_darmstadt.gdi1.framework.interfaces.IBoard;
+import de.tu_darmstadt.gdi1.framework.interfaces.IBoardListener;
+import de.tu_darmstadt.gdi1.framework.model.BoardChanges;
+import de.tu_darmstadt.gdi1.framework.model.StepManager;
+
+/**
+ * Prüft, welche Änderungen ein IBoardListener pro Tick bekommt - und dass Spielfeld und
+ * StepManager des Frameworks dieselben Ereignisse liefern.
+ */
+public class BoardListenerTest {
+	String simpleLevel = "###################\n"+
+						 "#1 ***  *  * *** 2#\n"+
+						 "# ###*#*# #*#*### #\n"+
+						 "# #* *  ***  * *#*#\n"+
+						 "#*#*# #*#*#*# #*#*#\n"+
+						 "#* ************  *#\n"+
+						 "#*#*# #*#*#*# #*#*#\n"+
+						 "#*#* *  ***  * *#*#\n"+
+						 "# ###*#*# #*#*### #\n"+
+						 "#3 ***  *  * *** 4#\n"+
+						 "###################\n";
+
+	/**
+	 * Schreibt jedes Paket als Liste lesbarer Zeilen mit.
+	 */
+	static class Recorder<E extends GameElement> implements IBoardListener<E> {
+		final List<List<String>> batches = new ArrayList<List<String>>();
+
+		public void boardChanged (IBoard<E> board, BoardChanges<E> changes) {
+			List<String> batch = new ArrayList<String>();
+			for (int i = 0; i < changes.size(); i++) {
+				String what = changes.getType(i) + " " + changes.getElement(i).getClass().getSimpleName();
+				switch (changes.getType(i)) {
+					case ADDED:
+						what += " " + changes.getToX(i) + "," + changes.getToY(i);
+						break;
+					case REMOVED:
+						what += " " + changes.getFromX(i) + "," + changes.getFromY(i);
+						break;
+					default:
+						what += " " + changes.getFromX(i) + "," + changes.getFromY(i)
+								+ "->" + changes.getToX(i) + "," + changes.getToY(i);
+				}
+				batch.add(what);
+			}
+			batches.add(batch);
+		}
+	}
+
+	/**
+	 * Ein Schritt ist genau ein MOVED, eine gelegte Bombe ein ADDED, ruhige Ticks liefern nichts.
+	 */
+	@Test
+	public void testGameEvents () throws Exception {
+		HeadlessSimulation sim = HeadlessSimulation.fromLevelString(simpleLevel);
+		BombermanGame game = sim.getGame();
+		Recorder<GameElement> recorder = new Recorder<GameElement>();
+		game.getBombermanGameData().getBoard().addBoardListener(recorder);
+
+		sim.run(10);
+		assertEquals("quiet ticks deliver nothing", 0, recorder.batches.size());
+
+		InputBuffer input = game.getBombermanGameData().getInputBuffer();
+		input.offer(1, ControllerInputEvent.button.DOWN, ControllerInputEvent.state.PRESSED, 0);
+		sim.run(1);
+		input.offer(1, ControllerInputEvent.button.DOWN, ControllerInputEvent.state.RELEASED, 0);
+		assertEquals(1, recorder.batches.size());
+		List<String> move = recorder.batches.get(0);
+		assertEquals(1, move.size());
+		assertEquals("MOVED Player 1,1->1,2", move.get(0));
+
+		input.offer(1, ControllerInputEvent.button.BOMB, ControllerInputEvent.state.PRESSED, 0);
+		sim.run(1);
+		input.offer(1, ControllerInputEvent.button.BOMB, ControllerInputEvent.state.RELEASED, 0);
+		assertEquals(2, recorder.batches.size());
+		assertEquals("[ADDED Bomb 1,2]", recorder.batches.get(1).toString());
+
+		// The explosion shows up and goes away again, one batch each
+		recorder.batches.clear();
+		sim.run(200);
+		assertTrue(recorder.batches.size() >= 2);
+		assertTrue(recorder.batches.get(0).contains("REMOVED Bomb 1,2"));
+		assertTrue(recorder.batches.get(0).contains("ADDED Explosion 1,2"));
+
+		game.getBombermanGameData().getBoard().removeBoardListener(recorder);
+		recorder.batches.clear();
+		sim.run(100);
+		assertEquals(0, recorder.batches.size());
+	}
+
+	/**
+	 * Im GameBoard des Frameworks wird erst beim setElements() verglichen, ein Undo kommt als
+	 * Unterschied der beiden Spielfelder an.
+	 */
+	@Test
+	public void testStepManager () throws Exception {
+		StepManager<GameElement> board = new StepManager<GameElement>(3, 1);
+		Stone stone = new Stone();
+		board.getElements(0, 0).add(stone);
+		board.setElements(0, 0, board.getElements(0, 0));
+
+		Recorder<GameElement> recorder = new Recorder<GameElement>();
+		board.addBoardListener(recorder);
+		board.saveStep();
+
+		List<GameElement> from = board.getElements(0, 0);
+		from.remove(stone);
+		board.setElements(0, 0, from);
+		List<GameElement> to = board.getElements(2, 0);
+		to.add(stone);
+		board.setElements(2, 0, to);
+		board.flushBoardChanges();
+		assertEquals("[[MOVED Stone 0,0->2,0]]", recorder.batches.toString());
+
+		// Nothing changed since
+		board.flushBoardChanges();
+		assertEquals(1, recorder.batches.size());
+
+		// The old board holds a clone of the stone
+		board.undo();
+		board.flushBoardChanges();
+		assertEquals("[ADDED Stone 0,0, REMOVED Stone 2,0]", recorder.batches.get(1).toString());
+	}
+}
@@ -0,0 +1,208 @@
+package de.tu_darmstadt.gdi1.bomberman.tests;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import de.tu_darmstadt.gdi1.bomberman.game.board.BombermanBoard;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Bomb;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Explosion;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Floor;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.GameElement;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Player;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Wall;
+import de.tu_darmstadt.gdi1.bomberman.game.levels.BombermanGameData;
+import de.tu_darmstadt.gdi1.framework.interfaces.IGameBoard;
+
+/**
+ * Vergleicht die ChainReaction mit der früheren rekursiven Bomb.explode() Implementierung: gleiche
+ * Explosionen in gleicher Reihenfolge, gleiche Kills, gleiches Spielfeld danach.
+ */
+public class ChainReactionTest {
+
+	private static final long TICK = 100;
+
+	/**
+	 * Baut ein Spielfeld mit Rand, Säulen, vier Spielern und sehr vielen Bomben. Für denselben Seed
+	 * kommt immer dasselbe Feld heraus.
+	 */
+	private BombermanGameData buildBoard (long seed, int width, int height, int bombPercent) {
+		Random random = new Random(seed);
+		BombermanBoard board = new BombermanBoard(width, height);
+		Player[] players = new Player[4];
+		for (int i = 0; i < players.length; i++) {
+			players[i] = new Player(i + 1);
+		}
+
+		int placed = 0;
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				List<GameElement> field = board.getElements(x, y);
+				field.add(new Floor());
+				if (x == 0 || y == 0 || x == width - 1 || y == height - 1 || (x % 2 == 0 && y % 2 == 0)) {
+					field.add(new Wall());
+				}
+				else if (placed < players.length && random.nextInt(10) == 0) {
+					field.add(players[placed++]);
+				}
+				else if (random.nextInt(100) < bombPercent) {
+					Player owner = players[random.nextInt(players.length)];
+					owner.setBombRadius(random.nextInt(10));
+					field.add(new Bomb(owner, 60));
+				}
+			}
+		}
+
+		BombermanGameData data = new BombermanGameData(board);
+		data.getContext().setHeadless(true);
+		return data;
+	}
+
+	private List<String> describe (List<Explosion> explosions) {
+		List<String> result = new ArrayList<String>();
+		for (Explosion ex : explosions) {
+			result.add(ex.getX() + "," + ex.getY() + " " + ex.getStyle() + " " + ex.getRemovalTick());
+		}
+		return result;
+	}
+
+	private List<String> describe (BombermanGameData data) {
+		List<String> result = new ArrayList<String>();
+		IGameBoard<GameElement> board = data.getBoard();
+		for (int x = 0; x < board.getWidth(); x++) {
+			for (int y = 0; y < board.getHeight(); y++) {
+				StringBuilder field = new StringBuilder();
+				for (GameElement e : board.getElements(x, y)) {
+					field.append(e.getDescription()).append(' ');
+				}
+				result.add(field.toString());
+			}
+		}
+		for (Player pl : data.getPlayers()) {
+			StringBuilder kills = new StringBuilder("Player " + pl.getPlayerID() + " dead=" + data.isDead(pl.getPlayerID()) + " killed");
+			for (Player victim : pl.getPlayersKilled()) {
+				kills.append(' ').append(victim.getPlayerID());
+			}
+			result.add(kills.toString());
+		}
+		return result;
+	}
+
+	private void assertSameAsRecursion (long seed, int width, int height, int bombPercent) {
+		BombermanGameData expectedData = buildBoard(seed, width, height, bombPercent);
+		BombermanGameData actualData = buildBoard(seed, width, height, bombPercent);
+
+		List<Explosion> expected = new ArrayList<Explosion>();
+		for (Bomb bomb : new ArrayList<Bomb>(expectedData.getBombs())) {
+			if (expectedData.getBoard().getElements(bomb.getX(), bomb.getY()).contains(bomb))
+				expected.addAll(recursiveExplode(bomb, TICK));
+		}
+
+		List<Explosion> actual = new ArrayList<Explosion>();
+		for (Bomb bomb : new ArrayList<Bomb>(actualData.getBombs())) {
+			if (actualData.getBoard().getElements(bomb.getX(), bomb.getY()).contains(bomb))
+				bomb.explode(TICK, actual);
+		}
+
+		assertEquals("Seed " + seed, describe(expected), describe(actual));
+		assertEquals("Seed " + seed, describe(expectedData), describe(actualData));
+	}
+
+	@Test
+	public void testSameResultAsRecursion () {
+		for (long seed = 0; seed < 30; seed++) {
+			assertSameAsRecursion(seed, 15, 13, 20);
+		}
+	}
+
+	@Test
+	public void testFullBoardOfBombs () {
+		for (long seed = 100; seed < 105; seed++) {
+			assertSameAsRecursion(seed, 41, 41, 100);
+		}
+	}
+
+	// The former recursive implementation /////////////////////////////////////////////////////////
+
+	private ArrayList<Explosion> recursiveExplode (Bomb bomb, long tickCount) {
+		ArrayList<Explosion> list = new ArrayList<Explosion>();
+		IGameBoard<GameElement> gameBoard = bomb.getGameData().getBoard();
+		int x = bomb.getX(), y = bomb.getY();
+
+		List<GameElement> present = gameBoard.getElements(x, y);
+		Explosion center = new Explosion(Explosion.style.CENTER, tickCount + 5 + bomb.getDetonationRadius());
+		center.setCoordinates(x, y);
+		center.setGameBoard(gameBoard);
+		center.setGameData(bomb.getGameData());
+		list.add(center);
+		present.add(center);
+		gameBoard.setElements(x, y, present);
+
+		bomb.destroy();
+
+		list.addAll(recursivePropagate(bomb, x, y, 0, 0, Explosion.style.CENTER, 1, tickCount));
+		list.addAll(recursivePropagate(bomb, x, y, -1, 0, Explosion.style.HORIZONTAL, bomb.getDetonationRadius(), tickCount));
+		list.addAll(recursivePropagate(bomb, x, y, 1, 0, Explosion.style.HORIZONTAL, bomb.getDetonationRadius(), tickCount));
+		list.addAll(recursivePropagate(bomb, x, y, 0, -1, Explosion.style.VERTICAL, bomb.getDetonationRadius(), tickCount));
+		list.addAll(recursivePropagate(bomb, x, y, 0, 1, Explosion.style.VERTICAL, bomb.getDetonationRadius(), tickCount));
+		return list;
+	}
+
+	private ArrayList<Explosion> recursivePropagate (Bomb bomb, int px, int py, int dx, int dy, Explosion.style style, int range, long tickCount) {
+		ArrayList<Explosion> list = new ArrayList<Explosion>();
+		IGameBoard<GameElement> gameBoard = bomb.getGameData().getBoard();
+		int x = px + dx, y = py + dy;
+		if (!gameBoard.checkCoordinates(x, y)) {
+			return list;
+		}
+
+		boolean isStopped = false;
+		ArrayList<GameElement> toRemove = new ArrayList<GameElement>();
+		ArrayList<Bomb> toExplode = new ArrayList<Bomb>();
+		List<GameElement> present = gameBoard.getElements(x, y);
+		for (GameElement e : present) {
+			if (e instanceof Bomb) {
+				((Bomb) e).setPlayer(bomb.getPlayer());
+				toExplode.add((Bomb) e);
+			}
+			else if (e.isSolid()) {
+				isStopped = true;
+			}
+
+			if (e.isDestroyable()) {
+				if (e instanceof Player) {
+					bomb.getPlayer().addKill((Player) e);
+				}
+				toRemove.add(e);
+			}
+		}
+
+		for (Bomb b : toExplode) {
+			list.addAll(recursiveExplode(b, tickCount));
+		}
+
+		if (isStopped && toRemove.isEmpty()) {
+			return list;
+		}
+
+		Explosion ex = new Explosion(style, tickCount + 5 + range);
+		ex.setCoordinates(x, y);
+		ex.setGameBoard(gameBoard);
+		ex.setGameData(bomb.getGameData());
+		list.add(ex);
+		present.add(ex);
+		gameBoard.setElements(x, y, present);
+
+		for (GameElement e : toRemove) {
+			e.destroy();
+		}
+
+		if (!isStopped && range > 0) {
+			list.addAll(recursivePropagate(bomb, x, y, dx, dy, style, range - 1, tickCount));
+		}
+		return list;
+	}
+}
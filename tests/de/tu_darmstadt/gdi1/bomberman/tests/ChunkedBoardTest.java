@@ -0,0 +1,221 @@
+package de.tu_darmstadt.gdi1.bomberman.tests;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import de.tu_darmstadt.gdi1.bomberman.game.MatchRandom;
+import de.tu_darmstadt.gdi1.bomberman.game.board.BitBoard;
+import de.tu_darmstadt.gdi1.bomberman.game.board.BombermanBoard;
+import de.tu_darmstadt.gdi1.bomberman.game.board.ChunkedBoard;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Floor;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.GameElement;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Player;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Stone;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Wall;
+import de.tu_darmstadt.gdi1.bomberman.game.levels.BombermanGameData;
+import de.tu_darmstadt.gdi1.bomberman.game.levels.BombermanLevelGenerator;
+import de.tu_darmstadt.gdi1.bomberman.game.levels.BombermanLevelManager;
+import de.tu_darmstadt.gdi1.bomberman.simulation.HeadlessSimulation;
+
+/**
+ * Prüft das ChunkedBoard: Chunks erst bei Bedarf, ruhende Chunks, gleiches Verhalten wie ein
+ * BombermanBoard und große Level.
+ */
+public class ChunkedBoardTest {
+
+	@Test
+	public void testChunksOnDemand () {
+		ChunkedBoard board = new ChunkedBoard(100, 70);
+		assertEquals(4, board.getChunksX());
+		assertEquals(3, board.getChunksY());
+
+		// Reading allocates no chunk, peeking allocates nothing at all
+		assertSame(board.peekElements(10, 10), board.peekElements(60, 50));
+		List<GameElement> field = board.getElements(50, 40);
+		assertTrue(field.isEmpty());
+		assertEquals(0, board.getAllocatedChunks());
+
+		field.add(new Stone());
+		assertEquals(1, board.getAllocatedChunks());
+		assertTrue(board.isAllocated(1, 1));
+		assertEquals(1, field.size());
+		assertTrue(board.getBits().get(BitBoard.STONE, 50, 40));
+		assertEquals(1, board.count(1, 1, BitBoard.STONE));
+
+		// The usual get, change, set back on a field that was empty
+		List<GameElement> other = board.getElements(99, 69);
+		other.add(new Wall());
+		board.setElements(99, 69, other);
+		assertEquals(1, board.getElements(99, 69).size());
+		assertEquals(2, board.getAllocatedChunks());
+
+		field.remove(0);
+		assertEquals(0, board.count(1, 1, BitBoard.STONE));
+		assertFalse(board.getBits().isSolid(50, 40));
+	}
+
+	@Test
+	public void testDormantChunks () {
+		ChunkedBoard board = new ChunkedBoard(64, 64);
+		board.getElements(40, 3).add(new Stone());
+		assertTrue(board.isDormant(1, 0));
+		assertEquals(0, board.getActiveChunks());
+
+		Player player = new Player(1);
+		board.getElements(40, 5).add(player);
+		board.getElements(41, 5).add(new Player(2));
+		assertFalse(board.isDormantAt(40, 5));
+		assertTrue(board.isDormant(0, 0));
+		assertEquals(1, board.getActiveChunks());
+
+		board.getElements(40, 5).remove(player);
+		assertFalse(board.isDormant(1, 0));
+		board.getElements(41, 5).clear();
+		assertTrue(board.isDormant(1, 0));
+		assertEquals(0, board.getActiveChunks());
+	}
+
+	@Test
+	public void testSameAsBombermanBoard () {
+		BombermanBoard plain = new BombermanBoard(70, 45);
+		ChunkedBoard chunked = new ChunkedBoard(70, 45);
+		MatchRandom random = new MatchRandom(7);
+		for (int x = 0; x < 70; x++) {
+			for (int y = 0; y < 45; y++) {
+				// Leave a region empty, so that some chunks stay unallocated
+				if (x < 32 && y < 32)
+					continue;
+				int r = random.nextInt(4);
+				if (r == 0)
+					continue;
+				// Elements compare by identity, so both boards get the same ones
+				List<GameElement> field = new ArrayList<GameElement>();
+				field.add(new Floor());
+				if (r == 2)
+					field.add(new Stone());
+				else if (r == 3)
+					field.add(new Wall());
+				for (BombermanBoard board : new BombermanBoard[] {plain, chunked}) {
+					board.getElements(x, y).addAll(field);
+				}
+			}
+		}
+		assertFalse(chunked.isAllocated(0, 0));
+		assertTrue(plain.equals(chunked));
+		assertTrue(chunked.equals(plain));
+		assertEquals(plain.hashCode(), chunked.hashCode());
+		assertEquals(plain.getBits().checksum(), chunked.getBits().checksum());
+
+		List<Stone> fromPlain = plain.collect(BitBoard.STONE, Stone.class, new ArrayList<Stone>());
+		List<Stone> fromChunked = chunked.collect(BitBoard.STONE, Stone.class, new ArrayList<Stone>());
+		assertEquals(plain.getBits().count(BitBoard.STONE), fromChunked.size());
+		assertEquals(fromPlain.size(), fromChunked.size());
+		for (int i = 0; i < fromPlain.size(); i++) {
+			assertSame(fromPlain.get(i), fromChunked.get(i));
+		}
+
+		ChunkedBoard clone = chunked.clone();
+		assertEquals(chunked.getBits().checksum(), clone.getBits().checksum());
+		assertEquals(chunked.getAllocatedChunks(), clone.getAllocatedChunks());
+		chunked.getElements(69, 44).add(new Stone());
+		assertFalse(plain.equals(chunked));
+	}
+
+	/**
+	 * Große Level landen in einem ChunkedBoard und spielen sich wie kleine, mightyBlow() findet
+	 * jeden Stein.
+	 */
+	@Test
+	public void testLargeLevel () throws Exception {
+		BombermanGameData data = null;
+		for (long seed = 1; data == null; seed++) {
+			try {
+				String level = BombermanLevelGenerator.generateGrid(300, 4, new MatchRandom(seed));
+				data = (BombermanGameData) new BombermanLevelManager(false).loadLevel(level);
+			} catch (Exception e) {
+				// Players walled in, try the next seed
+			}
+		}
+		assertTrue(data.getBoard() instanceof ChunkedBoard);
+		assertEquals(4, data.getPlayers().size());
+
+		HeadlessSimulation sim = new HeadlessSimulation(data);
+		sim.setRandomBots(1);
+		sim.run(100);
+		assertTrue(((ChunkedBoard) data.getBoard()).getActiveChunks() <= 4 + data.getBombs().size() * 5);
+
+		int stones = data.getBitBoard().count(BitBoard.STONE);
+		assertTrue(stones > 0);
+		assertEquals(stones, data.getPlayer(1).mightyBlow().size());
+		assertEquals(0, data.getBitBoard().count(BitBoard.STONE));
+	}
+
+	/**
+	 * Ein generiertes Schlachtfeld ohne Steine: Boden und Mauern stehen nur in Bits, angelegt
+	 * werden nur die Chunks, in denen Spieler (oder der Delegate) stehen.
+	 */
+	@Test
+	public void testGeneratedLevelLeavesTerrainImplicit () throws Exception {
+		String level = BombermanLevelGenerator.generateGrid(300, 4, 0, new MatchRandom(1));
+		BombermanGameData data = (BombermanGameData) new BombermanLevelManager(false).loadLevel(level);
+		ChunkedBoard board = (ChunkedBoard) data.getBoard();
+		int total = board.getChunksX() * board.getChunksY();
+		assertEquals(4, board.getAllocatedChunks());
+
+		// Terrain outside the chunks reads like everywhere else
+		List<GameElement> border = board.getElements(150, 0);
+		assertEquals(2, border.size());
+		assertTrue(border.get(0) instanceof Floor);
+		assertTrue(border.get(1) instanceof Wall);
+		assertTrue(board.getBits().isSolid(150, 0));
+		assertTrue(board.peekElements(150, 150).get(0) instanceof Floor);
+		assertSame(board.peekElements(150, 150), board.peekElements(200, 200));
+		assertEquals(4, board.getAllocatedChunks());
+
+		HeadlessSimulation sim = new HeadlessSimulation(data);
+		sim.setRandomBots(1);
+		sim.run(100);
+		assertTrue(board.getAllocatedChunks() < total);
+		assertEquals(board.getBits().count(BitBoard.WALL),
+				board.collect(BitBoard.WALL, Wall.class, new ArrayList<Wall>()).size());
+
+		// Changing a field fills its new chunk with the terrain it had
+		assertFalse(board.isAllocated(4, 0));
+		board.getElements(150, 1).add(new Stone());
+		assertTrue(board.isAllocated(4, 0));
+		assertEquals(2, board.getElements(150, 1).size());
+		assertTrue(board.getElements(150, 1).get(0) instanceof Floor);
+		assertEquals(ChunkedBoard.CHUNK_SIZE, board.count(4, 0, BitBoard.WALL));
+	}
+
+	/**
+	 * 2000x2000 mit nichts als Rand und vier Spielern: nur die Chunks am Rand werden angelegt.
+	 */
+	@Test
+	public void testHugeSparseBoard () {
+		ChunkedBoard board = new ChunkedBoard(2000, 2000);
+		for (int i = 0; i < 2000; i++) {
+			board.getElements(i, 0).add(new Wall());
+			board.getElements(i, 1999).add(new Wall());
+			board.getElements(0, i).add(new Wall());
+			board.getElements(1999, i).add(new Wall());
+		}
+		board.getElements(1, 1).add(new Player(1));
+		board.getElements(1998, 1).add(new Player(2));
+		board.getElements(1, 1998).add(new Player(3));
+		board.getElements(1998, 1998).add(new Player(4));
+
+		int edge = board.getChunksX();
+		assertEquals(4 * edge - 4, board.getAllocatedChunks());
+		assertEquals(4, board.getActiveChunks());
+
+		BombermanGameData data = new BombermanGameData(board);
+		assertSame(board, data.getBoard());
+		assertEquals(4, data.getPlayers().size());
+		assertEquals(4, board.collect(BitBoard.PLAYER, Player.class, new ArrayList<Player>()).size());
+		assertEquals(4 * edge - 4, board.getAllocatedChunks());
+	}
+}
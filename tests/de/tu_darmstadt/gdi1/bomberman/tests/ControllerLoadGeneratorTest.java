@@ -0,0 +1,33 @@
+package de.tu_darmstadt.gdi1.bomberman.tests;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import de.tu_darmstadt.gdi1.bomberman.simulation.ControllerLoadGenerator;
+
+/**
+ * Ein kurzer Lauf des Lastgenerators gegen Controller und Spielschleife, headless. Geprüft wird
+ * nur, dass die Eingaben über Eventqueue und InputBuffer im Spiel ankommen - Zeiten hängen vom
+ * Rechner ab.
+ */
+public class ControllerLoadGeneratorTest {
+
+	@Test
+	public void testSuperhumanInput () throws Exception {
+		ControllerLoadGenerator generator = new ControllerLoadGenerator(42, false);
+		try {
+			generator.run(ControllerLoadGenerator.Profile.SUPERHUMAN, TimeUnit.MILLISECONDS.toNanos(500), 0);
+
+			assertTrue(generator.getEventsSent() > 0);
+			assertTrue(generator.getTicksExecuted() > 0);
+			assertTrue(generator.getAppliedPresses() > 0);
+			assertTrue(generator.getAppliedPresses() <= generator.getEventsSent());
+			assertTrue(generator.getMaxLatencyNanos() >= generator.getAverageLatencyNanos());
+			assertEquals(generator.getTicksExecuted(), generator.getProfiler().getTicks(), 2);
+		} finally {
+			generator.close();
+		}
+	}
+}
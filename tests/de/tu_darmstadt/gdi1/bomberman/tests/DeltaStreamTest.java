@@ -0,0 +1,112 @@
+package de.tu_darmstadt.gdi1.bomberman.tests;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import de.tu_darmstadt.gdi1.bomberman.game.board.BitBoard;
+import de.tu_darmstadt.gdi1.bomberman.game.levels.BombermanGameData;
+import de.tu_darmstadt.gdi1.bomberman.net.DeltaStream;
+import de.tu_darmstadt.gdi1.bomberman.net.Protocol;
+import de.tu_darmstadt.gdi1.bomberman.net.StateFrame;
+import de.tu_darmstadt.gdi1.bomberman.simulation.HeadlessSimulation;
+
+/**
+ * Prüft, dass ein Client, der nur DELTAs bekommt, immer dasselbe Spielfeld hat wie der Server.
+ */
+public class DeltaStreamTest {
+	String simpleLevel = "###################\n"+
+						 "#1 ***  *  * *** 2#\n"+
+						 "# ###*#*# #*#*### #\n"+
+						 "# #* *  ***  * *#*#\n"+
+						 "#*#*# #*#*#*# #*#*#\n"+
+						 "#* ************  *#\n"+
+						 "#*#*# #*#*#*# #*#*#\n"+
+						 "#*#* *  ***  * *#*#\n"+
+						 "# ###*#*# #*#*### #\n"+
+						 "#3 ***  *  * *** 4#\n"+
+						 "###################\n";
+
+	/**
+	 * Spielt Matches und lässt den Client dabei unterschiedlich weit zurückliegen, wie bei
+	 * verlorenen oder verspäteten Bestätigungen.
+	 */
+	@Test
+	public void testDeltasRebuildBoard () throws Exception {
+		for (long seed = 1; seed <= 3; seed++) {
+			HeadlessSimulation sim = HeadlessSimulation.fromLevelString(simpleLevel);
+			sim.setSeed(seed);
+			BombermanGameData data = sim.getGame().getBombermanGameData();
+			BitBoard bits = data.getBitBoard();
+			DeltaStream stream = new DeltaStream(bits.getWidth(), bits.getHeight(), 16);
+
+			DeltaStream.Tick first = DeltaStream.capture(data, 0, 0, true);
+			stream.add(first);
+			StateFrame client = new StateFrame();
+			read(client, first.getKeyframe());
+
+			int deltas = 0;
+			while (!sim.isDecided() && sim.getGame().getTickCount() < 3000) {
+				sim.run(1);
+				long tick = sim.getGame().getTickCount();
+				stream.add(DeltaStream.capture(data, tick, 0, false));
+
+				// The client only catches up every few ticks
+				if (tick % (1 + seed * 2) != 0)
+					continue;
+				assertTrue(stream.canEncode(client.getTick()));
+				ByteBuffer delta = stream.encode(client.getTick());
+				assertSame("same base, same buffer", delta, stream.encode(client.getTick()));
+				assertTrue(read(client, delta));
+				deltas++;
+
+				assertEquals(tick, client.getTick());
+				for (int y = 0; y < bits.getHeight(); y++) {
+					for (int x = 0; x < bits.getWidth(); x++) {
+						assertEquals("Tick " + tick + " at " + x + "," + y, bits.getMask(x, y), client.getMask(x, y));
+					}
+				}
+			}
+			assertTrue(deltas > 10);
+		}
+	}
+
+	@Test
+	public void testHistoryLimit () throws Exception {
+		HeadlessSimulation sim = HeadlessSimulation.fromLevelString(simpleLevel);
+		BombermanGameData data = sim.getGame().getBombermanGameData();
+		DeltaStream stream = new DeltaStream(19, 11, 4);
+		assertFalse(stream.canEncode(0));
+
+		for (long tick = 0; tick <= 10; tick++) {
+			stream.add(DeltaStream.capture(data, tick, 0, false));
+		}
+		assertTrue(stream.canEncode(6));
+		assertTrue(stream.canEncode(10));
+		assertFalse(stream.canEncode(5));
+		assertFalse(stream.canEncode(11));
+
+		// A gap starts over
+		stream.add(DeltaStream.capture(data, 12, 0, false));
+		assertTrue(stream.canEncode(11));
+		assertFalse(stream.canEncode(10));
+	}
+
+	/**
+	 * Liest eine Nachricht so, wie sie über die Leitung kommt.
+	 */
+	private boolean read (StateFrame frame, ByteBuffer message) {
+		ByteBuffer in = message.duplicate();
+		byte type = in.get();
+		assertEquals(in.remaining() - 4, in.getInt());
+		if (type == Protocol.STATE) {
+			frame.read(in);
+			return true;
+		}
+		assertEquals(Protocol.DELTA, type);
+		boolean applied = frame.readDelta(in);
+		assertFalse(in.hasRemaining());
+		return applied;
+	}
+}
@@ -0,0 +1,90 @@
+package de.tu_darmstadt.gdi1.bomberman.tests;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import de.tu_darmstadt.gdi1.bomberman.game.EntityTable;
+import de.tu_darmstadt.gdi1.bomberman.game.MatchRandom;
+
+/**
+ * Prüft Hinzufügen, Entfernen und Nachsehen der EntityTable gegen eine einfache Liste.
+ */
+public class EntityTableTest {
+
+	static final class Item {
+		final int id;
+		int slot = -1;
+
+		Item (int id) {
+			this.id = id;
+		}
+	}
+
+	static final EntityTable.Slots<Item> SLOTS = new EntityTable.Slots<Item>() {
+		public int getSlot (Item item) {
+			return item.slot;
+		}
+
+		public void setSlot (Item item, int slot) {
+			item.slot = slot;
+		}
+	};
+
+	@Test
+	public void testSwapRemove () {
+		EntityTable<Item> table = new EntityTable<Item>(SLOTS, 2);
+		Item a = new Item(1), b = new Item(2), c = new Item(3);
+		assertTrue(table.add(a));
+		assertTrue(table.add(b));
+		assertTrue(table.add(c));
+		assertFalse("no duplicates", table.add(b));
+		assertEquals(3, table.size());
+
+		// The last one moves into the gap
+		assertTrue(table.swapRemove(a));
+		assertFalse(table.swapRemove(a));
+		assertFalse(table.has(a));
+		assertEquals(-1, table.slotOf(a));
+		assertSame(c, table.get(0));
+		assertSame(b, table.get(1));
+		assertEquals(0, table.slotOf(c));
+
+		table.clear();
+		assertTrue(table.isEmpty());
+		assertFalse(table.has(b));
+		assertTrue(table.add(b));
+		assertEquals(0, table.slotOf(b));
+	}
+
+	@Test
+	public void testAgainstList () {
+		MatchRandom random = new MatchRandom(42);
+		EntityTable<Item> table = new EntityTable<Item>(SLOTS);
+		List<Item> expected = new ArrayList<Item>();
+		Item[] pool = new Item[50];
+		for (int i = 0; i < pool.length; i++) {
+			pool[i] = new Item(i);
+		}
+
+		for (int step = 0; step < 10000; step++) {
+			Item item = pool[random.nextInt(pool.length)];
+			if (random.nextInt(2) == 0) {
+				assertEquals(!expected.contains(item), table.add(item));
+				if (!expected.contains(item))
+					expected.add(item);
+			} else {
+				assertEquals(expected.remove(item), table.swapRemove(item));
+			}
+
+			assertEquals(expected.size(), table.size());
+			for (Item i : pool) {
+				assertEquals(expected.contains(i), table.has(i));
+				if (table.has(i))
+					assertSame(i, table.get(table.slotOf(i)));
+			}
+		}
+	}
+}
@@ -0,0 +1,205 @@
+package de.tu_darmstadt.gdi1.bomberman.tests;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import de.tu_darmstadt.gdi1.bomberman.game.board.BitBoard;
+import de.tu_darmstadt.gdi1.bomberman.game.levels.BombermanGameData;
+import de.tu_darmstadt.gdi1.bomberman.game.levels.BombermanLevelManager;
+import de.tu_darmstadt.gdi1.bomberman.gui.ControllerInputEvent;
+import de.tu_darmstadt.gdi1.bomberman.net.GameServer;
+import de.tu_darmstadt.gdi1.bomberman.net.Protocol;
+import de.tu_darmstadt.gdi1.bomberman.net.StateFrame;
+
+/**
+ * Spielt über echte Sockets gegen einen GameServer auf einem freien Port.
+ */
+public class GameServerTest {
+	String simpleLevel = "###################\n"+
+						 "#1 ***  *  * *** 2#\n"+
+						 "# ###*#*# #*#*### #\n"+
+						 "# #* *  ***  * *#*#\n"+
+						 "#*#*# #*#*#*# #*#*#\n"+
+						 "#* ************  *#\n"+
+						 "#*#*# #*#*#*# #*#*#\n"+
+						 "#*#* *  ***  * *#*#\n"+
+						 "# ###*#*# #*#*### #\n"+
+						 "#3 ***  *  * *** 4#\n"+
+						 "###################\n";
+
+	/**
+	 * Vier Spieler und ein Zuschauer verbinden sich, Spieler 1 legt eine Bombe, und alle sehen
+	 * sie im Spielstand. Nach dem ersten kompletten Stand kommen nur noch DELTAs, für den Spieler,
+	 * der jeden Stand bestätigt, wie für den Zuschauer, der nie etwas bestätigt.
+	 */
+	@Test
+	public void testPlayersAndSpectatorSeeBomb () throws Exception {
+		BombermanGameData data = (BombermanGameData) new BombermanLevelManager(false).loadLevel(simpleLevel);
+		data.getContext().setTickRate(10);
+		GameServer server = new GameServer(data, 0);
+		server.bind();
+		Thread serverThread = new Thread(server, "GameServer");
+		serverThread.start();
+
+		Socket[] sockets = new Socket[5];
+		DataInputStream[] ins = new DataInputStream[sockets.length];
+		try {
+			for (int i = 0; i < sockets.length; i++) {
+				sockets[i] = new Socket("127.0.0.1", server.getPort());
+				sockets[i].setSoTimeout(5000);
+				ins[i] = new DataInputStream(sockets[i].getInputStream());
+
+				assertEquals(Protocol.WELCOME, ins[i].readByte());
+				// The first four get the players in order, everyone after that only watches
+				assertEquals(i < 4 ? i + 1 : 0, ins[i].readShort());
+				assertEquals(19, ins[i].readShort());
+				assertEquals(11, ins[i].readShort());
+				assertEquals(10000000L, ins[i].readLong());
+			}
+
+			ByteBuffer out = ByteBuffer.allocate(Protocol.INPUT_SIZE);
+			Protocol.writeInput(out, ControllerInputEvent.button.BOMB, ControllerInputEvent.state.PRESSED);
+			DataOutputStream player1 = new DataOutputStream(sockets[0].getOutputStream());
+			player1.write(out.array());
+			player1.flush();
+
+			assertTrue("player sees the bomb", waitForBomb(ins[0], player1, 1, 1));
+			assertTrue("spectator sees the bomb", waitForBomb(ins[4], null, 1, 1));
+		} finally {
+			for (Socket s : sockets) {
+				if (s != null)
+					s.close();
+			}
+			server.stop();
+			serverThread.join(5000);
+		}
+		assertFalse(serverThread.isAlive());
+		assertTrue(server.getFramesSent() > 0);
+		assertTrue(server.getKeyframesSent() < server.getFramesSent());
+		assertEquals(0, server.getResyncs());
+	}
+
+	/**
+	 * Eine Lobby mit zwei Räumen: jeder Raum vergibt seine eigenen Spieler und startet für sich.
+	 */
+	@Test
+	public void testLobbyRooms () throws Exception {
+		GameServer server = new GameServer(simpleLevel, 0);
+		server.setTickRate(10);
+		server.setTickThreads(2);
+		server.bind();
+		Thread serverThread = new Thread(server, "GameServer");
+		serverThread.start();
+
+		Socket[] sockets = new Socket[8];
+		try {
+			ByteBuffer join = ByteBuffer.allocate(Protocol.JOIN_SIZE);
+			for (int i = 0; i < sockets.length; i++) {
+				sockets[i] = new Socket("127.0.0.1", server.getPort());
+				sockets[i].setSoTimeout(5000);
+				join.clear();
+				Protocol.writeJoin(join, 10 + i % 2);
+				sockets[i].getOutputStream().write(join.array());
+
+				DataInputStream in = new DataInputStream(sockets[i].getInputStream());
+				assertEquals(Protocol.WELCOME, in.readByte());
+				assertEquals(i / 2 + 1, in.readShort());
+			}
+			assertEquals(2, server.getOpenRooms());
+
+			// Both matches are running
+			for (int i = 0; i < 2; i++) {
+				DataInputStream in = new DataInputStream(sockets[i].getInputStream());
+				in.skipBytes(Protocol.WELCOME_SIZE - 3);
+				assertEquals(Protocol.STATE, in.readByte());
+			}
+		} finally {
+			for (Socket s : sockets) {
+				if (s != null)
+					s.close();
+			}
+			server.stop();
+			serverThread.join(5000);
+		}
+		assertFalse(serverThread.isAlive());
+	}
+
+	/**
+	 * Verlassen alle Clients einen Raum, bevor sein Match startet, wird er geschlossen und macht
+	 * Platz für den nächsten - sonst wäre die Lobby nach maxRooms solchen Räumen voll.
+	 */
+	@Test
+	public void testAbandonedLobbyRoomIsClosed () throws Exception {
+		GameServer server = new GameServer(simpleLevel, 0);
+		server.setMaxRooms(1);
+		server.bind();
+		Thread serverThread = new Thread(server, "GameServer");
+		serverThread.start();
+
+		try {
+			ByteBuffer join = ByteBuffer.allocate(Protocol.JOIN_SIZE);
+			for (int i = 0; i < 3; i++) {
+				Socket socket = new Socket("127.0.0.1", server.getPort());
+				try {
+					socket.setSoTimeout(5000);
+					join.clear();
+					Protocol.writeJoin(join, 20 + i);
+					socket.getOutputStream().write(join.array());
+
+					DataInputStream in = new DataInputStream(socket.getInputStream());
+					assertEquals(Protocol.WELCOME, in.readByte());
+					assertEquals(1, in.readShort());
+					assertEquals(1, server.getOpenRooms());
+				} finally {
+					socket.close();
+				}
+
+				for (int wait = 0; wait < 500 && server.getOpenRooms() > 0; wait++) {
+					Thread.sleep(10);
+				}
+				assertEquals(0, server.getOpenRooms());
+			}
+		} finally {
+			server.stop();
+			serverThread.join(5000);
+		}
+		assertFalse(serverThread.isAlive());
+		assertEquals(0, server.getRoomsFinished());
+	}
+
+	/**
+	 * Liest Spielstände, bis auf dem Feld eine Bombe liegt.
+	 * @param ack Bekommt für jeden Stand ein ACK, null um nie etwas zu bestätigen.
+	 */
+	private boolean waitForBomb (DataInputStream in, DataOutputStream ack, int x, int y) throws IOException {
+		StateFrame frame = new StateFrame();
+		ByteBuffer out = ByteBuffer.allocate(Protocol.ACK_SIZE);
+		for (int i = 0; i < 200; i++) {
+			byte type = in.readByte();
+			byte[] body = new byte[in.readInt()];
+			in.readFully(body);
+			if (type == Protocol.STATE) {
+				frame.read(ByteBuffer.wrap(body));
+			} else {
+				assertEquals(Protocol.DELTA, type);
+				frame.readDelta(ByteBuffer.wrap(body));
+			}
+
+			if (ack != null) {
+				out.clear();
+				Protocol.writeAck(out, frame.getTick());
+				ack.write(out.array());
+				ack.flush();
+			}
+			if ((frame.getMask(x, y) & BitBoard.BOMB_BIT) != 0)
+				return true;
+		}
+		return false;
+	}
+}
@@ -0,0 +1,58 @@
+package de.tu_darmstadt.gdi1.bomberman.tests;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import de.tu_darmstadt.gdi1.bomberman.simulation.HeadlessSimulation;
+import de.tu_darmstadt.gdi1.bomberman.simulation.SimulationResult;
+
+/**
+ * Prüft, dass Matches ohne GUI bis zum Ende durchlaufen.
+ */
+public class HeadlessSimulationTest {
+	String simpleLevel = "###################\n"+
+						 "#1 ***  *  * *** 2#\n"+
+						 "# ###*#*# #*#*### #\n"+
+						 "# #* *  ***  * *#*#\n"+
+						 "#*#*# #*#*#*# #*#*#\n"+
+						 "#* ************  *#\n"+
+						 "#*#*# #*#*#*# #*#*#\n"+
+						 "#*#* *  ***  * *#*#\n"+
+						 "# ###*#*# #*#*### #\n"+
+						 "#3 ***  *  * *** 4#\n"+
+						 "###################\n";
+
+	/**
+	 * Ohne Bots passiert nichts, bis Sudden Death alle Spieler einmauert.
+	 */
+	@Test
+	public void testIdleMatchEndsBySuddenDeath () throws Exception {
+		HeadlessSimulation sim = HeadlessSimulation.fromLevelString(simpleLevel);
+		SimulationResult result = sim.run();
+
+		assertTrue(result.isFinished());
+		assertTrue(result.getTicks() > 300 * 20);
+		assertTrue(result.getTicks() < HeadlessSimulation.DEFAULT_MAX_TICKS);
+	}
+
+	@Test
+	public void testRandomBotsFinishMatch () throws Exception {
+		HeadlessSimulation sim = HeadlessSimulation.fromLevelString(simpleLevel);
+		sim.setRandomBots(42);
+		SimulationResult result = sim.run();
+
+		assertTrue(result.isFinished());
+		assertEquals(sim.getWinner(), result.getWinner());
+		assertTrue(sim.getGame().isHeadless());
+	}
+
+	@Test
+	public void testTickLimit () throws Exception {
+		HeadlessSimulation sim = HeadlessSimulation.fromLevelString(simpleLevel);
+		SimulationResult result = sim.run(100);
+
+		assertFalse(result.isFinished());
+		assertEquals(100, result.getTicks());
+		assertEquals(SimulationResult.NO_WINNER, result.getWinner());
+	}
+}
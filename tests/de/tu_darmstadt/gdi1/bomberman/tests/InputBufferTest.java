@@ -0,0 +1,96 @@
+package de.tu_darmstadt.gdi1.bomberman.tests;
+
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import de.tu_darmstadt.gdi1.bomberman.game.BombermanGame;
+import de.tu_darmstadt.gdi1.bomberman.game.InputBuffer;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Player;
+import de.tu_darmstadt.gdi1.bomberman.game.levels.BombermanGameData;
+import de.tu_darmstadt.gdi1.bomberman.game.levels.BombermanLevelManager;
+import de.tu_darmstadt.gdi1.bomberman.gui.ControllerInputEvent;
+import de.tu_darmstadt.gdi1.bomberman.gui.ControllerInputEvent.button;
+import de.tu_darmstadt.gdi1.bomberman.gui.ControllerInputEvent.state;
+
+/**
+ * Prüft, dass Eingaben gesammelt und erst im nächsten Tick angewendet werden.
+ */
+public class InputBufferTest {
+	String simpleLevel = "###################\n"+
+						 "#1 ***  *  * *** 2#\n"+
+						 "# ###*#*# #*#*### #\n"+
+						 "# #* *  ***  * *#*#\n"+
+						 "#*#*# #*#*#*# #*#*#\n"+
+						 "#* ************  *#\n"+
+						 "#*#*# #*#*#*# #*#*#\n"+
+						 "#*#* *  ***  * *#*#\n"+
+						 "# ###*#*# #*#*### #\n"+
+						 "#3 ***  *  * *** 4#\n"+
+						 "###################\n";
+
+	@Test
+	public void testInputWaitsForTick () throws Exception {
+		BombermanLevelManager levelManager = new BombermanLevelManager(false);
+		BombermanGameData data = (BombermanGameData) levelManager.loadLevel(simpleLevel);
+		BombermanGame game = new BombermanGame(data);
+		Player pl = data.getPlayer(1);
+
+		game.handleInputEvent(new ControllerInputEvent(1, button.BOMB, state.PRESSED));
+		game.handleInputEvent(new ControllerInputEvent(1, button.DOWN, state.PRESSED));
+		assertTrue(data.getBombs().isEmpty());
+		assertEquals(1, pl.getY());
+
+		game.tick();
+		assertEquals(1, data.getBombs().size());
+		assertEquals(1, data.getBombs().iterator().next().getY());
+		assertEquals(2, pl.getY());
+		assertEquals(2, data.getInputBuffer().getAppliedPresses());
+	}
+
+	@Test
+	public void testTapStillMoves () {
+		InputBuffer buffer = new InputBuffer();
+		buffer.offer(1, button.RIGHT, state.PRESSED, System.nanoTime());
+		buffer.offer(1, button.RIGHT, state.RELEASED, System.nanoTime());
+
+		List<InputBuffer.PlayerInput> inputs = buffer.drain();
+		assertEquals(1, inputs.size());
+		assertEquals(Player.direction.RIGHT, inputs.get(0).getTapped());
+		assertEquals(Player.direction.NULL, inputs.get(0).getDirection());
+
+		// Consumed inputs are gone
+		assertTrue(buffer.drain().isEmpty());
+	}
+
+	@Test
+	public void testReleaseOfOlderDirection () {
+		InputBuffer buffer = new InputBuffer();
+		buffer.offer(2, button.UP, state.RELEASED, System.nanoTime());
+		buffer.offer(2, button.LEFT, state.PRESSED, System.nanoTime());
+		buffer.offer(1, button.BOMB, state.PRESSED, System.nanoTime());
+
+		List<InputBuffer.PlayerInput> inputs = buffer.drain();
+		assertEquals(2, inputs.size());
+		assertEquals(1, inputs.get(0).getPlayerIndex());
+		assertTrue(inputs.get(0).isBomb());
+
+		InputBuffer.PlayerInput second = inputs.get(1);
+		assertEquals(Player.direction.UP, second.getReleased());
+		assertEquals(Player.direction.LEFT, second.getDirection());
+		assertEquals(Player.direction.NULL, second.getTapped());
+	}
+
+	@Test
+	public void testLatency () throws Exception {
+		InputBuffer buffer = new InputBuffer();
+		buffer.offer(1, button.DOWN, state.PRESSED, System.nanoTime());
+		Thread.sleep(5);
+		buffer.drain();
+
+		assertEquals(1, buffer.getAppliedPresses());
+		assertTrue(buffer.getAverageLatencyNanos() >= 5000000);
+		assertEquals(buffer.getLastLatencyNanos(), buffer.getMaxLatencyNanos());
+	}
+}
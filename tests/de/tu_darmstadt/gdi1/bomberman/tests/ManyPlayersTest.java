@@ -0,0 +1,157 @@
+package de.tu_darmstadt.gdi1.bomberman.tests;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import de.tu_darmstadt.gdi1.bomberman.game.MatchRandom;
+import de.tu_darmstadt.gdi1.bomberman.game.board.BitBoard;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.GameElement;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Player;
+import de.tu_darmstadt.gdi1.bomberman.game.levels.BombermanGameData;
+import de.tu_darmstadt.gdi1.bomberman.game.levels.BombermanLevelGenerator;
+import de.tu_darmstadt.gdi1.bomberman.game.levels.BombermanLevelManager;
+import de.tu_darmstadt.gdi1.bomberman.simulation.HeadlessSimulation;
+import de.tu_darmstadt.gdi1.framework.exceptions.InvalidLevelDataException;
+
+/**
+ * Level mit mehr als vier Spielern: Spawnpunkte, Nummerierung und ein Match mit allen.
+ */
+public class ManyPlayersTest {
+
+	/**
+	 * 2 und 5 stehen fest, die acht Spawnpunkte bekommen in Lesereihenfolge 1, 3, 4, 6, 7, ...
+	 */
+	static final String SPAWNS =
+		"###########\n" +
+		"#+ + 2 + +#\n" +
+		"# # # # # #\n" +
+		"#+ * 5 * +#\n" +
+		"# # # # # #\n" +
+		"#+   *   +#\n" +
+		"###########";
+
+	static BombermanGameData load (String level) throws InvalidLevelDataException {
+		return (BombermanGameData) new BombermanLevelManager(false).loadLevel(level);
+	}
+
+	@Test
+	public void testSpawnPointsNumbered () throws Exception {
+		BombermanGameData data = load(SPAWNS);
+		assertEquals(10, data.getPlayers().size());
+
+		int[][] expected = {{1, 1, 1}, {3, 3, 1}, {2, 5, 1}, {4, 7, 1}, {6, 9, 1},
+				{7, 1, 3}, {5, 5, 3}, {8, 9, 3}, {9, 1, 5}, {10, 9, 5}};
+		for (int[] e : expected) {
+			Player pl = data.getPlayer(e[0]);
+			assertNotNull("Player " + e[0], pl);
+			assertEquals(e[1], pl.getX());
+			assertEquals(e[2], pl.getY());
+		}
+	}
+
+	@Test
+	public void testTooManyPlayers () {
+		StringBuilder level = new StringBuilder();
+		int width = Player.MAX_PLAYERS + 4;
+		for (int i = 0; i < width; i++)
+			level.append('#');
+		level.append("\n#");
+		for (int i = 0; i <= Player.MAX_PLAYERS; i++)
+			level.append('+');
+		level.append(" #\n");
+		for (int i = 0; i < width; i++)
+			level.append('#');
+
+		try {
+			load(level.toString());
+			fail("More than " + Player.MAX_PLAYERS + " players loaded");
+		} catch (InvalidLevelDataException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testGeneratedLevel () throws Exception {
+		BombermanGameData data = null;
+		for (long seed = 1; data == null; seed++) {
+			try {
+				data = load(BombermanLevelGenerator.generateGrid(41, 64, new MatchRandom(seed)));
+			} catch (InvalidLevelDataException e) {
+				// Players walled in, try the next seed
+			}
+		}
+		List<Player> players = data.getPlayers();
+		assertEquals(64, players.size());
+
+		// Every player has an ID and a description of its own, spawn points start in a free area
+		Set<String> descriptions = new HashSet<String>();
+		BitBoard bits = data.getBitBoard();
+		for (Player pl : players) {
+			assertTrue(pl.getPlayerID() >= 1 && pl.getPlayerID() <= 64);
+			assertTrue(descriptions.add(pl.getDescription()));
+			if (pl.getPlayerID() <= 4)
+				continue;
+			for (int y = pl.getY() - 1; y <= pl.getY() + 1; y++) {
+				for (int x = pl.getX() - 1; x <= pl.getX() + 1; x++) {
+					if (x > 0 && y > 0 && x < 40 && y < 40)
+						assertFalse(bits.get(BitBoard.WALL, x, y) || bits.get(BitBoard.STONE, x, y));
+				}
+			}
+		}
+
+		HeadlessSimulation sim = new HeadlessSimulation(data);
+		sim.setRandomBots(1);
+		sim.run(500);
+		assertTrue(data.getAlivePlayerCount() < 64);
+	}
+
+	@Test
+	public void testAlivePlayersInIdOrder () throws Exception {
+		BombermanGameData data = load(SPAWNS);
+		data.removePlayer(4);
+		data.removePlayer(1);
+		data.removePlayer(10);
+
+		List<Player> alive = data.getAlivePlayers();
+		assertEquals(7, alive.size());
+		assertEquals(data.getAlivePlayerCount(), alive.size());
+		int last = 0;
+		for (Player pl : alive) {
+			assertTrue(pl.getPlayerID() > last);
+			assertFalse(data.isDead(pl.getPlayerID()));
+			last = pl.getPlayerID();
+		}
+		assertEquals(2, alive.get(0).getPlayerID());
+		assertEquals(9, alive.get(6).getPlayerID());
+	}
+
+	/**
+	 * Gespeichert stehen Spieler ab 10 wieder als Spawnpunkt da und bekommen beim Laden ihre IDs
+	 * zurück, solange niemand die Reihenfolge verändert hat.
+	 */
+	@Test
+	public void testRoundTrip () throws Exception {
+		BombermanGameData data = load(BombermanLevelGenerator.generateGrid(25, 16, new MatchRandom(3)));
+		StringBuilder level = new StringBuilder();
+		for (int y = 0; y < data.getBoard().getHeight(); y++) {
+			if (y > 0)
+				level.append('\n');
+			for (int x = 0; x < data.getBoard().getWidth(); x++) {
+				List<GameElement> field = data.getBoard().getElements(x, y);
+				level.append(field.get(field.size() - 1).getParsingSymbol());
+			}
+		}
+
+		BombermanGameData reloaded = load(level.toString());
+		assertEquals(16, reloaded.getPlayers().size());
+		for (Player pl : data.getPlayers()) {
+			Player other = reloaded.getPlayer(pl.getPlayerID());
+			assertEquals(pl.getX(), other.getX());
+			assertEquals(pl.getY(), other.getY());
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package de.tu_darmstadt.gdi1.bomberman.tests;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import de.tu_darmstadt.gdi1.bomberman.game.MatchRandom;
+import de.tu_darmstadt.gdi1.bomberman.game.board.BitBoard;
+import de.tu_darmstadt.gdi1.bomberman.game.levels.BombermanGameData;
+import de.tu_darmstadt.gdi1.bomberman.game.levels.BombermanLevelGenerator;
+import de.tu_darmstadt.gdi1.bomberman.game.levels.BombermanLevelManager;
+import de.tu_darmstadt.gdi1.bomberman.simulation.HeadlessSimulation;
+import de.tu_darmstadt.gdi1.bomberman.simulation.SimulationResult;
+
+/**
+ * Prüft, dass gleiche Seeds gleiche Matches ergeben.
+ */
+public class MatchRandomTest {
+	String simpleLevel = "###################\n"+
+						 "#1 ***  *  * *** 2#\n"+
+						 "# ###*#*# #*#*### #\n"+
+						 "# #* *  ***  * *#*#\n"+
+						 "#*#*# #*#*#*# #*#*#\n"+
+						 "#* ************  *#\n"+
+						 "#*#*# #*#*#*# #*#*#\n"+
+						 "#*#* *  ***  * *#*#\n"+
+						 "# ###*#*# #*#*### #\n"+
+						 "#3 ***  *  * *** 4#\n"+
+						 "###################\n";
+
+	@Test
+	public void testSameSeedSameNumbers () {
+		MatchRandom a = new MatchRandom(42);
+		MatchRandom b = new MatchRandom(42);
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(a.nextLong(), b.nextLong());
+			int value = a.nextInt(7);
+			assertEquals(value, b.nextInt(7));
+			assertTrue(value >= 0 && value < 7);
+		}
+
+		// Split streams are reproducible as well, and differ from their parent
+		MatchRandom splitA = a.split();
+		MatchRandom splitB = b.split();
+		assertEquals(splitA.nextLong(), splitB.nextLong());
+		assertFalse(splitA.nextLong() == a.nextLong());
+	}
+
+	/**
+	 * Zwei Matches mit demselben Seed: gleicher Verlauf, gleiche PowerUps, gleiches Spielfeld.
+	 */
+	@Test
+	public void testSameSeedSameMatch () throws Exception {
+		for (long seed = 1; seed <= 5; seed++) {
+			BombermanLevelManager levelManager = new BombermanLevelManager(false);
+			BombermanGameData dataA = (BombermanGameData) levelManager.loadLevel(simpleLevel);
+			BombermanGameData dataB = (BombermanGameData) levelManager.loadLevel(simpleLevel);
+			HeadlessSimulation first = new HeadlessSimulation(dataA);
+			HeadlessSimulation second = new HeadlessSimulation(dataB);
+			first.setSeed(seed);
+			second.setSeed(seed);
+
+			SimulationResult a = first.run(2000);
+			SimulationResult b = second.run(2000);
+
+			assertEquals(a.getTicks(), b.getTicks());
+			assertEquals(a.getWinner(), b.getWinner());
+			assertEquals(a.getKills(), b.getKills());
+
+			BitBoard bitsA = dataA.getBitBoard();
+			BitBoard bitsB = dataB.getBitBoard();
+			for (int layer = 0; layer < BitBoard.LAYERS; layer++) {
+				assertArrayEquals(bitsA.getLayer(layer), bitsB.getLayer(layer));
+			}
+		}
+	}
+
+	@Test
+	public void testSeedFromLevel () throws Exception {
+		BombermanLevelManager levelManager = new BombermanLevelManager(false);
+		BombermanGameData data = (BombermanGameData) levelManager.loadLevel("// seed: 1234\n" + simpleLevel);
+		assertEquals(1234, data.getSeed());
+		assertEquals(new MatchRandom(1234).nextLong(), data.getRandom().nextLong());
+	}
+
+	@Test
+	public void testGeneratedLevelFromSeed () {
+		String a = BombermanLevelGenerator.generateGrid(12, 4, new MatchRandom(7));
+		String b = BombermanLevelGenerator.generateGrid(12, 4, new MatchRandom(7));
+		assertEquals(a, b);
+	}
+}
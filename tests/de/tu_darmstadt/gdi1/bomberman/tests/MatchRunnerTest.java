@@ -0,0 +1,59 @@
+package de.tu_darmstadt.gdi1.bomberman.tests;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import de.tu_darmstadt.gdi1.bomberman.game.levels.BombermanGameData;
+import de.tu_darmstadt.gdi1.bomberman.game.levels.BombermanLevelManager;
+import de.tu_darmstadt.gdi1.bomberman.simulation.MatchRunner;
+import de.tu_darmstadt.gdi1.bomberman.simulation.MatchStatistics;
+import de.tu_darmstadt.gdi1.bomberman.simulation.SimulationResult;
+
+/**
+ * Prüft, dass parallel laufende Matches sich nicht gegenseitig beeinflussen.
+ */
+public class MatchRunnerTest {
+	String simpleLevel = "###################\n"+
+						 "#1 ***  *  * *** 2#\n"+
+						 "# ###*#*# #*#*### #\n"+
+						 "# #* *  ***  * *#*#\n"+
+						 "#*#*# #*#*#*# #*#*#\n"+
+						 "#* ************  *#\n"+
+						 "#*#*# #*#*#*# #*#*#\n"+
+						 "#*#* *  ***  * *#*#\n"+
+						 "# ###*#*# #*#*### #\n"+
+						 "#3 ***  *  * *** 4#\n"+
+						 "###################\n";
+
+	@Test
+	public void testEveryMatchIsCounted () throws Exception {
+		MatchRunner runner = MatchRunner.fromLevelString(simpleLevel);
+		MatchStatistics stats = runner.run(16, 4, 7);
+
+		assertEquals(16, stats.getMatches());
+		long wins = 0;
+		for (int player = 1; player <= 4; player++) {
+			wins += stats.getWins(player);
+		}
+		assertEquals(16, wins + stats.getDraws() + stats.getTimeouts());
+		assertTrue(stats.getTicks() > 0);
+		assertTrue(stats.getWallNanos() > 0);
+	}
+
+	/**
+	 * Jedes Match spielt auf einer eigenen Kopie - die Vorlage bleibt unberührt.
+	 */
+	@Test
+	public void testTemplateIsNotModified () throws Exception {
+		BombermanLevelManager levelManager = new BombermanLevelManager(false);
+		BombermanGameData template = (BombermanGameData) levelManager.loadLevel(simpleLevel);
+		MatchRunner runner = new MatchRunner(template);
+
+		SimulationResult result = runner.runMatch(1);
+
+		assertTrue(result.isFinished());
+		assertEquals(4, template.getAlivePlayerCount());
+		assertTrue(template.getBombs().isEmpty());
+		assertFalse(template.getContext().isHeadless());
+	}
+}
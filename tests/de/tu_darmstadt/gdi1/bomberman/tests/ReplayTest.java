@@ -0,0 +1,62 @@
+package de.tu_darmstadt.gdi1.bomberman.tests;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import de.tu_darmstadt.gdi1.bomberman.replay.Replay;
+import de.tu_darmstadt.gdi1.bomberman.replay.ReplayPlayer;
+import de.tu_darmstadt.gdi1.bomberman.replay.ReplayRecorder;
+import de.tu_darmstadt.gdi1.bomberman.simulation.HeadlessSimulation;
+import de.tu_darmstadt.gdi1.bomberman.simulation.SimulationResult;
+
+/**
+ * Prüft, dass ein aufgezeichnetes Match beim Abspielen exakt gleich verläuft.
+ */
+public class ReplayTest {
+	String simpleLevel = "###################\n"+
+						 "#1 ***  *  * *** 2#\n"+
+						 "# ###*#*# #*#*### #\n"+
+						 "# #* *  ***  * *#*#\n"+
+						 "#*#*# #*#*#*# #*#*#\n"+
+						 "#* ************  *#\n"+
+						 "#*#*# #*#*#*# #*#*#\n"+
+						 "#*#* *  ***  * *#*#\n"+
+						 "# ###*#*# #*#*### #\n"+
+						 "#3 ***  *  * *** 4#\n"+
+						 "###################\n";
+
+	@Test
+	public void testPlaybackMatchesRecording () throws Exception {
+		for (long seed = 1; seed <= 5; seed++) {
+			HeadlessSimulation sim = HeadlessSimulation.fromLevelString(simpleLevel);
+			sim.setSeed(seed);
+			Replay recorded = ReplayRecorder.record(sim, 3000);
+
+			// Through the file format and back
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			recorded.write(out);
+			Replay replay = Replay.read(new ByteArrayInputStream(out.toByteArray()));
+			assertEquals(recorded.getSeed(), replay.getSeed());
+			assertEquals(recorded.getLevel(), replay.getLevel());
+
+			SimulationResult played = ReplayPlayer.play(replay);
+			assertEquals(recorded.getTicks(), played.getTicks());
+			assertEquals(recorded.getWinner(), played.getWinner());
+			assertEquals(recorded.getChecksum(), played.getChecksum());
+			assertEquals(sim.getKills(), played.getKills());
+		}
+	}
+
+	@Test
+	public void testLevelKeepsSeed () throws Exception {
+		HeadlessSimulation sim = HeadlessSimulation.fromLevelString(simpleLevel);
+		sim.setSeed(77);
+		Replay replay = ReplayRecorder.record(sim, 10);
+
+		assertTrue(replay.getLevel().contains("// seed: 77"));
+		assertEquals(77, new ReplayPlayer(replay).createGameData().getSeed());
+	}
+}
@@ -0,0 +1,144 @@
+package de.tu_darmstadt.gdi1.bomberman.tests;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import de.tu_darmstadt.gdi1.bomberman.game.BombermanGame;
+import de.tu_darmstadt.gdi1.bomberman.game.SnapshotRing;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Bomb;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Player;
+import de.tu_darmstadt.gdi1.bomberman.game.levels.BombermanGameData;
+import de.tu_darmstadt.gdi1.bomberman.replay.Replay;
+import de.tu_darmstadt.gdi1.bomberman.replay.ReplayPlayer;
+import de.tu_darmstadt.gdi1.bomberman.replay.ReplayRecorder;
+import de.tu_darmstadt.gdi1.bomberman.simulation.HeadlessSimulation;
+
+/**
+ * Prüft, dass ein auf einen früheren Tick zurückgesetztes Spiel mit denselben Eingaben genau
+ * wie beim ersten Mal weiterläuft.
+ */
+public class SnapshotTest {
+	String simpleLevel = "###################\n"+
+						 "#1 ***  *  * *** 2#\n"+
+						 "# ###*#*# #*#*### #\n"+
+						 "# #* *  ***  * *#*#\n"+
+						 "#*#*# #*#*#*# #*#*#\n"+
+						 "#* ************  *#\n"+
+						 "#*#*# #*#*#*# #*#*#\n"+
+						 "#*#* *  ***  * *#*#\n"+
+						 "# ###*#*# #*#*### #\n"+
+						 "#3 ***  *  * *** 4#\n"+
+						 "###################\n";
+
+	/**
+	 * Spielt ein aufgezeichnetes Match ab und springt dabei immer wieder zurück. Jeder Tick muss
+	 * beim zweiten Mal denselben Spielstand ergeben, und am Ende dasselbe Ergebnis.
+	 */
+	@Test
+	public void testRollbackReplaysIdentically () throws Exception {
+		for (long seed = 1; seed <= 3; seed++) {
+			HeadlessSimulation recording = HeadlessSimulation.fromLevelString(simpleLevel);
+			recording.setSeed(seed);
+			Replay replay = ReplayRecorder.record(recording, 3000);
+
+			ReplayPlayer player = new ReplayPlayer(replay);
+			BombermanGameData data = player.createGameData();
+			HeadlessSimulation sim = new HeadlessSimulation(data);
+			BombermanGame game = sim.getGame();
+			game.setInputSource(player);
+
+			// Small, so that it wraps around during the match
+			SnapshotRing ring = new SnapshotRing(data, 20, 8);
+			String[] states = new String[(int) replay.getTicks() + 1];
+			states[0] = describe(data);
+			ring.capture();
+
+			long rollbacks = 0;
+			for (int tick = 1; tick <= replay.getTicks(); tick++) {
+				game.tick();
+				ring.capture();
+				boolean firstVisit = states[tick] == null;
+				if (firstVisit)
+					states[tick] = describe(data);
+				else
+					assertEquals("Tick " + tick + " after a rollback", states[tick], describe(data));
+
+				// Every few ticks, go back a varying distance and play on from there
+				if (firstVisit && tick % 7 == 0) {
+					long back = Math.max(ring.getOldestTick(), tick - 1 - rollbacks * 3 % 25);
+					ring.restore(back);
+					game.rewindTo(back);
+					game.setInputSource(new ReplayPlayer(replay));
+					assertEquals("Restored tick " + back, states[(int) back], describe(data));
+					tick = (int) back;
+					rollbacks++;
+				}
+			}
+
+			assertTrue(rollbacks > 5);
+			assertEquals(replay.getTicks(), game.getTickCount());
+			assertEquals(replay.getWinner(), sim.getWinner());
+			assertEquals(replay.getChecksum(), data.getBitBoard().checksum());
+			assertEquals(recording.getKills(), sim.getKills());
+		}
+	}
+
+	@Test
+	public void testOnlyLastTicksAreKept () throws Exception {
+		HeadlessSimulation sim = HeadlessSimulation.fromLevelString(simpleLevel);
+		sim.setSeed(5);
+		BombermanGameData data = sim.getGame().getBombermanGameData();
+		SnapshotRing ring = new SnapshotRing(data, 10, 4);
+
+		for (int tick = 0; tick <= 50; tick++) {
+			if (tick > 0)
+				sim.run(1);
+			ring.capture();
+		}
+
+		assertEquals(50, ring.getNewestTick());
+		assertTrue(ring.getOldestTick() <= 41);
+		for (long tick = 41; tick <= 50; tick++) {
+			assertTrue(ring.canRestore(tick));
+		}
+		assertFalse(ring.canRestore(30));
+		assertFalse(ring.canRestore(51));
+
+		try {
+			ring.restore(30);
+			fail("Tick 30 should be gone");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+
+		// Going back drops the newer snapshots
+		ring.restore(45);
+		assertEquals(45, ring.getNewestTick());
+		assertFalse(ring.canRestore(46));
+	}
+
+	private static String describe (BombermanGameData data) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(data.getCurrentTick()).append(' ').append(data.getRandom().getState()).append('\n');
+		for (Player pl : data.getPlayers()) {
+			sb.append(pl.getPlayerID()).append(data.isDead(pl.getPlayerID()) ? " dead" : "")
+					.append(" at ").append(pl.getX()).append(',').append(pl.getY())
+					.append(' ').append(pl.getDirection()).append(' ').append(pl.getNextMoveAllowedTick())
+					.append(' ').append(pl.getMoveDelay()).append(' ').append(pl.getBombradius())
+					.append(' ').append(pl.getmymaxbombs()).append(' ').append(pl.getMyBombs().size())
+					.append(' ').append(pl.getKillCount()).append('\n');
+		}
+		for (Bomb bomb : data.getBombs()) {
+			sb.append("bomb ").append(bomb.getX()).append(',').append(bomb.getY()).append(' ')
+					.append(bomb.getPlayer().getPlayerID()).append(' ').append(bomb.getExplosionTick()).append('\n');
+		}
+		sb.append(data.getExplosions().size()).append(" explosions, checksum ")
+				.append(data.getBitBoard().checksum()).append('\n');
+		for (int y = 0; y < data.getBoard().getHeight(); y++) {
+			for (int x = 0; x < data.getBoard().getWidth(); x++) {
+				sb.append(data.getBoard().getElements(x, y).size());
+			}
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,99 @@
+package de.tu_darmstadt.gdi1.bomberman.tests;
+
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import de.tu_darmstadt.gdi1.bomberman.game.MatchContext;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.GameElement;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Wall;
+import de.tu_darmstadt.gdi1.bomberman.game.levels.BombermanGameData;
+import de.tu_darmstadt.gdi1.bomberman.simulation.HeadlessSimulation;
+
+/**
+ * Prüft, wann und in welcher Reihenfolge Sudden Death die Arena zumauert.
+ */
+public class SuddenDeathTest {
+	String simpleLevel = "###################\n"+
+						 "#1 ***  *  * *** 2#\n"+
+						 "# ###*#*# #*#*### #\n"+
+						 "# #* *  ***  * *#*#\n"+
+						 "#*#*# #*#*#*# #*#*#\n"+
+						 "#* ************  *#\n"+
+						 "#*#*# #*#*#*# #*#*#\n"+
+						 "#*#* *  ***  * *#*#\n"+
+						 "# ###*#*# #*#*### #\n"+
+						 "#3 ***  *  * *** 4#\n"+
+						 "###################\n";
+
+	/**
+	 * Ohne Einstellungen fällt die erste Mauer in Sekunde 300 auf (1,1), danach eine pro Sekunde.
+	 */
+	@Test
+	public void testDefaultTiming () throws Exception {
+		HeadlessSimulation sim = HeadlessSimulation.fromLevelString(simpleLevel);
+		BombermanGameData data = sim.getGame().getBombermanGameData();
+
+		sim.run(5999);
+		assertFalse(isWall(data, 1, 1));
+		assertFalse(data.isDead(1));
+
+		sim.run(1);
+		assertTrue(isWall(data, 1, 1));
+		assertTrue(data.isDead(1));
+		assertFalse(isWall(data, 2, 1));
+
+		sim.run(19);
+		assertFalse(isWall(data, 2, 1));
+		sim.run(1);
+		assertTrue(isWall(data, 2, 1));
+	}
+
+	/**
+	 * Drei Felder pro Tick ab Sekunde 1: die Spirale läuft oben von links nach rechts, dann die
+	 * rechte Spalte hinunter und unten zurück. Spieler 1, 2, 4 sterben in dieser Reihenfolge,
+	 * Spieler 3 unten links gewinnt.
+	 */
+	@Test
+	public void testSpiral () throws Exception {
+		HeadlessSimulation sim = HeadlessSimulation.fromLevelString(simpleLevel);
+		BombermanGameData data = sim.getGame().getBombermanGameData();
+		MatchContext context = data.getContext();
+		context.setSuddenDeathStart(1);
+		context.setSuddenDeathStepTicks(1);
+		context.setSuddenDeathCellsPerStep(3);
+
+		sim.run(19);
+		assertFalse(isWall(data, 1, 1));
+
+		sim.run(1);
+		assertTrue(isWall(data, 1, 1));
+		assertTrue(isWall(data, 2, 1));
+		assertTrue(isWall(data, 3, 1));
+		assertFalse(isWall(data, 4, 1));
+		assertTrue(data.isDead(1));
+		assertFalse(data.isDead(2));
+
+		// (17,1) is the 17th cell of the spiral
+		sim.run(5);
+		assertTrue(isWall(data, 17, 1));
+		assertTrue(data.isDead(2));
+		assertTrue(isWall(data, 17, 2));
+		assertFalse(isWall(data, 17, 3));
+
+		// Down the right column
+		sim.run(3);
+		assertTrue(isWall(data, 17, 9));
+		assertTrue(data.isDead(4));
+		assertFalse(data.isDead(3));
+		assertFalse(isWall(data, 1, 2));
+		assertTrue(sim.isDecided());
+		assertEquals(3, sim.getWinner());
+	}
+
+	private boolean isWall (BombermanGameData data, int x, int y) {
+		List<GameElement> elements = data.getBoard().getElements(x, y);
+		return elements.get(elements.size() - 1) instanceof Wall;
+	}
+}
@@ -0,0 +1,95 @@
+package de.tu_darmstadt.gdi1.bomberman.tests;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Assume;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import de.tu_darmstadt.gdi1.bomberman.game.BombermanGame;
+import de.tu_darmstadt.gdi1.bomberman.game.InputBuffer;
+import de.tu_darmstadt.gdi1.bomberman.gui.ControllerInputEvent;
+import de.tu_darmstadt.gdi1.bomberman.simulation.HeadlessSimulation;
+
+/**
+ * Prüft, dass ein Tick ohne Bomben nach dem Aufwärmen keinen Speicher anlegt, weder wenn alle
+ * herumstehen noch wenn ein Spieler läuft - sonst ruckelt es irgendwann wegen der GC.
+ *
+ * Gezählt wird mit ThreadMXBean.getThreadAllocatedBytes(). Solange der JIT noch übersetzt, fällt
+ * hin und wieder etwas an, daher reicht ein Messfenster ganz ohne Allokation.
+ */
+public class TickAllocationTest {
+	String simpleLevel = "###################\n"+
+						 "#1 ***  *  * *** 2#\n"+
+						 "# ###*#*# #*#*### #\n"+
+						 "# #* *  ***  * *#*#\n"+
+						 "#*#*# #*#*#*# #*#*#\n"+
+						 "#* ************  *#\n"+
+						 "#*#*# #*#*#*# #*#*#\n"+
+						 "#*#* *  ***  * *#*#\n"+
+						 "# ###*#*# #*#*### #\n"+
+						 "#3 ***  *  * *** 4#\n"+
+						 "###################\n";
+
+	private static final int WINDOWS = 10;
+	private static final int TICKS_PER_WINDOW = 1000;
+
+	@Test
+	public void testIdleTickAllocatesNothing () throws Exception {
+		BombermanGame game = game();
+		assertEquals(0, leastBytesPerWindow(game, false));
+	}
+
+	@Test
+	public void testMovingTickAllocatesNothing () throws Exception {
+		BombermanGame game = game();
+		assertEquals(0, leastBytesPerWindow(game, true));
+	}
+
+	private BombermanGame game () throws Exception {
+		HeadlessSimulation sim = HeadlessSimulation.fromLevelString(simpleLevel);
+		BombermanGame game = sim.getGame();
+		// No sudden death walls while measuring
+		game.getContext().setSuddenDeathStart(1000000);
+		return game;
+	}
+
+	/**
+	 * Lässt das Spiel laufen und misst fensterweise. Beim Laufen pendelt Spieler 1 in seiner
+	 * Spalte auf und ab.
+	 * @return Die wenigsten Bytes, die in einem Fenster angelegt wurden.
+	 */
+	private long leastBytesPerWindow (BombermanGame game, boolean moving) {
+		Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+		threads.setThreadAllocatedMemoryEnabled(true);
+		long id = Thread.currentThread().getId();
+
+		InputBuffer input = game.getBombermanGameData().getInputBuffer();
+		long least = Long.MAX_VALUE;
+		for (int window = -2; window < WINDOWS && least > 0; window++) {
+			long before = threads.getThreadAllocatedBytes(id);
+			for (int i = 0; i < TICKS_PER_WINDOW; i++) {
+				if (moving && i % 20 == 0) {
+					ControllerInputEvent.button button = (i / 20) % 2 == 0
+							? ControllerInputEvent.button.DOWN : ControllerInputEvent.button.UP;
+					ControllerInputEvent.button other = button == ControllerInputEvent.button.DOWN
+							? ControllerInputEvent.button.UP : ControllerInputEvent.button.DOWN;
+					input.offer(1, other, ControllerInputEvent.state.RELEASED, 0);
+					input.offer(1, button, ControllerInputEvent.state.PRESSED, 0);
+				}
+				game.tick();
+			}
+			long bytes = threads.getThreadAllocatedBytes(id) - before;
+			// The first two windows only warm up
+			if (window >= 0)
+				least = Math.min(least, bytes);
+		}
+
+		if (moving)
+			assertTrue("player 1 should have walked", game.getBombermanGameData().getPlayer(1).getY() > 1
+					|| game.getBombermanGameData().getPlayer(1).getNextMoveAllowedTick() > 0);
+		return least;
+	}
+}
@@ -0,0 +1,97 @@
+package de.tu_darmstadt.gdi1.bomberman.tests;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import de.tu_darmstadt.gdi1.bomberman.game.TickProfiler;
+import de.tu_darmstadt.gdi1.bomberman.simulation.HeadlessSimulation;
+
+/**
+ * Prüft die Perzentile des TickProfilers, das Messen im Spiel und die Anmeldung als MBean.
+ */
+public class TickProfilerTest {
+	String simpleLevel = "###################\n"+
+						 "#1 ***  *  * *** 2#\n"+
+						 "# ###*#*# #*#*### #\n"+
+						 "# #* *  ***  * *#*#\n"+
+						 "#*#*# #*#*#*# #*#*#\n"+
+						 "#* ************  *#\n"+
+						 "#*#*# #*#*#*# #*#*#\n"+
+						 "#*#* *  ***  * *#*#\n"+
+						 "# ###*#*# #*#*### #\n"+
+						 "#3 ***  *  * *** 4#\n"+
+						 "###################\n";
+
+	/**
+	 * 1 bis 1000 Mikrosekunden: die Perzentile dürfen höchstens um die Fachbreite (1/16) daneben
+	 * liegen, das Maximum ist exakt.
+	 */
+	@Test
+	public void testPercentiles () {
+		TickProfiler profiler = new TickProfiler("test");
+		assertEquals(0, profiler.getPercentileNanos(TickProfiler.Phase.BOMBS, 50));
+
+		for (int i = 1000; i >= 1; i--) {
+			profiler.record(TickProfiler.Phase.BOMBS, i * 1000L);
+		}
+		assertNear(500000, profiler.getPercentileNanos(TickProfiler.Phase.BOMBS, 50));
+		assertNear(990000, profiler.getPercentileNanos(TickProfiler.Phase.BOMBS, 99));
+		assertNear(999000, profiler.getPercentileNanos(TickProfiler.Phase.BOMBS, 99.9));
+		assertEquals(1000000, profiler.getPercentileNanos(TickProfiler.Phase.BOMBS, 100));
+		assertEquals(1000000, profiler.getMaxNanos("BOMBS"));
+		assertEquals(0, profiler.getMaxNanos(TickProfiler.Phase.MOVING));
+
+		// Small values are exact
+		profiler.record(TickProfiler.Phase.INPUT, 7);
+		assertEquals(7, profiler.getPercentileNanos(TickProfiler.Phase.INPUT, 50));
+	}
+
+	private static void assertNear (long expected, long actual) {
+		assertTrue("expected about " + expected + ", was " + actual, Math.abs(actual - expected) <= expected / 16);
+	}
+
+	@Test
+	public void testGameTicks () throws Exception {
+		HeadlessSimulation sim = HeadlessSimulation.fromLevelString(simpleLevel);
+		TickProfiler profiler = new TickProfiler("test");
+		sim.getGame().getContext().setProfiler(profiler);
+
+		sim.run(100);
+		assertEquals(100, profiler.getTicks());
+		assertEquals(50000000, profiler.getBudgetNanos());
+		assertTrue(profiler.getMaxNanos(TickProfiler.Phase.TICK) > 0);
+		assertTrue(profiler.getMaxNanos(TickProfiler.Phase.TICK) >= profiler.getMaxNanos(TickProfiler.Phase.MOVING));
+		assertEquals(TickProfiler.Phase.values().length, profiler.getReport().length);
+
+		// Takes effect with the next tick
+		profiler.reset();
+		assertEquals(100, profiler.getTicks());
+		sim.run(1);
+		assertEquals(1, profiler.getTicks());
+	}
+
+	@Test
+	public void testMBean () throws Exception {
+		TickProfiler profiler = new TickProfiler("mbean-test");
+		profiler.register();
+		try {
+			assertNotNull(profiler.getObjectName());
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			profiler.begin();
+			profiler.lap(TickProfiler.Phase.INPUT);
+			profiler.end(Long.MAX_VALUE);
+			assertEquals(1L, server.getAttribute(profiler.getObjectName(), "Ticks"));
+			assertEquals(0L, server.getAttribute(profiler.getObjectName(), "Overruns"));
+			Object max = server.invoke(profiler.getObjectName(), "getMaxNanos", new Object[] {"TICK"},
+					new String[] {String.class.getName()});
+			assertEquals(profiler.getMaxNanos(TickProfiler.Phase.TICK), max);
+		} finally {
+			profiler.unregister();
+		}
+		assertNull(profiler.getObjectName());
+	}
+}
@@ -0,0 +1,127 @@
+package de.tu_darmstadt.gdi1.bomberman.tests;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import de.tu_darmstadt.gdi1.bomberman.game.BombermanGame;
+import de.tu_darmstadt.gdi1.bomberman.game.MatchContext;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Bomb;
+import de.tu_darmstadt.gdi1.bomberman.game.elements.Player;
+import de.tu_darmstadt.gdi1.bomberman.replay.Replay;
+import de.tu_darmstadt.gdi1.bomberman.replay.ReplayPlayer;
+import de.tu_darmstadt.gdi1.bomberman.replay.ReplayRecorder;
+import de.tu_darmstadt.gdi1.bomberman.simulation.HeadlessSimulation;
+import de.tu_darmstadt.gdi1.bomberman.simulation.SimulationResult;
+
+/**
+ * Prüft, dass die Tickrate pro Match einstellbar ist und die Spielregeln dabei in echter Zeit
+ * gleich bleiben: Zündschnur, Schrittweite und Sudden Death dauern bei 20 und bei 1000 Hz gleich
+ * lange, nur in mehr Ticks.
+ */
+public class TickRateTest {
+	String simpleLevel = "###################\n"+
+						 "#1 ***  *  * *** 2#\n"+
+						 "# ###*#*# #*#*### #\n"+
+						 "# #* *  ***  * *#*#\n"+
+						 "#*#*# #*#*#*# #*#*#\n"+
+						 "#* ************  *#\n"+
+						 "#*#*# #*#*#*# #*#*#\n"+
+						 "#*#* *  ***  * *#*#\n"+
+						 "# ###*#*# #*#*### #\n"+
+						 "#3 ***  *  * *** 4#\n"+
+						 "###################\n";
+
+	@Test
+	public void testLimits () {
+		MatchContext context = new MatchContext();
+		assertEquals(MatchContext.DEFAULT_TICK_RATE, context.getTickRate());
+		assertEquals(20, context.getTicksPerSecond());
+
+		context.setTicksPerSecond(60);
+		assertEquals(16666667, context.getTickNanos());
+		assertEquals(60, context.getTicksPerSecond());
+		assertEquals(17, context.getTickRate());
+
+		context.setTickRate(1);
+		assertEquals(1000, context.getTicksPerSecond());
+
+		for (int hz : new int[] {0, 19, 1001}) {
+			try {
+				context.setTicksPerSecond(hz);
+				fail(hz + " Hz accepted");
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+		}
+		try {
+			context.setTickRate(51);
+			fail("51 ms accepted");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		assertEquals(1000, context.getTicksPerSecond());
+	}
+
+	@Test
+	public void testDefaultRateKeepsTicks () {
+		MatchContext context = new MatchContext();
+		assertEquals(60, context.toTicks(Bomb.FUSE_MILLIS));
+		assertEquals(20, context.toTicks(Bomb.WARNING_MILLIS));
+		assertEquals(5, context.toTicks(Player.MOVE_DELAY_MILLIS));
+		assertEquals(3, context.toTicks(Player.MIN_MOVE_DELAY_MILLIS));
+		assertEquals(6000, context.getSuddenDeathStartTick());
+		assertEquals(20, context.getSuddenDeathStepTicks());
+		assertEquals(0, context.toTicks(0));
+		assertEquals(1, context.toTicks(1));
+	}
+
+	@Test
+	public void testGameplayTimeIndependentOfRate () throws Exception {
+		for (int hz : new int[] {20, 60, 1000}) {
+			HeadlessSimulation sim = HeadlessSimulation.fromLevelString(simpleLevel);
+			BombermanGame game = sim.getGame();
+			MatchContext context = game.getContext();
+			context.setTicksPerSecond(hz);
+
+			game.dropBomb(1);
+			Bomb bomb = game.getBombermanGameData().getBombs().get(0);
+			assertNear(hz, Bomb.FUSE_MILLIS, context.toMillis(bomb.getTicksTillExplode()));
+			assertNear(hz, Bomb.WARNING_MILLIS, context.toMillis(bomb.getWarningTicks()));
+
+			Player player = game.getBombermanGameData().getPlayer(1);
+			assertNear(hz, Player.MOVE_DELAY_MILLIS, context.toMillis(player.getMoveDelay()));
+			assertNear(hz, context.getSuddenDeathStart() * 1000, context.toMillis(context.getSuddenDeathStartTick()));
+
+			// One second of game time takes as many ticks as the rate says
+			sim.run(context.getTicksPerSecond());
+			assertEquals(1, game.getTimeInSeconds());
+		}
+	}
+
+	private static void assertNear (int hz, long expectedMillis, long actualMillis) {
+		long tickMillis = 1000 / hz + 1;
+		assertTrue(hz + " Hz: expected about " + expectedMillis + " ms, was " + actualMillis,
+				Math.abs(actualMillis - expectedMillis) <= tickMillis);
+	}
+
+	@Test
+	public void testReplayKeepsRate () throws Exception {
+		HeadlessSimulation sim = HeadlessSimulation.fromLevelString(simpleLevel);
+		sim.getGame().getContext().setTicksPerSecond(60);
+		sim.setSeed(3);
+		Replay recorded = ReplayRecorder.record(sim, 3000);
+		assertEquals(16666667, recorded.getTickNanos());
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		recorded.write(out);
+		Replay replay = Replay.read(new ByteArrayInputStream(out.toByteArray()));
+		assertEquals(recorded.getTickNanos(), replay.getTickNanos());
+
+		SimulationResult played = ReplayPlayer.play(replay);
+		assertEquals(recorded.getTicks(), played.getTicks());
+		assertEquals(recorded.getChecksum(), played.getChecksum());
+	}
+}
@@ -0,0 +1,89 @@
+package de.tu_darmstadt.gdi1.bomberman.tests;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import de.tu_darmstadt.gdi1.bomberman.game.TimingWheel;
+
+/**
+ * Prüft, dass das Zeitrad alles genau im eingeplanten Tick herausgibt - auch über die Grenzen der
+ * einzelnen Ebenen hinweg.
+ */
+public class TimingWheelTest {
+
+	@Test
+	public void testItemsComeDueInTheirTick () {
+		TimingWheel<Long> wheel = new TimingWheel<Long>();
+		long[] ticks = {1, 2, 63, 64, 65, 127, 128, 4095, 4096, 4097, 262143, 262144, 300000};
+		for (long tick : ticks) {
+			wheel.schedule(tick, tick);
+		}
+		assertEquals(ticks.length, wheel.size());
+
+		int found = 0;
+		while (wheel.getNow() < 300000) {
+			for (Long item : wheel.advance()) {
+				assertEquals(wheel.getNow(), item.longValue());
+				found++;
+			}
+		}
+		assertEquals(ticks.length, found);
+		assertEquals(0, wheel.size());
+	}
+
+	@Test
+	public void testSchedulingWhileRunning () {
+		TimingWheel<Long> wheel = new TimingWheel<Long>(1000);
+		wheel.advanceTo(1030);
+		wheel.schedule(5000L, 5000);
+		wheel.schedule(1100L, 1100);
+		wheel.advanceTo(1099);
+		wheel.schedule(1100L, 1100);
+
+		assertEquals(2, wheel.advance().size());
+		List<Long> due = wheel.advanceTo(5000);
+		assertEquals(1, due.size());
+		assertEquals(5000, due.get(0).longValue());
+	}
+
+	@Test
+	public void testSameTickKeepsOrder () {
+		TimingWheel<Integer> wheel = new TimingWheel<Integer>();
+		for (int i = 0; i < 10; i++) {
+			wheel.schedule(i, 200);
+		}
+
+		List<Integer> due = new ArrayList<Integer>(wheel.advanceTo(200));
+		for (int i = 0; i < 10; i++) {
+			assertEquals(i, due.get(i).intValue());
+		}
+
+		// Scheduled early into a higher level, the later one straight into level 0
+		wheel.schedule(10, 300);
+		wheel.advanceTo(240);
+		wheel.schedule(11, 300);
+		assertEquals(Arrays.asList(10, 11), wheel.advanceTo(300));
+
+		// Cascaded from level 2 into a level 1 slot that already holds a later one
+		wheel.schedule(20, 5000);
+		wheel.advanceTo(4000);
+		wheel.schedule(21, 5000);
+		wheel.advanceTo(4950);
+		wheel.schedule(22, 5000);
+		assertEquals(Arrays.asList(20, 21, 22), wheel.advanceTo(5000));
+	}
+
+	@Test
+	public void testPastTicksComeDueNext () {
+		TimingWheel<String> wheel = new TimingWheel<String>(50);
+		wheel.schedule("late", 10);
+
+		List<String> due = wheel.advance();
+		assertEquals(51, wheel.getNow());
+		assertEquals(1, due.size());
+	}
+}